@@ -20,14 +20,18 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
-import com.sun.jersey.api.client.WebResource;
 import io.hawkcd.agent.components.jobexecutor.IJobExecutor;
 import io.hawkcd.agent.components.jobexecutor.JobExecutor;
+import io.hawkcd.agent.components.report.ReportBuffer;
+import io.hawkcd.agent.components.transport.AgentTransport;
+import io.hawkcd.agent.components.transport.EndpointMetrics;
+import io.hawkcd.agent.components.transport.IAgentTransport;
+import io.hawkcd.agent.constants.ConfigConstants;
 import io.hawkcd.agent.constants.MessageConstants;
 import io.hawkcd.agent.enums.JobStatus;
 import io.hawkcd.agent.interfaces.IAgent;
+import io.hawkcd.agent.models.Job;
 import io.hawkcd.agent.models.TaskDefinition;
 import io.hawkcd.agent.models.payload.WorkInfo;
 import io.hawkcd.agent.utilities.deserializers.MaterialDefinitionAdapter;
@@ -53,17 +57,14 @@ public class Agent implements IAgent {
     private Timer reportTimer;
     private Timer reportAgentTimer;
     private IJobExecutor jobExecutor;
-    private Client restClient;
+    private IAgentTransport transport;
     private Gson jsonConverter;
 
     public Agent() {
         AgentConfiguration.configure();
         this.jobExecutor = new JobExecutor();
-        this.jsonConverter = new GsonBuilder()
-                .registerTypeAdapter(TaskDefinition.class, new TaskDefinitionAdapter())
-                .registerTypeAdapter(MaterialDefinition.class, new MaterialDefinitionAdapter())
-                .create();
-        this.restClient = Client.create();
+        this.jsonConverter = createJsonConverter();
+        this.transport = AgentTransport.getInstance();
 
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
@@ -71,78 +72,70 @@ public class Agent implements IAgent {
 
     //Using IoC container
     public Agent(IJobExecutor jobExecutor) {
+        this(jobExecutor, AgentTransport.getInstance());
+    }
+
+    public Agent(IJobExecutor jobExecutor, IAgentTransport transport) {
         this.jobExecutor = jobExecutor;
+        this.jsonConverter = createJsonConverter();
+        this.transport = transport;
+    }
+
+    private static Gson createJsonConverter() {
+        return new GsonBuilder()
+                .registerTypeAdapter(TaskDefinition.class, new TaskDefinitionAdapter())
+                .registerTypeAdapter(MaterialDefinition.class, new MaterialDefinitionAdapter())
+                .create();
     }
 
     @Override
     public void reportJobToServer() {
-        //String report = prepareReportForServer();
-        WebResource webResource = this.restClient.resource(AgentConfiguration.getInstallInfo().getReportJobApiAddress());
-        ClientResponse response = null;
-        try {
-            String jobAsString = this.jsonConverter.toJson(this.jobExecutor.getCurrentJob());
-            response = webResource.type("application/json").put(ClientResponse.class, jobAsString);
-        } catch (Exception e) {
-//            this.logger.info(MessageConstants.AGENT_COULD_NOT_CONNECT);
+        if (!this.transport.isServerAvailable()) {
+            return;
+        }
+
+        String address = AgentConfiguration.getInstallInfo().getReportJobApiAddress();
+        String jobAsString = this.serializeCurrentJob();
+        ClientResponse response = this.transport.put(ConfigConstants.ENDPOINT_REPORT_JOB, address, jobAsString);
+        if (!this.isOk(response)) {
+            return;
         }
 
-        if ((response != null) && (response.getStatus() == Status.OK.getStatusCode())) {
-//            this.logger.info(MessageConstants.JOB_REPORT_SENT);
-
-            if ((this.jobExecutor.getCurrentJob() != null) && ((this.jobExecutor.getCurrentJob().getStatus() == JobStatus.PASSED) || (this.jobExecutor.getCurrentJob().getStatus() == JobStatus.FAILED))) {
-                try {
-                    //report = prepareReportForServer();
-                    String jobAsString = this.jsonConverter.toJson(this.jobExecutor.getCurrentJob());
-                    response = webResource.type("application/json").put(ClientResponse.class, jobAsString);
-                } catch (Exception e) {
-//                    this.logger.info(MessageConstants.AGENT_COULD_NOT_CONNECT);
-                }
-
-                if ((response != null) && (response.getStatus() == Status.OK.getStatusCode())) {
-                    String jobAsString = this.jsonConverter.toJson(this.jobExecutor.getCurrentJob());
-                    webResource.type("application/json").put(ClientResponse.class, jobAsString);
-                    this.logger.info(MessageConstants.JOB_REPORT_SENT);
-                    AgentConfiguration.getAgentInfo().setRunning(false);
-                    this.jobExecutor.setCurrentJob(null);
-                }
+        if ((this.jobExecutor.getCurrentJob() != null) && ((this.jobExecutor.getCurrentJob().getStatus() == JobStatus.PASSED) || (this.jobExecutor.getCurrentJob().getStatus() == JobStatus.FAILED))) {
+            jobAsString = this.serializeCurrentJob();
+            response = this.transport.put(ConfigConstants.ENDPOINT_REPORT_JOB, address, jobAsString);
+
+            if (this.isOk(response)) {
+                this.logger.info(MessageConstants.JOB_REPORT_SENT);
+                AgentConfiguration.getAgentInfo().setRunning(false);
+                this.jobExecutor.resetJobExecutionInfo();
             }
         }
     }
 
     @Override
     public void reportAgentToServer() {
-        WebResource webResource = this.restClient.resource(AgentConfiguration.getInstallInfo().getReportAgentApiAddress());
-        ClientResponse response = null;
-
-        try {
-            String agentAsString = this.jsonConverter.toJson(AgentConfiguration.getAgentInfo());
-//            this.logger.info(MessageConstants.AGENT_REPORT_SENT);
-            response = webResource.type("application/json").put(ClientResponse.class, agentAsString);
-        } catch (Exception e) {
-//            this.logger.info(MessageConstants.AGENT_COULD_NOT_CONNECT);
+        if (!this.transport.isServerAvailable()) {
+            return;
         }
+
+        String agentAsString = this.jsonConverter.toJson(AgentConfiguration.getAgentInfo());
+        ClientResponse response = this.transport.put(ConfigConstants.ENDPOINT_REPORT_AGENT, AgentConfiguration.getInstallInfo().getReportAgentApiAddress(), agentAsString);
+        this.transport.close(response);
     }
 
     @Override
     public void checkForWork() {
-//        this.logger.info(MessageConstants.AGENT_CHECKING_FOR_WORK);
         boolean isRunning = AgentConfiguration.getAgentInfo().isRunning();
-        if (!isRunning) {
-            WebResource webResource = this.restClient.resource(AgentConfiguration.getInstallInfo().getCheckForWorkApiAddress());
-            ClientResponse response = null;
-
-            try {
-                response = webResource.accept("application/json").get(ClientResponse.class);
-            } catch (Exception e) {
-//                this.logger.info(MessageConstants.AGENT_COULD_NOT_CONNECT);
-            }
+        if (!isRunning && this.transport.isServerAvailable()) {
+            ClientResponse response = this.transport.get(ConfigConstants.ENDPOINT_CHECK_FOR_WORK, AgentConfiguration.getInstallInfo().getCheckForWorkApiAddress());
 
             WorkInfo workInfo = null;
             if ((response != null) && (response.getStatus() == Status.OK.getStatusCode())) {
                 String responseEntity = response.getEntity(String.class);
 
                 workInfo = this.jsonConverter.fromJson(responseEntity, WorkInfo.class);
-            } else if ((response != null) && (response.getStatus() != Status.OK.getStatusCode())) {
+            } else if (response != null) {
                 this.logger.info(response.getEntity(String.class));
             }
 
@@ -168,6 +161,10 @@ public class Agent implements IAgent {
         this.stopReportJobTimer();
         this.stopReportAgentTimer();
         this.stopCheckForWorkTimer();
+        for (EndpointMetrics metrics : this.transport.getMetrics().values()) {
+            this.logger.info(metrics);
+        }
+
         this.logger.info(MessageConstants.AGENT_STOPPED);
     }
 
@@ -180,7 +177,7 @@ public class Agent implements IAgent {
             }
         };
         this.reportTimer = new Timer();
-        this.reportTimer.schedule(reportTask, 0, 4000);
+        this.reportTimer.schedule(reportTask, this.transport.getJitteredDelay(ConfigConstants.AGENT_TIMER_PERIOD), ConfigConstants.AGENT_TIMER_PERIOD);
     }
 
     private void startReportAgentTimer() {
@@ -192,7 +189,7 @@ public class Agent implements IAgent {
             }
         };
         this.reportAgentTimer = new Timer();
-        this.reportAgentTimer.schedule(reportAgentTask, 0, 4000);
+        this.reportAgentTimer.schedule(reportAgentTask, this.transport.getJitteredDelay(ConfigConstants.AGENT_TIMER_PERIOD), ConfigConstants.AGENT_TIMER_PERIOD);
     }
 
     private void startCheckForWorkTimer() {
@@ -205,7 +202,7 @@ public class Agent implements IAgent {
         };
 
         this.checkForWorkTimer = new Timer();
-        this.checkForWorkTimer.schedule(checkForWorkTask, 2000, 4000);
+        this.checkForWorkTimer.schedule(checkForWorkTask, this.transport.getJitteredDelay(ConfigConstants.AGENT_TIMER_PERIOD), ConfigConstants.AGENT_TIMER_PERIOD);
     }
 
     private void stopReportJobTimer() {
@@ -223,6 +220,24 @@ public class Agent implements IAgent {
         this.checkForWorkTimer.cancel();
     }
 
+    // The report is read back from the job's report buffer, so only a bounded tail of the output is held in memory
+    private String serializeCurrentJob() {
+        Job currentJob = this.jobExecutor.getCurrentJob();
+        ReportBuffer reportBuffer = this.jobExecutor.getReportBuffer();
+        if ((currentJob != null) && (reportBuffer != null)) {
+            currentJob.setReport(reportBuffer.read());
+        }
+
+        return this.jsonConverter.toJson(currentJob);
+    }
+
+    private boolean isOk(ClientResponse response) {
+        boolean isOk = (response != null) && (response.getStatus() == Status.OK.getStatusCode());
+        this.transport.close(response);
+
+        return isOk;
+    }
+
     //TODO: To be removed
 //    private String prepareReportForServer() {
 //        AgentStatusReport report = new AgentStatusReport();
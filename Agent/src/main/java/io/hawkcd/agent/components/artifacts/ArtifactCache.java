@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.agent.components.artifacts;
+
+import io.hawkcd.agent.constants.ConfigConstants;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/// <summary>
+/// Keeps the artifact archives fetched by this agent, keyed by designated pipeline, execution and source,
+/// so a repeat fetch is answered by the server with a bodiless 304 and extracted from the local copy.
+/// Every archive is stored next to a properties file holding its key, ETag and SHA-256 digest; the digest is
+/// checked before a cached archive is reused. The least recently used archives are evicted over the quota.
+/// </summary>
+public class ArtifactCache {
+    private static final Logger LOGGER = LogManager.getLogger(ArtifactCache.class);
+    private static final String ARCHIVE_EXTENSION = ".zip";
+    private static final String METADATA_EXTENSION = ".properties";
+    private static final String KEY_PROPERTY = "key";
+    private static final String ETAG_PROPERTY = "etag";
+    private static final String DIGEST_PROPERTY = "digest";
+
+    private static ArtifactCache instance;
+
+    private Path cacheDirectory;
+    private long quota;
+    private LinkedHashMap<String, CachedArtifact> artifacts;
+    private long usedSpace;
+
+    public static synchronized ArtifactCache getInstance() {
+        if (instance == null) {
+            instance = new ArtifactCache(Paths.get(ConfigConstants.AGENT_SANDBOX, ConfigConstants.AGENT_ARTIFACT_CACHE_DIR), ConfigConstants.ARTIFACT_CACHE_QUOTA);
+        }
+
+        return instance;
+    }
+
+    public ArtifactCache(Path cacheDirectory, long quota) {
+        this.cacheDirectory = cacheDirectory.toAbsolutePath();
+        this.quota = quota;
+        this.artifacts = new LinkedHashMap<>(16, 0.75f, true);
+        this.load();
+    }
+
+    public static String getKey(String pipelineName, String pipelineExecutionId, String source) {
+        return String.format("%s/%s/%s", pipelineName, pipelineExecutionId, source.replace('\\', '/'));
+    }
+
+    /**
+     * Returns the cached archive for the key, or null when there is none or its contents no longer match the stored digest.
+     */
+    public synchronized CachedArtifact get(String key) {
+        CachedArtifact artifact = this.artifacts.get(key);
+        if (artifact == null) {
+            return null;
+        }
+
+        try {
+            if ((Files.size(artifact.getFile()) != artifact.getSize()) || !artifact.getDigest().equals(getDigest(artifact.getFile()))) {
+                LOGGER.warn(String.format("Cached artifact %s is corrupted and will be fetched again", key));
+                this.remove(key);
+                return null;
+            }
+            Files.setLastModifiedTime(artifact.getFile(), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            this.remove(key);
+            return null;
+        }
+
+        return artifact;
+    }
+
+    /**
+     * Moves the downloaded archive into the cache. Returns the cached artifact, or null when it could not be stored.
+     */
+    public synchronized CachedArtifact put(String key, String eTag, Path archive) {
+        String name = fileName(key);
+        Path archiveFile = this.cacheDirectory.resolve(name + ARCHIVE_EXTENSION);
+        Path metadataFile = this.cacheDirectory.resolve(name + METADATA_EXTENSION);
+        this.remove(key);
+
+        try {
+            Files.createDirectories(this.cacheDirectory);
+            Files.move(archive, archiveFile, StandardCopyOption.REPLACE_EXISTING);
+            CachedArtifact artifact = new CachedArtifact(key, eTag, getDigest(archiveFile), Files.size(archiveFile), archiveFile);
+
+            Properties metadata = new Properties();
+            metadata.setProperty(KEY_PROPERTY, key);
+            metadata.setProperty(ETAG_PROPERTY, eTag);
+            metadata.setProperty(DIGEST_PROPERTY, artifact.getDigest());
+            try (OutputStream output = Files.newOutputStream(metadataFile)) {
+                metadata.store(output, null);
+            }
+
+            this.artifacts.put(key, artifact);
+            this.usedSpace += artifact.getSize();
+            this.evict(artifact);
+
+            return artifact;
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage());
+            this.delete(archiveFile, metadataFile);
+            return null;
+        }
+    }
+
+    public synchronized long getUsedSpace() {
+        return this.usedSpace;
+    }
+
+    public synchronized int size() {
+        return this.artifacts.size();
+    }
+
+    private void evict(CachedArtifact keep) {
+        Iterator<Map.Entry<String, CachedArtifact>> eldest = this.artifacts.entrySet().iterator();
+        while ((this.usedSpace > this.quota) && eldest.hasNext()) {
+            CachedArtifact evicted = eldest.next().getValue();
+            if (evicted == keep) {
+                break;
+            }
+            eldest.remove();
+            this.usedSpace -= evicted.getSize();
+            this.delete(evicted.getFile(), this.metadataFile(evicted.getFile()));
+        }
+    }
+
+    private void remove(String key) {
+        CachedArtifact artifact = this.artifacts.remove(key);
+        if (artifact != null) {
+            this.usedSpace -= artifact.getSize();
+            this.delete(artifact.getFile(), this.metadataFile(artifact.getFile()));
+        }
+    }
+
+    private void delete(Path... files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOGGER.error(e.getMessage());
+            }
+        }
+    }
+
+    // Rebuilds the index from the previous run, least recently used first
+    private void load() {
+        if (!Files.isDirectory(this.cacheDirectory)) {
+            return;
+        }
+
+        List<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.cacheDirectory, "*" + ARCHIVE_EXTENSION)) {
+            for (Path archive : stream) {
+                archives.add(archive);
+            }
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage());
+            return;
+        }
+
+        Collections.sort(archives, new Comparator<Path>() {
+            @Override
+            public int compare(Path first, Path second) {
+                return Long.compare(first.toFile().lastModified(), second.toFile().lastModified());
+            }
+        });
+
+        for (Path archive : archives) {
+            Path metadataFile = this.metadataFile(archive);
+            Properties metadata = new Properties();
+            try (InputStream input = Files.newInputStream(metadataFile)) {
+                metadata.load(input);
+                CachedArtifact artifact = new CachedArtifact(metadata.getProperty(KEY_PROPERTY), metadata.getProperty(ETAG_PROPERTY), metadata.getProperty(DIGEST_PROPERTY), Files.size(archive), archive);
+                if ((artifact.getKey() == null) || (artifact.getETag() == null) || (artifact.getDigest() == null)) {
+                    throw new IOException(String.format("Incomplete artifact cache entry %s", metadataFile));
+                }
+                this.artifacts.put(artifact.getKey(), artifact);
+                this.usedSpace += artifact.getSize();
+            } catch (IOException e) {
+                this.delete(archive, metadataFile);
+            }
+        }
+    }
+
+    private Path metadataFile(Path archive) {
+        String name = archive.getFileName().toString();
+
+        return archive.resolveSibling(name.substring(0, name.length() - ARCHIVE_EXTENSION.length()) + METADATA_EXTENSION);
+    }
+
+    private static String fileName(String key) {
+        return hex(newDigest().digest(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Returns the SHA-256 of the file in lowercase hex.
+     */
+    public static String getDigest(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[ConfigConstants.TRANSPORT_CHUNK_SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        return hex(digest.digest());
+    }
+
+    private static String hex(byte[] bytes) {
+        return String.format("%0" + (bytes.length * 2) + "x", new BigInteger(1, bytes));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
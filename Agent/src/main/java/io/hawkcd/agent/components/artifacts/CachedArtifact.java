@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.agent.components.artifacts;
+
+import java.nio.file.Path;
+
+public class CachedArtifact {
+    private String key;
+    private String eTag;
+    private String digest;
+    private long size;
+    private Path file;
+
+    public CachedArtifact(String key, String eTag, String digest, long size, Path file) {
+        this.key = key;
+        this.eTag = eTag;
+        this.digest = digest;
+        this.size = size;
+        this.file = file;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public String getETag() {
+        return this.eTag;
+    }
+
+    public String getDigest() {
+        return this.digest;
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+}
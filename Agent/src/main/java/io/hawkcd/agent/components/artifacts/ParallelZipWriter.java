@@ -0,0 +1,485 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.agent.components.artifacts;
+
+import io.hawkcd.agent.constants.ConfigConstants;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/// <summary>
+/// Writes a standard zip stream whose entries are deflated on a fork-join pool. Every file is split into blocks
+/// that are compressed independently, each primed with the 32 KB preceding it, and flushed to a byte boundary,
+/// so the compressed blocks concatenate into one deflate stream per entry. Blocks are written in the order they
+/// were added, while up to a bounded number of blocks ahead of the output are compressed in parallel.
+/// </summary>
+public class ParallelZipWriter implements Closeable {
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final long ZIP64_MAGIC_VALUE = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+    private static final long CRC_POLYNOMIAL = 0xEDB88320L;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int ZIP64_VERSION = 45;
+    private static final int DATA_DESCRIPTOR_FLAG = 0x08;
+    private static final int UTF8_FLAG = 0x800;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private static ForkJoinPool pool;
+
+    private OutputStream output;
+    private ForkJoinPool compressionPool;
+    private int blockSize;
+    private int level;
+    private int maxPendingBlocks;
+    private ArrayDeque<PendingBlock> pendingBlocks;
+    private List<Entry> entries;
+    private long written;
+    private boolean isClosed;
+
+    public ParallelZipWriter(OutputStream output) {
+        this(output, getPool(), ConfigConstants.ARTIFACT_COMPRESSION_BLOCK_SIZE, Deflater.BEST_SPEED);
+    }
+
+    public ParallelZipWriter(OutputStream output, ForkJoinPool compressionPool, int blockSize, int level) {
+        this.output = new BufferedOutputStream(output, ConfigConstants.OUTPUT_PUMP_BUFFER_SIZE);
+        this.compressionPool = compressionPool;
+        this.blockSize = blockSize;
+        this.level = level;
+        this.maxPendingBlocks = compressionPool.getParallelism() * 4;
+        this.pendingBlocks = new ArrayDeque<>();
+        this.entries = new ArrayList<>();
+    }
+
+    public static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(ConfigConstants.ARTIFACT_COMPRESSION_THREADS);
+        }
+
+        return pool;
+    }
+
+    public void putFolder(String path, long lastModified) throws IOException {
+        Entry entry = new Entry(path.endsWith("/") ? path : path + "/", lastModified, STORED);
+        this.enqueue(new PendingBlock(entry, 0, true, true, null));
+    }
+
+    public void putFile(String path, Path file) throws IOException {
+        Entry entry = new Entry(path, Files.getLastModifiedTime(file).toMillis(), DEFLATED);
+        long size = Files.size(file);
+        long offset = 0;
+        do {
+            int length = (int) Math.min(this.blockSize, size - offset);
+            boolean isLast = (offset + length) >= size;
+            ForkJoinTask<CompressedBlock> task = this.compressionPool.submit(new BlockCompression(file, offset, length, this.level, isLast));
+            this.enqueue(new PendingBlock(entry, length, offset == 0, isLast, task));
+            offset += length;
+        } while (offset < size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.isClosed) {
+            return;
+        }
+        this.isClosed = true;
+
+        try {
+            while (!this.pendingBlocks.isEmpty()) {
+                this.writeBlock(this.pendingBlocks.poll());
+            }
+            this.writeCentralDirectory();
+            this.output.flush();
+        } finally {
+            for (PendingBlock pendingBlock : this.pendingBlocks) {
+                if (pendingBlock.task != null) {
+                    pendingBlock.task.cancel(true);
+                }
+            }
+            this.output.close();
+        }
+    }
+
+    private void enqueue(PendingBlock pendingBlock) throws IOException {
+        this.pendingBlocks.add(pendingBlock);
+        while (this.pendingBlocks.size() > this.maxPendingBlocks) {
+            this.writeBlock(this.pendingBlocks.poll());
+        }
+    }
+
+    private void writeBlock(PendingBlock pendingBlock) throws IOException {
+        Entry entry = pendingBlock.entry;
+        if (pendingBlock.isFirst) {
+            entry.offset = this.written;
+            this.writeLocalHeader(entry);
+        }
+
+        if (pendingBlock.task != null) {
+            CompressedBlock block;
+            try {
+                block = pendingBlock.task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                throw (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+            }
+
+            this.output.write(block.data);
+            this.written += block.data.length;
+            entry.crc = combineCrc(entry.crc, block.crc, pendingBlock.length);
+            entry.compressedSize += block.data.length;
+            entry.size += pendingBlock.length;
+        }
+
+        if (pendingBlock.isLast) {
+            if (entry.method == DEFLATED) {
+                this.writeDataDescriptor(entry);
+            }
+            this.entries.add(entry);
+        }
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        this.writeInt(LOCAL_HEADER_SIGNATURE);
+        this.writeShort(VERSION);
+        this.writeShort(entry.getFlags());
+        this.writeShort(entry.method);
+        this.writeInt(entry.dosTime);
+        // Deflated entries carry their checksum and sizes in the data descriptor that follows them
+        this.writeInt(0);
+        this.writeInt(0);
+        this.writeInt(0);
+        this.writeShort(entry.name.length);
+        this.writeShort(0);
+        this.writeBytes(entry.name);
+    }
+
+    private void writeDataDescriptor(Entry entry) throws IOException {
+        this.writeInt(DATA_DESCRIPTOR_SIGNATURE);
+        this.writeInt((int) entry.crc);
+        if ((entry.compressedSize > ZIP64_MAGIC_VALUE) || (entry.size > ZIP64_MAGIC_VALUE)) {
+            this.writeLong(entry.compressedSize);
+            this.writeLong(entry.size);
+        } else {
+            this.writeInt((int) entry.compressedSize);
+            this.writeInt((int) entry.size);
+        }
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long centralDirectoryOffset = this.written;
+        for (Entry entry : this.entries) {
+            this.writeCentralHeader(entry);
+        }
+        long centralDirectorySize = this.written - centralDirectoryOffset;
+
+        int count = this.entries.size();
+        if ((count >= ZIP64_MAGIC_COUNT) || (centralDirectoryOffset >= ZIP64_MAGIC_VALUE) || (centralDirectorySize >= ZIP64_MAGIC_VALUE)) {
+            long zip64EndOffset = this.written;
+            this.writeInt(ZIP64_END_SIGNATURE);
+            this.writeLong(44);
+            this.writeShort(ZIP64_VERSION);
+            this.writeShort(ZIP64_VERSION);
+            this.writeInt(0);
+            this.writeInt(0);
+            this.writeLong(count);
+            this.writeLong(count);
+            this.writeLong(centralDirectorySize);
+            this.writeLong(centralDirectoryOffset);
+            this.writeInt(ZIP64_LOCATOR_SIGNATURE);
+            this.writeInt(0);
+            this.writeLong(zip64EndOffset);
+            this.writeInt(1);
+        }
+
+        this.writeInt(END_SIGNATURE);
+        this.writeShort(0);
+        this.writeShort(0);
+        this.writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        this.writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        this.writeInt((int) Math.min(centralDirectorySize, ZIP64_MAGIC_VALUE));
+        this.writeInt((int) Math.min(centralDirectoryOffset, ZIP64_MAGIC_VALUE));
+        this.writeShort(0);
+    }
+
+    private void writeCentralHeader(Entry entry) throws IOException {
+        boolean isSizeZip64 = entry.size >= ZIP64_MAGIC_VALUE;
+        boolean isCompressedSizeZip64 = entry.compressedSize >= ZIP64_MAGIC_VALUE;
+        boolean isOffsetZip64 = entry.offset >= ZIP64_MAGIC_VALUE;
+        int extraLength = (isSizeZip64 ? 8 : 0) + (isCompressedSizeZip64 ? 8 : 0) + (isOffsetZip64 ? 8 : 0);
+        int version = (extraLength > 0) ? ZIP64_VERSION : VERSION;
+
+        this.writeInt(CENTRAL_HEADER_SIGNATURE);
+        this.writeShort(version);
+        this.writeShort(version);
+        this.writeShort(entry.getFlags());
+        this.writeShort(entry.method);
+        this.writeInt(entry.dosTime);
+        this.writeInt((int) entry.crc);
+        this.writeInt((int) (isCompressedSizeZip64 ? ZIP64_MAGIC_VALUE : entry.compressedSize));
+        this.writeInt((int) (isSizeZip64 ? ZIP64_MAGIC_VALUE : entry.size));
+        this.writeShort(entry.name.length);
+        this.writeShort((extraLength > 0) ? (extraLength + 4) : 0);
+        this.writeShort(0);
+        this.writeShort(0);
+        this.writeShort(0);
+        this.writeInt(0);
+        this.writeInt((int) (isOffsetZip64 ? ZIP64_MAGIC_VALUE : entry.offset));
+        this.writeBytes(entry.name);
+        if (extraLength > 0) {
+            this.writeShort(0x0001);
+            this.writeShort(extraLength);
+            if (isSizeZip64) {
+                this.writeLong(entry.size);
+            }
+            if (isCompressedSizeZip64) {
+                this.writeLong(entry.compressedSize);
+            }
+            if (isOffsetZip64) {
+                this.writeLong(entry.offset);
+            }
+        }
+    }
+
+    private void writeShort(int value) throws IOException {
+        this.output.write(value & 0xFF);
+        this.output.write((value >>> 8) & 0xFF);
+        this.written += 2;
+    }
+
+    private void writeInt(int value) throws IOException {
+        this.writeShort(value & 0xFFFF);
+        this.writeShort((value >>> 16) & 0xFFFF);
+    }
+
+    private void writeLong(long value) throws IOException {
+        this.writeInt((int) value);
+        this.writeInt((int) (value >>> 32));
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        this.output.write(bytes);
+        this.written += bytes.length;
+    }
+
+    /// <summary>
+    /// Returns the CRC-32 of two concatenated blocks from their separate checksums and the length of the second,
+    /// following zlib's crc32_combine.
+    /// </summary>
+    static long combineCrc(long firstCrc, long secondCrc, long secondLength) {
+        if (secondLength <= 0) {
+            return firstCrc;
+        }
+
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = CRC_POLYNOMIAL;
+        long row = 1;
+        for (int i = 1; i < 32; i++) {
+            odd[i] = row;
+            row <<= 1;
+        }
+        squareMatrix(even, odd);
+        squareMatrix(odd, even);
+
+        long crc = firstCrc;
+        long length = secondLength;
+        do {
+            squareMatrix(even, odd);
+            if ((length & 1) != 0) {
+                crc = multiplyMatrix(even, crc);
+            }
+            length >>= 1;
+            if (length == 0) {
+                break;
+            }
+
+            squareMatrix(odd, even);
+            if ((length & 1) != 0) {
+                crc = multiplyMatrix(odd, crc);
+            }
+            length >>= 1;
+        } while (length != 0);
+
+        return crc ^ secondCrc;
+    }
+
+    private static long multiplyMatrix(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+
+        return sum;
+    }
+
+    private static void squareMatrix(long[] square, long[] matrix) {
+        for (int i = 0; i < 32; i++) {
+            square[i] = multiplyMatrix(matrix, matrix[i]);
+        }
+    }
+
+    private static int toDosTime(long time) {
+        LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        if (dateTime.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+
+        return ((dateTime.getYear() - 1980) << 25) | (dateTime.getMonthValue() << 21) | (dateTime.getDayOfMonth() << 16)
+                | (dateTime.getHour() << 11) | (dateTime.getMinute() << 5) | (dateTime.getSecond() >> 1);
+    }
+
+    private static class Entry {
+        private byte[] name;
+        private int dosTime;
+        private int method;
+        private long crc;
+        private long compressedSize;
+        private long size;
+        private long offset;
+
+        private Entry(String name, long lastModified, int method) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.dosTime = toDosTime(lastModified);
+            this.method = method;
+        }
+
+        private int getFlags() {
+            return (this.method == DEFLATED) ? (UTF8_FLAG | DATA_DESCRIPTOR_FLAG) : UTF8_FLAG;
+        }
+    }
+
+    private static class PendingBlock {
+        private Entry entry;
+        private int length;
+        private boolean isFirst;
+        private boolean isLast;
+        private ForkJoinTask<CompressedBlock> task;
+
+        private PendingBlock(Entry entry, int length, boolean isFirst, boolean isLast, ForkJoinTask<CompressedBlock> task) {
+            this.entry = entry;
+            this.length = length;
+            this.isFirst = isFirst;
+            this.isLast = isLast;
+            this.task = task;
+        }
+    }
+
+    private static class CompressedBlock {
+        private byte[] data;
+        private long crc;
+
+        private CompressedBlock(byte[] data, long crc) {
+            this.data = data;
+            this.crc = crc;
+        }
+    }
+
+    private static class BlockCompression implements Callable<CompressedBlock> {
+        private Path file;
+        private long offset;
+        private int length;
+        private int level;
+        private boolean isLast;
+
+        private BlockCompression(Path file, long offset, int length, int level, boolean isLast) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+            this.level = level;
+            this.isLast = isLast;
+        }
+
+        @Override
+        public CompressedBlock call() throws IOException {
+            int dictionaryLength = (int) Math.min(this.offset, DICTIONARY_SIZE);
+            ByteBuffer input = ByteBuffer.allocate(dictionaryLength + this.length);
+            try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+                long position = this.offset - dictionaryLength;
+                while (input.hasRemaining()) {
+                    if (channel.read(input, position + input.position()) < 0) {
+                        throw new IOException(String.format("%s changed while it was being archived", this.file));
+                    }
+                }
+            }
+
+            byte[] data = input.array();
+            CRC32 crc = new CRC32();
+            crc.update(data, dictionaryLength, this.length);
+
+            Deflater deflater = new Deflater(this.level, true);
+            try {
+                if (dictionaryLength > 0) {
+                    deflater.setDictionary(data, 0, dictionaryLength);
+                }
+                deflater.setInput(data, dictionaryLength, this.length);
+
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream((this.length / 2) + 64);
+                byte[] buffer = new byte[ConfigConstants.OUTPUT_PUMP_BUFFER_SIZE];
+                if (this.isLast) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        compressed.write(buffer, 0, deflater.deflate(buffer));
+                    }
+                } else {
+                    // A sync flush ends the block on a byte boundary without marking the end of the stream
+                    int compressedLength;
+                    do {
+                        compressedLength = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                        compressed.write(buffer, 0, compressedLength);
+                    } while (compressedLength == buffer.length);
+                }
+
+                return new CompressedBlock(compressed.toByteArray(), crc.getValue());
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
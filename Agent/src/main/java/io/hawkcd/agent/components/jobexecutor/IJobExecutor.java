@@ -16,6 +16,7 @@
 
 package io.hawkcd.agent.components.jobexecutor;
 
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.models.Job;
 import io.hawkcd.agent.models.payload.WorkInfo;
 
@@ -30,4 +31,6 @@ public interface IJobExecutor {
     Job getCurrentJob();
 
     void setCurrentJob(Job job);
+
+    ReportBuffer getReportBuffer();
 }
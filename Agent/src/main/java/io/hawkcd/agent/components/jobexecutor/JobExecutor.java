@@ -17,8 +17,10 @@
 package io.hawkcd.agent.components.jobexecutor;
 
 import io.hawkcd.agent.AgentConfiguration;
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.components.taskexecutor.ITaskExecutor;
 import io.hawkcd.agent.components.taskexecutor.factories.TaskExecutorFactory;
+import io.hawkcd.agent.constants.ConfigConstants;
 import io.hawkcd.agent.constants.MessageConstants;
 import io.hawkcd.agent.enums.JobStatus;
 import io.hawkcd.agent.enums.RunIf;
@@ -40,12 +42,18 @@ public class JobExecutor implements IJobExecutor {
 
     private ITaskExecutor taskExecutor;
     private Job currentJob;
+    private ReportBuffer reportBuffer;
 
     @Override
     public Job getCurrentJob() {
         return this.currentJob;
     }
 
+    @Override
+    public ReportBuffer getReportBuffer() {
+        return this.reportBuffer;
+    }
+
     @Override
     public void setCurrentJob(Job job) {
         this.currentJob = job;
@@ -53,11 +61,17 @@ public class JobExecutor implements IJobExecutor {
 
     @Override
     public void executeJob(WorkInfo workInfo) {
-        this.currentJob = workInfo.getJob();
+        Job job = workInfo.getJob();
+        this.reportBuffer = new ReportBuffer(Paths.get(AgentConfiguration.getInstallInfo().getAgentSandbox(), ConfigConstants.AGENT_REPORTS_DIR, job.getId() + ".log"));
+        if (job.getReport() != null) {
+            this.reportBuffer.append(job.getReport());
+        }
+
+        this.currentJob = job;
 
         String jobStarted = String.format(MessageConstants.JOB_STARTED_ON_AGENT, this.currentJob.getJobDefinitionName(), AgentConfiguration.getAgentInfo().getHostName());
         LOGGER.info(jobStarted);
-        ReportAppender.appendStartedMessage(jobStarted, this.currentJob.getReport(), Job.class);
+        ReportAppender.appendStartedMessage(jobStarted, this.reportBuffer, Job.class);
 
         //this.printEnvironmentVariables(workInfo.getEnvironmentVariables());
 
@@ -83,27 +97,27 @@ public class JobExecutor implements IJobExecutor {
                 if ((currentTask.getRunIfCondition() == RunIf.PASSED) || (currentTask.getRunIfCondition() == RunIf.ANY) || isFirstTask) {
                     String taskStarted = String.format(MessageConstants.TASK_STARTED, i, currentTask.getType());
                     LOGGER.info(taskStarted);
-                    ReportAppender.appendStartedMessage(taskStarted, this.currentJob.getReport(), Task.class);
+                    ReportAppender.appendStartedMessage(taskStarted, this.reportBuffer, Task.class);
 
                     this.taskExecutor = TaskExecutorFactory.create(currentTask.getTaskDefinition());
-                    Task currentInfo = this.taskExecutor.executeTask(currentTask, this.currentJob.getReport(), workInfo);
+                    Task currentInfo = this.taskExecutor.executeTask(currentTask, this.reportBuffer, workInfo);
 
                     String taskCompleted = String.format(MessageConstants.TASK_COMPLETED, i, currentTask.getStatus());
                     LOGGER.info(taskCompleted);
-                    ReportAppender.appendCompletedMessage(taskCompleted, this.currentJob.getReport(), currentInfo.getStatus());
+                    ReportAppender.appendCompletedMessage(taskCompleted, this.reportBuffer, currentInfo.getStatus());
                 }
             } else {
                 if ((currentTask.getRunIfCondition() == RunIf.FAILED) || (currentTask.getRunIfCondition() == RunIf.ANY)) {
                     String taskStarted = String.format(MessageConstants.TASK_STARTED, i, currentTask.getType());
                     LOGGER.info(taskStarted);
-                    ReportAppender.appendStartedMessage(taskStarted, this.currentJob.getReport(), Task.class);
+                    ReportAppender.appendStartedMessage(taskStarted, this.reportBuffer, Task.class);
 
                     this.taskExecutor = TaskExecutorFactory.create(currentTask.getTaskDefinition());
-                    Task currentInfo = this.taskExecutor.executeTask(currentTask, this.currentJob.getReport(), workInfo);
+                    Task currentInfo = this.taskExecutor.executeTask(currentTask, this.reportBuffer, workInfo);
 
                     String taskCompleted = String.format(MessageConstants.TASK_COMPLETED, i, currentTask.getStatus());
                     LOGGER.info(taskCompleted);
-                    ReportAppender.appendCompletedMessage(taskCompleted, this.currentJob.getReport(), currentInfo.getStatus());
+                    ReportAppender.appendCompletedMessage(taskCompleted, this.reportBuffer, currentInfo.getStatus());
                 }
             }
 
@@ -123,7 +137,7 @@ public class JobExecutor implements IJobExecutor {
 
         String jobCompleted = String.format(MessageConstants.JOB_COMPLETED_WITH_STATUS, this.currentJob.getJobDefinitionName(), this.currentJob.getStatus());
         LOGGER.info(jobCompleted);
-        ReportAppender.appendCompletedMessage(jobCompleted, this.currentJob.getReport(), this.currentJob.getStatus());
+        ReportAppender.appendCompletedMessage(jobCompleted, this.reportBuffer, this.currentJob.getStatus());
     }
 
     public void initJobExecutionInfo(WorkInfo workInfo) {
@@ -145,6 +159,10 @@ public class JobExecutor implements IJobExecutor {
 
     public void resetJobExecutionInfo() {
         this.currentJob = null;
+        if (this.reportBuffer != null) {
+            this.reportBuffer.close();
+            this.reportBuffer = null;
+        }
     }
 
     private void printEnvironmentVariables(List<EnvironmentVariable> environmentVariables) {
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.hawkcd.agent.components.report;
+
+import io.hawkcd.agent.constants.ConfigConstants;
+import io.hawkcd.agent.constants.MessageConstants;
+import io.hawkcd.agent.utilities.ReportAppender;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/// <summary>
+/// Drains the stdout and stderr of a process on two dedicated threads, so a chatty process is never throttled
+/// by the report. Each thread reads large chunks, cuts them at the last complete line and queues the whole
+/// batch, tagging stderr lines. A third thread hands the queued batches to the ReportAppender. When the console
+/// or the disk is too slow and the queue is full, batches are dropped and counted instead of blocking the pipes.
+/// </summary>
+public class ProcessOutputPump {
+    private static final Logger LOGGER = LogManager.getLogger(ProcessOutputPump.class);
+    private static final OutputBatch END_OF_OUTPUT = new OutputBatch(new char[0], 0, "");
+
+    private final Thread stdoutThread;
+    private final Thread stderrThread;
+    private final Thread reportThread;
+    private final ReportBuffer report;
+    private final BlockingQueue<OutputBatch> batches;
+    private final AtomicLong droppedChars;
+
+    public ProcessOutputPump(Process process, ReportBuffer report) {
+        this(process, report, ConfigConstants.OUTPUT_PUMP_QUEUE_CAPACITY);
+    }
+
+    ProcessOutputPump(Process process, ReportBuffer report, int queueCapacity) {
+        this.report = report;
+        this.batches = new ArrayBlockingQueue<>(queueCapacity);
+        this.droppedChars = new AtomicLong();
+        this.stdoutThread = this.createThread(process.getInputStream(), MessageConstants.TASK_OUTPUT_STDOUT_TAG, "stdout");
+        this.stderrThread = this.createThread(process.getErrorStream(), MessageConstants.TASK_OUTPUT_STDERR_TAG, "stderr");
+        this.reportThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ProcessOutputPump.this.report();
+            }
+        }, "output-pump-report");
+        this.reportThread.setDaemon(true);
+    }
+
+    public void start() {
+        this.reportThread.start();
+        this.stdoutThread.start();
+        this.stderrThread.start();
+    }
+
+    /**
+     * Waits until both streams are closed, which happens when the process and its children exit, and until
+     * every queued batch is in the report.
+     */
+    public void await() throws InterruptedException {
+        try {
+            this.stdoutThread.join();
+            this.stderrThread.join();
+            this.batches.put(END_OF_OUTPUT);
+            this.reportThread.join();
+        } catch (InterruptedException e) {
+            this.reportThread.interrupt();
+            throw e;
+        }
+
+        long dropped = this.droppedChars.get();
+        if (dropped > 0) {
+            ReportAppender.appendInfoMessage(String.format(MessageConstants.TASK_OUTPUT_DROPPED, dropped), this.report);
+        }
+    }
+
+    private Thread createThread(InputStream stream, String tag, String name) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ProcessOutputPump.this.pump(stream, tag);
+            }
+        }, "output-pump-" + name);
+        thread.setDaemon(true);
+
+        return thread;
+    }
+
+    private void report() {
+        try {
+            OutputBatch batch;
+            while ((batch = this.batches.take()) != END_OF_OUTPUT) {
+                ReportAppender.appendOutput(batch.chars, batch.count, batch.tag, this.report);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void pump(InputStream stream, String tag) {
+        byte[] bytes = new byte[ConfigConstants.OUTPUT_PUMP_BUFFER_SIZE];
+        char[] chars = new char[ConfigConstants.OUTPUT_PUMP_BUFFER_SIZE];
+        CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        int length = 0;
+        try {
+            int read;
+            while ((read = stream.read(bytes, length, bytes.length - length)) != -1) {
+                length += read;
+                int batchEnd = this.lastLineEnd(bytes, length);
+                if (batchEnd == 0) {
+                    if (length < bytes.length) {
+                        continue;
+                    }
+
+                    // A line longer than the buffer is reported in pieces
+                    batchEnd = length;
+                }
+
+                this.queueBatch(bytes, batchEnd, chars, decoder, tag);
+                length -= batchEnd;
+                System.arraycopy(bytes, batchEnd, bytes, 0, length);
+            }
+
+            if (length > 0) {
+                this.queueBatch(bytes, length, chars, decoder, tag);
+            }
+        } catch (IOException e) {
+            LOGGER.debug(String.format(MessageConstants.TASK_THROWS_EXCEPTION, e.getMessage()));
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                LOGGER.debug(e.getMessage());
+            }
+        }
+    }
+
+    private int lastLineEnd(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+
+        return 0;
+    }
+
+    private void queueBatch(byte[] bytes, int length, char[] chars, CharsetDecoder decoder, String tag) {
+        CharBuffer output = CharBuffer.wrap(chars);
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(bytes, 0, length), output, true);
+        decoder.flush(output);
+
+        // The batch ends with a line break, which must not produce an extra empty line
+        int count = output.position();
+        if ((count > 0) && (chars[count - 1] == '\n')) {
+            count--;
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(new String(chars, 0, count));
+        }
+
+        if (!this.batches.offer(new OutputBatch(Arrays.copyOf(chars, count), count, tag))) {
+            this.droppedChars.addAndGet(count);
+        }
+    }
+
+    private static class OutputBatch {
+        private final char[] chars;
+        private final int count;
+        private final String tag;
+
+        OutputBatch(char[] chars, int count, String tag) {
+            this.chars = chars;
+            this.count = count;
+            this.tag = tag;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.hawkcd.agent.components.report;
+
+import io.hawkcd.agent.constants.ConfigConstants;
+import io.hawkcd.agent.constants.MessageConstants;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/// <summary>
+/// Holds the output of the job being executed. Output is collected in a fixed size in-memory buffer which,
+/// once full, is spilled to a memory-mapped segment file, so the agent heap stays bounded regardless of how
+/// much a task prints. The spill file is only created when the first spill happens.
+/// The report sent to the server is read back from the spill file and capped at the last maxReportSize bytes.
+/// The spill file is deleted when the job ends, so the truncated report does not point to it.
+/// When spilling fails the buffer keeps the newest output in memory and the report states how much was lost.
+/// </summary>
+public class ReportBuffer implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(ReportBuffer.class);
+
+    private final Path spillFile;
+    private final char[] buffer;
+    private final CharBuffer pending;
+    private final CharsetEncoder encoder;
+    private final int segmentSize;
+    private final int maxReportSize;
+    private int length;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private boolean spillFailed;
+    private long lostChars;
+
+    public ReportBuffer(Path spillFile) {
+        this(spillFile, ConfigConstants.REPORT_BUFFER_SIZE, ConfigConstants.REPORT_SEGMENT_SIZE, ConfigConstants.REPORT_MAX_SIZE);
+    }
+
+    public ReportBuffer(Path spillFile, int bufferSize, int segmentSize, int maxReportSize) {
+        this.spillFile = spillFile.toAbsolutePath();
+        this.buffer = new char[bufferSize];
+        this.pending = CharBuffer.wrap(this.buffer);
+        this.encoder = StandardCharsets.UTF_8.newEncoder();
+        this.segmentSize = segmentSize;
+        this.maxReportSize = maxReportSize;
+    }
+
+    public synchronized ReportBuffer append(CharSequence text) {
+        int textLength = text.length();
+        for (int i = 0; i < textLength; i++) {
+            if (this.length == this.buffer.length) {
+                this.spill();
+            }
+
+            this.buffer[this.length++] = text.charAt(i);
+        }
+
+        return this;
+    }
+
+    public synchronized ReportBuffer append(char[] text, int offset, int count) {
+        while (count > 0) {
+            if (this.length == this.buffer.length) {
+                this.spill();
+            }
+
+            int chunk = Math.min(count, this.buffer.length - this.length);
+            System.arraycopy(text, offset, this.buffer, this.length, chunk);
+            this.length += chunk;
+            offset += chunk;
+            count -= chunk;
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the report to be sent to the server. Reads only the in-memory buffer until output was spilled,
+     * after that the tail of the spill file.
+     */
+    public synchronized StringBuilder read() {
+        if (this.channel == null) {
+            return this.appendBuffer(new StringBuilder(this.length + 128));
+        }
+
+        if (!this.spillFailed) {
+            this.spill();
+        }
+
+        long written = this.getSpilledBytes();
+        int size = (int) Math.min(written, this.maxReportSize);
+        byte[] bytes = new byte[size];
+        try {
+            ByteBuffer target = ByteBuffer.wrap(bytes);
+            long position = written - size;
+            while (target.hasRemaining()) {
+                int read = this.channel.read(target, position + target.position());
+                if (read < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error(String.format(MessageConstants.JOB_REPORT_SPILL_FAILED, this.spillFile, e.getMessage()));
+        }
+
+        // Skip a multi-byte character cut by the window
+        int start = 0;
+        while ((start < size) && (size < written) && ((bytes[start] & 0xC0) == 0x80)) {
+            start++;
+        }
+
+        StringBuilder report = new StringBuilder(size + 128);
+        if (size < written) {
+            report.append(String.format(MessageConstants.JOB_REPORT_TRUNCATED, (written - size) + start))
+                    .append(System.lineSeparator());
+        }
+
+        report.append(new String(bytes, start, size - start, StandardCharsets.UTF_8));
+        return this.appendBuffer(report);
+    }
+
+    public synchronized Path getSpillFile() {
+        return this.channel == null ? null : this.spillFile;
+    }
+
+    @Override
+    public synchronized void close() {
+        this.length = 0;
+        this.lostChars = 0;
+        this.spillFailed = false;
+        this.segmentStart = 0;
+        if (this.channel != null) {
+            this.closeChannel();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return this.read().toString();
+    }
+
+    private StringBuilder appendBuffer(StringBuilder report) {
+        if (this.lostChars > 0) {
+            report.append(String.format(MessageConstants.JOB_REPORT_OUTPUT_LOST, this.lostChars))
+                    .append(System.lineSeparator());
+        }
+
+        return report.append(this.buffer, 0, this.length);
+    }
+
+    private long getSpilledBytes() {
+        return this.segmentStart + this.segment.position();
+    }
+
+    private void spill() {
+        this.pending.limit(this.length).position(0);
+        if (!this.spillFailed) {
+            try {
+                if (this.channel == null) {
+                    Files.createDirectories(this.spillFile.getParent());
+                    this.channel = FileChannel.open(this.spillFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    this.segment = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+                }
+
+                CoderResult result = this.encoder.encode(this.pending, this.segment, false);
+                while (result.isOverflow()) {
+                    // The next segment starts right after the last encoded byte, so no gaps are left in the file
+                    long nextSegmentStart = this.getSpilledBytes();
+                    this.segment = this.channel.map(FileChannel.MapMode.READ_WRITE, nextSegmentStart, this.segmentSize);
+                    this.segmentStart = nextSegmentStart;
+                    result = this.encoder.encode(this.pending, this.segment, false);
+                }
+            } catch (IOException e) {
+                LOGGER.error(String.format(MessageConstants.JOB_REPORT_SPILL_FAILED, this.spillFile, e.getMessage()));
+                this.spillFailed = true;
+                if ((this.channel != null) && (this.segment == null)) {
+                    this.closeChannel();
+                }
+            }
+        }
+
+        // A high surrogate at the end of the buffer waits for its pair
+        int remaining = this.pending.remaining();
+        System.arraycopy(this.buffer, this.pending.position(), this.buffer, 0, remaining);
+        this.length = remaining;
+
+        // Without a spill file the older half of the buffer is dropped to make room for new output
+        if (this.length == this.buffer.length) {
+            int dropped = Math.max(1, this.length / 2);
+            System.arraycopy(this.buffer, dropped, this.buffer, 0, this.length - dropped);
+            this.length -= dropped;
+            this.lostChars += dropped;
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            this.channel.close();
+            Files.deleteIfExists(this.spillFile);
+        } catch (IOException e) {
+            LOGGER.debug(e.getMessage());
+        }
+
+        this.channel = null;
+        this.segment = null;
+    }
+}
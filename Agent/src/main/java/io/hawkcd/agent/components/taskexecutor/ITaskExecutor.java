@@ -16,11 +16,12 @@
 
 package io.hawkcd.agent.components.taskexecutor;
 
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.models.Task;
 import io.hawkcd.agent.models.payload.WorkInfo;
 
 public interface ITaskExecutor {
-    Task executeTask(Task task, StringBuilder report, WorkInfo workInfo);
+    Task executeTask(Task task, ReportBuffer report, WorkInfo workInfo);
 
-    Task nullProcessing(StringBuilder report, Task task, String errorMessage);
+    Task nullProcessing(ReportBuffer report, Task task, String errorMessage);
 }
@@ -16,6 +16,7 @@
 
 package io.hawkcd.agent.components.taskexecutor;
 
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.constants.MessageConstants;
 import io.hawkcd.agent.enums.TaskStatus;
 import io.hawkcd.agent.models.Task;
@@ -30,7 +31,7 @@ public abstract class TaskExecutor implements ITaskExecutor {
     protected static final Logger LOGGER = LogManager.getLogger(TaskExecutor.class);
 
     @Override
-    public Task executeTask(Task task, StringBuilder report, WorkInfo workInfo) {
+    public Task executeTask(Task task, ReportBuffer report, WorkInfo workInfo) {
         return task;
     }
 
@@ -41,7 +42,7 @@ public abstract class TaskExecutor implements ITaskExecutor {
     }
 
     @Override
-    public Task nullProcessing(StringBuilder report, Task task, String errorMessage) {
+    public Task nullProcessing(ReportBuffer report, Task task, String errorMessage) {
         this.updateTask(task, TaskStatus.FAILED, null, LocalDateTime.now());
         LOGGER.error(String.format(MessageConstants.TASK_THROWS_EXCEPTION, errorMessage));
         ReportAppender.appendInfoMessage(errorMessage, report);
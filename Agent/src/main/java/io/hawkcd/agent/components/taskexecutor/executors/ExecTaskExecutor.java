@@ -17,6 +17,8 @@
 package io.hawkcd.agent.components.taskexecutor.executors;
 
 import io.hawkcd.agent.AgentConfiguration;
+import io.hawkcd.agent.components.report.ProcessOutputPump;
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.components.taskexecutor.TaskExecutor;
 import io.hawkcd.agent.constants.MessageConstants;
 import io.hawkcd.agent.enums.TaskStatus;
@@ -25,10 +27,8 @@ import io.hawkcd.agent.models.Task;
 import io.hawkcd.agent.models.payload.WorkInfo;
 import io.hawkcd.agent.utilities.ReportAppender;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -40,7 +40,7 @@ public class ExecTaskExecutor extends TaskExecutor {
 
 
     @Override
-    public Task executeTask(Task task, StringBuilder report, WorkInfo workInfo) {
+    public Task executeTask(Task task, ReportBuffer report, WorkInfo workInfo) {
 
         ExecTask execTask = (ExecTask) task.getTaskDefinition();
         ProcessBuilder builder;
@@ -55,9 +55,9 @@ public class ExecTaskExecutor extends TaskExecutor {
         boolean isCommandSwitch = this.hasCommandSwitch(commandSwitch);
 
         if (isCommandSwitch) {
-            builder = this.constructProcessBuilder(command, execTask, commandSwitch, true);
+            builder = this.constructProcessBuilder(command, execTask, commandSwitch, false);
         } else {
-            builder = this.constructProcessBuilder(command, execTask, true);
+            builder = this.constructProcessBuilder(command, execTask, false);
         }
 
         String commandMessage = String.format("Command: %s", execTask.getCommand());
@@ -75,9 +75,7 @@ public class ExecTaskExecutor extends TaskExecutor {
             if (Files.exists(path)) {
                 process = builder.start();
 
-                BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-                this.execute(task, process, reader, isCommandSwitch, report);
+                this.execute(task, process, isCommandSwitch, report);
 
             } else {
                 this.updateTask(task, TaskStatus.FAILED, null, LocalDateTime.now());
@@ -91,14 +89,12 @@ public class ExecTaskExecutor extends TaskExecutor {
         return task;
     }
 
-    private void execute(Task task, Process process, BufferedReader reader, boolean commandSwitch, StringBuilder report) throws IOException {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            LOGGER.debug(line);
-            ReportAppender.appendInfoMessage(line, report);
-        }
+    private void execute(Task task, Process process, boolean commandSwitch, ReportBuffer report) {
+        ProcessOutputPump outputPump = new ProcessOutputPump(process, report);
+        outputPump.start();
 
         try {
+            outputPump.await();
             if (!commandSwitch) {
                 process.destroy();
             } else {
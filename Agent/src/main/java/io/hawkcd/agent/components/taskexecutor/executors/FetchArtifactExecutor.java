@@ -18,9 +18,13 @@ package io.hawkcd.agent.components.taskexecutor.executors;
 
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
-import com.sun.jersey.api.client.WebResource;
 import io.hawkcd.agent.AgentConfiguration;
+import io.hawkcd.agent.components.artifacts.ArtifactCache;
+import io.hawkcd.agent.components.artifacts.CachedArtifact;
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.components.taskexecutor.TaskExecutor;
+import io.hawkcd.agent.components.transport.AgentTransport;
+import io.hawkcd.agent.components.transport.IAgentTransport;
 import io.hawkcd.agent.constants.ConfigConstants;
 import io.hawkcd.agent.enums.TaskStatus;
 import io.hawkcd.agent.models.FetchArtifactTask;
@@ -30,28 +34,52 @@ import io.hawkcd.agent.services.FileManagementService;
 import io.hawkcd.agent.services.interfaces.IFileManagementService;
 import io.hawkcd.agent.utilities.ReportAppender;
 
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 public class FetchArtifactExecutor extends TaskExecutor {
-
-    private Client restClient;
+    private static final String RANGE = "Range";
+    private static final String IF_RANGE = "If-Range";
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+    private static final String DIGEST = "Digest";
+    private static final String SHA_256_DIGEST = "sha-256=";
+    private static final String BYTES = "bytes";
+    private static final int PARTIAL_CONTENT = 206;
+
+    private IAgentTransport transport;
     private IFileManagementService fileManagementService;
+    private ArtifactCache artifactCache;
 
     public FetchArtifactExecutor() {
-        this.restClient = Client.create();
+        this.transport = AgentTransport.getInstance();
         this.fileManagementService = new FileManagementService();
+        this.artifactCache = ArtifactCache.getInstance();
     }
 
     public FetchArtifactExecutor(Client client, IFileManagementService fileManagementService) {
-        this.restClient = client.create();
+        this(client, fileManagementService, ArtifactCache.getInstance());
+    }
+
+    public FetchArtifactExecutor(Client client, IFileManagementService fileManagementService, ArtifactCache artifactCache) {
+        this.transport = new AgentTransport(client);
         this.fileManagementService = fileManagementService;
+        this.artifactCache = artifactCache;
     }
 
     @Override
-    public Task executeTask(Task task, StringBuilder report, WorkInfo workInfo) {
+    public Task executeTask(Task task, ReportBuffer report, WorkInfo workInfo) {
         FetchArtifactTask taskDefinition = (FetchArtifactTask) task.getTaskDefinition();
         super.updateTask(task, TaskStatus.PASSED, LocalDateTime.now(), null);
 
@@ -74,38 +102,104 @@ public class FetchArtifactExecutor extends TaskExecutor {
         String folderPath = String.format(ConfigConstants.SERVER_CREATE_ARTIFACT_API_ADDRESS, workInfo.getPipelineDefinitionName(), workInfo.getPipelineExecutionID());
         AgentConfiguration.getInstallInfo().setCreateArtifactApiAddress(String.format("%s/%s", AgentConfiguration.getInstallInfo().getServerAddress(), folderPath));
 
-        String requestSource = this.fileManagementService.urlCombine(AgentConfiguration.getInstallInfo().getCreateArtifactApiAddress()) + "/fetch-artifact";
-        WebResource webResource = this.restClient.resource(requestSource);
+        String requestSource = this.fileManagementService.urlCombine(AgentConfiguration.getInstallInfo().getCreateArtifactApiAddress()) + "/" + ConfigConstants.ENDPOINT_FETCH_ARTIFACT;
         String source = taskDefinition.getDesignatedPipelineDefinitionName() + File.separator + taskDefinition.getDesignatedPipelineExecutionId() + File.separator + taskDefinition.getSource();
 
-        ClientResponse response = webResource.type("application/json").post(ClientResponse.class, source);
+        String cacheKey = ArtifactCache.getKey(taskDefinition.getDesignatedPipelineDefinitionName(), taskDefinition.getDesignatedPipelineExecutionId(), taskDefinition.getSource());
+        CachedArtifact cachedArtifact = this.artifactCache.get(cacheKey);
+        Map<String, String> headers = (cachedArtifact == null) ? Collections.<String, String>emptyMap() : Collections.singletonMap(HttpHeaders.IF_NONE_MATCH, cachedArtifact.getETag());
 
-        if ((response.getStatus() != 200)) {
-            return this.nullProcessing(report, task, String.format("Could not get resource. TaskStatus code %s", response.getStatus()));
-        }
+        ClientResponse response = this.transport.post(ConfigConstants.ENDPOINT_FETCH_ARTIFACT, requestSource, MediaType.APPLICATION_JSON, source, headers);
 
-        if (response.getEntityInputStream() == null) {
-            return this.nullProcessing(report, task, "Could not get resource. Input stream is null");
+        if (response == null) {
+            return this.nullProcessing(report, task, "Could not get resource. Server is unreachable");
         }
 
-        String filePath = Paths.get(AgentConfiguration.getInstallInfo().getAgentTempDirectoryPath(), UUID.randomUUID() + ".zip").toString();
-        File fetchArtifactDir = new File(filePath);
-        this.fileManagementService.generateDirectory(fetchArtifactDir);
-
-        String errorMessage;
-        errorMessage = this.fileManagementService.initiateFile(fetchArtifactDir, response.getEntityInputStream(), filePath);
-        if (errorMessage != null) {
-            return this.nullProcessing(report, task, "Error occurred in creating the artifact!");
+        String filePath;
+        boolean isVerified;
+        if ((cachedArtifact != null) && (response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode())) {
+            // The server confirmed the cached archive is current, nothing is downloaded
+            this.transport.close(response);
+            filePath = cachedArtifact.getFile().toString();
+            // The cache compared the archive with its stored digest when it was looked up
+            isVerified = true;
+            ReportAppender.appendInfoMessage(String.format("Using cached artifact for %s", cacheKey), report);
+        } else {
+            if ((response.getStatus() != 200)) {
+                this.transport.close(response);
+                return this.nullProcessing(report, task, String.format("Could not get resource. TaskStatus code %s", response.getStatus()));
+            }
+
+            if (response.getEntityInputStream() == null) {
+                return this.nullProcessing(report, task, "Could not get resource. Input stream is null");
+            }
+
+            filePath = Paths.get(AgentConfiguration.getInstallInfo().getAgentTempDirectoryPath(), UUID.randomUUID() + ".zip").toString();
+            File fetchArtifactDir = new File(filePath);
+            this.fileManagementService.generateDirectory(fetchArtifactDir);
+
+            String errorMessage = this.fileManagementService.initiateFile(fetchArtifactDir, response.getEntityInputStream(), filePath);
+            String eTag = getHeader(response, HttpHeaders.ETAG);
+            String digest = getHeader(response, DIGEST);
+            boolean isResumable = (eTag != null) && BYTES.equals(getHeader(response, ACCEPT_RANGES));
+            this.transport.close(response);
+
+            // An interrupted download continues from the bytes already on disk, If-Range makes the server send
+            // the whole archive again if it changed in the meantime
+            for (int attempt = 0; (errorMessage != null) && isResumable && (attempt < ConfigConstants.ARTIFACT_DOWNLOAD_RESUME_ATTEMPTS); attempt++) {
+                long downloadedSize = fetchArtifactDir.length();
+                ReportAppender.appendInfoMessage(String.format("Download of %s interrupted, resuming from byte %d", cacheKey, downloadedSize), report);
+
+                Map<String, String> rangeHeaders = new HashMap<>();
+                rangeHeaders.put(RANGE, String.format("%s=%d-", BYTES, downloadedSize));
+                rangeHeaders.put(IF_RANGE, eTag);
+                ClientResponse rangeResponse = this.transport.post(ConfigConstants.ENDPOINT_FETCH_ARTIFACT, requestSource, MediaType.APPLICATION_JSON, source, rangeHeaders);
+                if ((rangeResponse == null) || (rangeResponse.getEntityInputStream() == null)) {
+                    this.transport.close(rangeResponse);
+                    continue;
+                }
+
+                if (rangeResponse.getStatus() == PARTIAL_CONTENT) {
+                    errorMessage = this.fileManagementService.appendFile(rangeResponse.getEntityInputStream(), filePath);
+                } else if (rangeResponse.getStatus() == 200) {
+                    eTag = getHeader(rangeResponse, HttpHeaders.ETAG);
+                    digest = getHeader(rangeResponse, DIGEST);
+                    isResumable = (eTag != null) && BYTES.equals(getHeader(rangeResponse, ACCEPT_RANGES));
+                    errorMessage = this.fileManagementService.initiateFile(fetchArtifactDir, rangeResponse.getEntityInputStream(), filePath);
+                } else {
+                    isResumable = false;
+                }
+                this.transport.close(rangeResponse);
+            }
+
+            if (errorMessage != null) {
+                return this.nullProcessing(report, task, "Error occurred in creating the artifact!");
+            }
+
+            String expectedDigest = (digest == null) ? null : getSha256Digest(digest);
+            if ((expectedDigest != null) && !this.isDigestMatched(expectedDigest, Paths.get(filePath))) {
+                this.fileManagementService.deleteFile(filePath);
+                return this.nullProcessing(report, task, "Error occurred in verifying the artifact! Downloaded archive does not match its digest");
+            }
+            isVerified = (expectedDigest != null);
+
+            // Servers that do not tag their archives get the previous behavior, the download is extracted and deleted
+            if (eTag != null) {
+                CachedArtifact storedArtifact = this.artifactCache.put(cacheKey, eTag, Paths.get(filePath));
+                if (storedArtifact != null) {
+                    filePath = storedArtifact.getFile().toString();
+                }
+            }
         }
+
         String destination;
         if (taskDefinition.getDestination() != null) {
             destination = String.valueOf(Paths.get(AgentConfiguration.getInstallInfo().getAgentPipelinesDir() + File.separator + taskDefinition.getDesignatedPipelineDefinitionName(), taskDefinition.getDestination()));
         } else {
             destination = String.valueOf(Paths.get(AgentConfiguration.getInstallInfo().getAgentPipelinesDir() + File.separator + taskDefinition.getDesignatedPipelineDefinitionName()));
         }
-        errorMessage = this.fileManagementService.unzipFile(filePath, destination);
-        filePath = Paths.get(AgentConfiguration.getInstallInfo().getAgentTempDirectoryPath()).toString();
-        String deleteMessage = this.fileManagementService.deleteFilesInDirectory(filePath);
+        String errorMessage = this.fileManagementService.unzipFile(filePath, destination);
+        String deleteMessage = this.fileManagementService.deleteFilesInDirectory(Paths.get(AgentConfiguration.getInstallInfo().getAgentTempDirectoryPath()).toString());
 
         if (errorMessage != null) {
             return this.nullProcessing(report, task, "Error occurred in unzipping files!");
@@ -117,10 +211,36 @@ public class FetchArtifactExecutor extends TaskExecutor {
 
         super.updateTask(task, TaskStatus.PASSED, null, LocalDateTime.now());
 
-        String fetchedMessage = String.format("Saved artifact to %s after verifying the integrity of its contents.", destination);
+        String fetchedMessage = isVerified ? String.format("Saved artifact to %s after verifying the integrity of its contents.", destination) : String.format("Saved artifact to %s.", destination);
         LOGGER.debug(fetchedMessage);
         ReportAppender.appendInfoMessage(fetchedMessage, report);
 
         return task;
     }
+
+    private boolean isDigestMatched(String expectedDigest, Path file) {
+        try {
+            byte[] expected = Base64.getDecoder().decode(expectedDigest);
+            return String.format("%0" + (expected.length * 2) + "x", new BigInteger(1, expected)).equals(ArtifactCache.getDigest(file));
+        } catch (IllegalArgumentException | IOException e) {
+            LOGGER.debug(e.getMessage());
+            return false;
+        }
+    }
+
+    // Only the sha-256 digest is checked, servers that send other algorithms are trusted as before
+    private static String getSha256Digest(String digest) {
+        for (String value : digest.split(",")) {
+            value = value.trim();
+            if (value.regionMatches(true, 0, SHA_256_DIGEST, 0, SHA_256_DIGEST.length())) {
+                return value.substring(SHA_256_DIGEST.length());
+            }
+        }
+
+        return null;
+    }
+
+    private static String getHeader(ClientResponse response, String name) {
+        return (response.getHeaders() == null) ? null : response.getHeaders().getFirst(name);
+    }
 }
\ No newline at end of file
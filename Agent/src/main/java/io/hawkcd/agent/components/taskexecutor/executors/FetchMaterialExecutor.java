@@ -17,6 +17,7 @@
 package io.hawkcd.agent.components.taskexecutor.executors;
 
 import io.hawkcd.agent.AgentConfiguration;
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.components.taskexecutor.TaskExecutor;
 import io.hawkcd.agent.enums.TaskStatus;
 import io.hawkcd.agent.models.FetchMaterialTask;
@@ -45,7 +46,7 @@ public class FetchMaterialExecutor extends TaskExecutor {
     }
 
     @Override
-    public Task executeTask(Task task, StringBuilder report, WorkInfo workInfo) {
+    public Task executeTask(Task task, ReportBuffer report, WorkInfo workInfo) {
 
         FetchMaterialTask fetchMaterialTask = (FetchMaterialTask) task.getTaskDefinition();
 
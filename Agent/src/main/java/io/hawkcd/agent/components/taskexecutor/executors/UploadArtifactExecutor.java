@@ -20,39 +20,49 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
-import com.sun.jersey.api.client.WebResource;
 import io.hawkcd.agent.AgentConfiguration;
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.components.taskexecutor.TaskExecutor;
+import io.hawkcd.agent.components.transport.AgentTransport;
+import io.hawkcd.agent.components.transport.IAgentTransport;
 import io.hawkcd.agent.constants.ConfigConstants;
 import io.hawkcd.agent.enums.TaskStatus;
 import io.hawkcd.agent.models.Task;
 import io.hawkcd.agent.models.TaskDefinition;
 import io.hawkcd.agent.models.UploadArtifactTask;
-import io.hawkcd.agent.models.payload.UploadArtifactInfo;
+import io.hawkcd.agent.models.payload.ArtifactManifestEntry;
+import io.hawkcd.agent.models.payload.UploadNegotiation;
 import io.hawkcd.agent.models.payload.WorkInfo;
 import io.hawkcd.agent.services.FileManagementService;
 import io.hawkcd.agent.services.interfaces.IFileManagementService;
 import io.hawkcd.agent.utilities.ReportAppender;
 import io.hawkcd.agent.utilities.deserializers.TaskDefinitionAdapter;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 
 import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class UploadArtifactExecutor extends TaskExecutor {
-    private Client restClient;
+    private IAgentTransport transport;
     private IFileManagementService fileManagementService;
     private Gson jsonConverter;
 
 
     public UploadArtifactExecutor() {
-        this.restClient = Client.create();
+        this.transport = AgentTransport.getInstance();
         this.fileManagementService = new FileManagementService();
         this.jsonConverter = new GsonBuilder()
                 .registerTypeAdapter(TaskDefinition.class, new TaskDefinitionAdapter())
@@ -60,7 +70,7 @@ public class UploadArtifactExecutor extends TaskExecutor {
     }
 
     public UploadArtifactExecutor(Client client, IFileManagementService fileManagementService) {
-        this.restClient = client.create();
+        this.transport = new AgentTransport(client);
         this.fileManagementService = fileManagementService;
         this.jsonConverter = new GsonBuilder()
                 .registerTypeAdapter(TaskDefinition.class, new TaskDefinitionAdapter())
@@ -68,7 +78,7 @@ public class UploadArtifactExecutor extends TaskExecutor {
     }
 
     @Override
-    public Task executeTask(Task task, StringBuilder report, WorkInfo workInfo) {
+    public Task executeTask(Task task, ReportBuffer report, WorkInfo workInfo) {
         UploadArtifactTask taskDefinition = (UploadArtifactTask) task.getTaskDefinition();
 
         this.updateTask(task, TaskStatus.PASSED, LocalDateTime.now(), null);
@@ -96,17 +106,7 @@ public class UploadArtifactExecutor extends TaskExecutor {
             return this.nullProcessing(report, task, String.format("Error in getting files in %s", fullPath));
         }
 
-        File zipFile = this.fileManagementService.generateUniqueFile(AgentConfiguration.getInstallInfo().getAgentTempDirectoryPath(), "zip");
-
-        String errorMessage = this.fileManagementService.zipFiles(zipFile.getPath(), files, rootPath, true);
-
-        if (errorMessage != null) {
-            zipFile.delete();
-            return this.nullProcessing(report, task, "Error occurred in zipping files!");
-        }
-
         String executionFolder = String.valueOf(workInfo.getPipelineExecutionID());
-        UploadArtifactInfo uploadArtifactInfo = new UploadArtifactInfo(zipFile, taskDefinition.getDestination());
         String folderPath = String.format(ConfigConstants.SERVER_CREATE_ARTIFACT_API_ADDRESS, workInfo.getPipelineDefinitionName(), executionFolder);
         AgentConfiguration.getInstallInfo().setCreateArtifactApiAddress(String.format("%s/%s", AgentConfiguration.getInstallInfo().getServerAddress(), folderPath));
 
@@ -118,28 +118,158 @@ public class UploadArtifactExecutor extends TaskExecutor {
 
         }
 
-        String requestSource = this.fileManagementService.urlCombine(AgentConfiguration.getInstallInfo().getCreateArtifactApiAddress()) + "/upload-artifact" + "?destination=" + destination;
-        WebResource webResource = this.restClient.resource(requestSource);
-        InputStream targetStream = null;
+        String artifactAddress = this.fileManagementService.urlCombine(AgentConfiguration.getInstallInfo().getCreateArtifactApiAddress());
+
+        // Only the contents the server does not already store are sent, the rest of the tree is assembled from the manifest
+        String errorMessage = null;
+        List<ArtifactManifestEntry> manifest = this.fileManagementService.createManifest(files, rootPath, true);
+        UploadNegotiation negotiation = ((manifest == null) || manifest.isEmpty()) ? null : this.negotiateUpload(artifactAddress, destination, manifest);
+        if (negotiation != null) {
+            List<ArtifactManifestEntry> missingEntries = this.getMissingEntries(manifest, negotiation.getMissingHashes());
+            ReportAppender.appendInfoMessage(String.format("Uploading %d of %d files, the rest are already stored on the server", this.countFiles(missingEntries), this.countFiles(manifest)), report);
+
+            String requestSource = artifactAddress + "/" + ConfigConstants.ENDPOINT_UPLOAD_ARTIFACT + "?destination=" + destination + "&uploadId=" + negotiation.getUploadId();
+            errorMessage = this.uploadArchive(requestSource, missingEntries);
+            if (errorMessage != null) {
+                LOGGER.debug(String.format("Incremental upload failed, uploading all files: %s", errorMessage));
+            }
+        }
+
+        if ((negotiation == null) || (errorMessage != null)) {
+            String requestSource = artifactAddress + "/" + ConfigConstants.ENDPOINT_UPLOAD_ARTIFACT + "?destination=" + destination;
+            errorMessage = this.uploadArchive(requestSource, files, rootPath);
+        }
+
+        if (errorMessage != null) {
+            return this.nullProcessing(report, task, errorMessage);
+        }
+
+        this.updateTask(task, TaskStatus.PASSED, null, LocalDateTime.now());
+
+        return task;
+    }
+
+    private UploadNegotiation negotiateUpload(String artifactAddress, String destination, List<ArtifactManifestEntry> manifest) {
+        String requestSource = artifactAddress + "/" + ConfigConstants.ENDPOINT_UPLOAD_MANIFEST + "?destination=" + destination;
+        ClientResponse response = this.transport.post(ConfigConstants.ENDPOINT_UPLOAD_MANIFEST, requestSource, MediaType.APPLICATION_JSON, this.jsonConverter.toJson(manifest));
+        if (response == null) {
+            return null;
+        }
+
+        // Servers without the handshake answer 404, they get the whole archive as before
+        UploadNegotiation negotiation = null;
         try {
-            targetStream = FileUtils.openInputStream(zipFile);
+            if (response.getStatus() == 200) {
+                negotiation = this.jsonConverter.fromJson(response.getEntity(String.class), UploadNegotiation.class);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug(e.getMessage());
+        } finally {
+            this.transport.close(response);
+        }
+
+        return ((negotiation != null) && (negotiation.getUploadId() != null)) ? negotiation : null;
+    }
+
+    private List<ArtifactManifestEntry> getMissingEntries(List<ArtifactManifestEntry> manifest, List<String> missingHashes) {
+        Set<String> remainingHashes = (missingHashes == null) ? new HashSet<String>() : new HashSet<>(missingHashes);
+        List<ArtifactManifestEntry> missingEntries = new ArrayList<>();
+        for (ArtifactManifestEntry entry : manifest) {
+            // Identical files are sent once, the server stores each content a single time
+            if (!entry.isFolder() && remainingHashes.remove(entry.getHash())) {
+                missingEntries.add(entry);
+            }
+        }
+
+        return missingEntries;
+    }
+
+    private int countFiles(List<ArtifactManifestEntry> entries) {
+        int count = 0;
+        for (ArtifactManifestEntry entry : entries) {
+            if (!entry.isFolder()) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private String uploadArchive(String requestSource, List<File> files, String rootPath) {
+        return this.uploadArchive(requestSource, new ArchiveWriter() {
+            @Override
+            public String write(OutputStream output) {
+                return UploadArtifactExecutor.this.fileManagementService.streamZipFiles(output, files, rootPath, true);
+            }
+        });
+    }
+
+    private String uploadArchive(String requestSource, List<ArtifactManifestEntry> entries) {
+        if (entries.isEmpty()) {
+            // Everything is already stored, an empty body still completes the upload
+            ClientResponse response = this.transport.post(ConfigConstants.ENDPOINT_UPLOAD_ARTIFACT, requestSource, MediaType.MULTIPART_FORM_DATA, new ByteArrayInputStream(new byte[0]));
+            return this.getUploadError(response, null);
+        }
+
+        return this.uploadArchive(requestSource, new ArchiveWriter() {
+            @Override
+            public String write(OutputStream output) {
+                return UploadArtifactExecutor.this.fileManagementService.streamZipEntries(output, entries);
+            }
+        });
+    }
+
+    private String uploadArchive(String requestSource, ArchiveWriter archiveWriter) {
+        // The archive is compressed on a separate thread straight into the request body, no temp file is written
+        PipedInputStream archiveStream = new PipedInputStream(ConfigConstants.TRANSPORT_CHUNK_SIZE);
+        PipedOutputStream archiveOutput;
+        try {
+            archiveOutput = new PipedOutputStream(archiveStream);
         } catch (IOException e) {
-            e.printStackTrace();
+            return "Error occurred in zipping files!";
         }
 
-        ClientResponse response = webResource
-                .type(MediaType.MULTIPART_FORM_DATA_TYPE)
-                .post(ClientResponse.class, targetStream);
+        AtomicReference<String> zipErrorMessage = new AtomicReference<>();
+        Thread compressor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                zipErrorMessage.set(archiveWriter.write(archiveOutput));
+                IOUtils.closeQuietly(archiveOutput);
+            }
+        }, "artifact-compressor");
+        compressor.start();
+
+        ClientResponse response = this.transport.post(ConfigConstants.ENDPOINT_UPLOAD_ARTIFACT, requestSource, MediaType.MULTIPART_FORM_DATA, archiveStream);
 
-        if (response.getStatus() != 200) {
-            zipFile.delete();
-            return this.nullProcessing(report, task, String.format("Error occurred in server response! Returned status code: %s", response.getStatus()));
+        // Closing the pipe releases the compressor if the request ended before the archive was read
+        IOUtils.closeQuietly(archiveStream);
+        try {
+            compressor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
-        zipFile.delete();
+        return this.getUploadError(response, zipErrorMessage.get());
+    }
 
-        this.updateTask(task, TaskStatus.PASSED, null, LocalDateTime.now());
+    private String getUploadError(ClientResponse response, String zipErrorMessage) {
+        if (response == null) {
+            return "Error occurred in uploading artifact! Server is unreachable";
+        }
 
-        return task;
+        this.transport.close(response);
+        if (zipErrorMessage != null) {
+            return "Error occurred in zipping files!";
+        }
+
+        if ((response.getStatus() != 200) && (response.getStatus() != 202)) {
+            return String.format("Error occurred in server response! Returned status code: %s", response.getStatus());
+        }
+
+        return null;
+    }
+
+    private interface ArchiveWriter {
+        String write(OutputStream output);
     }
 }
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.hawkcd.agent.components.transport;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
+import io.hawkcd.agent.constants.ConfigConstants;
+import io.hawkcd.agent.constants.MessageConstants;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/// <summary>
+/// The single HTTP transport shared by the Agent and all task executors.
+/// One Jersey client is reused for every request so connections to the server are kept alive and pooled,
+/// JSON report bodies are sent gzipped, and failures to reach the server put the transport into a jittered
+/// exponential backoff so a fleet of agents does not reconnect in lockstep after a server restart.
+/// </summary>
+public class AgentTransport implements IAgentTransport {
+    private static final Logger LOGGER = LogManager.getLogger(AgentTransport.class);
+    private static final String GZIP = "gzip";
+
+    private static AgentTransport instance;
+
+    private Client restClient;
+    private Map<String, EndpointMetrics> metrics;
+    private AtomicInteger consecutiveFailures;
+    private volatile long nextAttemptTime;
+
+    public static synchronized AgentTransport getInstance() {
+        if (instance == null) {
+            System.setProperty("http.keepAlive", "true");
+            if (System.getProperty("http.maxConnections") == null) {
+                System.setProperty("http.maxConnections", String.valueOf(ConfigConstants.TRANSPORT_MAX_CONNECTIONS));
+            }
+
+            Client client = Client.create();
+            client.setConnectTimeout(ConfigConstants.TRANSPORT_CONNECT_TIMEOUT);
+            client.setReadTimeout(ConfigConstants.TRANSPORT_READ_TIMEOUT);
+            client.addFilter(new GZIPContentEncodingFilter(false));
+            instance = new AgentTransport(client);
+        }
+
+        return instance;
+    }
+
+    public AgentTransport(Client client) {
+        this.restClient = client;
+        this.metrics = new ConcurrentHashMap<>();
+        this.consecutiveFailures = new AtomicInteger();
+    }
+
+    @Override
+    public ClientResponse get(String endpoint, String address) {
+        WebResource.Builder builder = this.restClient.resource(address).accept(MediaType.APPLICATION_JSON);
+
+        return this.execute(endpoint, builder, HttpMethod.GET, null);
+    }
+
+    /**
+     * Sends the JSON body gzipped. Reports carry the whole job output, so they compress very well.
+     */
+    @Override
+    public ClientResponse put(String endpoint, String address, String json) {
+        WebResource.Builder builder = this.restClient.resource(address)
+                .type(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_ENCODING, GZIP);
+
+        return this.execute(endpoint, builder, HttpMethod.PUT, json);
+    }
+
+    /**
+     * Used for artifact transfers, which are not bound by the read timeout.
+     * Requests whose body can be sent again are retried with backoff while the server is unreachable.
+     */
+    @Override
+    public ClientResponse post(String endpoint, String address, String mediaType, Object entity) {
+        return this.post(endpoint, address, mediaType, entity, Collections.<String, String>emptyMap());
+    }
+
+    @Override
+    public ClientResponse post(String endpoint, String address, String mediaType, Object entity, Map<String, String> headers) {
+        WebResource resource = this.restClient.resource(address);
+        resource.setProperty(ClientConfig.PROPERTY_READ_TIMEOUT, ConfigConstants.TRANSPORT_TRANSFER_READ_TIMEOUT);
+        boolean isRetryable = !(entity instanceof InputStream);
+        if (!isRetryable) {
+            // Streams have no known length, chunking keeps HttpURLConnection from buffering the whole body
+            resource.setProperty(ClientConfig.PROPERTY_CHUNKED_ENCODING_SIZE, ConfigConstants.TRANSPORT_CHUNK_SIZE);
+        }
+
+        ClientResponse response = null;
+        for (int attempt = 0; attempt < ConfigConstants.TRANSPORT_MAX_RETRIES; attempt++) {
+            if (!this.awaitServer()) {
+                break;
+            }
+
+            WebResource.Builder builder = resource.type(mediaType);
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                builder = builder.header(header.getKey(), header.getValue());
+            }
+
+            response = this.execute(endpoint, builder, HttpMethod.POST, entity);
+            if ((response != null) || !isRetryable) {
+                break;
+            }
+        }
+
+        return response;
+    }
+
+    @Override
+    public void close(ClientResponse response) {
+        if (response != null) {
+            try {
+                response.close();
+            } catch (ClientHandlerException e) {
+                LOGGER.debug(e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean isServerAvailable() {
+        return System.currentTimeMillis() >= this.nextAttemptTime;
+    }
+
+    @Override
+    public long getJitteredDelay(long period) {
+        return ThreadLocalRandom.current().nextLong(period + 1);
+    }
+
+    @Override
+    public Map<String, EndpointMetrics> getMetrics() {
+        return Collections.unmodifiableMap(this.metrics);
+    }
+
+    private ClientResponse execute(String endpoint, WebResource.Builder builder, String method, Object entity) {
+        ClientResponse response = null;
+        long start = System.nanoTime();
+        try {
+            switch (method) {
+                case HttpMethod.GET:
+                    response = builder.get(ClientResponse.class);
+                    break;
+                case HttpMethod.PUT:
+                    response = builder.put(ClientResponse.class, entity);
+                    break;
+                default:
+                    response = builder.post(ClientResponse.class, entity);
+                    break;
+            }
+        } catch (ClientHandlerException e) {
+            LOGGER.debug(String.format("%s: %s", endpoint, e.getMessage()));
+        }
+
+        boolean isFailed = (response == null) || this.isServerError(response);
+        this.getEndpointMetrics(endpoint).record(System.nanoTime() - start, isFailed);
+        if (isFailed) {
+            this.onFailure();
+        } else {
+            this.onSuccess();
+        }
+
+        return response;
+    }
+
+    private boolean isServerError(ClientResponse response) {
+        ClientResponse.Status status = response.getClientResponseStatus();
+
+        return (status != null) && (status.getFamily() == Response.Status.Family.SERVER_ERROR);
+    }
+
+    private EndpointMetrics getEndpointMetrics(String endpoint) {
+        EndpointMetrics endpointMetrics = this.metrics.get(endpoint);
+        if (endpointMetrics == null) {
+            this.metrics.putIfAbsent(endpoint, new EndpointMetrics(endpoint));
+            endpointMetrics = this.metrics.get(endpoint);
+        }
+
+        return endpointMetrics;
+    }
+
+    private boolean awaitServer() {
+        long delay = this.nextAttemptTime - System.currentTimeMillis();
+        if (delay <= 0) {
+            return true;
+        }
+
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Equal jitter: half of the exponential ceiling is fixed, the other half is random.
+    private void onFailure() {
+        int failures = this.consecutiveFailures.incrementAndGet();
+        long ceiling = Math.min(ConfigConstants.TRANSPORT_BACKOFF_MAX, ConfigConstants.TRANSPORT_BACKOFF_BASE << Math.min(failures, 16));
+        long delay = (ceiling / 2) + ThreadLocalRandom.current().nextLong((ceiling / 2) + 1);
+        this.nextAttemptTime = System.currentTimeMillis() + delay;
+
+        String message = String.format(MessageConstants.AGENT_BACKING_OFF, delay);
+        if (failures == 1) {
+            LOGGER.info(message);
+        } else {
+            LOGGER.debug(message);
+        }
+    }
+
+    private void onSuccess() {
+        int failures = this.consecutiveFailures.getAndSet(0);
+        this.nextAttemptTime = 0;
+        if (failures > 0) {
+            LOGGER.info(String.format(MessageConstants.AGENT_RECONNECTED, failures));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.hawkcd.agent.components.transport;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and error counters for a single server endpoint used by the agent.
+ */
+public class EndpointMetrics {
+    private final String endpoint;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public EndpointMetrics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public void record(long elapsedNanos, boolean failed) {
+        this.requests.incrementAndGet();
+        if (failed) {
+            this.failures.incrementAndGet();
+        }
+
+        this.totalNanos.addAndGet(elapsedNanos);
+        long currentMax = this.maxNanos.get();
+        while (elapsedNanos > currentMax && !this.maxNanos.compareAndSet(currentMax, elapsedNanos)) {
+            currentMax = this.maxNanos.get();
+        }
+    }
+
+    public String getEndpoint() {
+        return this.endpoint;
+    }
+
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    public long getFailures() {
+        return this.failures.get();
+    }
+
+    public long getAverageMillis() {
+        long count = this.requests.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(this.totalNanos.get() / count);
+    }
+
+    public long getMaxMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: requests=%s, failures=%s, avg=%sms, max=%sms",
+                this.endpoint, this.getRequests(), this.getFailures(), this.getAverageMillis(), this.getMaxMillis());
+    }
+}
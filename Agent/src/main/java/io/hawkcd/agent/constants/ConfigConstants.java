@@ -27,6 +27,8 @@ public final class ConfigConstants {
     public static final String AGENT_LOG_DIR = "Log";
     public static final String AGENT_PIPELINES_DIR = "Pipelines";
     public static final String AGENT_TEMP_DIR = "Temp";
+    public static final String AGENT_REPORTS_DIR = "Reports";
+    public static final String AGENT_ARTIFACT_CACHE_DIR = "ArtifactCache";
     public static final String SERVER_NAME = "localhost";
     public static final int SERVER_PORT = 8080;
     public static final String SERVER_REPORT_AGENT_API_ADDRESS = "agents";
@@ -35,4 +37,31 @@ public final class ConfigConstants {
     public static final String SERVER_CREATE_ARTIFACT_API_ADDRESS = "Artifacts/%s/%s";
     public static final String SERVER_FETCH_ARTIFACT_API_ADDRESS = "pipeline-definitions";
     public static final String ARTIFACTS_DIRECTORY = "Artifacts";
+
+    public static final int TRANSPORT_CONNECT_TIMEOUT = 10000;
+    public static final int TRANSPORT_READ_TIMEOUT = 60000;
+    public static final int TRANSPORT_TRANSFER_READ_TIMEOUT = 0;
+    public static final int TRANSPORT_MAX_CONNECTIONS = 10;
+    public static final long TRANSPORT_BACKOFF_BASE = 1000;
+    public static final long TRANSPORT_BACKOFF_MAX = 60000;
+    public static final int TRANSPORT_MAX_RETRIES = 5;
+    public static final int TRANSPORT_CHUNK_SIZE = 64 * 1024;
+    public static final long AGENT_TIMER_PERIOD = 4000;
+
+    public static final String ENDPOINT_REPORT_JOB = "report-job";
+    public static final String ENDPOINT_REPORT_AGENT = "report-agent";
+    public static final String ENDPOINT_CHECK_FOR_WORK = "check-for-work";
+    public static final String ENDPOINT_FETCH_ARTIFACT = "fetch-artifact";
+    public static final String ENDPOINT_UPLOAD_ARTIFACT = "upload-artifact";
+    public static final String ENDPOINT_UPLOAD_MANIFEST = "upload-manifest";
+
+    public static final int REPORT_BUFFER_SIZE = 64 * 1024;
+    public static final int REPORT_SEGMENT_SIZE = 4 * 1024 * 1024;
+    public static final int REPORT_MAX_SIZE = 4 * 1024 * 1024;
+    public static final int OUTPUT_PUMP_BUFFER_SIZE = 64 * 1024;
+    public static final int OUTPUT_PUMP_QUEUE_CAPACITY = 64;
+    public static final int ARTIFACT_DOWNLOAD_RESUME_ATTEMPTS = 3;
+    public static final long ARTIFACT_CACHE_QUOTA = 2L * 1024 * 1024 * 1024;
+    public static final int ARTIFACT_COMPRESSION_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final int ARTIFACT_COMPRESSION_BLOCK_SIZE = 1024 * 1024;
 }
@@ -23,14 +23,22 @@ public final class MessageConstants {
     public static final String AGENT_WORK_FOUND = "Work found.";
     public static final String AGENT_REPORT_SENT = "Agent sent to server.";
     public static final String AGENT_COULD_NOT_CONNECT = "Could not connect to server.";
+    public static final String AGENT_BACKING_OFF = "Server unavailable, next attempt in %s ms.";
+    public static final String AGENT_RECONNECTED = "Connection to server restored after %s failed attempts.";
 
     public static final String JOB_STARTED_ON_AGENT = "Job %s started on Agent %s";
     public static final String JOB_REPORT_SENT = "Job sent to server.";
     public static final String JOB_COMPLETED_WITH_STATUS = "Job %s completed with status %s.";
+    public static final String JOB_REPORT_TRUNCATED = "... %s bytes of earlier output omitted";
+    public static final String JOB_REPORT_SPILL_FAILED = "Could not write job output to %s: %s";
+    public static final String JOB_REPORT_OUTPUT_LOST = "... %s characters of output lost, the output could not be written to disk";
 
     public static final String TASK_STARTED = "Task %s started. Type: %s";
     public static final String TASK_COMPLETED = "Task %s completed with status %s.";
     public static final String TASK_THROWS_EXCEPTION = "Task threw Exception with message: %s.";
+    public static final String TASK_OUTPUT_STDOUT_TAG = "";
+    public static final String TASK_OUTPUT_STDERR_TAG = "[stderr] ";
+    public static final String TASK_OUTPUT_DROPPED = "... %s characters of output dropped, the report could not keep up with the process";
 
     public static final String CONSOLE_RED = (char) 27 + "[1;31m";
     public static final String CONSOLE_GREEN = (char) 27 + "[32m";
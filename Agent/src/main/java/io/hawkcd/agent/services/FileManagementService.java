@@ -16,6 +16,9 @@
 
 package io.hawkcd.agent.services;
 
+import io.hawkcd.agent.components.artifacts.ParallelZipWriter;
+import io.hawkcd.agent.constants.ConfigConstants;
+import io.hawkcd.agent.models.payload.ArtifactManifestEntry;
 import io.hawkcd.agent.services.interfaces.IFileManagementService;
 import net.lingala.zip4j.core.ZipFile;
 import net.lingala.zip4j.exception.ZipException;
@@ -31,7 +34,16 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -68,6 +80,128 @@ public class FileManagementService implements IFileManagementService {
         return errorMessage;
     }
 
+    @Override
+    public String streamZipFiles(OutputStream outputStream, List<File> files, String filesRootPath, boolean includeRootPath) {
+        String errorMessage = null;
+        Path rootPath = Paths.get(filesRootPath).toAbsolutePath().normalize();
+        try (ParallelZipWriter zipWriter = new ParallelZipWriter(outputStream)) {
+            for (File file : files) {
+                Path filePath = file.toPath().toAbsolutePath().normalize();
+                if (file.isFile()) {
+                    zipWriter.putFile(FilenameUtils.separatorsToUnix(rootPath.relativize(filePath).toString()), filePath);
+                }
+                if (file.isDirectory()) {
+                    Path basePath = (includeRootPath && (filePath.getParent() != null)) ? filePath.getParent() : filePath;
+                    this.addZipFolder(zipWriter, filePath, basePath);
+                }
+            }
+        } catch (IOException e) {
+            errorMessage = e.getMessage();
+        }
+
+        return errorMessage;
+    }
+
+    private void addZipFolder(ParallelZipWriter zipWriter, Path folder, Path basePath) throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                Path entryPath = basePath.relativize(directory);
+                if (!entryPath.toString().isEmpty()) {
+                    zipWriter.putFolder(FilenameUtils.separatorsToUnix(entryPath.toString()), attributes.lastModifiedTime().toMillis());
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                zipWriter.putFile(FilenameUtils.separatorsToUnix(basePath.relativize(file).toString()), file);
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public List<ArtifactManifestEntry> createManifest(List<File> files, String filesRootPath, boolean includeRootPath) {
+        List<ArtifactManifestEntry> manifest = new ArrayList<>();
+        Path rootPath = Paths.get(filesRootPath).toAbsolutePath().normalize();
+        byte[] buffer = new byte[ConfigConstants.OUTPUT_PUMP_BUFFER_SIZE];
+        try {
+            for (File file : files) {
+                Path filePath = file.toPath().toAbsolutePath().normalize();
+                if (file.isFile()) {
+                    manifest.add(this.createManifestEntry(filePath, rootPath.relativize(filePath), buffer));
+                }
+                if (file.isDirectory()) {
+                    Path basePath = (includeRootPath && (filePath.getParent() != null)) ? filePath.getParent() : filePath;
+                    Files.walkFileTree(filePath, new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                            Path entryPath = basePath.relativize(directory);
+                            if (!entryPath.toString().isEmpty()) {
+                                manifest.add(new ArtifactManifestEntry(FilenameUtils.separatorsToUnix(entryPath.toString()), null, 0, attributes.lastModifiedTime().toMillis(), true, directory.toFile()));
+                            }
+
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                            manifest.add(FileManagementService.this.createManifestEntry(file, basePath.relativize(file), buffer));
+
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        return manifest;
+    }
+
+    @Override
+    public String streamZipEntries(OutputStream outputStream, List<ArtifactManifestEntry> entries) {
+        String errorMessage = null;
+        try (ParallelZipWriter zipWriter = new ParallelZipWriter(outputStream)) {
+            for (ArtifactManifestEntry entry : entries) {
+                if (entry.isFolder()) {
+                    zipWriter.putFolder(entry.getPath(), entry.getLastModified());
+                } else {
+                    zipWriter.putFile(entry.getPath(), entry.getFile().toPath());
+                }
+            }
+        } catch (IOException e) {
+            errorMessage = e.getMessage();
+        }
+
+        return errorMessage;
+    }
+
+    private ArtifactManifestEntry createManifestEntry(Path file, Path entryPath, byte[] buffer) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        long size = 0;
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        String hash = String.format("%064x", new BigInteger(1, digest.digest()));
+
+        return new ArtifactManifestEntry(FilenameUtils.separatorsToUnix(entryPath.toString()), hash, size, Files.getLastModifiedTime(file).toMillis(), false, file.toFile());
+    }
+
     public void generateDirectory(File file) {
         file.getParentFile().mkdirs();
     }
@@ -114,11 +248,21 @@ public class FileManagementService implements IFileManagementService {
             }
         }
 
-        try {
-            byte[] bytes = IOUtils.toByteArray(stream);
-            FileOutputStream fileOutputStream = new FileOutputStream(filePath);
-            fileOutputStream.write(bytes);
-            fileOutputStream.close();
+        // Streamed to disk, so an interrupted download keeps the bytes it received and can be resumed
+        try (FileOutputStream fileOutputStream = new FileOutputStream(filePath)) {
+            IOUtils.copyLarge(stream, fileOutputStream, new byte[ConfigConstants.OUTPUT_PUMP_BUFFER_SIZE]);
+        } catch (IOException e) {
+            errorMessage = e.getMessage();
+        }
+
+        return errorMessage;
+    }
+
+    @Override
+    public String appendFile(InputStream stream, String filePath) {
+        String errorMessage = null;
+        try (FileOutputStream fileOutputStream = new FileOutputStream(filePath, true)) {
+            IOUtils.copyLarge(stream, fileOutputStream, new byte[ConfigConstants.OUTPUT_PUMP_BUFFER_SIZE]);
         } catch (IOException e) {
             errorMessage = e.getMessage();
         }
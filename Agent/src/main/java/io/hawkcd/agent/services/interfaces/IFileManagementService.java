@@ -16,8 +16,11 @@
 
 package io.hawkcd.agent.services.interfaces;
 
+import io.hawkcd.agent.models.payload.ArtifactManifestEntry;
+
 import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface IFileManagementService {
@@ -28,10 +31,18 @@ public interface IFileManagementService {
 
     String initiateFile(File file, InputStream stream, String filePath);
 
+    String appendFile(InputStream stream, String filePath);
+
     List<File> getFiles(String rootPath, String wildCardPattern);
 
     String zipFiles(String zipFilePath, List<File> files, String filesRootPath, boolean includeRootPath);
 
+    String streamZipFiles(OutputStream outputStream, List<File> files, String filesRootPath, boolean includeRootPath);
+
+    List<ArtifactManifestEntry> createManifest(List<File> files, String filesRootPath, boolean includeRootPath);
+
+    String streamZipEntries(OutputStream outputStream, List<ArtifactManifestEntry> entries);
+
     File generateUniqueFile(String filePath, String fileExtension);
 
     String deleteFile(String filePath);
@@ -16,6 +16,7 @@
 
 package io.hawkcd.agent.utilities;
 
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.constants.MessageConstants;
 import io.hawkcd.agent.enums.JobStatus;
 import io.hawkcd.agent.enums.TaskStatus;
@@ -23,12 +24,26 @@ import io.hawkcd.agent.models.Job;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 
-import java.time.LocalDateTime;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.LocalTime;
 
 public class ReportAppender {
-    public static StringBuilder appendStartedMessage(String message, StringBuilder report, Class classType) {
+    private static final Object LOCK = new Object();
+    private static final Writer CONSOLE = new BufferedWriter(new OutputStreamWriter(System.out));
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final StringBuilder LINE = new StringBuilder(256);
+    private static char[] lineChars = new char[256];
+    private static long timeStampSecond = -1;
+    private static int timeStampHour;
+    private static int timeStampMinute;
+    private static int timeStampSeconds;
+
+    public static ReportBuffer appendStartedMessage(String message, ReportBuffer report, Class classType) {
         message = MessageConstants.CONSOLE_YELLOW + message;
-        report.append(message).append(System.lineSeparator());
+        report.append(message).append(LINE_SEPARATOR);
         String line;
         if (classType == Job.class) {
             line = MessageConstants.CONSOLE_WHITE + MessageConstants.CONSOLE_THICK_LINE;
@@ -36,56 +51,127 @@ public class ReportAppender {
             line = MessageConstants.CONSOLE_WHITE + MessageConstants.CONSOLE_THIN_LINE;
         }
 
-        report.append(line).append(System.lineSeparator());
+        report.append(line).append(LINE_SEPARATOR);
 
         return report;
     }
 
-    public static StringBuilder appendCompletedMessage(String message, StringBuilder report, JobStatus status) {
+    public static ReportBuffer appendCompletedMessage(String message, ReportBuffer report, JobStatus status) {
         if (status == JobStatus.PASSED) {
             message = MessageConstants.CONSOLE_GREEN + message;
         } else {
             message = MessageConstants.CONSOLE_RED + message;
         }
 
-        report.append(message).append(System.lineSeparator());
+        report.append(message).append(LINE_SEPARATOR);
 
         return report;
     }
 
-    public static StringBuilder appendCompletedMessage(String message, StringBuilder report, TaskStatus status) {
+    public static ReportBuffer appendCompletedMessage(String message, ReportBuffer report, TaskStatus status) {
         if (status == TaskStatus.PASSED) {
             message = MessageConstants.CONSOLE_GREEN + message;
         } else {
             message = MessageConstants.CONSOLE_RED + message;
         }
 
-        report.append(message).append(System.lineSeparator());
+        report.append(message).append(LINE_SEPARATOR);
 
         return report;
     }
 
+    public static ReportBuffer appendInfoMessage(String message, ReportBuffer report) {
+        if (message.isEmpty()) {
+            report.append(LINE_SEPARATOR);
+            return report;
+        }
 
-    public static StringBuilder appendInfoMessage(String message, StringBuilder report) {
-
-        //message = MessageConstants.CONSOLE_WHITE + message;
-        if (!message.isEmpty()){
-            String formattedMessage = String.format("%s %s", getTimeStamp(), message);
+        synchronized (LOCK) {
+            LINE.setLength(0);
+            refreshTimeStamp();
+            appendTimeStamp(LINE);
+            LINE.append(' ').append(message).append(LINE_SEPARATOR);
+            flushLine(report, message.indexOf('\\') >= 0);
+        }
 
-            System.out.println(StringEscapeUtils.unescapeJava(formattedMessage));
+        return report;
+    }
 
-            report.append(formattedMessage).append(System.lineSeparator());
-        }else {
-            report.append(message).append(System.lineSeparator());
+    /**
+     * Appends a batch of process output lines. The batch shares one timestamp and is formatted into a reused
+     * buffer, then written to the console and the report in a single call.
+     */
+    public static ReportBuffer appendOutput(char[] output, int length, String tag, ReportBuffer report) {
+        synchronized (LOCK) {
+            LINE.setLength(0);
+            refreshTimeStamp();
+            boolean hasEscapes = false;
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                while ((end < length) && (output[end] != '\n')) {
+                    hasEscapes |= output[end] == '\\';
+                    end++;
+                }
+
+                int lineEnd = ((end > start) && (output[end - 1] == '\r')) ? end - 1 : end;
+                if (lineEnd > start) {
+                    appendTimeStamp(LINE);
+                    LINE.append(' ').append(tag).append(output, start, lineEnd - start);
+                }
+
+                LINE.append(LINE_SEPARATOR);
+                start = end + 1;
+            }
+
+            flushLine(report, hasEscapes);
         }
+
         return report;
     }
 
-    private static String getTimeStamp(){
-        // e.g. [10:51:50:564]:
-        LocalDateTime now = LocalDateTime.now();
-        String format = String.format("[%02d:%02d:%02d]:", now.getHour(), now.getMinute(), now.getSecond());
-        return format;
+    private static void flushLine(ReportBuffer report, boolean hasEscapes) {
+        int length = LINE.length();
+        if (lineChars.length < length) {
+            lineChars = new char[Math.max(length, lineChars.length * 2)];
+        }
+
+        LINE.getChars(0, length, lineChars, 0);
+        try {
+            if (hasEscapes) {
+                CONSOLE.write(StringEscapeUtils.unescapeJava(LINE.toString()));
+            } else {
+                CONSOLE.write(lineChars, 0, length);
+            }
+
+            CONSOLE.flush();
+        } catch (IOException e) {
+            // The console is best effort, the output is still added to the report
+        }
+
+        report.append(lineChars, 0, length);
+    }
+
+    private static void refreshTimeStamp() {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != timeStampSecond) {
+            LocalTime now = LocalTime.now();
+            timeStampHour = now.getHour();
+            timeStampMinute = now.getMinute();
+            timeStampSeconds = now.getSecond();
+            timeStampSecond = second;
+        }
+    }
+
+    private static void appendTimeStamp(StringBuilder line) {
+        // e.g. [10:51:50]:
+        line.append('[');
+        appendTwoDigits(line, timeStampHour).append(':');
+        appendTwoDigits(line, timeStampMinute).append(':');
+        appendTwoDigits(line, timeStampSeconds).append("]:");
     }
 
+    private static StringBuilder appendTwoDigits(StringBuilder line, int value) {
+        return line.append((char) ('0' + (value / 10))).append((char) ('0' + (value % 10)));
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.agent.benchmarks;
+
+import io.hawkcd.agent.components.artifacts.ParallelZipWriter;
+import io.hawkcd.agent.constants.ConfigConstants;
+import io.hawkcd.agent.services.FileManagementService;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+/// <summary>
+/// Compares the throughput of the zip4j archiver with ParallelZipWriter on one and on all cores, packaging a
+/// synthetic workspace of half compressible and half random files.
+/// Usage: ArtifactCompressionBenchmark [workspace size in MB] [file count] [iterations]
+/// </summary>
+public class ArtifactCompressionBenchmark {
+    private static final int WARMUP_ITERATIONS = 2;
+
+    public static void main(String[] args) throws IOException {
+        int workspaceSize = (args.length > 0) ? Integer.parseInt(args[0]) : 512;
+        int fileCount = (args.length > 1) ? Integer.parseInt(args[1]) : 256;
+        int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+        Path workspace = Files.createTempDirectory("hawkcd-compression-benchmark");
+        try {
+            long totalSize = createWorkspace(workspace.resolve("output"), workspaceSize * 1024L * 1024L, fileCount);
+            List<File> files = Collections.singletonList(workspace.resolve("output").toFile());
+            String rootPath = workspace.toString();
+            Path zip4jArchive = workspace.resolve("zip4j.zip");
+            FileManagementService fileManagementService = new FileManagementService();
+            ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+            ForkJoinPool allCoresPool = new ForkJoinPool(ConfigConstants.ARTIFACT_COMPRESSION_THREADS);
+
+            System.out.printf("Workspace: %d files, %d MB, %d cores%n", fileCount, workspaceSize, ConfigConstants.ARTIFACT_COMPRESSION_THREADS);
+            measure("zip4j", totalSize, iterations, new Archiver() {
+                @Override
+                public void archive() throws IOException {
+                    Files.deleteIfExists(zip4jArchive);
+                    String errorMessage = fileManagementService.zipFiles(zip4jArchive.toString(), files, rootPath, true);
+                    if (errorMessage != null) {
+                        throw new IOException(errorMessage);
+                    }
+                }
+            });
+            measure("parallel, 1 thread", totalSize, iterations, createParallelArchiver(singleThreadPool, workspace));
+            measure(String.format("parallel, %d threads", allCoresPool.getParallelism()), totalSize, iterations, createParallelArchiver(allCoresPool, workspace));
+
+            singleThreadPool.shutdown();
+            allCoresPool.shutdown();
+        } finally {
+            FileUtils.deleteDirectory(workspace.toFile());
+        }
+    }
+
+    private static Archiver createParallelArchiver(ForkJoinPool compressionPool, Path workspace) {
+        return new Archiver() {
+            @Override
+            public void archive() throws IOException {
+                try (ParallelZipWriter zipWriter = new ParallelZipWriter(new NullOutputStream(), compressionPool, ConfigConstants.ARTIFACT_COMPRESSION_BLOCK_SIZE, Deflater.BEST_SPEED)) {
+                    try (DirectoryStream<Path> directory = Files.newDirectoryStream(workspace.resolve("output"))) {
+                        for (Path file : directory) {
+                            zipWriter.putFile("output/" + file.getFileName(), file);
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    private static void measure(String name, long totalSize, int iterations, Archiver archiver) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            archiver.archive();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            archiver.archive();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9 / iterations;
+
+        System.out.printf("%-24s %8.3f s/op %10.1f MB/s%n", name, seconds, (totalSize / (1024.0 * 1024.0)) / seconds);
+    }
+
+    private static long createWorkspace(Path directory, long size, int fileCount) throws IOException {
+        Files.createDirectories(directory);
+        Random random = new Random(42);
+        byte[] text = "INFO  [main] io.hawkcd.build - compiled module successfully\n".getBytes();
+        long fileSize = size / fileCount;
+        long totalSize = 0;
+        for (int i = 0; i < fileCount; i++) {
+            byte[] contents = new byte[(int) fileSize];
+            if ((i % 2) == 0) {
+                for (int j = 0; j < contents.length; j++) {
+                    contents[j] = text[j % text.length];
+                }
+            } else {
+                random.nextBytes(contents);
+            }
+            Files.write(directory.resolve(String.format("file-%04d.bin", i)), contents);
+            totalSize += contents.length;
+        }
+
+        return totalSize;
+    }
+
+    private interface Archiver {
+        void archive() throws IOException;
+    }
+}
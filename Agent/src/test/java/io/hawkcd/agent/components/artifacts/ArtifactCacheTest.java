@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.agent.components.artifacts;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ArtifactCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path cacheDirectory;
+
+    @Before
+    public void setUp() {
+        this.cacheDirectory = this.folder.getRoot().toPath().resolve("cache");
+    }
+
+    @Test
+    public void get_storedArtifact_returnedWithETag() throws IOException {
+        //Arrange
+        ArtifactCache artifactCache = new ArtifactCache(this.cacheDirectory, 1024);
+        artifactCache.put("pipeline/1/source", "\"etag\"", this.download("archive"));
+
+        //Act
+        CachedArtifact actualArtifact = artifactCache.get("pipeline/1/source");
+
+        //Assert
+        Assert.assertNotNull(actualArtifact);
+        Assert.assertEquals("\"etag\"", actualArtifact.getETag());
+        Assert.assertEquals("archive", new String(Files.readAllBytes(actualArtifact.getFile())));
+    }
+
+    @Test
+    public void get_corruptedArtifact_null() throws IOException {
+        //Arrange
+        ArtifactCache artifactCache = new ArtifactCache(this.cacheDirectory, 1024);
+        CachedArtifact storedArtifact = artifactCache.put("pipeline/1/source", "\"etag\"", this.download("archive"));
+        Files.write(storedArtifact.getFile(), "ARCHIVE".getBytes());
+
+        //Act
+        CachedArtifact actualArtifact = artifactCache.get("pipeline/1/source");
+
+        //Assert
+        Assert.assertNull(actualArtifact);
+        Assert.assertFalse(Files.exists(storedArtifact.getFile()));
+        Assert.assertEquals(0, artifactCache.getUsedSpace());
+    }
+
+    @Test
+    public void put_quotaExceeded_leastRecentlyUsedEvicted() throws IOException {
+        //Arrange
+        ArtifactCache artifactCache = new ArtifactCache(this.cacheDirectory, 20);
+        artifactCache.put("pipeline/1/first", "\"first\"", this.download("0123456789"));
+        artifactCache.put("pipeline/1/second", "\"second\"", this.download("0123456789"));
+        artifactCache.get("pipeline/1/first");
+
+        //Act
+        artifactCache.put("pipeline/1/third", "\"third\"", this.download("0123456789"));
+
+        //Assert
+        Assert.assertNotNull(artifactCache.get("pipeline/1/first"));
+        Assert.assertNull(artifactCache.get("pipeline/1/second"));
+        Assert.assertNotNull(artifactCache.get("pipeline/1/third"));
+        Assert.assertEquals(20, artifactCache.getUsedSpace());
+    }
+
+    @Test
+    public void artifactCache_restarted_entriesReloaded() throws IOException {
+        //Arrange
+        new ArtifactCache(this.cacheDirectory, 1024).put("pipeline/1/source", "\"etag\"", this.download("archive"));
+
+        //Act
+        ArtifactCache artifactCache = new ArtifactCache(this.cacheDirectory, 1024);
+
+        //Assert
+        Assert.assertEquals(1, artifactCache.size());
+        Assert.assertEquals("\"etag\"", artifactCache.get("pipeline/1/source").getETag());
+    }
+
+    private Path download(String contents) throws IOException {
+        Path download = this.folder.newFile().toPath();
+        Files.write(download, contents.getBytes());
+
+        return download;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.agent.components.artifacts;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+public class ParallelZipWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ForkJoinPool compressionPool;
+
+    @Before
+    public void setUp() {
+        this.compressionPool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        this.compressionPool.shutdownNow();
+    }
+
+    @Test
+    public void close_filesSplitIntoBlocks_standardArchiveWritten() throws IOException {
+        //Arrange
+        byte[] largeContents = this.createContents(10000);
+        Path largeFile = this.createFile("large.bin", largeContents);
+        Path emptyFile = this.createFile("empty.txt", new byte[0]);
+        Path archiveFile = this.folder.getRoot().toPath().resolve("archive.zip");
+
+        //Act
+        try (ParallelZipWriter zipWriter = new ParallelZipWriter(Files.newOutputStream(archiveFile), this.compressionPool, 1024, Deflater.BEST_SPEED)) {
+            zipWriter.putFolder("lib", System.currentTimeMillis());
+            zipWriter.putFile("lib/large.bin", largeFile);
+            zipWriter.putFile("empty.txt", emptyFile);
+        }
+
+        //Assert
+        try (ZipInputStream archive = new ZipInputStream(Files.newInputStream(archiveFile))) {
+            Assert.assertEquals("lib/", archive.getNextEntry().getName());
+            Assert.assertEquals("lib/large.bin", archive.getNextEntry().getName());
+            Assert.assertArrayEquals(largeContents, this.readAll(archive));
+            Assert.assertEquals("empty.txt", archive.getNextEntry().getName());
+            Assert.assertEquals(0, this.readAll(archive).length);
+            Assert.assertNull(archive.getNextEntry());
+        }
+        try (ZipFile archive = new ZipFile(archiveFile.toFile())) {
+            ZipEntry entry = archive.getEntry("lib/large.bin");
+            Assert.assertEquals(3, archive.size());
+            Assert.assertEquals(largeContents.length, entry.getSize());
+            Assert.assertArrayEquals(largeContents, this.readAll(archive.getInputStream(entry)));
+        }
+    }
+
+    @Test
+    public void combineCrc_twoBlocks_crcOfWhole() {
+        //Arrange
+        byte[] contents = this.createContents(5000);
+        CRC32 first = new CRC32();
+        first.update(contents, 0, 1234);
+        CRC32 second = new CRC32();
+        second.update(contents, 1234, contents.length - 1234);
+        CRC32 whole = new CRC32();
+        whole.update(contents);
+
+        //Act
+        long actualCrc = ParallelZipWriter.combineCrc(first.getValue(), second.getValue(), contents.length - 1234);
+
+        //Assert
+        Assert.assertEquals(whole.getValue(), actualCrc);
+    }
+
+    private byte[] createContents(int size) {
+        // Half repeated text and half noise, so blocks are compressed and back-references cross block boundaries
+        byte[] contents = new byte[size];
+        new Random(42).nextBytes(contents);
+        byte[] text = "artifact contents ".getBytes();
+        for (int i = 0; i < (size / 2); i++) {
+            contents[i] = text[i % text.length];
+        }
+
+        return contents;
+    }
+
+    private Path createFile(String name, byte[] contents) throws IOException {
+        Path file = this.folder.getRoot().toPath().resolve(name);
+        Files.write(file, contents);
+
+        return file;
+    }
+
+    private byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+
+        return output.toByteArray();
+    }
+}
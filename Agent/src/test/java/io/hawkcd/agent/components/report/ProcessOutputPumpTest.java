@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.hawkcd.agent.components.report;
+
+import io.hawkcd.agent.components.taskexecutor.executors.RunOnlyOnLinux;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RunOnlyOnLinux.class)
+public class ProcessOutputPumpTest {
+
+    @Test
+    public void await_processWritesToBothStreams_outputTagged() throws Exception {
+        //Arrange
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
+        Process process = new ProcessBuilder("/bin/sh", "-c", "echo out; echo err 1>&2").start();
+        ProcessOutputPump outputPump = new ProcessOutputPump(process, report);
+
+        //Act
+        outputPump.start();
+        outputPump.await();
+        process.waitFor();
+
+        //Assert
+        String actualResult = report.toString();
+        Assert.assertTrue(actualResult.contains("]: out" + System.lineSeparator()));
+        Assert.assertTrue(actualResult.contains("]: [stderr] err" + System.lineSeparator()));
+    }
+
+    @Test
+    public void await_processWritesManyLines_allLinesReported() throws Exception {
+        //Arrange
+        Path spillFile = Files.createTempDirectory("reports").resolve("job.log");
+        ReportBuffer report = new ReportBuffer(spillFile);
+        Process process = new ProcessBuilder("/bin/sh", "-c", "seq 1 20000").start();
+        ProcessOutputPump outputPump = new ProcessOutputPump(process, report);
+
+        //Act
+        outputPump.start();
+        outputPump.await();
+        process.waitFor();
+
+        //Assert
+        String[] lines = report.toString().split(System.lineSeparator());
+        Assert.assertEquals(20000, lines.length);
+        Assert.assertTrue(lines[lines.length - 1].endsWith(" 20000"));
+
+        report.close();
+        Files.deleteIfExists(spillFile.getParent());
+    }
+
+    @Test
+    public void await_reportBlocked_processNotBlocked() throws Exception {
+        //Arrange
+        Path spillFile = Files.createTempDirectory("reports").resolve("job.log");
+        ReportBuffer report = new ReportBuffer(spillFile);
+        Process process = new ProcessBuilder("/bin/sh", "-c", "seq 1 200000").start();
+        ProcessOutputPump outputPump = new ProcessOutputPump(process, report, 1);
+        boolean exited;
+
+        //Act
+        synchronized (report) {
+            outputPump.start();
+            exited = process.waitFor(10, TimeUnit.SECONDS);
+        }
+
+        outputPump.await();
+
+        //Assert
+        Assert.assertTrue(exited);
+        Assert.assertTrue(report.toString().contains("characters of output dropped"));
+
+        report.close();
+        Files.deleteIfExists(spillFile.getParent());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.hawkcd.agent.components.report;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ReportBufferTest {
+    private Path spillFile;
+    private ReportBuffer reportBuffer;
+
+    @Before
+    public void setUp() throws IOException {
+        this.spillFile = Files.createTempDirectory("reports").resolve("job.log");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (this.reportBuffer != null) {
+            this.reportBuffer.close();
+        }
+
+        Files.deleteIfExists(this.spillFile.getParent());
+    }
+
+    @Test
+    public void read_outputFitsInMemory_noSpillFile() {
+        //Arrange
+        this.reportBuffer = new ReportBuffer(this.spillFile, 64, 128, 1024);
+
+        //Act
+        String actualResult = this.reportBuffer.append("line one").append(System.lineSeparator()).read().toString();
+
+        //Assert
+        Assert.assertEquals("line one" + System.lineSeparator(), actualResult);
+        Assert.assertNull(this.reportBuffer.getSpillFile());
+        Assert.assertFalse(Files.exists(this.spillFile));
+    }
+
+    @Test
+    public void read_outputExceedsBuffer_spilledAcrossSegments() {
+        //Arrange
+        this.reportBuffer = new ReportBuffer(this.spillFile, 16, 32, 4096);
+        StringBuilder expectedResult = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            String line = "line " + i + " äöü€" + System.lineSeparator();
+            expectedResult.append(line);
+            this.reportBuffer.append(line);
+        }
+
+        //Act
+        String actualResult = this.reportBuffer.read().toString();
+
+        //Assert
+        Assert.assertEquals(expectedResult.toString(), actualResult);
+        Assert.assertTrue(Files.exists(this.spillFile));
+    }
+
+    @Test
+    public void read_outputExceedsMaxReportSize_tailReturned() {
+        //Arrange
+        this.reportBuffer = new ReportBuffer(this.spillFile, 16, 64, 32);
+        for (int i = 0; i < 100; i++) {
+            this.reportBuffer.append("0123456789");
+        }
+
+        this.reportBuffer.append("last line");
+
+        //Act
+        String actualResult = this.reportBuffer.read().toString();
+
+        //Assert
+        Assert.assertTrue(actualResult.contains("bytes of earlier output omitted"));
+        Assert.assertFalse(actualResult.contains(this.spillFile.toString()));
+        Assert.assertTrue(actualResult.endsWith("last line"));
+    }
+
+    @Test
+    public void read_spillFails_newestOutputKeptAndLossReported() throws IOException {
+        //Arrange
+        Path blockingFile = Files.createFile(this.spillFile.getParent().resolve("blocked"));
+        this.reportBuffer = new ReportBuffer(blockingFile.resolve("job.log"), 8, 16, 64);
+
+        //Act
+        this.reportBuffer.append("0123456789").append("abcdefgh");
+        String actualResult = this.reportBuffer.read().toString();
+        Files.delete(blockingFile);
+
+        //Assert
+        Assert.assertTrue(actualResult.contains("characters of output lost"));
+        Assert.assertTrue(actualResult.endsWith("efgh"));
+        Assert.assertNull(this.reportBuffer.getSpillFile());
+    }
+
+    @Test
+    public void close_outputSpilled_spillFileDeleted() {
+        //Arrange
+        this.reportBuffer = new ReportBuffer(this.spillFile, 4, 16, 64);
+        this.reportBuffer.append("more than four characters");
+
+        //Act
+        this.reportBuffer.close();
+
+        //Assert
+        Assert.assertFalse(Files.exists(this.spillFile));
+    }
+}
@@ -18,6 +18,7 @@ package io.hawkcd.agent.components.taskexecutor.executors;
 
 import io.hawkcd.agent.AgentConfiguration;
 import io.hawkcd.agent.base.TestBase;
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.components.taskexecutor.TaskExecutor;
 import io.hawkcd.agent.enums.TaskStatus;
 import io.hawkcd.agent.models.ExecTask;
@@ -43,7 +44,7 @@ public class ExecTaskExecutorTestOnWindows extends TestBase {
     private ExecTask expectedExecTask;
     private Job job;
     private WorkInfo expectedWorkInfo;
-    private StringBuilder expectedReport;
+    private ReportBuffer expectedReport;
     private String expectedWorkingDir;
 
     @Before
@@ -58,7 +59,7 @@ public class ExecTaskExecutorTestOnWindows extends TestBase {
 
         this.expectedWorkInfo = new WorkInfo();
         this.expectedWorkInfo.setPipelineDefinitionName("tetttPipeline");
-        this.expectedReport = new StringBuilder();
+        this.expectedReport = new ReportBuffer(Paths.get("report.log"));
 
         this.expectedTask = new Task();
         this.expectedExecTask = new ExecTask();
@@ -19,9 +19,13 @@ package io.hawkcd.agent.components.taskexecutor.executors;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
 import junit.framework.Assert;
 import io.hawkcd.agent.AgentConfiguration;
 import io.hawkcd.agent.base.TestBase;
+import io.hawkcd.agent.components.artifacts.ArtifactCache;
+import io.hawkcd.agent.components.artifacts.CachedArtifact;
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.enums.TaskStatus;
 import io.hawkcd.agent.enums.TaskType;
 import io.hawkcd.agent.models.FetchArtifactTask;
@@ -31,7 +35,9 @@ import io.hawkcd.agent.models.payload.WorkInfo;
 import io.hawkcd.agent.services.FileManagementService;
 import io.hawkcd.agent.services.interfaces.IFileManagementService;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
@@ -39,12 +45,19 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({Client.class, WebResource.Builder.class})
 public class FetchArtifactExecutorTest extends TestBase {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private Task correctFetchArtifactTask;
     private Client mockedClient;
     private WebResource mockedResource;
@@ -55,7 +68,7 @@ public class FetchArtifactExecutorTest extends TestBase {
     private File mockedFile;
     private WorkInfo workInfo;
     private FetchArtifactExecutor fetchArtifactExecutor;
-    private StringBuilder report;
+    private ReportBuffer report;
     private InputStream mockedInputStream;
     private Job fetchArtifactJob;
     private String source;
@@ -80,7 +93,7 @@ public class FetchArtifactExecutorTest extends TestBase {
         this.mockedFileManagementService = Mockito.mock(FileManagementService.class);
         this.mockedFile = new File("pathToFile");
         this.fetchArtifactExecutor = new FetchArtifactExecutor(this.mockedClient, this.mockedFileManagementService);
-        this.report = new StringBuilder();
+        this.report = new ReportBuffer(Paths.get("report.log"));
         setupData();
     }
 
@@ -253,4 +266,63 @@ public class FetchArtifactExecutorTest extends TestBase {
         Assert.assertEquals(TaskStatus.FAILED, resultTask.getStatus());
         Assert.assertEquals(this.fetchArtifactTaskDefinition.getName(), resultTask.getTaskDefinition().getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void executeTask_cachedArtifactNotModified_extractedFromCache() throws IOException {
+        //Arrange
+        ArtifactCache artifactCache = new ArtifactCache(this.folder.getRoot().toPath().resolve("cache"), 1024 * 1024);
+        Path download = this.folder.newFile("download.zip").toPath();
+        Files.write(download, "archive".getBytes());
+        String cacheKey = ArtifactCache.getKey("pipeline", "pipeline", "correctSource");
+        CachedArtifact cachedArtifact = artifactCache.put(cacheKey, "\"etag\"", download);
+        this.fetchArtifactExecutor = new FetchArtifactExecutor(this.mockedClient, this.mockedFileManagementService, artifactCache);
+
+        Mockito.when(this.mockedFileManagementService.urlCombine(Mockito.anyString())).thenReturn("sourceForAPI");
+        Mockito.when(this.mockedClient.resource("sourceForAPI/fetch-artifact")).thenReturn(this.mockedResource);
+        Mockito.when(this.mockedResource.type(Mockito.anyString())).thenReturn(this.mockedBuilder);
+        Mockito.when(this.mockedBuilder.header("If-None-Match", "\"etag\"")).thenReturn(this.mockedBuilder);
+        Mockito.when(this.mockedBuilder.post(ClientResponse.class, this.source)).thenReturn(this.mockedResponse);
+        Mockito.when(this.mockedResponse.getStatus()).thenReturn(304);
+
+        //Act
+        Task resultTask = this.fetchArtifactExecutor.executeTask(this.correctFetchArtifactTask, this.report, this.workInfo);
+
+        //Assert
+        Mockito.verify(this.mockedFileManagementService, Mockito.never()).initiateFile(Mockito.any(File.class), Mockito.any(InputStream.class), Mockito.anyString());
+        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).unzipFile(Mockito.eq(cachedArtifact.getFile().toString()), Mockito.anyString());
+        Assert.assertEquals(TaskStatus.PASSED, resultTask.getStatus());
+    }
+
+    @Test
+    public void executeTask_downloadInterrupted_resumedWithRange() {
+        //Arrange
+        ArtifactCache artifactCache = new ArtifactCache(this.folder.getRoot().toPath().resolve("cache"), 1024 * 1024);
+        this.fetchArtifactExecutor = new FetchArtifactExecutor(this.mockedClient, this.mockedFileManagementService, artifactCache);
+        ClientResponse partialResponse = Mockito.mock(ClientResponse.class);
+        MultivaluedMapImpl headers = new MultivaluedMapImpl();
+        headers.putSingle("ETag", "\"etag\"");
+        headers.putSingle("Accept-Ranges", "bytes");
+
+        Mockito.when(this.mockedFileManagementService.initiateFile(Mockito.any(File.class), Mockito.any(InputStream.class), Mockito.anyString())).thenReturn("Connection reset");
+        Mockito.when(this.mockedFileManagementService.appendFile(Mockito.any(InputStream.class), Mockito.anyString())).thenReturn(null);
+        Mockito.when(this.mockedFileManagementService.urlCombine(Mockito.anyString())).thenReturn("sourceForAPI");
+        Mockito.when(this.mockedClient.resource("sourceForAPI/fetch-artifact")).thenReturn(this.mockedResource);
+        Mockito.when(this.mockedResource.type(Mockito.anyString())).thenReturn(this.mockedBuilder);
+        Mockito.when(this.mockedBuilder.header(Mockito.anyString(), Mockito.anyObject())).thenReturn(this.mockedBuilder);
+        Mockito.when(this.mockedBuilder.post(ClientResponse.class, this.source)).thenReturn(this.mockedResponse, partialResponse);
+        Mockito.when(this.mockedResponse.getStatus()).thenReturn(200);
+        Mockito.when(this.mockedResponse.getEntityInputStream()).thenReturn(this.mockedInputStream);
+        Mockito.when(this.mockedResponse.getHeaders()).thenReturn(headers);
+        Mockito.when(partialResponse.getStatus()).thenReturn(206);
+        Mockito.when(partialResponse.getEntityInputStream()).thenReturn(this.mockedInputStream);
+
+        //Act
+        Task resultTask = this.fetchArtifactExecutor.executeTask(this.correctFetchArtifactTask, this.report, this.workInfo);
+
+        //Assert
+        Mockito.verify(this.mockedBuilder).header("Range", "bytes=0-");
+        Mockito.verify(this.mockedBuilder).header("If-Range", "\"etag\"");
+        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).appendFile(Mockito.any(InputStream.class), Mockito.anyString());
+        Assert.assertEquals(TaskStatus.PASSED, resultTask.getStatus());
+    }
+}
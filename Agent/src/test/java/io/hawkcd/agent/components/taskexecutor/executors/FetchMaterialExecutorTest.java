@@ -17,6 +17,7 @@
 package io.hawkcd.agent.components.taskexecutor.executors;
 
 import io.hawkcd.agent.AgentConfiguration;
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.components.taskexecutor.TaskExecutor;
 import io.hawkcd.agent.enums.TaskStatus;
 import io.hawkcd.agent.enums.TaskType;
@@ -35,6 +36,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.io.File;
+import java.nio.file.Paths;
 
 public class FetchMaterialExecutorTest {
     private TaskExecutor fetchMaterialExecutor;
@@ -73,7 +75,7 @@ public class FetchMaterialExecutorTest {
     @Test
     public void executeTask_validTask_taskPassed() {
         // Arrange
-        StringBuilder report = new StringBuilder();
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
         TaskStatus expectedStatus = TaskStatus.PASSED;
 
         // Act
@@ -88,7 +90,7 @@ public class FetchMaterialExecutorTest {
     @Test
     public void executeTask_directoryCleanFailed_taskFailed() {
         // Arrange
-        StringBuilder report = new StringBuilder();
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
 
         // Act
         Task actualResult = this.fetchMaterialExecutor.executeTask(this.incorrectFetchMaterialTask, report, this.workInfo);
@@ -102,7 +104,7 @@ public class FetchMaterialExecutorTest {
     @Test
     public void executeTask_fetchMaterialFailed_taskFailed() {
         // Arrange
-        StringBuilder report = new StringBuilder();
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
 
         // Act
         Task actualResult = this.fetchMaterialExecutor.executeTask(this.secondIncorrectFetchMaterialTask, report, this.workInfo);
@@ -24,13 +24,16 @@ import com.sun.jersey.api.client.WebResource;
 import junit.framework.Assert;
 import io.hawkcd.agent.AgentConfiguration;
 import io.hawkcd.agent.base.TestBase;
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.enums.TaskStatus;
 import io.hawkcd.agent.enums.TaskType;
 import io.hawkcd.agent.models.Job;
 import io.hawkcd.agent.models.Task;
 import io.hawkcd.agent.models.TaskDefinition;
 import io.hawkcd.agent.models.UploadArtifactTask;
+import io.hawkcd.agent.models.payload.ArtifactManifestEntry;
 import io.hawkcd.agent.models.payload.UploadArtifactInfo;
+import io.hawkcd.agent.models.payload.UploadNegotiation;
 import io.hawkcd.agent.models.payload.WorkInfo;
 import io.hawkcd.agent.services.FileManagementService;
 import io.hawkcd.agent.services.interfaces.IFileManagementService;
@@ -45,7 +48,10 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @RunWith(PowerMockRunner.class)
@@ -63,7 +69,7 @@ public class UploadArtifactExecutorTest extends TestBase {
     private List<File> mockedFileList;
     private WorkInfo workInfo;
     private UploadArtifactExecutor uploadArtifactExecutor;
-    private StringBuilder report;
+    private ReportBuffer report;
     private Gson jsonConverter;
 
     @Before
@@ -87,7 +93,7 @@ public class UploadArtifactExecutorTest extends TestBase {
         this.mockedFile = new File("pathToFile");
         this.mockedFileList = new ArrayList<>();
         this.uploadArtifactExecutor = new UploadArtifactExecutor(this.mockedClient, this.mockedFileManagementService);
-        this.report = new StringBuilder();
+        this.report = new ReportBuffer(Paths.get("report.log"));
         this.setupData();
 
         this.jsonConverter = new GsonBuilder()
@@ -126,13 +132,13 @@ public class UploadArtifactExecutorTest extends TestBase {
         Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
         Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFileList);
         Mockito.when(this.mockedFileManagementService.generateUniqueFile(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFile);
-        Mockito.when(this.mockedFileManagementService.zipFiles("pathToFile", this.mockedFileList, "rootPath", false)).thenReturn(null);
+        Mockito.when(this.mockedFileManagementService.streamZipFiles(Mockito.any(OutputStream.class), Mockito.eq(this.mockedFileList), Mockito.eq("rootPath"), Mockito.eq(false))).thenReturn(null);
         Mockito.when(this.mockedFileManagementService.urlCombine(Mockito.anyString())).thenReturn("my/path");
 
         UploadArtifactInfo uploadArtifactInfo = new UploadArtifactInfo(this.mockedFile, this.uploadArtifactTaskDefinition.getDestination());
         String uploadArtifactInfoAsString = this.jsonConverter.toJson(uploadArtifactInfo);
 
-        Mockito.when(this.mockedClient.resource("my/path/upload-artifact")).thenReturn(this.mockedResource);
+        Mockito.when(this.mockedClient.resource(Mockito.startsWith("my/path/upload-artifact"))).thenReturn(this.mockedResource);
         Mockito.when(this.mockedResource.type(Mockito.anyString())).thenReturn(this.mockedBuilder);
         Mockito.when(this.mockedResource.accept(Mockito.anyString())).thenReturn(this.mockedBuilder);
         Mockito.when(this.mockedResource.type("multipart/form-data").post(ClientResponse.class, uploadArtifactInfoAsString)).thenReturn(this.mockedResponse);
@@ -142,7 +148,7 @@ public class UploadArtifactExecutorTest extends TestBase {
         Task resultTask = this.uploadArtifactExecutor.executeTask(this.correctUploadArtifactTask, this.report, this.workInfo);
 
         //Assert
-        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).zipFiles(Mockito.anyObject(), Mockito.any(this.mockedFileList.getClass()), Mockito.anyString(), Mockito.anyBoolean());
+        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).streamZipFiles(Mockito.any(OutputStream.class), Mockito.any(this.mockedFileList.getClass()), Mockito.anyString(), Mockito.anyBoolean());
         Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).getFiles(Mockito.anyString(), Mockito.anyString());
         Assert.assertEquals(TaskStatus.PASSED, resultTask.getStatus());
     }
@@ -155,10 +161,10 @@ public class UploadArtifactExecutorTest extends TestBase {
         Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
         Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFileList);
         Mockito.when(this.mockedFileManagementService.generateUniqueFile(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFile);
-        Mockito.when(this.mockedFileManagementService.zipFiles("pathToFile", this.mockedFileList, "rootPath", true)).thenReturn("Error in zipFiles method!");
+        Mockito.when(this.mockedFileManagementService.streamZipFiles(Mockito.any(OutputStream.class), Mockito.eq(this.mockedFileList), Mockito.eq("rootPath"), Mockito.eq(true))).thenReturn("Error in zipFiles method!");
         Mockito.when(this.mockedFileManagementService.urlCombine(Mockito.anyString())).thenReturn("my/path");
 
-        Mockito.when(this.mockedClient.resource("my/path/upload-artifact")).thenReturn(this.mockedResource);
+        Mockito.when(this.mockedClient.resource(Mockito.startsWith("my/path/upload-artifact"))).thenReturn(this.mockedResource);
         Mockito.when(this.mockedResource.type(Mockito.anyString())).thenReturn(this.mockedBuilder);
         Mockito.when(this.mockedResource.accept(Mockito.anyString())).thenReturn(this.mockedBuilder);
 
@@ -172,12 +178,56 @@ public class UploadArtifactExecutorTest extends TestBase {
         Task resultTask = this.uploadArtifactExecutor.executeTask(this.correctUploadArtifactTask, this.report, this.workInfo);
 
         //Assert
-        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).zipFiles(Mockito.anyObject(), Mockito.any(this.mockedFileList.getClass()), Mockito.anyString(), Mockito.anyBoolean());
+        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).streamZipFiles(Mockito.any(OutputStream.class), Mockito.any(this.mockedFileList.getClass()), Mockito.anyString(), Mockito.anyBoolean());
         Assert.assertEquals(TaskStatus.FAILED, resultTask.getStatus());
         Assert.assertEquals(this.correctUploadArtifactTask.getTaskDefinition(), resultTask.getTaskDefinition());
         Assert.assertEquals(this.correctUploadArtifactTask.getTaskDefinition().getType(), resultTask.getTaskDefinition().getType());
     }
 
+    @Test
+    public void executeTask_contentsStoredOnServer_onlyMissingFilesUploaded() {
+        //Arrange
+        Mockito.when(this.mockedFileManagementService.pathCombine(Mockito.anyString())).thenReturn("");
+        Mockito.when(this.mockedFileManagementService.getRootPath(Mockito.anyString())).thenReturn("rootPath");
+        Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
+        Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFileList);
+        Mockito.when(this.mockedFileManagementService.urlCombine(Mockito.anyString())).thenReturn("my/path");
+
+        String storedHash = String.format("%064d", 1);
+        String missingHash = String.format("%064d", 2);
+        List<ArtifactManifestEntry> manifest = new ArrayList<>();
+        manifest.add(new ArtifactManifestEntry("stored.txt", storedHash, 1, 0, false, this.mockedFile));
+        manifest.add(new ArtifactManifestEntry("missing.txt", missingHash, 1, 0, false, this.mockedFile));
+        Mockito.when(this.mockedFileManagementService.createManifest(this.mockedFileList, "rootPath", true)).thenReturn(manifest);
+        Mockito.when(this.mockedFileManagementService.streamZipEntries(Mockito.any(OutputStream.class), Mockito.anyListOf(ArtifactManifestEntry.class))).thenReturn(null);
+
+        UploadNegotiation negotiation = new UploadNegotiation();
+        negotiation.setUploadId("uploadId");
+        negotiation.setMissingHashes(Collections.singletonList(missingHash));
+        WebResource manifestResource = Mockito.mock(WebResource.class);
+        WebResource.Builder manifestBuilder = Mockito.mock(WebResource.Builder.class);
+        ClientResponse manifestResponse = Mockito.mock(ClientResponse.class);
+        Mockito.when(this.mockedClient.resource(Mockito.startsWith("my/path/upload-manifest"))).thenReturn(manifestResource);
+        Mockito.when(manifestResource.type(Mockito.anyString())).thenReturn(manifestBuilder);
+        Mockito.when(manifestBuilder.post(Mockito.eq(ClientResponse.class), Mockito.anyObject())).thenReturn(manifestResponse);
+        Mockito.when(manifestResponse.getStatus()).thenReturn(200);
+        Mockito.when(manifestResponse.getEntity(String.class)).thenReturn(this.jsonConverter.toJson(negotiation));
+
+        Mockito.when(this.mockedClient.resource(Mockito.startsWith("my/path/upload-artifact"))).thenReturn(this.mockedResource);
+        Mockito.when(this.mockedResource.type(Mockito.anyString())).thenReturn(this.mockedBuilder);
+        Mockito.when(this.mockedBuilder.post(Mockito.eq(ClientResponse.class), Mockito.anyObject())).thenReturn(this.mockedResponse);
+        Mockito.when(this.mockedResponse.getStatus()).thenReturn(200);
+
+        //Act
+        Task resultTask = this.uploadArtifactExecutor.executeTask(this.correctUploadArtifactTask, this.report, this.workInfo);
+
+        //Assert
+        Mockito.verify(this.mockedClient).resource(Mockito.endsWith("uploadId=uploadId"));
+        Mockito.verify(this.mockedFileManagementService).streamZipEntries(Mockito.any(OutputStream.class), Mockito.eq(Collections.singletonList(manifest.get(1))));
+        Mockito.verify(this.mockedFileManagementService, Mockito.never()).streamZipFiles(Mockito.any(OutputStream.class), Mockito.anyListOf(File.class), Mockito.anyString(), Mockito.anyBoolean());
+        Assert.assertEquals(TaskStatus.PASSED, resultTask.getStatus());
+    }
+
     @Ignore
     @Test
     public void executeTask_responseNotOk_taskFailed() {
@@ -187,13 +237,13 @@ public class UploadArtifactExecutorTest extends TestBase {
         Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
         Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFileList);
         Mockito.when(this.mockedFileManagementService.generateUniqueFile(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFile);
-        Mockito.when(this.mockedFileManagementService.zipFiles("pathToFile", this.mockedFileList, "rootPath", false)).thenReturn(null);
+        Mockito.when(this.mockedFileManagementService.streamZipFiles(Mockito.any(OutputStream.class), Mockito.eq(this.mockedFileList), Mockito.eq("rootPath"), Mockito.eq(false))).thenReturn(null);
         Mockito.when(this.mockedFileManagementService.urlCombine(Mockito.anyString())).thenReturn("my/path");
 
         UploadArtifactInfo uploadArtifactInfo = new UploadArtifactInfo(this.mockedFile, this.uploadArtifactTaskDefinition.getDestination());
         String uploadArtifactInfoAsString = this.jsonConverter.toJson(uploadArtifactInfo);
 
-        Mockito.when(this.mockedClient.resource("my/path/upload-artifact")).thenReturn(this.mockedResource);
+        Mockito.when(this.mockedClient.resource(Mockito.startsWith("my/path/upload-artifact"))).thenReturn(this.mockedResource);
         Mockito.when(this.mockedResource.type(Mockito.anyString())).thenReturn(this.mockedBuilder);
         Mockito.when(this.mockedResource.accept(Mockito.anyString())).thenReturn(this.mockedBuilder);
         Mockito.when(this.mockedResource.type("application/json").post(ClientResponse.class, uploadArtifactInfoAsString)).thenReturn(this.mockedResponse);
@@ -203,7 +253,7 @@ public class UploadArtifactExecutorTest extends TestBase {
         Task resultTask = this.uploadArtifactExecutor.executeTask(this.correctUploadArtifactTask, this.report, this.workInfo);
 
         //Assert
-        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).zipFiles(Mockito.anyObject(), Mockito.any(this.mockedFileList.getClass()), Mockito.anyString(), Mockito.anyBoolean());
+        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).streamZipFiles(Mockito.any(OutputStream.class), Mockito.any(this.mockedFileList.getClass()), Mockito.anyString(), Mockito.anyBoolean());
         Assert.assertEquals(TaskStatus.FAILED, resultTask.getStatus());
         Assert.assertEquals(this.correctUploadArtifactTask.getTaskDefinition(), resultTask.getTaskDefinition());
         Assert.assertEquals(this.correctUploadArtifactTask.getTaskDefinition().getType(), resultTask.getTaskDefinition().getType());
@@ -217,7 +267,7 @@ public class UploadArtifactExecutorTest extends TestBase {
         Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
         Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(new ArrayList<>());
         Mockito.when(this.mockedFileManagementService.generateUniqueFile(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFile);
-        Mockito.when(this.mockedFileManagementService.zipFiles("pathToFile", this.mockedFileList, "rootPath", false)).thenReturn(null);
+        Mockito.when(this.mockedFileManagementService.streamZipFiles(Mockito.any(OutputStream.class), Mockito.eq(this.mockedFileList), Mockito.eq("rootPath"), Mockito.eq(false))).thenReturn(null);
         Mockito.when(this.mockedFileManagementService.urlCombine(Mockito.anyString())).thenReturn("my/path");
 
         Mockito.when(this.mockedClient.resource("my/path")).thenReturn(this.mockedResource);
@@ -243,7 +293,7 @@ public class UploadArtifactExecutorTest extends TestBase {
         Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
         Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(null);
         Mockito.when(this.mockedFileManagementService.generateUniqueFile(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFile);
-        Mockito.when(this.mockedFileManagementService.zipFiles("pathToFile", this.mockedFileList, "rootPath", false)).thenReturn(null);
+        Mockito.when(this.mockedFileManagementService.streamZipFiles(Mockito.any(OutputStream.class), Mockito.eq(this.mockedFileList), Mockito.eq("rootPath"), Mockito.eq(false))).thenReturn(null);
         Mockito.when(this.mockedFileManagementService.urlCombine(Mockito.anyString())).thenReturn("my/path");
 
         Mockito.when(this.mockedClient.resource("my/path")).thenReturn(this.mockedResource);
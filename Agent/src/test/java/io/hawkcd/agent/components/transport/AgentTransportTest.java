@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.hawkcd.agent.components.transport;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import io.hawkcd.agent.constants.ConfigConstants;
+import junit.framework.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.InputStream;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Client.class, WebResource.Builder.class})
+public class AgentTransportTest {
+    private static final String ADDRESS = "server/api";
+
+    private Client mockedClient;
+    private WebResource mockedResource;
+    private WebResource.Builder mockedBuilder;
+    private ClientResponse mockedResponse;
+    private AgentTransport transport;
+
+    @Before
+    public void setUp() {
+        this.mockedClient = Mockito.mock(Client.class);
+        this.mockedResource = Mockito.mock(WebResource.class);
+        this.mockedBuilder = Mockito.mock(WebResource.Builder.class);
+        this.mockedResponse = Mockito.mock(ClientResponse.class);
+
+        Mockito.when(this.mockedClient.resource(ADDRESS)).thenReturn(this.mockedResource);
+        Mockito.when(this.mockedResource.accept(Mockito.anyString())).thenReturn(this.mockedBuilder);
+        Mockito.when(this.mockedResource.type(Mockito.anyString())).thenReturn(this.mockedBuilder);
+        Mockito.when(this.mockedBuilder.header(Mockito.anyString(), Mockito.anyObject())).thenReturn(this.mockedBuilder);
+
+        this.transport = new AgentTransport(this.mockedClient);
+    }
+
+    @Test
+    public void get_serverResponds_metricsRecorded() {
+        //Arrange
+        Mockito.when(this.mockedBuilder.get(ClientResponse.class)).thenReturn(this.mockedResponse);
+        Mockito.when(this.mockedResponse.getClientResponseStatus()).thenReturn(ClientResponse.Status.OK);
+
+        //Act
+        ClientResponse response = this.transport.get(ConfigConstants.ENDPOINT_CHECK_FOR_WORK, ADDRESS);
+
+        //Assert
+        EndpointMetrics metrics = this.transport.getMetrics().get(ConfigConstants.ENDPOINT_CHECK_FOR_WORK);
+        Assert.assertEquals(this.mockedResponse, response);
+        Assert.assertEquals(1, metrics.getRequests());
+        Assert.assertEquals(0, metrics.getFailures());
+        Assert.assertTrue(this.transport.isServerAvailable());
+    }
+
+    @Test
+    public void get_connectionRefused_backingOff() {
+        //Arrange
+        Mockito.when(this.mockedBuilder.get(ClientResponse.class)).thenThrow(new ClientHandlerException("Connection refused"));
+
+        //Act
+        ClientResponse response = this.transport.get(ConfigConstants.ENDPOINT_CHECK_FOR_WORK, ADDRESS);
+
+        //Assert
+        EndpointMetrics metrics = this.transport.getMetrics().get(ConfigConstants.ENDPOINT_CHECK_FOR_WORK);
+        Assert.assertNull(response);
+        Assert.assertEquals(1, metrics.getFailures());
+        Assert.assertFalse(this.transport.isServerAvailable());
+    }
+
+    @Test
+    public void put_serverError_backingOff() {
+        //Arrange
+        Mockito.when(this.mockedBuilder.put(ClientResponse.class, "{}")).thenReturn(this.mockedResponse);
+        Mockito.when(this.mockedResponse.getClientResponseStatus()).thenReturn(ClientResponse.Status.SERVICE_UNAVAILABLE);
+
+        //Act
+        this.transport.put(ConfigConstants.ENDPOINT_REPORT_AGENT, ADDRESS, "{}");
+
+        //Assert
+        Mockito.verify(this.mockedBuilder, Mockito.times(1)).header("Content-Encoding", "gzip");
+        Assert.assertFalse(this.transport.isServerAvailable());
+    }
+
+    @Test
+    public void post_streamEntityFails_notRetried() {
+        //Arrange
+        Mockito.when(this.mockedBuilder.post(Mockito.eq(ClientResponse.class), Mockito.anyObject())).thenThrow(new ClientHandlerException("Connection reset"));
+
+        //Act
+        ClientResponse response = this.transport.post(ConfigConstants.ENDPOINT_UPLOAD_ARTIFACT, ADDRESS, "multipart/form-data", Mockito.mock(InputStream.class));
+
+        //Assert
+        Mockito.verify(this.mockedBuilder, Mockito.times(1)).post(Mockito.eq(ClientResponse.class), Mockito.anyObject());
+        Assert.assertNull(response);
+    }
+
+    @Test
+    public void getJitteredDelay_period_withinPeriod() {
+        //Act
+        long delay = this.transport.getJitteredDelay(ConfigConstants.AGENT_TIMER_PERIOD);
+
+        //Assert
+        Assert.assertTrue((delay >= 0) && (delay <= ConfigConstants.AGENT_TIMER_PERIOD));
+    }
+}
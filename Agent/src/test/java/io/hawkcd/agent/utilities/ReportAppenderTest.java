@@ -16,6 +16,7 @@
 
 package io.hawkcd.agent.utilities;
 
+import io.hawkcd.agent.components.report.ReportBuffer;
 import io.hawkcd.agent.constants.MessageConstants;
 import io.hawkcd.agent.enums.JobStatus;
 import io.hawkcd.agent.enums.TaskStatus;
@@ -24,6 +25,8 @@ import io.hawkcd.agent.models.Task;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.file.Paths;
+
 public class ReportAppenderTest {
     @Test
     public void reportAppender_instantiated_notNull() {
@@ -38,7 +41,7 @@ public class ReportAppenderTest {
     public void appendStartedMessage_jobStarted_correctMessage() {
         // Arrange
         String message = "Test message";
-        StringBuilder report = new StringBuilder();
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
         Class classType = Job.class;
         String expectedResult =
                 MessageConstants.CONSOLE_YELLOW + message + System.lineSeparator() + MessageConstants.CONSOLE_WHITE + MessageConstants.CONSOLE_THICK_LINE + System.lineSeparator();
@@ -54,7 +57,7 @@ public class ReportAppenderTest {
     public void appendStartedMessage_taskStarted_correctMessage() {
         // Arrange
         String message = "Test message";
-        StringBuilder report = new StringBuilder();
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
         Class classType = Task.class;
         String expectedResult =
                 MessageConstants.CONSOLE_YELLOW + message + System.lineSeparator() + MessageConstants.CONSOLE_WHITE + MessageConstants.CONSOLE_THIN_LINE + System.lineSeparator();
@@ -70,7 +73,7 @@ public class ReportAppenderTest {
     public void appendCompletedMessage_jobCompletedWithStatusPassed_correctMessage() {
         // Arrange
         String message = "Test message";
-        StringBuilder report = new StringBuilder();
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
         JobStatus status = JobStatus.PASSED;
         String expectedResult = MessageConstants.CONSOLE_GREEN + message + System.lineSeparator();
 
@@ -85,7 +88,7 @@ public class ReportAppenderTest {
     public void appendCompletedMessage_jobCompletedWithStatusFailed_correctMessage() {
         // Arrange
         String message = "Test message";
-        StringBuilder report = new StringBuilder();
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
         JobStatus status = JobStatus.FAILED;
         String expectedResult = MessageConstants.CONSOLE_RED + message + System.lineSeparator();
 
@@ -100,7 +103,7 @@ public class ReportAppenderTest {
     public void appendCompletedMessage_taskCompletedWithStatusPassed_correctMessage() {
         // Arrange
         String message = "Test message";
-        StringBuilder report = new StringBuilder();
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
         TaskStatus status = TaskStatus.PASSED;
         String expectedResult = MessageConstants.CONSOLE_GREEN + message + System.lineSeparator();
 
@@ -115,7 +118,7 @@ public class ReportAppenderTest {
     public void appendCompletedMessage_taskCompletedWithStatusFailed_correctMessage() {
         // Arrange
         String message = "Test message";
-        StringBuilder report = new StringBuilder();
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
         TaskStatus status = TaskStatus.FAILED;
         String expectedResult = MessageConstants.CONSOLE_RED + message + System.lineSeparator();
 
@@ -130,7 +133,7 @@ public class ReportAppenderTest {
     public void appendInfoMessage() {
         // Arrange
         String message = "Test message";
-        StringBuilder report = new StringBuilder();
+        ReportBuffer report = new ReportBuffer(Paths.get("report.log"));
 
         // Act
         String actualResult = ReportAppender.appendInfoMessage(message, report).toString();
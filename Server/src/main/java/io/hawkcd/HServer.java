@@ -16,6 +16,7 @@
 
 package io.hawkcd;
 
+import io.hawkcd.core.CommandTable;
 import io.hawkcd.core.config.Config;
 import io.hawkcd.http.PipelineController;
 import io.hawkcd.materials.MaterialTracker;
@@ -35,6 +36,7 @@ import org.eclipse.jetty.server.handler.ResourceHandler;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.glassfish.jersey.message.GZipEncoder;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.servlet.ServletContainer;
 
@@ -123,6 +125,8 @@ public class HServer {
         // io.swagger.jaxrs.listing loads up Swagger resources
 
         resourceConfig.packages(PipelineController.class.getPackage().getName(), ApiListingResource.class.getPackage().getName());
+        // Decodes the gzipped job and agent reports sent by the agents
+        resourceConfig.register(GZipEncoder.class);
         ServletContainer servletContainer = new ServletContainer(resourceConfig);
         ServletHolder servletHolder = new ServletHolder(servletContainer);
         ServletContextHandler appRootHandler = new ServletContextHandler(ServletContextHandler.SESSIONS);
@@ -145,6 +149,7 @@ public class HServer {
     }
 
     public void start() throws Exception {
+        CommandTable.getInstance();
         this.server.start();
         this.initializer.initialize();
         this.pipelinePreparer.start();
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * A compressed artifact archive built once by {@link ArtifactBundleCache} and served to every later fetch.
+ */
+public class ArtifactBundle {
+    private String key;
+    private Path file;
+    private String hash;
+    private String eTag;
+    private long size;
+
+    public ArtifactBundle(String key, Path file, String hash, long size) {
+        this.key = key;
+        this.file = file;
+        this.hash = hash;
+        this.eTag = "\"" + hash + "\"";
+        this.size = size;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    /**
+     * The SHA-256 of the archive in lowercase hex, the ETag is derived from it.
+     */
+    public String getHash() {
+        return this.hash;
+    }
+
+    public String getETag() {
+        return this.eTag;
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(this.eTag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public void transferTo(OutputStream output) throws IOException {
+        // The stored archive is copied as it is, nothing is decompressed or compressed again
+        ByteRange.full(this.size).transfer(this.file, output);
+    }
+}
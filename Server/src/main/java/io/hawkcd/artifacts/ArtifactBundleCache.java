@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import com.google.common.io.BaseEncoding;
+import io.hawkcd.utilities.constants.ConfigurationConstants;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the compressed archives of finished fetches on disk, keyed by pipeline, execution and source pattern.
+ * Artifacts of an execution only change when something is uploaded to it, so a bundle is built once, served
+ * to every later fetch and dropped when the execution receives a new upload or the disk quota is exceeded.
+ */
+public class ArtifactBundleCache {
+    private static final Logger LOGGER = Logger.getLogger(ArtifactBundleCache.class);
+    private static ArtifactBundleCache instance;
+
+    private Path cacheDirectory;
+    private long quota;
+    private LinkedHashMap<String, ArtifactBundle> bundles;
+    private ConcurrentHashMap<String, Object> buildLocks;
+    private long usedSpace;
+
+    public ArtifactBundleCache(Path cacheDirectory, long quota) {
+        this.cacheDirectory = cacheDirectory;
+        this.quota = quota;
+        this.bundles = new LinkedHashMap<>(16, 0.75f, true);
+        this.buildLocks = new ConcurrentHashMap<>();
+
+        // Bundles left by a previous run may predate uploads this instance never saw
+        try {
+            FileUtils.deleteDirectory(cacheDirectory.toFile());
+            Files.createDirectories(cacheDirectory);
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    public static synchronized ArtifactBundleCache getInstance() {
+        if (instance == null) {
+            Path cacheDirectory = Paths.get(System.getProperty("user.dir"), ConfigurationConstants.ARTIFACT_BUNDLE_CACHE_DIRECTORY);
+            instance = new ArtifactBundleCache(cacheDirectory, ConfigurationConstants.ARTIFACT_BUNDLE_CACHE_QUOTA);
+        }
+
+        return instance;
+    }
+
+    public static String getKey(String source) {
+        String key = FilenameUtils.normalizeNoEndSeparator(source, true);
+        if (key == null) {
+            return null;
+        }
+
+        while (key.startsWith("/")) {
+            key = key.substring(1);
+        }
+
+        return key;
+    }
+
+    public static String getKeyPrefix(String pipelineName, String pipelineExecutionId) {
+        return pipelineName + "/" + pipelineExecutionId + "/";
+    }
+
+    public synchronized ArtifactBundle get(String key) {
+        ArtifactBundle bundle = this.bundles.get(key);
+        if ((bundle != null) && !Files.exists(bundle.getFile())) {
+            this.remove(key);
+            return null;
+        }
+
+        return bundle;
+    }
+
+    public ArtifactBundle build(String key, IArchiveWriter archiveWriter) throws IOException {
+        Object buildLock = this.buildLocks.computeIfAbsent(key, k -> new Object());
+        try {
+            // Concurrent misses for the same key wait for the first build instead of compressing the same files again
+            synchronized (buildLock) {
+                ArtifactBundle bundle = this.get(key);
+                if (bundle != null) {
+                    return bundle;
+                }
+
+                bundle = this.compress(key, archiveWriter, null);
+                this.add(bundle);
+
+                return bundle;
+            }
+        } finally {
+            this.buildLocks.remove(key, buildLock);
+        }
+    }
+
+    /**
+     * Writes the archive of a key to the output while it is compressed and stores the same bytes as the bundle
+     * of the key, so the first fetch of a source receives its first byte without waiting for the whole archive.
+     * A key another fetch is building is compressed again for this output only and a key built in the meantime
+     * is served from its bundle. Returns the stored bundle, or null when nothing was stored.
+     */
+    public ArtifactBundle stream(String key, IArchiveWriter archiveWriter, OutputStream output) throws IOException {
+        Object buildLock = new Object();
+        synchronized (buildLock) {
+            if (this.buildLocks.putIfAbsent(key, buildLock) != null) {
+                String errorMessage = archiveWriter.write(output);
+                if (errorMessage != null) {
+                    throw new IOException(errorMessage);
+                }
+
+                return null;
+            }
+
+            try {
+                ArtifactBundle bundle = this.get(key);
+                if (bundle != null) {
+                    bundle.transferTo(output);
+                    return bundle;
+                }
+
+                bundle = this.compress(key, archiveWriter, output);
+                this.add(bundle);
+
+                return bundle;
+            } finally {
+                this.buildLocks.remove(key, buildLock);
+            }
+        }
+    }
+
+    public synchronized void invalidate(String pipelineName, String pipelineExecutionId) {
+        String prefix = getKeyPrefix(pipelineName, pipelineExecutionId);
+        for (String key : new ArrayList<>(this.bundles.keySet())) {
+            if (key.startsWith(prefix)) {
+                this.remove(key);
+            }
+        }
+    }
+
+    public synchronized long getUsedSpace() {
+        return this.usedSpace;
+    }
+
+    public synchronized int size() {
+        return this.bundles.size();
+    }
+
+    private ArtifactBundle compress(String key, IArchiveWriter archiveWriter, OutputStream output) throws IOException {
+        MessageDigest keyDigest = newDigest();
+        String fileName = BaseEncoding.base16().lowerCase().encode(keyDigest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        Path bundleFile = this.cacheDirectory.resolve(fileName + ".zip");
+        Path partialFile = this.cacheDirectory.resolve(fileName + ".zip.part");
+
+        Files.createDirectories(this.cacheDirectory);
+        MessageDigest contentDigest = newDigest();
+        String errorMessage;
+        ResponseTee tee = null;
+        try (OutputStream bundleOutput = new DigestOutputStream(Files.newOutputStream(partialFile), contentDigest)) {
+            tee = (output == null) ? null : new ResponseTee(bundleOutput, output);
+            errorMessage = archiveWriter.write((tee == null) ? bundleOutput : tee);
+        } catch (IOException e) {
+            Files.deleteIfExists(partialFile);
+            throw e;
+        }
+        if (errorMessage != null) {
+            Files.deleteIfExists(partialFile);
+            throw new IOException(errorMessage);
+        }
+
+        Files.move(partialFile, bundleFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        String hash = BaseEncoding.base16().lowerCase().encode(contentDigest.digest());
+        ArtifactBundle bundle = new ArtifactBundle(key, bundleFile, hash, Files.size(bundleFile));
+
+        // A client that went away still leaves the complete bundle behind, its resumed fetch is served from it
+        if ((tee != null) && (tee.getResponseFailure() != null)) {
+            this.add(bundle);
+            throw tee.getResponseFailure();
+        }
+
+        return bundle;
+    }
+
+    private synchronized void add(ArtifactBundle bundle) {
+        this.remove(bundle.getKey());
+        this.bundles.put(bundle.getKey(), bundle);
+        this.usedSpace += bundle.getSize();
+
+        // The bundle just built is kept even when it alone exceeds the quota, it is about to be served
+        Iterator<Map.Entry<String, ArtifactBundle>> eldest = this.bundles.entrySet().iterator();
+        while ((this.usedSpace > this.quota) && eldest.hasNext()) {
+            ArtifactBundle evicted = eldest.next().getValue();
+            if (evicted == bundle) {
+                break;
+            }
+            eldest.remove();
+            this.delete(evicted);
+        }
+    }
+
+    private void remove(String key) {
+        ArtifactBundle bundle = this.bundles.remove(key);
+        if (bundle != null) {
+            this.delete(bundle);
+        }
+    }
+
+    private void delete(ArtifactBundle bundle) {
+        this.usedSpace -= bundle.getSize();
+        try {
+            Files.deleteIfExists(bundle.getFile());
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    // Writes the archive to the bundle file and to the response, a failed response stops only the second
+    private static class ResponseTee extends OutputStream {
+        private OutputStream bundleOutput;
+        private OutputStream responseOutput;
+        private IOException responseFailure;
+
+        ResponseTee(OutputStream bundleOutput, OutputStream responseOutput) {
+            this.bundleOutput = bundleOutput;
+            this.responseOutput = responseOutput;
+        }
+
+        IOException getResponseFailure() {
+            return this.responseFailure;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.bundleOutput.write(b, off, len);
+            if (this.responseFailure == null) {
+                try {
+                    this.responseOutput.write(b, off, len);
+                } catch (IOException e) {
+                    this.responseFailure = e;
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.bundleOutput.flush();
+            if (this.responseFailure == null) {
+                try {
+                    this.responseOutput.flush();
+                } catch (IOException e) {
+                    this.responseFailure = e;
+                }
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
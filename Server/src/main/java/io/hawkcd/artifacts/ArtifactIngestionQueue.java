@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import io.hawkcd.utilities.constants.ConfigurationConstants;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Completes uploaded artifacts off the request thread. The contents of an upload are checked and stored in the
+ * {@link ArtifactStore} while the agent sends them, so an upload that cannot be stored is rejected before the
+ * agent reports its task, and each file is written to the disk once. Committing the stored entries to the
+ * manifest of the execution is left to a small pool of workers. Uploads to the same execution are committed in
+ * the order they arrived, and readers of an execution wait for its pending uploads.
+ */
+public class ArtifactIngestionQueue {
+    private static final Logger LOGGER = Logger.getLogger(ArtifactIngestionQueue.class);
+    private static ArtifactIngestionQueue instance;
+
+    private ArtifactStore artifactStore;
+    private ArtifactBundleCache bundleCache;
+    private Executor executor;
+    private Map<String, CompletableFuture<String>> pendingIngestions;
+
+    public ArtifactIngestionQueue(ArtifactStore artifactStore, ArtifactBundleCache bundleCache, Executor executor) {
+        this.artifactStore = artifactStore;
+        this.bundleCache = bundleCache;
+        this.executor = executor;
+        this.pendingIngestions = new ConcurrentHashMap<>();
+    }
+
+    public static synchronized ArtifactIngestionQueue getInstance() {
+        if (instance == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            Executor executor = Executors.newFixedThreadPool(ConfigurationConstants.ARTIFACT_INGESTION_THREADS, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ArtifactIngestion-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            instance = new ArtifactIngestionQueue(ArtifactStore.getInstance(), ArtifactBundleCache.getInstance(), executor);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Stores the contents of the upload and queues it to be committed. Returns an error message when the upload
+     * was rejected or could not be stored, errors of the commit itself are logged.
+     */
+    public String submit(String pipelineName, String pipelineExecutionId, String destination, InputStream stream, String uploadId) {
+        StagedUpload upload;
+        try {
+            upload = this.artifactStore.stage(pipelineName, pipelineExecutionId, destination, stream, uploadId);
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+
+        String key = getKey(pipelineName, pipelineExecutionId);
+        synchronized (this.pendingIngestions) {
+            CompletableFuture<String> previous = this.pendingIngestions.get(key);
+            CompletableFuture<String> ingestion = ((previous == null) ? CompletableFuture.<String>completedFuture(null) : previous)
+                    .handleAsync((result, error) -> this.complete(upload), this.executor);
+            this.pendingIngestions.put(key, ingestion);
+            ingestion.whenComplete((result, error) -> this.pendingIngestions.remove(key, ingestion));
+        }
+
+        return null;
+    }
+
+    /**
+     * Waits until the uploads queued for the execution are ingested. Returns false when they are still pending
+     * after the timeout.
+     */
+    public boolean await(String pipelineName, String pipelineExecutionId, long timeout, TimeUnit unit) {
+        CompletableFuture<String> ingestion = this.pendingIngestions.get(getKey(pipelineName, pipelineExecutionId));
+        if (ingestion == null) {
+            return true;
+        }
+
+        try {
+            ingestion.get(timeout, unit);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    private String complete(StagedUpload upload) {
+        String errorMessage;
+        try {
+            errorMessage = this.artifactStore.complete(upload);
+        } finally {
+            this.bundleCache.invalidate(upload.getPipelineName(), upload.getPipelineExecutionId());
+        }
+
+        if (errorMessage != null) {
+            LOGGER.error(String.format("Artifacts uploaded to %s/%s were not stored: %s", upload.getPipelineName(), upload.getPipelineExecutionId(), errorMessage));
+        }
+
+        return errorMessage;
+    }
+
+    private static String getKey(String pipelineName, String pipelineExecutionId) {
+        return pipelineName + "/" + pipelineExecutionId;
+    }
+}
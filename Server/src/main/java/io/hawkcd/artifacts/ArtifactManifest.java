@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import java.util.TreeMap;
+
+/**
+ * Maps every artifact path of a pipeline execution to the blob holding its contents.
+ */
+public class ArtifactManifest {
+    private String pipelineName;
+    private String pipelineExecutionId;
+    private TreeMap<String, ArtifactManifestEntry> entries;
+
+    public ArtifactManifest() {
+        this.entries = new TreeMap<>();
+    }
+
+    public ArtifactManifest(String pipelineName, String pipelineExecutionId) {
+        this.pipelineName = pipelineName;
+        this.pipelineExecutionId = pipelineExecutionId;
+        this.entries = new TreeMap<>();
+    }
+
+    public String getPipelineName() {
+        return this.pipelineName;
+    }
+
+    public void setPipelineName(String pipelineName) {
+        this.pipelineName = pipelineName;
+    }
+
+    public String getPipelineExecutionId() {
+        return this.pipelineExecutionId;
+    }
+
+    public void setPipelineExecutionId(String pipelineExecutionId) {
+        this.pipelineExecutionId = pipelineExecutionId;
+    }
+
+    public TreeMap<String, ArtifactManifestEntry> getEntries() {
+        return this.entries;
+    }
+
+    public void setEntries(TreeMap<String, ArtifactManifestEntry> entries) {
+        this.entries = entries;
+    }
+}
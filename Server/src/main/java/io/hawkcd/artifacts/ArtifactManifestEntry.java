@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+public class ArtifactManifestEntry {
+    private String path;
+    private String hash;
+    private long size;
+    private long lastModified;
+    private boolean folder;
+
+    public ArtifactManifestEntry() {
+    }
+
+    public ArtifactManifestEntry(String path, String hash, long size, long lastModified, boolean folder) {
+        this.path = path;
+        this.hash = hash;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.folder = folder;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getHash() {
+        return this.hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getLastModified() {
+        return this.lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public boolean isFolder() {
+        return this.folder;
+    }
+
+    public void setFolder(boolean folder) {
+        this.folder = folder;
+    }
+}
@@ -0,0 +1,767 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import com.google.common.io.BaseEncoding;
+import com.google.gson.Gson;
+import io.hawkcd.core.config.Config;
+import io.hawkcd.services.FileManagementService;
+import io.hawkcd.services.ServiceRegistry;
+import io.hawkcd.services.interfaces.IFileManagementService;
+import io.hawkcd.utilities.constants.ConfigurationConstants;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.log4j.Logger;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Content-addressed storage for uploaded artifacts. Every file is hashed while the upload is read and its
+ * contents are stored once under blobs/, named by their SHA-256, no matter how many executions upload it.
+ * Each execution gets a manifest that maps its artifact paths to blobs and every blob is reference counted
+ * across the manifests, so releasing an execution deletes exactly the blobs no other execution uses.
+ * Executions uploaded before the store existed have no manifest and keep being served from their folders.
+ * The manifests of the most recently used executions are kept parsed until they change.
+ */
+public class ArtifactStore {
+    private static final Logger LOGGER = Logger.getLogger(ArtifactStore.class);
+    private static final String BLOBS_DIRECTORY = ".blobs";
+    private static final String INCOMING_DIRECTORY = "incoming";
+    private static final String MANIFEST_EXTENSION = ".manifest.json";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int IN_MEMORY_BLOB_SIZE = 1024 * 1024;
+    private static ArtifactStore instance;
+
+    private Path rootDirectory;
+    private Path blobDirectory;
+    private IFileManagementService fileManagementService;
+    private Gson jsonConverter;
+    private Map<String, Integer> references;
+    private Map<String, PendingUpload> pendingUploads;
+    private Map<String, CachedManifest> manifests;
+    private long manifestGeneration;
+
+    public ArtifactStore(Path rootDirectory, IFileManagementService fileManagementService) {
+        this.rootDirectory = rootDirectory.toAbsolutePath().normalize();
+        this.blobDirectory = this.rootDirectory.resolve(BLOBS_DIRECTORY);
+        this.fileManagementService = fileManagementService;
+        this.jsonConverter = new Gson();
+        this.references = new HashMap<>();
+        this.pendingUploads = new ConcurrentHashMap<>();
+        this.manifests = new LinkedHashMap<String, CachedManifest>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedManifest> eldest) {
+                return this.size() > ConfigurationConstants.ARTIFACT_MANIFEST_CACHE_CAPACITY;
+            }
+        };
+        this.countReferences();
+    }
+
+    public static synchronized ArtifactStore getInstance() {
+        if (instance == null) {
+            Path rootDirectory = Paths.get(System.getProperty("user.dir"), Config.getConfiguration().getArtifactsDestination());
+            instance = new ArtifactStore(rootDirectory, ServiceRegistry.get(FileManagementService.class));
+        }
+
+        return instance;
+    }
+
+    public String ingest(String pipelineName, String pipelineExecutionId, String destination, InputStream stream) {
+        return this.ingest(pipelineName, pipelineExecutionId, destination, stream, null);
+    }
+
+    /**
+     * Ingests an upload. With an upload id the archive only has to hold the contents the negotiation asked for,
+     * every other path of the negotiated manifest is taken from the blobs the store already holds.
+     */
+    public String ingest(String pipelineName, String pipelineExecutionId, String destination, InputStream stream, String uploadId) {
+        StagedUpload upload;
+        try {
+            upload = this.stage(pipelineName, pipelineExecutionId, destination, stream, uploadId);
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+
+        return this.complete(upload);
+    }
+
+    /**
+     * Reads an upload and stores its contents without changing the manifest of the execution, so everything that
+     * can reject the upload is known while it is received. The stored contents hold references until the upload
+     * is completed.
+     */
+    StagedUpload stage(String pipelineName, String pipelineExecutionId, String destination, InputStream stream, String uploadId) throws IOException {
+        String prefix = getPrefix(destination);
+        if (prefix == null) {
+            throw new IOException(String.format("Destination %s is outside of the artifacts folder", destination));
+        }
+
+        ArtifactManifest negotiatedManifest = null;
+        if (uploadId != null) {
+            PendingUpload pendingUpload = this.pendingUploads.remove(uploadId);
+            negotiatedManifest = (pendingUpload == null) ? null : pendingUpload.getManifest();
+            if ((negotiatedManifest == null) || !negotiatedManifest.getPipelineName().equals(pipelineName) || !negotiatedManifest.getPipelineExecutionId().equals(pipelineExecutionId)) {
+                throw new IOException(String.format("Upload %s is unknown or expired", uploadId));
+            }
+        }
+
+        List<ArtifactManifestEntry> uploadedEntries = new ArrayList<>();
+        List<String> acquiredBlobs = new ArrayList<>();
+        try {
+            ZipInputStream zipStream = new ZipInputStream(stream);
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            ZipEntry zipEntry;
+            while ((zipEntry = zipStream.getNextEntry()) != null) {
+                String path = resolvePath(prefix, zipEntry.getName());
+                if (path == null) {
+                    throw new IOException(String.format("Entry %s is outside of the artifacts folder", zipEntry.getName()));
+                }
+
+                long lastModified = (zipEntry.getTime() == -1) ? System.currentTimeMillis() : zipEntry.getTime();
+                if (zipEntry.isDirectory()) {
+                    uploadedEntries.add(new ArtifactManifestEntry(path, null, 0, lastModified, true));
+                } else {
+                    ArtifactManifestEntry entry = this.storeBlob(zipStream, buffer);
+                    acquiredBlobs.add(entry.getHash());
+                    entry.setPath(path);
+                    entry.setLastModified(lastModified);
+                    uploadedEntries.add(entry);
+                }
+                zipStream.closeEntry();
+            }
+
+            if (negotiatedManifest != null) {
+                uploadedEntries = this.resolveNegotiatedEntries(negotiatedManifest, uploadedEntries, acquiredBlobs);
+            } else if (uploadedEntries.isEmpty()) {
+                throw new IOException("Uploaded stream is not a zip archive");
+            }
+        } catch (IOException e) {
+            this.releaseBlobs(acquiredBlobs);
+            throw e;
+        }
+
+        return new StagedUpload(pipelineName, pipelineExecutionId, uploadedEntries, acquiredBlobs);
+    }
+
+    /**
+     * Commits the entries of a staged upload to the manifest of its execution.
+     */
+    String complete(StagedUpload upload) {
+        try {
+            this.commit(upload.getPipelineName(), upload.getPipelineExecutionId(), upload.getEntries());
+        } catch (IOException e) {
+            this.releaseBlobs(upload.getAcquiredBlobs());
+            return e.getMessage();
+        }
+
+        return null;
+    }
+
+    /**
+     * Registers the manifest of an upload and answers with the contents the store does not hold yet.
+     * Returns null when a path of the manifest is outside of the artifacts folder.
+     */
+    public UploadNegotiation negotiateUpload(String pipelineName, String pipelineExecutionId, String destination, List<ArtifactManifestEntry> entries) {
+        String prefix = getPrefix(destination);
+        if (prefix == null) {
+            return null;
+        }
+
+        ArtifactManifest manifest = new ArtifactManifest(pipelineName, pipelineExecutionId);
+        Set<String> missingHashes = new LinkedHashSet<>();
+        for (ArtifactManifestEntry entry : entries) {
+            String path = resolvePath(prefix, entry.getPath());
+            if ((path == null) || (!entry.isFolder() && !isHash(entry.getHash()))) {
+                return null;
+            }
+
+            manifest.getEntries().put(path, new ArtifactManifestEntry(path, entry.getHash(), entry.getSize(), entry.getLastModified(), entry.isFolder()));
+            if (!entry.isFolder() && !Files.exists(this.getBlobFile(entry.getHash()))) {
+                missingHashes.add(entry.getHash());
+            }
+        }
+
+        long expiredBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ConfigurationConstants.ARTIFACT_UPLOAD_NEGOTIATION_TIMEOUT_SECONDS);
+        this.pendingUploads.values().removeIf(pendingUpload -> pendingUpload.getCreatedAt() < expiredBefore);
+        String uploadId = UUID.randomUUID().toString();
+        this.pendingUploads.put(uploadId, new PendingUpload(manifest));
+
+        return new UploadNegotiation(uploadId, new ArrayList<>(missingHashes));
+    }
+
+    /**
+     * Returns the manifest of an execution, or null when it has none. The manifest is shared between callers and
+     * must not be changed.
+     */
+    public ArtifactManifest getManifest(String pipelineName, String pipelineExecutionId) {
+        CachedManifest cachedManifest = this.getCachedManifest(pipelineName, pipelineExecutionId);
+
+        return (cachedManifest == null) ? null : cachedManifest.getManifest();
+    }
+
+    public File getArtifact(String pipelineName, String pipelineExecutionId, String path) {
+        ArtifactManifest manifest = this.getManifest(pipelineName, pipelineExecutionId);
+        if (manifest == null) {
+            File legacyFile = this.getExecutionDirectory(pipelineName, pipelineExecutionId).resolve(path).toFile();
+            return legacyFile.exists() ? legacyFile : null;
+        }
+
+        ArtifactManifestEntry entry = this.getEntry(manifest, path);
+
+        return (entry == null) ? null : this.getBlobFile(entry.getHash()).toFile();
+    }
+
+    /**
+     * Returns the manifest entry of a stored file, or null when the path is not a file of the manifest.
+     */
+    public ArtifactManifestEntry getEntry(ArtifactManifest manifest, String path) {
+        String entryPath = FilenameUtils.normalizeNoEndSeparator(path, true);
+        ArtifactManifestEntry entry = (entryPath == null) ? null : manifest.getEntries().get(entryPath);
+
+        return ((entry == null) || entry.isFolder()) ? null : entry;
+    }
+
+    /**
+     * Resolves a fetch source the way the artifact folder used to be scanned: a file is archived by its name,
+     * a folder by the paths below it, and a wildcard pattern by the paths below the folder it starts in.
+     * Returns the matching entries by their name in the archive, or null when the source does not exist.
+     */
+    public Map<String, ArtifactManifestEntry> select(ArtifactManifest manifest, String source) {
+        String sourcePath = FilenameUtils.normalizeNoEndSeparator(source == null ? "" : source, true);
+        if (sourcePath == null) {
+            return null;
+        }
+        while (sourcePath.startsWith("/")) {
+            sourcePath = sourcePath.substring(1);
+        }
+
+        TreeMap<String, ArtifactManifestEntry> entries = manifest.getEntries();
+        Map<String, ArtifactManifestEntry> selection = new TreeMap<>();
+        int wildCardCharIndex = sourcePath.indexOf('*');
+        if (wildCardCharIndex != -1) {
+            String rootPath = sourcePath.substring(0, Math.max(sourcePath.lastIndexOf('/', wildCardCharIndex), 0));
+            for (ArtifactManifestEntry entry : entries.values()) {
+                if (!entry.isFolder() && SelectorUtils.matchPath(sourcePath, entry.getPath())) {
+                    selection.put(rootPath.isEmpty() ? entry.getPath() : entry.getPath().substring(rootPath.length() + 1), entry);
+                }
+            }
+
+            return selection;
+        }
+
+        ArtifactManifestEntry sourceEntry = entries.get(sourcePath);
+        if ((sourceEntry != null) && !sourceEntry.isFolder()) {
+            selection.put(FilenameUtils.getName(sourcePath), sourceEntry);
+            return selection;
+        }
+
+        String folderPrefix = sourcePath.isEmpty() ? "" : sourcePath + "/";
+        for (ArtifactManifestEntry entry : entries.tailMap(folderPrefix).values()) {
+            if (!entry.getPath().startsWith(folderPrefix)) {
+                break;
+            }
+            selection.put(entry.getPath().substring(folderPrefix.length()), entry);
+        }
+
+        return (selection.isEmpty() && (sourceEntry == null)) ? null : selection;
+    }
+
+    /**
+     * Writes the selected entries as a zip archive. Every selected blob holds a reference until the archive is
+     * written, so an execution released meanwhile does not delete the contents still being streamed.
+     */
+    public String streamZip(OutputStream outputStream, Map<String, ArtifactManifestEntry> selection) {
+        String errorMessage = null;
+        ZipOutputStream zipStream = new ZipOutputStream(new BufferedOutputStream(outputStream, STREAM_BUFFER_SIZE));
+        zipStream.setLevel(Deflater.BEST_SPEED);
+        List<String> acquiredBlobs = new ArrayList<>();
+        try {
+            synchronized (this) {
+                for (Map.Entry<String, ArtifactManifestEntry> selected : selection.entrySet()) {
+                    ArtifactManifestEntry entry = selected.getValue();
+                    if (entry.isFolder()) {
+                        continue;
+                    }
+                    if (!Files.exists(this.getBlobFile(entry.getHash()))) {
+                        throw new IOException(String.format("Contents of %s are no longer stored", entry.getPath()));
+                    }
+                    this.references.put(entry.getHash(), this.getReferenceCount(entry.getHash()) + 1);
+                    acquiredBlobs.add(entry.getHash());
+                }
+            }
+
+            for (Map.Entry<String, ArtifactManifestEntry> selected : selection.entrySet()) {
+                ArtifactManifestEntry entry = selected.getValue();
+                ZipEntry zipEntry = new ZipEntry(entry.isFolder() ? selected.getKey() + "/" : selected.getKey());
+                zipEntry.setTime(entry.getLastModified());
+                zipStream.putNextEntry(zipEntry);
+                if (!entry.isFolder()) {
+                    Files.copy(this.getBlobFile(entry.getHash()), zipStream);
+                }
+                zipStream.closeEntry();
+            }
+
+            // Completes the archive without closing the stream, which belongs to the caller
+            zipStream.finish();
+            zipStream.flush();
+        } catch (IOException e) {
+            errorMessage = e.getMessage();
+        } finally {
+            this.releaseBlobs(acquiredBlobs);
+        }
+
+        return errorMessage;
+    }
+
+    /**
+     * Lists one page of the direct children of a folder, sorted by name, so the artifact browser expands the tree
+     * a level at a time. Stored executions are listed from their manifest, nothing is read from the disk, and the
+     * children of a folder are listed once for all of its pages.
+     * Returns null when the execution or the folder does not exist.
+     */
+    public ArtifactTreePage getTreePage(String pipelineName, String pipelineExecutionId, String path, int offset, int limit) {
+        String folderPath = ((path == null) || path.isEmpty()) ? "" : FilenameUtils.normalizeNoEndSeparator(path, true);
+        if ((folderPath == null) || folderPath.startsWith("/")) {
+            return null;
+        }
+
+        // Paths in the tree keep the format of the folder based tree, relative to the server folder
+        Path executionDirectory = this.getExecutionDirectory(pipelineName, pipelineExecutionId);
+        String rootPath = FilenameUtils.separatorsToUnix(Paths.get(System.getProperty("user.dir")).toAbsolutePath().relativize(executionDirectory).toString());
+        CachedManifest cachedManifest = this.getCachedManifest(pipelineName, pipelineExecutionId);
+        List<ArtifactTreeNode> children = (cachedManifest == null)
+                ? toList(this.listFolder(executionDirectory, folderPath, rootPath))
+                : cachedManifest.getChildren(folderPath, folder -> toList(this.listEntries(cachedManifest.getManifest().getEntries(), folder, rootPath)));
+        if (children == null) {
+            return null;
+        }
+
+        List<ArtifactTreeNode> nodes = children.subList(Math.min(offset, children.size()), Math.min(offset + limit, children.size()));
+
+        return new ArtifactTreePage(folderPath, offset, children.size(), new ArrayList<>(nodes));
+    }
+
+    /**
+     * Deletes the artifacts of an execution, blobs included once no other execution references them.
+     */
+    public synchronized String release(String pipelineName, String pipelineExecutionId) {
+        String errorMessage = null;
+        ArtifactManifest manifest = this.getManifest(pipelineName, pipelineExecutionId);
+        if (manifest != null) {
+            for (ArtifactManifestEntry entry : manifest.getEntries().values()) {
+                if (!entry.isFolder()) {
+                    this.releaseBlob(entry.getHash());
+                }
+            }
+        }
+
+        try {
+            Files.deleteIfExists(this.getManifestFile(pipelineName, pipelineExecutionId));
+            this.evictManifest(pipelineName, pipelineExecutionId);
+            FileUtils.deleteDirectory(this.getExecutionDirectory(pipelineName, pipelineExecutionId).toFile());
+        } catch (IOException e) {
+            errorMessage = e.getMessage();
+        }
+
+        return errorMessage;
+    }
+
+    public synchronized int getReferenceCount(String hash) {
+        Integer count = this.references.get(hash);
+
+        return (count == null) ? 0 : count;
+    }
+
+    public Path getBlobFile(String hash) {
+        return this.blobDirectory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    // Small files are hashed in memory and only written when their contents are not stored yet
+    private ArtifactManifestEntry storeBlob(InputStream stream, byte[] buffer) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        Path incomingFile = null;
+        OutputStream incoming = null;
+        long size = 0;
+        try {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+                if ((incoming == null) && (size > IN_MEMORY_BLOB_SIZE)) {
+                    Path incomingDirectory = this.blobDirectory.resolve(INCOMING_DIRECTORY);
+                    Files.createDirectories(incomingDirectory);
+                    incomingFile = Files.createTempFile(incomingDirectory, "blob", null);
+                    incoming = new BufferedOutputStream(Files.newOutputStream(incomingFile), STREAM_BUFFER_SIZE);
+                    memory.writeTo(incoming);
+                    memory = null;
+                }
+
+                if (incoming == null) {
+                    memory.write(buffer, 0, read);
+                } else {
+                    incoming.write(buffer, 0, read);
+                }
+            }
+        } catch (IOException e) {
+            if (incoming != null) {
+                incoming.close();
+                Files.deleteIfExists(incomingFile);
+            }
+            throw e;
+        }
+        if (incoming != null) {
+            incoming.close();
+        }
+
+        String hash = BaseEncoding.base16().lowerCase().encode(digest.digest());
+        synchronized (this) {
+            Path blobFile = this.getBlobFile(hash);
+            if (Files.exists(blobFile)) {
+                if (incomingFile != null) {
+                    Files.delete(incomingFile);
+                }
+            } else {
+                Files.createDirectories(blobFile.getParent());
+                if (incomingFile != null) {
+                    Files.move(incomingFile, blobFile, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Path partialFile = blobFile.resolveSibling(hash + ".part");
+                    Files.write(partialFile, memory.toByteArray());
+                    Files.move(partialFile, blobFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            this.references.put(hash, this.getReferenceCount(hash) + 1);
+        }
+
+        return new ArtifactManifestEntry(null, hash, size, 0, false);
+    }
+
+    // Uploaded paths must carry the contents they were negotiated with, the others reference blobs already stored
+    private List<ArtifactManifestEntry> resolveNegotiatedEntries(ArtifactManifest negotiatedManifest, List<ArtifactManifestEntry> uploadedEntries, List<String> acquiredBlobs) throws IOException {
+        Map<String, ArtifactManifestEntry> uploadedByPath = new HashMap<>();
+        for (ArtifactManifestEntry entry : uploadedEntries) {
+            ArtifactManifestEntry negotiatedEntry = negotiatedManifest.getEntries().get(entry.getPath());
+            if ((negotiatedEntry == null) || (!entry.isFolder() && !entry.getHash().equals(negotiatedEntry.getHash()))) {
+                throw new IOException(String.format("Entry %s does not match the negotiated manifest", entry.getPath()));
+            }
+            uploadedByPath.put(entry.getPath(), entry);
+        }
+
+        List<ArtifactManifestEntry> resolvedEntries = new ArrayList<>();
+        for (ArtifactManifestEntry negotiatedEntry : negotiatedManifest.getEntries().values()) {
+            ArtifactManifestEntry uploadedEntry = uploadedByPath.get(negotiatedEntry.getPath());
+            if (uploadedEntry != null) {
+                resolvedEntries.add(uploadedEntry);
+                continue;
+            }
+
+            if (!negotiatedEntry.isFolder()) {
+                synchronized (this) {
+                    if (!Files.exists(this.getBlobFile(negotiatedEntry.getHash()))) {
+                        throw new IOException(String.format("Contents of %s are no longer stored", negotiatedEntry.getPath()));
+                    }
+                    this.references.put(negotiatedEntry.getHash(), this.getReferenceCount(negotiatedEntry.getHash()) + 1);
+                }
+                acquiredBlobs.add(negotiatedEntry.getHash());
+            }
+            resolvedEntries.add(negotiatedEntry);
+        }
+
+        return resolvedEntries;
+    }
+
+    private synchronized void commit(String pipelineName, String pipelineExecutionId, List<ArtifactManifestEntry> uploadedEntries) throws IOException {
+        // The cached manifest is shared with readers, so the changes are made to a copy read from the disk
+        ArtifactManifest manifest = this.readManifest(this.getManifestFile(pipelineName, pipelineExecutionId));
+        if (manifest == null) {
+            manifest = new ArtifactManifest(pipelineName, pipelineExecutionId);
+        }
+
+        List<String> replacedBlobs = new ArrayList<>();
+        for (ArtifactManifestEntry entry : uploadedEntries) {
+            ArtifactManifestEntry replaced = manifest.getEntries().put(entry.getPath(), entry);
+            if ((replaced != null) && !replaced.isFolder()) {
+                replacedBlobs.add(replaced.getHash());
+            }
+        }
+
+        Path manifestFile = this.getManifestFile(pipelineName, pipelineExecutionId);
+        Path partialFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".part");
+        Files.createDirectories(manifestFile.getParent());
+        try (Writer writer = Files.newBufferedWriter(partialFile, StandardCharsets.UTF_8)) {
+            this.jsonConverter.toJson(manifest, writer);
+        }
+        Files.move(partialFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.evictManifest(pipelineName, pipelineExecutionId);
+
+        for (String hash : replacedBlobs) {
+            this.releaseBlob(hash);
+        }
+    }
+
+    /**
+     * Returns the parsed manifest of an execution, reading it from the disk when it is not cached. A manifest read
+     * while the execution changed is returned but not cached, so a commit is never hidden by an older copy.
+     */
+    private CachedManifest getCachedManifest(String pipelineName, String pipelineExecutionId) {
+        Path manifestFile = this.getManifestFile(pipelineName, pipelineExecutionId);
+        String key = manifestFile.toString();
+        long generation;
+        synchronized (this.manifests) {
+            CachedManifest cachedManifest = this.manifests.get(key);
+            if (cachedManifest != null) {
+                return cachedManifest;
+            }
+            generation = this.manifestGeneration;
+        }
+
+        ArtifactManifest manifest = this.readManifest(manifestFile);
+        if (manifest == null) {
+            return null;
+        }
+
+        CachedManifest cachedManifest = new CachedManifest(manifest);
+        synchronized (this.manifests) {
+            if (generation == this.manifestGeneration) {
+                this.manifests.put(key, cachedManifest);
+            }
+        }
+
+        return cachedManifest;
+    }
+
+    private void evictManifest(String pipelineName, String pipelineExecutionId) {
+        synchronized (this.manifests) {
+            this.manifests.remove(this.getManifestFile(pipelineName, pipelineExecutionId).toString());
+            this.manifestGeneration++;
+        }
+    }
+
+    private ArtifactManifest readManifest(Path manifestFile) {
+        if (!Files.isRegularFile(manifestFile)) {
+            return null;
+        }
+
+        try (Reader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+            return this.jsonConverter.fromJson(reader, ArtifactManifest.class);
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private synchronized void releaseBlobs(List<String> hashes) {
+        for (String hash : hashes) {
+            this.releaseBlob(hash);
+        }
+    }
+
+    private void releaseBlob(String hash) {
+        int count = this.getReferenceCount(hash) - 1;
+        if (count > 0) {
+            this.references.put(hash, count);
+            return;
+        }
+
+        this.references.remove(hash);
+        try {
+            Files.deleteIfExists(this.getBlobFile(hash));
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    // Rebuilds the reference counts from the manifests and removes blobs that none of them reference
+    private void countReferences() {
+        if (!Files.isDirectory(this.rootDirectory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> pipelines = Files.newDirectoryStream(this.rootDirectory)) {
+            for (Path pipeline : pipelines) {
+                if (!Files.isDirectory(pipeline) || pipeline.equals(this.blobDirectory)) {
+                    continue;
+                }
+
+                try (DirectoryStream<Path> manifestFiles = Files.newDirectoryStream(pipeline, "*" + MANIFEST_EXTENSION)) {
+                    for (Path manifestFile : manifestFiles) {
+                        try (Reader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+                            ArtifactManifest manifest = this.jsonConverter.fromJson(reader, ArtifactManifest.class);
+                            for (ArtifactManifestEntry entry : manifest.getEntries().values()) {
+                                if (!entry.isFolder()) {
+                                    this.references.put(entry.getHash(), this.getReferenceCount(entry.getHash()) + 1);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (Files.isDirectory(this.blobDirectory)) {
+                FileUtils.deleteDirectory(this.blobDirectory.resolve(INCOMING_DIRECTORY).toFile());
+                try (DirectoryStream<Path> shards = Files.newDirectoryStream(this.blobDirectory)) {
+                    for (Path shard : shards) {
+                        try (DirectoryStream<Path> blobs = Files.newDirectoryStream(shard)) {
+                            for (Path blob : blobs) {
+                                if (!this.references.containsKey(blob.getFileName().toString())) {
+                                    Files.delete(blob);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    private TreeMap<String, ArtifactTreeNode> listEntries(TreeMap<String, ArtifactManifestEntry> entries, String folderPath, String rootPath) {
+        String prefix = folderPath.isEmpty() ? "" : folderPath + "/";
+        String parentPath = folderPath.isEmpty() ? rootPath : rootPath + "/" + folderPath;
+        TreeMap<String, ArtifactTreeNode> children = new TreeMap<>();
+        String key = entries.ceilingKey(prefix);
+        while ((key != null) && key.startsWith(prefix)) {
+            String name = key.substring(prefix.length());
+            int separator = name.indexOf('/');
+            if (separator == -1) {
+                ArtifactManifestEntry entry = entries.get(key);
+                if (entry.isFolder()) {
+                    String contents = entries.ceilingKey(key + "/");
+                    children.put(name, new ArtifactTreeNode(key, name, rootPath + "/" + key, "folder", (contents != null) && contents.startsWith(key + "/"), 0));
+                } else {
+                    children.put(name, new ArtifactTreeNode(key, name, parentPath, "file", false, entry.getSize()));
+                }
+                key = entries.higherKey(key);
+            } else {
+                // Only the folder is listed, its contents are skipped: '0' is the character after '/'
+                String childPath = prefix + name.substring(0, separator);
+                children.put(name.substring(0, separator), new ArtifactTreeNode(childPath, name.substring(0, separator), rootPath + "/" + childPath, "folder", true, 0));
+                key = entries.ceilingKey(childPath + "0");
+            }
+        }
+
+        if (children.isEmpty() && !folderPath.isEmpty()) {
+            ArtifactManifestEntry folder = entries.get(folderPath);
+            return ((folder != null) && folder.isFolder()) ? children : null;
+        }
+
+        return children;
+    }
+
+    // Executions uploaded before the store existed are listed a folder at a time
+    private TreeMap<String, ArtifactTreeNode> listFolder(Path executionDirectory, String folderPath, String rootPath) {
+        Path folder = executionDirectory.resolve(folderPath);
+        if (!Files.isDirectory(folder)) {
+            return null;
+        }
+
+        String parentPath = folderPath.isEmpty() ? rootPath : rootPath + "/" + folderPath;
+        TreeMap<String, ArtifactTreeNode> children = new TreeMap<>();
+        try (DirectoryStream<Path> contents = Files.newDirectoryStream(folder)) {
+            for (Path child : contents) {
+                String name = child.getFileName().toString();
+                String childPath = folderPath.isEmpty() ? name : folderPath + "/" + name;
+                if (Files.isDirectory(child)) {
+                    children.put(name, new ArtifactTreeNode(childPath, name, rootPath + "/" + childPath, "folder", true, 0));
+                } else {
+                    children.put(name, new ArtifactTreeNode(childPath, name, parentPath, "file", false, Files.size(child)));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+            return null;
+        }
+
+        return children;
+    }
+
+    private static List<ArtifactTreeNode> toList(TreeMap<String, ArtifactTreeNode> children) {
+        return (children == null) ? null : new ArrayList<>(children.values());
+    }
+
+    private Path getExecutionDirectory(String pipelineName, String pipelineExecutionId) {
+        return this.rootDirectory.resolve(pipelineName).resolve(pipelineExecutionId);
+    }
+
+    private Path getManifestFile(String pipelineName, String pipelineExecutionId) {
+        return this.rootDirectory.resolve(pipelineName).resolve(pipelineExecutionId + MANIFEST_EXTENSION);
+    }
+
+    private static String getPrefix(String destination) {
+        String prefix = ((destination == null) || destination.isEmpty()) ? "" : FilenameUtils.normalizeNoEndSeparator(destination, true);
+        if ((prefix == null) || prefix.startsWith("/")) {
+            return null;
+        }
+
+        return prefix;
+    }
+
+    private static String resolvePath(String prefix, String name) {
+        String path = FilenameUtils.normalizeNoEndSeparator(prefix.isEmpty() ? name : prefix + "/" + name, true);
+        if ((path == null) || path.isEmpty() || path.startsWith("/")) {
+            return null;
+        }
+
+        return path;
+    }
+
+    private static boolean isHash(String hash) {
+        return (hash != null) && hash.matches("[0-9a-f]{64}");
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
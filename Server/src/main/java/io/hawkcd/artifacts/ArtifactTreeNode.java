@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+/**
+ * A file or folder of an execution's artifacts as shown by the lazily expanded artifact browser.
+ * Folders are sent with {@code children} set instead of their contents, which are requested when expanded.
+ */
+public class ArtifactTreeNode {
+    private String id;
+    private String text;
+    private String path;
+    private String type;
+    private boolean children;
+    private long size;
+
+    public ArtifactTreeNode(String id, String text, String path, String type, boolean children, long size) {
+        this.id = id;
+        this.text = text;
+        this.path = path;
+        this.type = type;
+        this.children = children;
+        this.size = size;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getText() {
+        return this.text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public boolean hasChildren() {
+        return this.children;
+    }
+
+    public void setChildren(boolean children) {
+        this.children = children;
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+}
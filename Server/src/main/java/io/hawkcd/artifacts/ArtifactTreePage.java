@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import java.util.List;
+
+/**
+ * One page of the direct children of a folder in an execution's artifacts.
+ */
+public class ArtifactTreePage {
+    private String path;
+    private int offset;
+    private int total;
+    private List<ArtifactTreeNode> nodes;
+
+    public ArtifactTreePage(String path, int offset, int total, List<ArtifactTreeNode> nodes) {
+        this.path = path;
+        this.offset = offset;
+        this.total = total;
+        this.nodes = nodes;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    public int getOffset() {
+        return this.offset;
+    }
+
+    public int getTotal() {
+        return this.total;
+    }
+
+    public List<ArtifactTreeNode> getNodes() {
+        return this.nodes;
+    }
+}
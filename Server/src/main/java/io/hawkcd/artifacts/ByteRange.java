@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A single byte range of an artifact, as requested with the HTTP Range header, and the transfer of that range.
+ */
+public class ByteRange {
+    private static final String UNIT = "bytes";
+
+    private long start;
+    private long end;
+    private long totalSize;
+
+    public ByteRange(long start, long end, long totalSize) {
+        this.start = start;
+        this.end = end;
+        this.totalSize = totalSize;
+    }
+
+    public static ByteRange full(long totalSize) {
+        return new ByteRange(0, totalSize - 1, totalSize);
+    }
+
+    /**
+     * Parses a Range header against a representation of the given size.
+     * Returns null when the whole representation should be sent instead: the header is missing, malformed,
+     * or asks for several ranges, which agents never do.
+     */
+    public static ByteRange parse(String range, long totalSize) {
+        if ((range == null) || !range.startsWith(UNIT + "=") || range.contains(",")) {
+            return null;
+        }
+
+        String[] bounds = range.substring(UNIT.length() + 1).trim().split("-", -1);
+        if (bounds.length != 2) {
+            return null;
+        }
+
+        try {
+            if (bounds[0].isEmpty()) {
+                // A suffix range asks for the last bytes of the representation
+                long suffixLength = Long.parseLong(bounds[1]);
+                if (suffixLength < 0) {
+                    return null;
+                }
+
+                return new ByteRange(Math.max(0, totalSize - suffixLength), (suffixLength == 0) ? -1 : totalSize - 1, totalSize);
+            }
+
+            long start = Long.parseLong(bounds[0]);
+            long end = bounds[1].isEmpty() ? totalSize - 1 : Math.min(Long.parseLong(bounds[1]), totalSize - 1);
+            if ((start < 0) || (!bounds[1].isEmpty() && (Long.parseLong(bounds[1]) < start))) {
+                return null;
+            }
+
+            return new ByteRange(start, end, totalSize);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public long getStart() {
+        return this.start;
+    }
+
+    public long getEnd() {
+        return this.end;
+    }
+
+    public long getLength() {
+        return this.end - this.start + 1;
+    }
+
+    public boolean isSatisfiable() {
+        return (this.start <= this.end) && (this.start < this.totalSize);
+    }
+
+    public boolean isFull() {
+        return (this.start == 0) && (this.end == this.totalSize - 1);
+    }
+
+    public String getContentRange() {
+        if (!this.isSatisfiable()) {
+            return String.format("%s */%d", UNIT, this.totalSize);
+        }
+
+        return String.format("%s %d-%d/%d", UNIT, this.start, this.end, this.totalSize);
+    }
+
+    /**
+     * Copies the range of the file to the output. The response is a plain stream behind Jersey, so the bytes
+     * pass through the small buffers of the stream channel, the file is never read into memory whole.
+     */
+    public void transfer(Path file, OutputStream output) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.transfer(channel, output);
+        }
+    }
+
+    /**
+     * Copies the range of a file opened by the caller, the channel is left open.
+     */
+    public void transfer(FileChannel channel, OutputStream output) throws IOException {
+        WritableByteChannel target = Channels.newChannel(output);
+        long position = this.start;
+        long remaining = this.getLength();
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                throw new IOException(String.format("The file ended before byte %d of %s", position, this.getContentRange()));
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+        output.flush();
+    }
+}
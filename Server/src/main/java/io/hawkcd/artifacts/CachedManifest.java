@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A parsed manifest kept by the store, with the children of each folder listed so far. Both are replaced as a whole
+ * when the manifest changes, so neither is ever modified once shared.
+ */
+class CachedManifest {
+    private ArtifactManifest manifest;
+    private Map<String, List<ArtifactTreeNode>> children;
+
+    CachedManifest(ArtifactManifest manifest) {
+        this.manifest = manifest;
+        this.children = new ConcurrentHashMap<>();
+    }
+
+    ArtifactManifest getManifest() {
+        return this.manifest;
+    }
+
+    /**
+     * Returns the children of the folder, listing them on first use. Returns null when the folder does not exist.
+     */
+    List<ArtifactTreeNode> getChildren(String folderPath, Function<String, List<ArtifactTreeNode>> lister) {
+        return this.children.computeIfAbsent(folderPath, lister);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import java.util.List;
+
+/**
+ * An upload whose contents are stored and hold their references, waiting for its entries to be committed to
+ * the manifest of the execution.
+ */
+class StagedUpload {
+    private String pipelineName;
+    private String pipelineExecutionId;
+    private List<ArtifactManifestEntry> entries;
+    private List<String> acquiredBlobs;
+
+    StagedUpload(String pipelineName, String pipelineExecutionId, List<ArtifactManifestEntry> entries, List<String> acquiredBlobs) {
+        this.pipelineName = pipelineName;
+        this.pipelineExecutionId = pipelineExecutionId;
+        this.entries = entries;
+        this.acquiredBlobs = acquiredBlobs;
+    }
+
+    String getPipelineName() {
+        return this.pipelineName;
+    }
+
+    String getPipelineExecutionId() {
+        return this.pipelineExecutionId;
+    }
+
+    List<ArtifactManifestEntry> getEntries() {
+        return this.entries;
+    }
+
+    List<String> getAcquiredBlobs() {
+        return this.acquiredBlobs;
+    }
+}
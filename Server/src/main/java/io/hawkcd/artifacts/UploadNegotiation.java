@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import java.util.List;
+
+/**
+ * The answer to an upload manifest: the id the upload has to be sent with and the contents it has to include.
+ */
+public class UploadNegotiation {
+    private String uploadId;
+    private List<String> missingHashes;
+
+    public UploadNegotiation() {
+    }
+
+    public UploadNegotiation(String uploadId, List<String> missingHashes) {
+        this.uploadId = uploadId;
+        this.missingHashes = missingHashes;
+    }
+
+    public String getUploadId() {
+        return this.uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public List<String> getMissingHashes() {
+        return this.missingHashes;
+    }
+
+    public void setMissingHashes(List<String> missingHashes) {
+        this.missingHashes = missingHashes;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core;
+
+import io.hawkcd.core.security.Authorization;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A service method callable over WebSocket, bound to the service instance that serves every call. Holds what
+ * each call used to look up through reflection: the authorization of the method and its argument types.
+ */
+public class CommandHandle {
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private String className;
+    private String methodName;
+    private Class<?>[] parameterTypes;
+    private Type[] argumentTypes;
+    private Authorization authorization;
+    private MethodHandle methodHandle;
+
+    public CommandHandle(Object service, Method method) throws IllegalAccessException {
+        this.className = service.getClass().getName();
+        this.methodName = method.getName();
+        this.parameterTypes = method.getParameterTypes();
+        this.argumentTypes = method.getGenericParameterTypes();
+        this.authorization = method.getAnnotation(Authorization.class);
+        this.methodHandle = MethodHandles.publicLookup()
+                .unreflect(method)
+                .bindTo(service)
+                .asSpreader(Object[].class, this.parameterTypes.length)
+                .asType(INVOKER_TYPE);
+    }
+
+    public String getClassName() {
+        return this.className;
+    }
+
+    public String getMethodName() {
+        return this.methodName;
+    }
+
+    public Class<?>[] getParameterTypes() {
+        return this.parameterTypes;
+    }
+
+    public Type[] getArgumentTypes() {
+        return this.argumentTypes;
+    }
+
+    public Authorization getAuthorization() {
+        return this.authorization;
+    }
+
+    /**
+     * Returns true when the arguments are instances of exactly the parameter types, the rule the reflective
+     * lookup by argument classes followed
+     *
+     * @param args
+     */
+    public boolean accepts(List<Object> args) {
+        if (args.size() != this.parameterTypes.length) {
+            return false;
+        }
+
+        for (int i = 0; i < this.parameterTypes.length; i++) {
+            if (args.get(i).getClass() != this.parameterTypes[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Invokes the command, rethrowing what it throws; throwables that are neither exceptions nor errors are wrapped
+     *
+     * @param args
+     */
+    public Object invoke(List<Object> args) throws Exception {
+        try {
+            return (Object) this.methodHandle.invokeExact(args.toArray());
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.className + "." + this.methodName + Arrays.toString(this.parameterTypes);
+    }
+}
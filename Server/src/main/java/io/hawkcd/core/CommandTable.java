@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core;
+
+import io.hawkcd.core.subscriber.Envelope;
+import io.hawkcd.model.dto.WsContractDto;
+import io.hawkcd.services.AgentService;
+import io.hawkcd.services.JobDefinitionService;
+import io.hawkcd.services.MaterialDefinitionService;
+import io.hawkcd.services.PipelineDefinitionService;
+import io.hawkcd.services.PipelineGroupService;
+import io.hawkcd.services.PipelineService;
+import io.hawkcd.services.ServiceRegistry;
+import io.hawkcd.services.StageDefinitionService;
+import io.hawkcd.services.TaskDefinitionService;
+import io.hawkcd.services.UserGroupService;
+import io.hawkcd.services.UserService;
+import io.hawkcd.services.UserUpdaterService;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The dispatch table of the WebSocket API. Built once from the services the UI calls, it maps the class, method and
+ * argument types of a request to a {@link CommandHandle}, so requests are served without reflection and requests
+ * for anything else are rejected before a class is loaded.
+ */
+public class CommandTable {
+    private static final Logger LOGGER = Logger.getLogger(CommandTable.class);
+    private static CommandTable instance;
+
+    private Map<String, List<CommandHandle>> commandsByName;
+    private Map<String, Class<?>> argumentClasses;
+
+    public CommandTable(List<Object> services) {
+        this.commandsByName = new HashMap<>();
+        Map<String, Class<?>> argumentClasses = new HashMap<>();
+        for (Object service : services) {
+            for (Method method : service.getClass().getMethods()) {
+                if (method.isBridge() || method.isSynthetic() || method.getDeclaringClass() == Object.class) {
+                    continue;
+                }
+
+                try {
+                    CommandHandle command = new CommandHandle(service, method);
+                    this.commandsByName.computeIfAbsent(getName(command.getClassName(), command.getMethodName()), name -> new ArrayList<>()).add(command);
+                    for (Type argumentType : command.getArgumentTypes()) {
+                        addArgumentClasses(argumentType, argumentClasses);
+                    }
+                } catch (IllegalAccessException e) {
+                    LOGGER.error(e.getMessage(), e);
+                }
+            }
+        }
+
+        this.argumentClasses = Collections.unmodifiableMap(argumentClasses);
+    }
+
+    public static synchronized CommandTable getInstance() {
+        if (instance == null) {
+            instance = new CommandTable(Arrays.asList(
+                    ServiceRegistry.get(AgentService.class),
+                    ServiceRegistry.get(JobDefinitionService.class),
+                    ServiceRegistry.get(MaterialDefinitionService.class),
+                    ServiceRegistry.get(PipelineDefinitionService.class),
+                    ServiceRegistry.get(PipelineGroupService.class),
+                    ServiceRegistry.get(PipelineService.class),
+                    ServiceRegistry.get(StageDefinitionService.class),
+                    ServiceRegistry.get(TaskDefinitionService.class),
+                    ServiceRegistry.get(UserGroupService.class),
+                    ServiceRegistry.get(UserService.class),
+                    ServiceRegistry.get(UserUpdaterService.class)));
+        }
+
+        return instance;
+    }
+
+    /**
+     * Returns the command the contract calls, or null when there is no such command
+     *
+     * @param contract
+     */
+    public CommandHandle find(WsContractDto contract) {
+        return this.find(contract.getPackageName(), contract.getClassName(), contract.getMethodName(), getArguments(contract));
+    }
+
+    public CommandHandle find(String packageName, String className, String methodName, List<Object> args) {
+        List<CommandHandle> commands = this.commandsByName.get(getName(packageName + "." + className, methodName));
+        if (commands == null) {
+            return null;
+        }
+
+        for (CommandHandle command : commands) {
+            if (command.accepts(args)) {
+                return command;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the classes the arguments of the commands are declared with, by name, which are the only classes a
+     * request envelope may name
+     */
+    public Map<String, Class<?>> getArgumentClasses() {
+        return this.argumentClasses;
+    }
+
+    public int size() {
+        int size = 0;
+        for (List<CommandHandle> commands : this.commandsByName.values()) {
+            size += commands.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the arguments of the contract, skipping the empty envelopes the UI sends for methods without any
+     *
+     * @param contract
+     */
+    public static List<Object> getArguments(WsContractDto contract) {
+        List<Object> args = new ArrayList<>();
+        if (contract.getArgs() == null) {
+            return args;
+        }
+
+        for (Envelope envelope : contract.getArgs()) {
+            if (envelope != null && envelope.getObject() != null) {
+                args.add(envelope.getObject());
+            }
+        }
+
+        return args;
+    }
+
+    private static void addArgumentClasses(Type argumentType, Map<String, Class<?>> argumentClasses) {
+        if (argumentType instanceof Class) {
+            Class<?> argumentClass = (Class<?>) argumentType;
+            argumentClasses.put(argumentClass.getName(), argumentClass);
+        } else if (argumentType instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) argumentType;
+            addArgumentClasses(parameterizedType.getRawType(), argumentClasses);
+            for (Type typeArgument : parameterizedType.getActualTypeArguments()) {
+                addArgumentClasses(typeArgument, argumentClasses);
+            }
+        }
+    }
+
+    private static String getName(String className, String methodName) {
+        return className + "#" + methodName;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core;
+
+import io.hawkcd.core.config.Config;
+import io.hawkcd.model.Entity;
+import io.hawkcd.model.configuration.Configuration;
+import io.hawkcd.model.enums.NotificationType;
+import io.hawkcd.utilities.constants.ConfigurationConstants;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Holds broadcast entity updates for a short window before they are dispatched. An update of an entity already
+ * waiting replaces it, so an entity updated several times within one scheduler tick is serialized and published
+ * once, with its latest state. Any other broadcast flushes the waiting updates first to keep the order in which
+ * clients see changes. Flushes and the broadcasts that follow them are dispatched one at a time, so a flush of the
+ * scheduler that already took the waiting updates is never overtaken by a later broadcast.
+ */
+public class MessageCoalescer {
+    private static final Logger LOGGER = Logger.getLogger(MessageCoalescer.class);
+    private static final String UPDATE_METHOD = "update";
+    private static MessageCoalescer instance;
+
+    private long windowMilliseconds;
+    private Consumer<Message> dispatcher;
+    private ScheduledExecutorService scheduler;
+    private LinkedHashMap<String, Message> pendingMessages;
+    private boolean flushScheduled;
+    private final Object dispatchLock = new Object();
+
+    public MessageCoalescer(long windowMilliseconds, Consumer<Message> dispatcher, ScheduledExecutorService scheduler) {
+        this.windowMilliseconds = windowMilliseconds;
+        this.dispatcher = dispatcher;
+        this.scheduler = scheduler;
+        this.pendingMessages = new LinkedHashMap<>();
+    }
+
+    public static synchronized MessageCoalescer getInstance() {
+        if (instance == null) {
+            Configuration configuration = Config.getConfiguration();
+            Integer window = (configuration == null) ? null : configuration.getBroadcastCoalescingWindow();
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "BroadcastCoalescer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            instance = new MessageCoalescer((window == null) ? ConfigurationConstants.DEFAULT_BROADCAST_COALESCING_WINDOW : window
+                    , MessageDispatcher::publish
+                    , scheduler);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Holds the message when it is a broadcast entity update. Any other broadcast is dispatched after the waiting
+     * updates, messages targeting their owner are dispatched right away.
+     *
+     * @param message
+     */
+    public void dispatch(Message message) {
+        String key = this.getKey(message);
+        if (key == null) {
+            if (message.isTargetOwner()) {
+                this.dispatcher.accept(message);
+                return;
+            }
+
+            synchronized (this.dispatchLock) {
+                this.flush();
+                this.dispatcher.accept(message);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            this.pendingMessages.put(key, message);
+            if (!this.flushScheduled) {
+                this.flushScheduled = true;
+                this.scheduler.schedule(this::flush, this.windowMilliseconds, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public void flush() {
+        // Held from taking the waiting updates until they are dispatched, a broadcast dispatched meanwhile waits
+        synchronized (this.dispatchLock) {
+            List<Message> messages;
+            synchronized (this) {
+                if (this.pendingMessages.isEmpty()) {
+                    return;
+                }
+
+                messages = new ArrayList<>(this.pendingMessages.values());
+                this.pendingMessages.clear();
+                this.flushScheduled = false;
+            }
+
+            for (Message message : messages) {
+                try {
+                    this.dispatcher.accept(message);
+                } catch (RuntimeException e) {
+                    LOGGER.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return this.pendingMessages.size();
+    }
+
+    /**
+     * Returns the key under which the message replaces the waiting update of the same entity, or null when the
+     * message is not held
+     */
+    private String getKey(Message message) {
+        if (this.windowMilliseconds <= 0
+                || message.isTargetOwner()
+                || message.isUserUpdate()
+                || !UPDATE_METHOD.equals(message.getMethodCalled())
+                || message.getResultNotificationType() != NotificationType.SUCCESS
+                || !(message.getEnvelope() instanceof Entity)) {
+            return null;
+        }
+
+        return message.getServiceCalled() + "." + message.getMethodCalled() + ":" + ((Entity) message.getEnvelope()).getId();
+    }
+}
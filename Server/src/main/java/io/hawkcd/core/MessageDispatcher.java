@@ -2,24 +2,41 @@ package io.hawkcd.core;
 
 import io.hawkcd.core.config.Config;
 import io.hawkcd.core.publisher.PublisherFactory;
+import io.hawkcd.core.security.UserPermissionCache;
+import io.hawkcd.core.security.VerifiedTokenCache;
 import io.hawkcd.core.session.ISessionManager;
 import io.hawkcd.core.session.SessionFactory;
 import io.hawkcd.model.Entity;
+import io.hawkcd.model.User;
 import io.hawkcd.model.dto.WsContractDto;
 import io.hawkcd.model.enums.PermissionType;
 import io.hawkcd.ws.WSSocket;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class MessageDispatcher {
 
     public static void dispatchIncomingMessage(Message message) {
+        MessageCoalescer.getInstance().dispatch(message);
+    }
+
+    /**
+     * Sends the message to the sessions of this node or publishes it to all nodes, without coalescing
+     *
+     * @param message
+     */
+    static void publish(Message message) {
         if (Config.getConfiguration().getIsSingleNode()) {
             WsContractDto contractDto = null;
             //TODO: Improve flow of dispatcher to not send to all Nodes, even if isSingleNode is true
             if (message.isUserUpdate()) {
                 List<String> ids = (List<String>) message.getEnvelope();
+                UserPermissionCache.getInstance().invalidate(ids);
+                VerifiedTokenCache.getInstance().revokeUsers(ids);
                 SessionFactory.getSessionManager().updateSessionLoggedUser(ids.toArray(new String[ids.size()]));
             } else {
                 contractDto = MessageConverter.convert(message);
@@ -40,18 +57,37 @@ public class MessageDispatcher {
             sessionManager.send(session, contract);
         } else if (message.isUserUpdate()) { // when is message to update the logged users of sessions
             List<String> ids = (List<String>) message.getEnvelope();
+            UserPermissionCache.getInstance().invalidate(ids);
+            VerifiedTokenCache.getInstance().revokeUsers(ids);
             sessionManager.updateSessionLoggedUser(ids.toArray(new String[ids.size()]));
         } else { // when is single message meant to be broadcast
             Map<String, PermissionType> permissionTypeByUser = message.getPermissionTypeByUser();
             WsContractDto contract = MessageConverter.convert(message);
 
-            for (Map.Entry<String, PermissionType> entry : permissionTypeByUser.entrySet()) {
-                WSSocket session = sessionManager.getSessionByUserId(entry.getKey());
-                if (session != null) {
-                    ((Entity) contract.getResult()).setPermissionType(entry.getValue());
-                    sessionManager.send(session, contract);
+            // Recipients differ only by permission type, so the contract is serialized once per permission type
+            Map<PermissionType, List<WSSocket>> sessionsByPermissionType = new HashMap<>();
+            Collection<WSSocket> subscribedSessions = sessionManager.getSubscribedSessions(message.getEnvelope());
+            if (subscribedSessions == null) {
+                for (Map.Entry<String, PermissionType> entry : permissionTypeByUser.entrySet()) {
+                    WSSocket session = sessionManager.getSessionByUserId(entry.getKey());
+                    if (session != null) {
+                        sessionsByPermissionType.computeIfAbsent(entry.getValue(), permissionType -> new ArrayList<>()).add(session);
+                    }
+                }
+            } else {
+                // Only the sessions viewing the entity are checked against the permissions
+                for (WSSocket session : subscribedSessions) {
+                    User user = session.getLoggedUser();
+                    if (user != null && permissionTypeByUser.containsKey(user.getId())) {
+                        sessionsByPermissionType.computeIfAbsent(permissionTypeByUser.get(user.getId()), permissionType -> new ArrayList<>()).add(session);
+                    }
                 }
             }
+
+            for (Map.Entry<PermissionType, List<WSSocket>> entry : sessionsByPermissionType.entrySet()) {
+                ((Entity) contract.getResult()).setPermissionType(entry.getKey());
+                sessionManager.send(entry.getValue(), contract);
+            }
         }
     }
 }
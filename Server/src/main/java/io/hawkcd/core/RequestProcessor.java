@@ -49,6 +49,7 @@ public class RequestProcessor {
      * and the request is broadcasted to all subscribers
      *
      * WF:
+     * Reject commands missing from the command table
      * Get service to be called, get arguments
      * Authorize current User
      * 1. Check if the user has rights to call the method from the service
@@ -61,6 +62,21 @@ public class RequestProcessor {
     public void processRequest(WsContractDto contract, User currentUser)
             throws ClassNotFoundException, IllegalAccessException, InstantiationException, NoSuchMethodException {
 
+        if (CommandTable.getInstance().find(contract) == null) {
+            Message message = new Message(
+                    contract.getClassName(),
+                    contract.getPackageName(),
+                    contract.getMethodName(),
+                    contract.getResult(),
+                    NotificationType.ERROR,
+                    "Unknown command",
+                    currentUser,
+                    true
+            );
+            Publisher.getInstance().publish("global", message);
+            return;
+        }
+
         List<Envelope> methodArgs = contract.getArgs();
         boolean isAuthorized = AuthorizationFactory.getAuthorizationManager().isAuthorized(currentUser, contract, methodArgs);
 
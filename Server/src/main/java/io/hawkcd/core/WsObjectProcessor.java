@@ -27,15 +27,18 @@ import io.hawkcd.model.MaterialDefinition;
 import io.hawkcd.model.TaskDefinition;
 import io.hawkcd.model.dto.WsContractDto;
 import io.hawkcd.ws.Command;
+import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /*
-*Dispatche calls to lower level system components via reflection
+*Dispatche calls to lower level system components through the command table
 */
 
 public class WsObjectProcessor {
+    private static final Logger LOGGER = Logger.getLogger(WsObjectProcessor.class);
+
     private Gson jsonConverter;
 
     public WsObjectProcessor() {
@@ -46,22 +49,19 @@ public class WsObjectProcessor {
                 .create();
     }
 
-    public Object call(WsContractDto contract) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
-        String fullPackageName = String.format("%s.%s", contract.getPackageName(), contract.getClassName());
-        Object service = Class.forName(fullPackageName).newInstance();
-        List<Object> methodArgs = new ArrayList<>();
-        int contractArgsLength = contract.getArgs().size();
-        for (int i = 0; i < contractArgsLength; i++) {
-            if (contract.getArgs().get(i) != null) {
-                if(contract.getArgs().get(i).getObject() != null){
-                    Object object = contract.getArgs().get(i).getObject();
-                    methodArgs.add(object);
-                }
-            }
+    public Object call(WsContractDto contract) {
+        CommandHandle command = CommandTable.getInstance().find(contract);
+        if (command == null) {
+            return null;
         }
 
-        Command command = new Command(service, contract.getMethodName(), methodArgs);
-        return command.execute();
+        try {
+            return command.invoke(CommandTable.getArguments(contract));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+
+        return null;
     }
 
     public Object call(String serviceToBeCalled, String methodName, String id) {
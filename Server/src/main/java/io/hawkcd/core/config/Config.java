@@ -173,6 +173,12 @@ public class Config {
             errorMessage.append(String.format(ConfigurationConstants.WORKER_POLL_INTERVAL_ERROR, ConfigurationConstants.PROPERTY_TRACKER_POLL_INTERVAL, ConfigurationConstants.MIN_WORKER_POLL_INTERVAL, ConfigurationConstants.MAX_WORKER_POLL_INTERVAL));
         }
 
+        // Broadcast settings, a missing window falls back to the default and 0 disables coalescing
+        Integer broadcastCoalescingWindow = configuration.getBroadcastCoalescingWindow();
+        if (broadcastCoalescingWindow != null && (broadcastCoalescingWindow < 0 || broadcastCoalescingWindow > ConfigurationConstants.MAX_BROADCAST_COALESCING_WINDOW)) {
+            errorMessage.append(String.format(ConfigurationConstants.BROADCAST_COALESCING_WINDOW_ERROR, ConfigurationConstants.PROPERTY_BROADCAST_COALESCING_WINDOW, ConfigurationConstants.MAX_BROADCAST_COALESCING_WINDOW));
+        }
+
         return errorMessage.toString();
     }
 }
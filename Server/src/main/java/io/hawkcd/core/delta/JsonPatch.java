@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.delta;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+
+/**
+ * Computes RFC 6902 patches between two JSON trees. Objects are compared member by member and arrays index by
+ * index, so changing one job of a pipeline produces a handful of "replace" operations instead of the whole run.
+ * Only "add", "remove" and "replace" operations are produced; array tails are removed from the last index down.
+ * Long strings that keep their beginning, like the report of a running job, get the "append" extension instead:
+ * the value holds only the text after "offset", the length of the prefix kept from the previous string.
+ */
+public final class JsonPatch {
+    private static final String OPERATION = "op";
+    private static final String PATH = "path";
+    private static final String VALUE = "value";
+    private static final String OFFSET = "offset";
+    private static final int MIN_APPEND_PREFIX = 64;
+
+    private JsonPatch() {
+    }
+
+    public static JsonArray diff(JsonElement source, JsonElement target) {
+        JsonArray operations = new JsonArray();
+        diff(operations, "", source, target);
+
+        return operations;
+    }
+
+    private static void diff(JsonArray operations, String path, JsonElement source, JsonElement target) {
+        if (source.equals(target)) {
+            return;
+        }
+
+        if (source.isJsonObject() && target.isJsonObject()) {
+            JsonObject sourceObject = source.getAsJsonObject();
+            JsonObject targetObject = target.getAsJsonObject();
+            for (Map.Entry<String, JsonElement> member : sourceObject.entrySet()) {
+                String memberPath = path + "/" + escape(member.getKey());
+                if (!targetObject.has(member.getKey())) {
+                    operations.add(operation("remove", memberPath, null));
+                } else {
+                    diff(operations, memberPath, member.getValue(), targetObject.get(member.getKey()));
+                }
+            }
+            for (Map.Entry<String, JsonElement> member : targetObject.entrySet()) {
+                if (!sourceObject.has(member.getKey())) {
+                    operations.add(operation("add", path + "/" + escape(member.getKey()), member.getValue()));
+                }
+            }
+        } else if (source.isJsonArray() && target.isJsonArray()) {
+            JsonArray sourceArray = source.getAsJsonArray();
+            JsonArray targetArray = target.getAsJsonArray();
+            int commonLength = Math.min(sourceArray.size(), targetArray.size());
+            for (int i = 0; i < commonLength; i++) {
+                diff(operations, path + "/" + i, sourceArray.get(i), targetArray.get(i));
+            }
+            for (int i = sourceArray.size() - 1; i >= commonLength; i--) {
+                operations.add(operation("remove", path + "/" + i, null));
+            }
+            for (int i = commonLength; i < targetArray.size(); i++) {
+                operations.add(operation("add", path + "/" + i, targetArray.get(i)));
+            }
+        } else if (isString(source) && isString(target)) {
+            String sourceString = source.getAsString();
+            String targetString = target.getAsString();
+            int prefixLength = getCommonPrefixLength(sourceString, targetString);
+            if (prefixLength < MIN_APPEND_PREFIX) {
+                operations.add(operation("replace", path, target));
+            } else {
+                JsonObject operation = operation("append", path, null);
+                operation.addProperty(OFFSET, prefixLength);
+                operation.addProperty(VALUE, targetString.substring(prefixLength));
+                operations.add(operation);
+            }
+        } else {
+            operations.add(operation("replace", path, target));
+        }
+    }
+
+    private static boolean isString(JsonElement element) {
+        return element.isJsonPrimitive() && element.getAsJsonPrimitive().isString();
+    }
+
+    private static int getCommonPrefixLength(String source, String target) {
+        int length = 0;
+        int maxLength = Math.min(source.length(), target.length());
+        while ((length < maxLength) && (source.charAt(length) == target.charAt(length))) {
+            length++;
+        }
+
+        // A surrogate pair is never split between the kept prefix and the sent value
+        if ((length > 0) && Character.isHighSurrogate(source.charAt(length - 1))) {
+            length--;
+        }
+
+        return length;
+    }
+
+    private static JsonObject operation(String type, String path, JsonElement value) {
+        JsonObject operation = new JsonObject();
+        operation.addProperty(OPERATION, type);
+        operation.addProperty(PATH, path);
+        if (value != null) {
+            operation.add(VALUE, value);
+        }
+
+        return operation;
+    }
+
+    private static String escape(String key) {
+        return key.replace("~", "~0").replace("/", "~1");
+    }
+}
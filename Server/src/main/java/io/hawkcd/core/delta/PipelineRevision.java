@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.delta;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+public class PipelineRevision {
+    private String pipelineId;
+    private long version;
+    private long baseVersion;
+    private JsonObject pipeline;
+    private JsonArray patch;
+
+    public PipelineRevision(String pipelineId, long version, long baseVersion, JsonObject pipeline, JsonArray patch) {
+        this.pipelineId = pipelineId;
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.pipeline = pipeline;
+        this.patch = patch;
+    }
+
+    public String getPipelineId() {
+        return this.pipelineId;
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    public long getBaseVersion() {
+        return this.baseVersion;
+    }
+
+    public JsonObject getPipeline() {
+        return this.pipeline;
+    }
+
+    /**
+     * Returns the operations turning the base version into this one, or null for the first tracked version
+     */
+    public JsonArray getPatch() {
+        return this.patch;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.delta;
+
+import com.google.gson.JsonObject;
+import io.hawkcd.utilities.constants.ConfigurationConstants;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Numbers the states of pipeline runs broadcast to WebSocket clients and keeps the latest state of the most
+ * recently updated runs, so each update can be sent as a patch against the previous one. Versions are drawn from
+ * one counter for all runs, which keeps a run that was evicted and tracked again from reusing a version a client
+ * still remembers. Tracking the same state again returns the same revision, as each permission bucket of a
+ * broadcast tracks the update separately.
+ */
+public class PipelineVersionTracker {
+    private static PipelineVersionTracker instance;
+
+    private LinkedHashMap<String, PipelineRevision> revisions;
+    private long lastVersion;
+
+    public PipelineVersionTracker(int capacity) {
+        this.revisions = new LinkedHashMap<String, PipelineRevision>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PipelineRevision> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    public static synchronized PipelineVersionTracker getInstance() {
+        if (instance == null) {
+            instance = new PipelineVersionTracker(ConfigurationConstants.PIPELINE_DELTA_TRACKED_RUNS);
+        }
+
+        return instance;
+    }
+
+    public synchronized PipelineRevision track(String pipelineId, JsonObject pipeline) {
+        PipelineRevision current = this.revisions.get(pipelineId);
+        if ((current != null) && current.getPipeline().equals(pipeline)) {
+            return current;
+        }
+
+        this.lastVersion++;
+        PipelineRevision revision = (current == null)
+                ? new PipelineRevision(pipelineId, this.lastVersion, 0, pipeline, null)
+                : new PipelineRevision(pipelineId, this.lastVersion, current.getVersion(), pipeline, JsonPatch.diff(current.getPipeline(), pipeline));
+        this.revisions.put(pipelineId, revision);
+
+        return revision;
+    }
+
+    public synchronized int size() {
+        return this.revisions.size();
+    }
+}
@@ -18,6 +18,8 @@
 
 package io.hawkcd.core.security;
 
+import io.hawkcd.core.CommandHandle;
+import io.hawkcd.core.CommandTable;
 import io.hawkcd.core.Message;
 import io.hawkcd.core.session.SessionFactory;
 import io.hawkcd.core.subscriber.Envelope;
@@ -27,14 +29,13 @@ import io.hawkcd.model.dto.PipelineGroupDto;
 import io.hawkcd.model.dto.WsContractDto;
 import io.hawkcd.model.enums.PermissionEntity;
 import io.hawkcd.model.enums.PermissionType;
-import io.hawkcd.services.UserService;
 import org.apache.log4j.Logger;
 
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The class is responisble for authorizing User's requests
@@ -49,18 +50,23 @@ import java.util.Map;
  */
 public class AuthorizationManager implements IAuthorizationManager {
     private static final Logger LOGGER = Logger.getLogger(AuthorizationManager.class);
+    private static final Map<Class<?>, AuthorizationGrant> ENTITY_GRANTS = new ConcurrentHashMap<>();
 
-    private UserService userService;
+    private UserPermissionCache permissionCache;
 
     public AuthorizationManager() {
-        this.userService = new UserService();
+        this.permissionCache = UserPermissionCache.getInstance();
+    }
+
+    public AuthorizationManager(UserPermissionCache permissionCache) {
+        this.permissionCache = permissionCache;
     }
 
     @Override
     public boolean isAuthorized(User user, WsContractDto contract, List<Envelope> parameters)
             throws ClassNotFoundException, NoSuchMethodException {
 
-        Authorization authorizationAttributes = this.getMethodAuthorizationAttributes(contract, parameters);
+        Authorization authorizationAttributes = this.getMethodAuthorizationAttributes(contract);
         if (authorizationAttributes == null) {
             return false;
         }
@@ -74,20 +80,13 @@ public class AuthorizationManager implements IAuthorizationManager {
         return false;
     }
 
-    private Authorization getMethodAuthorizationAttributes(WsContractDto contractDto, List<Envelope> parameters)
-            throws ClassNotFoundException, NoSuchMethodException {
-
-        String fullyQualifiedName = String.format("%s.%s", contractDto.getPackageName(), contractDto.getClassName());
-        Class<?> aClass = Class.forName(fullyQualifiedName);
-        Class<?>[] params = new Class[parameters.size()];
-        for (int i = 0; i < params.length; i++) {
-            Class<?> aClass1 = parameters.get(i).getObject().getClass();
-            params[i] = aClass1;
+    private Authorization getMethodAuthorizationAttributes(WsContractDto contractDto) throws NoSuchMethodException {
+        CommandHandle command = CommandTable.getInstance().find(contractDto);
+        if (command == null) {
+            throw new NoSuchMethodException(contractDto.getPackageName() + "." + contractDto.getClassName() + "." + contractDto.getMethodName());
         }
-        Method method = aClass.getMethod(contractDto.getMethodName(), params);
-        Authorization annotation = method.getAnnotation(Authorization.class);
 
-        return annotation;
+        return command.getAuthorization();
     }
 
     /**
@@ -105,23 +104,23 @@ public class AuthorizationManager implements IAuthorizationManager {
         message.setPermissionTypeByUser(userMap);
 
         Entity entity = (Entity) message.getEnvelope();
+        if (entity == null) {
+            return message;
+        }
+
+        AuthorizationGrant entityGrant = this.getEntityGrant(entity);
 
         List<SessionDetails> allActiveSessions = SessionFactory.getSessionManager().getAllActiveSessions();
 
         for (SessionDetails sessionDetail : allActiveSessions) {
-            User user = (User) userService.getByEmail(sessionDetail.getUserEmail()).getEntity();
-
-            List<AuthorizationGrant> userGrant = user.getPermissions();
-
-            if(entity != null){
-                Authorization authorization = entity.getClass().getAnnotation(Authorization.class);
-                AuthorizationGrant entityGrant = new AuthorizationGrant(authorization);
-
-                PermissionType permissionType = this.determinePermissionTypeForUser(userGrant, entityGrant, entity.getId());
-
-                userMap.put(user.getId(), permissionType);
+            PermissionIndex permissionIndex = this.permissionCache.getPermissionIndex(sessionDetail.getUserId());
+            if (permissionIndex == null) {
+                continue;
             }
 
+            PermissionType permissionType = permissionIndex.resolve(entityGrant, entity.getId());
+
+            userMap.put(sessionDetail.getUserId(), permissionType);
         }
         return message;
     }
@@ -130,55 +129,35 @@ public class AuthorizationManager implements IAuthorizationManager {
      * Determines the Permission Type of the user based on the entity IDs passed to it
      */
     public PermissionType determinePermissionTypeForUser(List<AuthorizationGrant> userGrants, AuthorizationGrant grantToEvaluateAgainst, String... entityIds) {
-        PermissionType result = PermissionType.NONE;
-
-        if (grantToEvaluateAgainst.getPermissionType() == PermissionType.NONE) {
-            return PermissionType.VIEWER;
-        }
-        // Checks for specific Permissions, e.g. a user has a grant for a specific entity (Pipeline/Group)
-        for (String entityId : entityIds) {
-            for (AuthorizationGrant grant : userGrants) {
-                if (grant.getPermissionEntity() == PermissionEntity.SPECIFIC_ENTITY && grant.getPermittedEntityId().equals(entityId)) {
-                    if (grant.isGreaterThan(grantToEvaluateAgainst)) {
-                        return grant.getPermissionType();
-                    }
-                }
-            }
-        }
-
-        // Checks for generic Permissions, e.g. a user is assigned a permission for ALL Pipelines/Groups or Server
-        for (AuthorizationGrant grant : userGrants) {
-            if (grant.getPermissionEntity() != PermissionEntity.SPECIFIC_ENTITY) {
-                if (grant.isGreaterThan(grantToEvaluateAgainst)) {
-                    return grant.getPermissionType();
-                }
-            }
-        }
-
-        return result;
+        return new PermissionIndex(userGrants).resolve(grantToEvaluateAgainst, entityIds);
     }
 
     /**
      * Checks the object for minimum permissions required for the user to receive the object
      */
     public PermissionType determinePermissionTypeForEntity(List<AuthorizationGrant> userGrants, Object object, List<Envelope> parameters) {
-        PermissionType result;
-        Authorization authorization = object.getClass().getAnnotation(Authorization.class);
-        AuthorizationGrant grant = new AuthorizationGrant(authorization);
-
-        String[] entityIds = this.extractEntityIds(parameters);
-        result = this.determinePermissionTypeForUser(userGrants, grant, entityIds);
-        return result;
+        return this.determinePermissionTypeForEntity(new PermissionIndex(userGrants), object, parameters);
     }
 
     public PermissionType determinePermissionTypeForEntity(List<AuthorizationGrant> userGrants, Object object) {
-        PermissionType result;
-        Authorization authorization = object.getClass().getAnnotation(Authorization.class);
-        AuthorizationGrant grant = new AuthorizationGrant(authorization);
+        return this.determinePermissionTypeForEntity(new PermissionIndex(userGrants), object);
+    }
 
+    private PermissionType determinePermissionTypeForEntity(PermissionIndex permissionIndex, Object object, List<Envelope> parameters) {
+        String[] entityIds = this.extractEntityIds(parameters);
+        return permissionIndex.resolve(this.getEntityGrant(object), entityIds);
+    }
+
+    private PermissionType determinePermissionTypeForEntity(PermissionIndex permissionIndex, Object object) {
         String[] entityIds = this.extractEntityIds(object);
-        result = this.determinePermissionTypeForUser(userGrants, grant, entityIds);
-        return result;
+        return permissionIndex.resolve(this.getEntityGrant(object), entityIds);
+    }
+
+    /**
+     * Returns the grant required to receive objects of the class, read once per class
+     */
+    private AuthorizationGrant getEntityGrant(Object object) {
+        return ENTITY_GRANTS.computeIfAbsent(object.getClass(), aClass -> new AuthorizationGrant(aClass.getAnnotation(Authorization.class)));
     }
 
     /**
@@ -233,9 +212,13 @@ public class AuthorizationManager implements IAuthorizationManager {
         Map<String, PermissionType> permissionTypeByUser = new HashMap<>();
 
         for (SessionDetails activeSession : activeSessions) {
-            User userToSendTo = (User) userService.getById(activeSession.getUserId()).getEntity();
-            PermissionType permissionType = this.determinePermissionTypeForEntity(userToSendTo.getPermissions(), message.getEnvelope(), methodArgs);
-            permissionTypeByUser.put(userToSendTo.getId(), permissionType);
+            PermissionIndex permissionIndex = this.permissionCache.getPermissionIndex(activeSession.getUserId());
+            if (permissionIndex == null) {
+                continue;
+            }
+
+            PermissionType permissionType = this.determinePermissionTypeForEntity(permissionIndex, message.getEnvelope(), methodArgs);
+            permissionTypeByUser.put(activeSession.getUserId(), permissionType);
         }
         return permissionTypeByUser;
     }
@@ -247,10 +230,14 @@ public class AuthorizationManager implements IAuthorizationManager {
      * Pipeline that belongs to it, it will be added to the filtered collection.
      */
     public List<Entity> attachPermissionTypeToList(List<Entity> entities, List<AuthorizationGrant> userGrants) {
+        return this.attachPermissionTypeToList(entities, new PermissionIndex(userGrants));
+    }
+
+    private List<Entity> attachPermissionTypeToList(List<Entity> entities, PermissionIndex permissionIndex) {
         List<Entity> filteredResult = new ArrayList<>();
 
         for (Entity entity : entities) {
-            PermissionType permissionType = this.determinePermissionTypeForEntity(userGrants, entity);
+            PermissionType permissionType = this.determinePermissionTypeForEntity(permissionIndex, entity);
 
             if (permissionType != PermissionType.NONE) {
                 entity.setPermissionType(permissionType);
@@ -265,11 +252,15 @@ public class AuthorizationManager implements IAuthorizationManager {
     }
 
     public List<PipelineGroupDto> attachPermissionsToPipelineDtos(List<PipelineGroupDto> pipelineGroupDtos, User currentUser) {
+        return this.attachPermissionsToPipelineDtos(pipelineGroupDtos, new PermissionIndex(currentUser.getPermissions()));
+    }
+
+    private List<PipelineGroupDto> attachPermissionsToPipelineDtos(List<PipelineGroupDto> pipelineGroupDtos, PermissionIndex permissionIndex) {
         for (PipelineGroupDto pipelineGroupDto : pipelineGroupDtos) {
             List<PipelineDefinitionDto> pipelineDefinitionDtos = pipelineGroupDto.getPipelines();
             List<PipelineDefinitionDto> filteredPipelineDefinitionDtos = new ArrayList<>();
             for (PipelineDefinitionDto pipelineDefinitionDto : pipelineDefinitionDtos) {
-                PermissionType permissionType = this.determinePermissionTypeForEntity(currentUser.getPermissions(), pipelineDefinitionDto);
+                PermissionType permissionType = this.determinePermissionTypeForEntity(permissionIndex, pipelineDefinitionDto);
 
                 if (permissionType != PermissionType.NONE) {
                     pipelineDefinitionDto.setPermissionType(permissionType);
@@ -285,11 +276,13 @@ public class AuthorizationManager implements IAuthorizationManager {
     public List<Entity> filterResponse(List<Entity> entities, User currentUser) {
         List<Entity> entitiesWithPermissions = new ArrayList<>();
 
+        // The grants are compiled once, so filtering is linear in the number of entities
+        PermissionIndex permissionIndex = new PermissionIndex(currentUser.getPermissions());
         if (entities != null && entities.size() > 0 && (entities.get(0) instanceof PipelineGroupDto)) {
-            entitiesWithPermissions = (List<Entity>)(List<?>)this.attachPermissionsToPipelineDtos((List<PipelineGroupDto>)(List<?>) entities, currentUser);
-            entitiesWithPermissions = this.attachPermissionTypeToList(entitiesWithPermissions, currentUser.getPermissions());
+            entitiesWithPermissions = (List<Entity>)(List<?>)this.attachPermissionsToPipelineDtos((List<PipelineGroupDto>)(List<?>) entities, permissionIndex);
+            entitiesWithPermissions = this.attachPermissionTypeToList(entitiesWithPermissions, permissionIndex);
         } else{
-            entitiesWithPermissions = this.attachPermissionTypeToList(entities, currentUser.getPermissions());
+            entitiesWithPermissions = this.attachPermissionTypeToList(entities, permissionIndex);
         }
 
 
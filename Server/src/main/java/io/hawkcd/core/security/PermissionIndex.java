@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.security;
+
+import io.hawkcd.model.enums.PermissionEntity;
+import io.hawkcd.model.enums.PermissionScope;
+import io.hawkcd.model.enums.PermissionType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The grants of a user compiled for lookups. For every scope and permission type an entity can require, the index
+ * holds the permission granted for all entities (server, all pipeline groups, all pipelines) and, per pipeline
+ * group or pipeline definition id, the permission granted for that entity. As when the grants are walked in
+ * order, a grant for the specific entity wins over a generic one and the first matching grant wins among them.
+ */
+public class PermissionIndex {
+    private static final int TYPE_COUNT = PermissionType.values().length;
+    private static final int SLOT_COUNT = PermissionScope.values().length * TYPE_COUNT;
+
+    private PermissionType[] genericTypes;
+    private Map<String, PermissionType[]> specificTypesByEntityId;
+
+    public PermissionIndex(List<AuthorizationGrant> grants) {
+        this.genericTypes = new PermissionType[SLOT_COUNT];
+        this.specificTypesByEntityId = new HashMap<>();
+
+        for (AuthorizationGrant grant : grants) {
+            if (grant.getPermissionScope() == null || grant.getPermissionType() == null) {
+                continue;
+            }
+
+            PermissionType[] types;
+            if (grant.getPermissionEntity() == PermissionEntity.SPECIFIC_ENTITY) {
+                if (grant.getPermittedEntityId() == null) {
+                    continue;
+                }
+                types = this.specificTypesByEntityId.computeIfAbsent(grant.getPermittedEntityId(), id -> new PermissionType[SLOT_COUNT]);
+            } else {
+                types = this.genericTypes;
+            }
+
+            for (PermissionScope scope : PermissionScope.values()) {
+                for (PermissionType type : PermissionType.values()) {
+                    int slot = getSlot(scope, type);
+                    if (types[slot] == null && grant.isGreaterThan(new AuthorizationGrant(scope, type))) {
+                        types[slot] = grant.getPermissionType();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the permission of the user for the entities with the given ids, which require the given grant
+     *
+     * @param requiredGrant
+     * @param entityIds
+     */
+    public PermissionType resolve(AuthorizationGrant requiredGrant, String... entityIds) {
+        if (requiredGrant.getPermissionType() == PermissionType.NONE) {
+            return PermissionType.VIEWER;
+        }
+
+        int slot = getSlot(requiredGrant.getPermissionScope(), requiredGrant.getPermissionType());
+        for (String entityId : entityIds) {
+            PermissionType[] types = this.specificTypesByEntityId.get(entityId);
+            if (types != null && types[slot] != null) {
+                return types[slot];
+            }
+        }
+
+        PermissionType genericType = this.genericTypes[slot];
+        return (genericType == null) ? PermissionType.NONE : genericType;
+    }
+
+    private static int getSlot(PermissionScope scope, PermissionType type) {
+        return scope.ordinal() * TYPE_COUNT + type.ordinal();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.security;
+
+import io.hawkcd.model.User;
+import io.hawkcd.services.ServiceRegistry;
+import io.hawkcd.services.UserService;
+import io.hawkcd.services.interfaces.IUserService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a compiled snapshot of the permissions of every user that received an update, so authorizing a broadcast is a map
+ * lookup instead of a user repository read per active session. Snapshots are dropped when a user update message
+ * reaches this node, which happens on every node when users or their groups change.
+ */
+public class UserPermissionCache {
+    private static UserPermissionCache instance;
+
+    private IUserService userService;
+    private Map<String, PermissionIndex> permissionsByUserId;
+    private AtomicLong generation;
+
+    public UserPermissionCache(IUserService userService) {
+        this.userService = userService;
+        this.permissionsByUserId = new ConcurrentHashMap<>();
+        this.generation = new AtomicLong();
+    }
+
+    public static synchronized UserPermissionCache getInstance() {
+        if (instance == null) {
+            instance = new UserPermissionCache(ServiceRegistry.get(UserService.class));
+        }
+
+        return instance;
+    }
+
+    /**
+     * Returns the compiled permissions of the user, or null when the user does not exist
+     *
+     * @param userId
+     */
+    public PermissionIndex getPermissionIndex(String userId) {
+        PermissionIndex permissions = this.permissionsByUserId.get(userId);
+        if (permissions != null) {
+            return permissions;
+        }
+
+        // A snapshot loaded while the user was being invalidated may already be stale, so it is returned but not kept
+        long loadedGeneration = this.generation.get();
+        User user = (User) this.userService.getById(userId).getEntity();
+        if (user == null) {
+            return null;
+        }
+
+        permissions = new PermissionIndex((user.getPermissions() == null) ? Collections.emptyList() : user.getPermissions());
+        this.permissionsByUserId.put(userId, permissions);
+        if (this.generation.get() != loadedGeneration) {
+            this.permissionsByUserId.remove(userId, permissions);
+        }
+
+        return permissions;
+    }
+
+    public void invalidate(List<String> userIds) {
+        this.generation.incrementAndGet();
+        for (String userId : userIds) {
+            this.permissionsByUserId.remove(userId);
+        }
+    }
+
+    public int size() {
+        return this.permissionsByUserId.size();
+    }
+}
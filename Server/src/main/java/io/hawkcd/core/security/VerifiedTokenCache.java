@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.security;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import io.hawkcd.model.User;
+import io.hawkcd.model.payload.TokenInfo;
+import io.hawkcd.utilities.constants.ConfigurationConstants;
+import io.hawkcd.utilities.deserializers.TokenAdapter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the tokens whose signature was verified, so a client polling the API is not verified again on every
+ * request. Tokens are kept by hash, the least recently used are dropped first, and no token outlives its expiration.
+ * Every hit returns a new TokenInfo, as callers are free to change the user they get.
+ */
+public class VerifiedTokenCache {
+    private static VerifiedTokenCache instance;
+
+    private int capacity;
+    private long timeToLive;
+    private Clock clock;
+    private Gson jsonConverter;
+    private LinkedHashMap<String, VerifiedToken> tokens;
+
+    public VerifiedTokenCache(int capacity, long timeToLive, Clock clock) {
+        this.capacity = capacity;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        this.jsonConverter = new Gson();
+        this.tokens = new LinkedHashMap<String, VerifiedToken>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return this.size() > VerifiedTokenCache.this.capacity;
+            }
+        };
+    }
+
+    public static synchronized VerifiedTokenCache getInstance() {
+        if (instance == null) {
+            instance = new VerifiedTokenCache(ConfigurationConstants.VERIFIED_TOKEN_CACHE_CAPACITY, ConfigurationConstants.VERIFIED_TOKEN_CACHE_SECONDS * 1000L, Clock.systemUTC());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Returns the details of a verified token, or null when the token is not cached or its time is over
+     *
+     * @param token
+     */
+    public synchronized TokenInfo get(String token) {
+        String key = hash(token);
+        VerifiedToken verifiedToken = this.tokens.get(key);
+        if (verifiedToken == null) {
+            return null;
+        }
+
+        if (verifiedToken.validUntil <= this.clock.millis()) {
+            this.tokens.remove(key);
+            return null;
+        }
+
+        TokenInfo tokenInfo = new TokenInfo();
+        tokenInfo.setUser(this.jsonConverter.fromJson(verifiedToken.user, User.class));
+        tokenInfo.setExpires(TokenAdapter.getDateTimeFromTimestamp(verifiedToken.expiration));
+        return tokenInfo;
+    }
+
+    /**
+     * Keeps a verified token until the time to live passes or the token expires, whichever comes first
+     *
+     * @param token
+     * @param user       the user of the token as JSON
+     * @param userId
+     * @param expiration the expiration of the token in seconds since the epoch
+     */
+    public synchronized void put(String token, String user, String userId, long expiration) {
+        long validUntil = Math.min(this.clock.millis() + this.timeToLive, expiration * 1000);
+        if (validUntil <= this.clock.millis()) {
+            return;
+        }
+
+        this.tokens.put(hash(token), new VerifiedToken(user, userId, expiration, validUntil));
+    }
+
+    /**
+     * Drops a token, so it is verified again when used next
+     *
+     * @param token
+     */
+    public synchronized void revoke(String token) {
+        if (token != null) {
+            this.tokens.remove(hash(token));
+        }
+    }
+
+    /**
+     * Drops the tokens of the users, so they are verified again when used next
+     *
+     * @param userIds
+     */
+    public synchronized void revokeUsers(Collection<String> userIds) {
+        Iterator<VerifiedToken> iterator = this.tokens.values().iterator();
+        while (iterator.hasNext()) {
+            if (userIds.contains(iterator.next().userId)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return this.tokens.size();
+    }
+
+    private static String hash(String token) {
+        return Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+    }
+
+    private static class VerifiedToken {
+        private final String user;
+        private final String userId;
+        private final long expiration;
+        private final long validUntil;
+
+        VerifiedToken(String user, String userId, long expiration, long validUntil) {
+            this.user = user;
+            this.userId = userId;
+            this.expiration = expiration;
+            this.validUntil = validUntil;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import io.hawkcd.model.SessionDetails;
 import io.hawkcd.model.dto.WsContractDto;
 import io.hawkcd.ws.WSSocket;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -52,4 +53,8 @@ public interface ISessionManager {
     void updateSessionLoggedUser(String... userIds);
 
     void send(WSSocket session, WsContractDto contractDto);
+
+    void send(Collection<WSSocket> sessions, WsContractDto contractDto);
+
+    Collection<WSSocket> getSubscribedSessions(Object entity);
 }
@@ -18,16 +18,17 @@
 
 package io.hawkcd.core.session;
 
+import io.hawkcd.model.User;
 import io.hawkcd.ws.WSSocket;
 
-import java.util.Set;
+import java.util.Collection;
 
 /**
  * Created by rado on 11.11.16.
  */
 public interface ISessionsPool  {
 
-    Set<WSSocket> getSessions();
+    Collection<WSSocket> getSessions();
 
     WSSocket getSessionByID(String id);
 
@@ -40,4 +41,6 @@ public interface ISessionsPool  {
     WSSocket getSessionByUserEmail(String email);
 
     WSSocket getSessionByUserId(String userId);
+
+    void updateLoggedUser(WSSocket session, User user);
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.session;
+
+import io.hawkcd.ws.WSSocket;
+
+/**
+ * A message waiting in the outbound queue of a session. Messages with the same key replace each other while queued,
+ * so only the latest state of an entity is written to a session that falls behind.
+ */
+public class OutboundMessage {
+    private String key;
+    private String text;
+
+    public OutboundMessage(String key, String text) {
+        this.key = key;
+        this.text = text;
+    }
+
+    /**
+     * Returns the coalescing key of the message, or null when the message must never be replaced
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Returns the text written to the session, or null when the session already holds what the message carries.
+     * Called right before the write, in the order of the queue.
+     *
+     * @param session
+     */
+    public String render(WSSocket session) {
+        return this.text;
+    }
+
+    public void writeFailed(WSSocket session) {
+    }
+}
@@ -20,21 +20,28 @@ package io.hawkcd.core.session;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import io.hawkcd.core.delta.PipelineRevision;
+import io.hawkcd.core.delta.PipelineVersionTracker;
+import io.hawkcd.model.Entity;
 import io.hawkcd.model.MaterialDefinition;
+import io.hawkcd.model.Pipeline;
 import io.hawkcd.model.SessionDetails;
 import io.hawkcd.model.TaskDefinition;
 import io.hawkcd.model.User;
+import io.hawkcd.model.dto.PipelineDeltaDto;
 import io.hawkcd.model.dto.WsContractDto;
 import io.hawkcd.model.enums.NotificationType;
+import io.hawkcd.model.enums.PermissionType;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.UserService;
 import io.hawkcd.utilities.deserializers.MaterialDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.TaskDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.WsContractDeserializer;
 import io.hawkcd.ws.WSSocket;
-import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -46,16 +53,28 @@ import java.util.stream.Collectors;
 
 public class SessionManager implements ISessionManager {
     private static final org.apache.log4j.Logger LOGGER = org.apache.log4j.Logger.getLogger(SessionManager.class.getClass());
+    private static final String PIPELINE_SERVICE = "PipelineService";
+    private static final String UPDATE_METHOD = "update";
+    private static final String PATCH_METHOD = "patch";
+    private static final String PERMISSION_TYPE = "permissionType";
 
     private WsSessionPool sessionPool;
     private SessionService sessionService;
     private UserService userService;
     private Gson jsonConverter;
+    private PipelineVersionTracker versionTracker;
+    private TopicRegistry topicRegistry;
 
     public SessionManager() {
-        this.sessionPool = WsSessionPool.getInstance();
-        this.sessionService = new SessionService();
-        this.userService = new UserService();
+        this(WsSessionPool.getInstance(), TopicRegistry.getInstance(), PipelineVersionTracker.getInstance(), ServiceRegistry.get(SessionService.class), ServiceRegistry.get(UserService.class));
+    }
+
+    public SessionManager(WsSessionPool sessionPool, TopicRegistry topicRegistry, PipelineVersionTracker versionTracker, SessionService sessionService, UserService userService) {
+        this.sessionPool = sessionPool;
+        this.topicRegistry = topicRegistry;
+        this.versionTracker = versionTracker;
+        this.sessionService = sessionService;
+        this.userService = userService;
         this.jsonConverter = new GsonBuilder()
                 .registerTypeAdapter(WsContractDto.class, new WsContractDeserializer())
                 .registerTypeAdapter(TaskDefinition.class, new TaskDefinitionAdapter())
@@ -66,11 +85,7 @@ public class SessionManager implements ISessionManager {
     @Override
     public void closeSessionById(String sessionId) {
 
-        WSSocket session = this.sessionPool.getSessions()
-                .stream()
-                .filter(s -> s.getId().equals(sessionId))
-                .findFirst()
-                .orElse(null);
+        WSSocket session = this.sessionPool.getSessionByID(sessionId);
 
         this.sessionPool.removeSession(session);
     }
@@ -78,21 +93,15 @@ public class SessionManager implements ISessionManager {
     @Override
     public void closeSessionByUserEmail(String email) {
 
-        WSSocket session = this.sessionPool.getSessions()
-                .stream()
-                .filter(s -> s.getLoggedUser().getEmail().equals(email))
-                .findFirst()
-                .orElse(null);
+        WSSocket session = this.sessionPool.getSessionByUserEmail(email);
 
         this.sessionPool.removeSession(session);
     }
 
     @Override
     public void sendToAllSessions(WsContractDto contract) {
-        Set<WSSocket> sessions = this.sessionPool.getSessions();
-        for (WSSocket s : sessions) {
-            this.send(s, contract);
-        }
+        Collection<WSSocket> sessions = this.getSubscribedSessions(contract.getResult());
+        this.send((sessions == null) ? this.sessionPool.getSessions() : sessions, contract);
     }
 
     /**
@@ -140,11 +149,7 @@ public class SessionManager implements ISessionManager {
     @Override
     public SessionDetails getSessionDetailsBySessionId(String sessionId) {
         SessionDetails result = null;
-        WSSocket session = this.sessionPool.getSessions()
-                .stream()
-                .filter(s -> s.getId() == sessionId)
-                .findFirst()
-                .orElse(null);
+        WSSocket session = this.sessionPool.getSessionByID(sessionId);
 
         if (session != null) {
             result = session.getSessionDetails();
@@ -169,14 +174,11 @@ public class SessionManager implements ISessionManager {
 
     @Override
     public WSSocket getSessionByUserId(String id) {
-        return this.sessionPool.getSessions()
-                .stream().filter(s -> s.getLoggedUser().getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return this.sessionPool.getSessionByUserId(id);
     }
 
     /**
-     * Receives a WSSocket object and WsContractDto to write it to the stream
+     * Receives a WSSocket object and WsContractDto to queue it for writing to the stream
      *
      * @param session
      * @param contract
@@ -184,13 +186,106 @@ public class SessionManager implements ISessionManager {
     public void send(WSSocket session, WsContractDto contract) {
 
         if (session != null && session.isConnected()) {
-            RemoteEndpoint remoteEndpoint = session.getRemote();
             String jsonResult = this.jsonConverter.toJson(contract);
 
-            remoteEndpoint.sendStringByFuture(jsonResult);
+            session.getOutboundQueue().offer(new OutboundMessage(this.getCoalescingKey(contract), jsonResult));
+        }
+    }
+
+    /**
+     * Returns the sessions subscribed to the topics of the entity, or null when its updates go to every session
+     *
+     * @param entity
+     */
+    @Override
+    public Collection<WSSocket> getSubscribedSessions(Object entity) {
+        List<String> topics = TopicRegistry.getTopics(entity);
+
+        return (topics == null) ? null : this.topicRegistry.getSubscribers(topics);
+    }
+
+    /**
+     * Serializes the contract once and queues the same JSON text on every connected session
+     *
+     * @param sessions
+     * @param contract
+     */
+    @Override
+    public void send(Collection<WSSocket> sessions, WsContractDto contract) {
+
+        if (this.isPipelineUpdate(contract)) {
+            this.sendPipelineDelta(sessions, contract);
+            return;
+        }
+
+        OutboundMessage message = null;
+        for (WSSocket session : sessions) {
+            if (session != null && session.isConnected()) {
+                if (message == null) {
+                    message = new OutboundMessage(this.getCoalescingKey(contract), this.jsonConverter.toJson(contract));
+                }
+
+                session.getOutboundQueue().offer(message);
+            }
+        }
+    }
+
+    /**
+     * Sends a pipeline run update as a patch to the sessions holding the previous version of the run and as a
+     * full snapshot to the sessions that were never sent it or missed a version. Sessions already holding the version
+     * are sent nothing, as most updates of a running pipeline change nothing. The choice is made when the message
+     * leaves the queue of the session, as a queued update replaced by a newer one is never sent.
+     *
+     * @param sessions
+     * @param contract
+     */
+    private void sendPipelineDelta(Collection<WSSocket> sessions, WsContractDto contract) {
+
+        Pipeline pipeline = (Pipeline) contract.getResult();
+        JsonObject pipelineTree = this.jsonConverter.toJsonTree(pipeline).getAsJsonObject();
+        pipelineTree.remove(PERMISSION_TYPE);
+        PipelineRevision revision = this.versionTracker.track(pipeline.getId(), pipelineTree);
+
+        PipelineDeltaMessage message = new PipelineDeltaMessage(contract, pipeline.getPermissionType(), revision);
+        for (WSSocket session : sessions) {
+            if (session != null && session.isConnected()) {
+                session.getOutboundQueue().offer(message);
+            }
         }
     }
 
+    /**
+     * Returns the key under which a queued update replaces the previous update of the same entity, or null when
+     * the contract is not an entity update
+     */
+    private String getCoalescingKey(WsContractDto contract) {
+        if (UPDATE_METHOD.equals(contract.getMethodName())
+                && contract.getNotificationType() == NotificationType.SUCCESS
+                && contract.getResult() instanceof Entity) {
+            return contract.getClassName() + "." + contract.getMethodName() + ":" + ((Entity) contract.getResult()).getId();
+        }
+
+        return null;
+    }
+
+    private boolean isPipelineUpdate(WsContractDto contract) {
+        return PIPELINE_SERVICE.equals(contract.getClassName())
+                && UPDATE_METHOD.equals(contract.getMethodName())
+                && contract.getNotificationType() == NotificationType.SUCCESS
+                && contract.getResult() instanceof Pipeline;
+    }
+
+    private String toDeltaJson(WsContractDto contract, PipelineDeltaDto delta) {
+        WsContractDto deltaContract = new WsContractDto(contract.getClassName()
+                , contract.getPackageName()
+                , PATCH_METHOD
+                , delta
+                , contract.getNotificationType()
+                , contract.getErrorMessage());
+
+        return this.jsonConverter.toJson(deltaContract);
+    }
+
     public void updateSessionLoggedUser(String... userIds) {
         for (String userId : userIds) {
             WSSocket session = this.sessionPool.getSessionByUserId(userId);
@@ -205,10 +300,72 @@ public class SessionManager implements ISessionManager {
                 continue;
             }
 
-            session.setLoggedUser(user);
+            this.sessionPool.updateLoggedUser(session, user);
             WsContractDto wsContractDto = session.extractUserDetails(user);
 
             this.send(session, wsContractDto);
         }
     }
+
+    /**
+     * A pipeline run update shared by all recipients of the same permission type. The patch and the snapshot are
+     * serialized at most once each, by whichever session needs them first. A failed write forgets the version of
+     * the session, so its next update is a snapshot.
+     */
+    private class PipelineDeltaMessage extends OutboundMessage {
+        private WsContractDto contract;
+        private PermissionType permissionType;
+        private PipelineRevision revision;
+        private String patchJson;
+        private String snapshotJson;
+
+        PipelineDeltaMessage(WsContractDto contract, PermissionType permissionType, PipelineRevision revision) {
+            super(getCoalescingKey(contract), null);
+            this.contract = contract;
+            this.permissionType = permissionType;
+            this.revision = revision;
+        }
+
+        @Override
+        public String render(WSSocket session) {
+            String pipelineId = this.revision.getPipelineId();
+            long sessionVersion = session.getPipelineVersion(pipelineId);
+            if (sessionVersion == this.revision.getVersion()) {
+                return null;
+            }
+
+            String jsonResult;
+            if (this.revision.getPatch() != null && sessionVersion == this.revision.getBaseVersion()) {
+                jsonResult = this.getPatchJson();
+            } else {
+                jsonResult = this.getSnapshotJson();
+            }
+
+            session.setPipelineVersion(pipelineId, this.revision.getVersion());
+            return jsonResult;
+        }
+
+        @Override
+        public void writeFailed(WSSocket session) {
+            session.resetPipelineVersion(this.revision.getPipelineId());
+        }
+
+        private synchronized String getPatchJson() {
+            if (this.patchJson == null) {
+                PipelineDeltaDto delta = PipelineDeltaDto.patch(this.revision.getPipelineId(), this.revision.getVersion(), this.revision.getBaseVersion(), this.permissionType, this.revision.getPatch());
+                this.patchJson = toDeltaJson(this.contract, delta);
+            }
+
+            return this.patchJson;
+        }
+
+        private synchronized String getSnapshotJson() {
+            if (this.snapshotJson == null) {
+                PipelineDeltaDto delta = PipelineDeltaDto.snapshot(this.revision.getPipelineId(), this.revision.getVersion(), this.permissionType, this.revision.getPipeline());
+                this.snapshotJson = toDeltaJson(this.contract, delta);
+            }
+
+            return this.snapshotJson;
+        }
+    }
 }
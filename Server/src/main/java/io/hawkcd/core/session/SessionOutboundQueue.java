@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.session;
+
+import com.google.gson.Gson;
+import io.hawkcd.model.dto.WsContractDto;
+import io.hawkcd.model.enums.NotificationType;
+import io.hawkcd.ws.WSSocket;
+import org.apache.log4j.Logger;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Writes the messages of a single WebSocket session one at a time, so publishers only enqueue and never wait for
+ * the browser. A queued message is replaced in place by a newer message with the same key. When more than
+ * highWaterMark messages are waiting the queue is dropped and replaced by a resync message, which asks the client
+ * to reload its data instead of letting the backlog grow without limit.
+ */
+public class SessionOutboundQueue {
+    private static final Logger LOGGER = Logger.getLogger(SessionOutboundQueue.class);
+    private static final String RESYNC_KEY = "SubscriptionService.resync";
+
+    private WSSocket session;
+    private int highWaterMark;
+    private LinkedHashMap<String, OutboundMessage> pendingMessages;
+    private OutboundMessage resyncMessage;
+    private long sequence;
+    private boolean writing;
+    private Thread writingThread;
+    private int resyncCount;
+
+    public SessionOutboundQueue(WSSocket session, int highWaterMark) {
+        this.session = session;
+        this.highWaterMark = highWaterMark;
+        this.pendingMessages = new LinkedHashMap<>();
+        this.resyncMessage = new OutboundMessage(RESYNC_KEY, new Gson().toJson(new WsContractDto("SubscriptionService"
+                , ""
+                , "resync"
+                , null
+                , NotificationType.SUCCESS
+                , "Updates were dropped, resync required")));
+    }
+
+    public void offer(OutboundMessage message) {
+        synchronized (this) {
+            String key = (message.getKey() == null) ? "#" + this.sequence++ : message.getKey();
+            this.pendingMessages.put(key, message);
+
+            if (this.pendingMessages.size() > this.highWaterMark) {
+                LOGGER.warn("Session " + this.session.getId() + " fell " + this.pendingMessages.size() + " messages behind, resync required");
+                this.pendingMessages.clear();
+                this.pendingMessages.put(RESYNC_KEY, this.resyncMessage);
+                this.session.resetPipelineVersions();
+                this.resyncCount++;
+            }
+        }
+
+        this.writeNext();
+    }
+
+    public synchronized int size() {
+        return this.pendingMessages.size();
+    }
+
+    public synchronized int getResyncCount() {
+        return this.resyncCount;
+    }
+
+    /**
+     * Writes queued messages until one is still in flight. A write completed on the calling thread returns to the
+     * loop instead of recursing, so a fast connection does not grow the stack with the queue.
+     */
+    private void writeNext() {
+        while (true) {
+            OutboundMessage message;
+            synchronized (this) {
+                if (this.writing || this.pendingMessages.isEmpty()) {
+                    return;
+                }
+
+                if (!this.session.isConnected()) {
+                    this.pendingMessages.clear();
+                    return;
+                }
+
+                Iterator<OutboundMessage> iterator = this.pendingMessages.values().iterator();
+                message = iterator.next();
+                iterator.remove();
+                this.writing = true;
+                this.writingThread = Thread.currentThread();
+            }
+
+            try {
+                String text = message.render(this.session);
+                if (text == null) {
+                    synchronized (this) {
+                        this.writing = false;
+                    }
+
+                    continue;
+                }
+
+                this.session.getRemote().sendString(text, new WriteCallback() {
+                    @Override
+                    public void writeFailed(Throwable cause) {
+                        message.writeFailed(session);
+                        writeCompleted();
+                    }
+
+                    @Override
+                    public void writeSuccess() {
+                        writeCompleted();
+                    }
+                });
+            } catch (RuntimeException e) {
+                LOGGER.error(e);
+                message.writeFailed(this.session);
+                synchronized (this) {
+                    this.writing = false;
+                }
+            } finally {
+                synchronized (this) {
+                    if (this.writingThread == Thread.currentThread()) {
+                        this.writingThread = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeCompleted() {
+        synchronized (this) {
+            this.writing = false;
+            if (this.writingThread == Thread.currentThread()) {
+                return;
+            }
+        }
+
+        this.writeNext();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.session;
+
+import io.hawkcd.model.Agent;
+import io.hawkcd.model.Pipeline;
+import io.hawkcd.ws.WSSocket;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the topics every WebSocket session is subscribed to and the subscribers of every topic, so an update is
+ * routed to the sessions viewing it without visiting the others. A session is subscribed to all topics until it
+ * sends its first subscription, which keeps clients that do not subscribe receiving every update.
+ */
+public class TopicRegistry {
+    public static final String ALL_TOPICS = "*";
+    public static final String PIPELINES_TOPIC = "pipelines";
+    public static final String PIPELINE_DEFINITION_TOPIC = "pipeline-definition:";
+    public static final String PIPELINE_TOPIC = "pipeline:";
+    public static final String AGENTS_TOPIC = "agents";
+
+    private static TopicRegistry instance;
+
+    private ConcurrentHashMap<String, ConcurrentHashMap<String, WSSocket>> subscribersByTopic;
+    private ConcurrentHashMap<String, Set<String>> topicsBySession;
+    private Set<String> implicitSubscribers;
+
+    public TopicRegistry() {
+        this.subscribersByTopic = new ConcurrentHashMap<>();
+        this.topicsBySession = new ConcurrentHashMap<>();
+        this.implicitSubscribers = ConcurrentHashMap.newKeySet();
+    }
+
+    public static synchronized TopicRegistry getInstance() {
+        if (instance == null) {
+            instance = new TopicRegistry();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Returns the topics an update of the entity is published to, or null when it is sent to every session
+     */
+    public static List<String> getTopics(Object entity) {
+        if (entity instanceof Pipeline) {
+            Pipeline pipeline = (Pipeline) entity;
+            return Arrays.asList(PIPELINES_TOPIC, PIPELINE_DEFINITION_TOPIC + pipeline.getPipelineDefinitionId(), PIPELINE_TOPIC + pipeline.getId());
+        }
+        if (entity instanceof Agent) {
+            return Collections.singletonList(AGENTS_TOPIC);
+        }
+
+        return null;
+    }
+
+    public synchronized void register(WSSocket session) {
+        this.topicsBySession.put(session.getId(), ConcurrentHashMap.newKeySet());
+        this.implicitSubscribers.add(session.getId());
+        this.add(session, ALL_TOPICS);
+    }
+
+    public synchronized void subscribe(WSSocket session, Collection<String> topics) {
+        if (!this.topicsBySession.containsKey(session.getId())) {
+            return;
+        }
+
+        this.optIn(session);
+        for (String topic : topics) {
+            this.add(session, topic);
+        }
+    }
+
+    public synchronized void unsubscribe(WSSocket session, Collection<String> topics) {
+        if (!this.topicsBySession.containsKey(session.getId())) {
+            return;
+        }
+
+        this.optIn(session);
+        for (String topic : topics) {
+            this.removeTopic(session, topic);
+        }
+    }
+
+    public synchronized void remove(WSSocket session) {
+        Set<String> sessionTopics = this.topicsBySession.get(session.getId());
+        if (sessionTopics == null) {
+            return;
+        }
+
+        for (String topic : sessionTopics.toArray(new String[sessionTopics.size()])) {
+            this.removeTopic(session, topic);
+        }
+        this.topicsBySession.remove(session.getId());
+        this.implicitSubscribers.remove(session.getId());
+    }
+
+    public Set<String> getTopics(WSSocket session) {
+        Set<String> sessionTopics = this.topicsBySession.get(session.getId());
+
+        return (sessionTopics == null) ? Collections.emptySet() : Collections.unmodifiableSet(sessionTopics);
+    }
+
+    /**
+     * Returns the sessions subscribed to any of the topics, each once
+     */
+    public Collection<WSSocket> getSubscribers(Collection<String> topics) {
+        Map<String, WSSocket> subscribers = new LinkedHashMap<>();
+        this.collect(subscribers, ALL_TOPICS);
+        for (String topic : topics) {
+            this.collect(subscribers, topic);
+        }
+
+        return subscribers.values();
+    }
+
+    private void collect(Map<String, WSSocket> subscribers, String topic) {
+        Map<String, WSSocket> topicSubscribers = this.subscribersByTopic.get(topic);
+        if (topicSubscribers != null) {
+            subscribers.putAll(topicSubscribers);
+        }
+    }
+
+    private void optIn(WSSocket session) {
+        // The first subscription replaces the implicit subscription to everything
+        if (this.implicitSubscribers.remove(session.getId())) {
+            this.removeTopic(session, ALL_TOPICS);
+        }
+    }
+
+    private void add(WSSocket session, String topic) {
+        this.topicsBySession.get(session.getId()).add(topic);
+        this.subscribersByTopic.computeIfAbsent(topic, key -> new ConcurrentHashMap<>()).put(session.getId(), session);
+    }
+
+    private void removeTopic(WSSocket session, String topic) {
+        this.topicsBySession.get(session.getId()).remove(topic);
+        this.subscribersByTopic.computeIfPresent(topic, (key, subscribers) -> {
+            subscribers.remove(session.getId());
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+}
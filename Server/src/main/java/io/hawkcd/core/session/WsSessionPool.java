@@ -20,29 +20,43 @@ package io.hawkcd.core.session;
 
 import io.hawkcd.model.ServiceResult;
 import io.hawkcd.model.SessionDetails;
+import io.hawkcd.model.User;
 import io.hawkcd.model.enums.NotificationType;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.ws.WSSocket;
 import org.apache.log4j.Logger;
 import org.eclipse.jetty.websocket.api.CloseStatus;
 
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Created by rado on 13.11.16.
- * A singleton class that keep track of all user WS sessions
+ * Holds the open WebSocket sessions indexed by session id, user id and user email, so finding the session of a
+ * recipient does not scan every connected session. The indexes are updated together when a session is added,
+ * removed or its logged user changes; a removal only clears the index entries still pointing to that session.
  */
 public class WsSessionPool implements ISessionsPool {
 
-    private Set<WSSocket> sessions;
     private static final Logger LOGGER = Logger.getLogger(WsSessionPool.class);
     private static WsSessionPool instance;
-    private SessionService sessionService = new SessionService();
+
+    private ConcurrentHashMap<String, WSSocket> sessionsById;
+    private ConcurrentHashMap<String, WSSocket> sessionsByUserId;
+    private ConcurrentHashMap<String, WSSocket> sessionsByEmail;
+    private SessionService sessionService;
+    private TopicRegistry topicRegistry;
 
     private WsSessionPool() {
-        this.sessions = Collections.synchronizedSet(new HashSet<WSSocket>());
-        this.sessionService = new SessionService();
+        this(ServiceRegistry.get(SessionService.class), TopicRegistry.getInstance());
+    }
+
+    public WsSessionPool(SessionService sessionService, TopicRegistry topicRegistry) {
+        this.sessionsById = new ConcurrentHashMap<>();
+        this.sessionsByUserId = new ConcurrentHashMap<>();
+        this.sessionsByEmail = new ConcurrentHashMap<>();
+        this.sessionService = sessionService;
+        this.topicRegistry = topicRegistry;
     }
 
     public static synchronized WsSessionPool getInstance() {
@@ -53,25 +67,21 @@ public class WsSessionPool implements ISessionsPool {
     }
 
     @Override
-    public Set<WSSocket> getSessions() {
-        return this.sessions;
+    public Collection<WSSocket> getSessions() {
+        return Collections.unmodifiableCollection(this.sessionsById.values());
     }
 
     @Override
     public WSSocket getSessionByID(String id) {
-
-         WSSocket session = this.sessions.stream()
-                .filter(s -> s.getId().equals(id) )
-                .reduce((a, b) -> {
-                    throw new IllegalStateException("Multiple elements: " + a + ", " + b);
-                }).get();
-        return session;
+        return (id == null) ? null : this.sessionsById.get(id);
     }
 
     @Override
     public void addSession(WSSocket session) {
 
-        this.sessions.add(session);
+        this.sessionsById.put(session.getId(), session);
+        this.index(session, session.getLoggedUser());
+        this.topicRegistry.register(session);
         SessionDetails sessionDetails = session.getSessionDetails();
         try {
             ServiceResult result = this.sessionService.add(sessionDetails);
@@ -90,57 +100,80 @@ public class WsSessionPool implements ISessionsPool {
             if (session == null){
                 throw new NullPointerException("session object is null");
             }
+            this.unindex(session);
+            this.topicRegistry.remove(session);
             if (session.getSession()!= null){
                 if (session.getSession().isOpen()){
                     session.getSession().close(new CloseStatus(1000,"User Logged out"));
-                    this.sessions.remove(session);
                 }
             }
 
             sessionService.delete(session.getSessionDetails());
-            this.sessions.remove(session);
 
         } catch (RuntimeException ex) {
             LOGGER.error(ex);
-            this.sessions.remove(session);
         }
     }
 
     @Override
     public boolean contains(WSSocket session) {
+        User loggedUser = session.getLoggedUser();
 
-        String email = session.getLoggedUser().getEmail();
-
-        WSSocket ses = this.sessions
-                .stream()
-                .filter(s -> s.getLoggedUser().getEmail().equals(email) )
-                .findFirst()
-                .orElse(null);
-
-        if (ses != null ){
-            return  true;
-        }else {
-            return false;
-        }
+        return (loggedUser != null) && (this.getSessionByUserEmail(loggedUser.getEmail()) != null);
     }
 
     @Override
     public WSSocket getSessionByUserId(String userId) {
-
-        return this.getSessions()
-                .stream()
-                .filter(s -> s.getLoggedUser().getId().equals(userId))
-                .findFirst()
-                .orElse(null);
+        return (userId == null) ? null : this.sessionsByUserId.get(userId);
     }
 
     @Override
     public WSSocket getSessionByUserEmail(String email) {
+        return (email == null) ? null : this.sessionsByEmail.get(email);
+    }
+
+    @Override
+    public void updateLoggedUser(WSSocket session, User user) {
+        User previousUser = session.getLoggedUser();
+        session.setLoggedUser(user);
+        if (!this.sessionsById.containsKey(session.getId())) {
+            return;
+        }
+
+        if (previousUser != null) {
+            this.removeIndex(this.sessionsByUserId, previousUser.getId(), session);
+            this.removeIndex(this.sessionsByEmail, previousUser.getEmail(), session);
+        }
+        this.index(session, user);
+    }
+
+    private void index(WSSocket session, User user) {
+        if (user == null) {
+            return;
+        }
 
-        return this.getSessions()
-                .stream()
-                .filter(s -> s.getLoggedUser().getEmail().equals(email))
-                .findFirst()
-                .orElse(null);
+        if (user.getId() != null) {
+            this.sessionsByUserId.put(user.getId(), session);
+        }
+        if (user.getEmail() != null) {
+            this.sessionsByEmail.put(user.getEmail(), session);
+        }
+    }
+
+    private void unindex(WSSocket session) {
+        this.removeIndex(this.sessionsById, session.getId(), session);
+
+        User user = session.getLoggedUser();
+        if (user != null) {
+            this.removeIndex(this.sessionsByUserId, user.getId(), session);
+            this.removeIndex(this.sessionsByEmail, user.getEmail(), session);
+        }
+    }
+
+    private void removeIndex(ConcurrentHashMap<String, WSSocket> index, String key, WSSocket session) {
+        // Sockets compare equal by logged user, so the entry is matched by identity to keep a newer session of the same user
+        if (key != null) {
+            index.computeIfPresent(key, (k, indexedSession) -> (indexedSession == session) ? null : indexedSession);
+        }
     }
 }
@@ -23,8 +23,25 @@ import com.google.gson.*;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Deserializes an envelope into the class it names. Envelopes from other nodes may name any class; envelopes from
+ * clients are limited to the classes the adapter is given, so a client cannot make the server load a class by name.
+ */
 public class EnvelopeAdapter implements JsonDeserializer<Envelope> {
+    private static final Map<String, Type> TYPES = new ConcurrentHashMap<>();
+
+    private Map<String, Class<?>> allowedTypes;
+
+    public EnvelopeAdapter() {
+    }
+
+    public EnvelopeAdapter(Map<String, Class<?>> allowedTypes) {
+        this.allowedTypes = allowedTypes;
+    }
+
     @Override
     public Envelope deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
         JsonObject jsonObject = json.getAsJsonObject();
@@ -37,13 +54,13 @@ public class EnvelopeAdapter implements JsonDeserializer<Envelope> {
             return new Envelope();
         }
 
-        Type resultObjectType = null;
-        try {
-            resultObjectType = Class.forName(jsonObject.get("packageName").getAsString());
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
+        JsonElement packageNameAsJsonElement = jsonObject.get("packageName");
+        if (packageNameAsJsonElement == null || !packageNameAsJsonElement.isJsonPrimitive() || packageNameAsJsonElement.getAsString().isEmpty()) {
+            return new Envelope();
         }
 
+        Type resultObjectType = this.resolveType(packageNameAsJsonElement.getAsString());
+
         Object result;
         if (objectAsJsonElement.isJsonArray()) {
             List<Object> resultAsList = new ArrayList<>();
@@ -59,4 +76,36 @@ public class EnvelopeAdapter implements JsonDeserializer<Envelope> {
 
         return new Envelope(result);
     }
+
+    private Type resolveType(String className) throws JsonParseException {
+        if (this.allowedTypes == null) {
+            return getType(className);
+        }
+
+        Type type = this.allowedTypes.get(className);
+        if (type == null) {
+            throw new JsonParseException("Envelope type " + className + " is not an argument type of any command.");
+        }
+
+        return type;
+    }
+
+    /**
+     * Returns the class named by an envelope, loading each class once
+     *
+     * @param className
+     */
+    private static Type getType(String className) {
+        Type type = TYPES.get(className);
+        if (type == null) {
+            try {
+                type = Class.forName(className);
+                TYPES.put(className, type);
+            } catch (ClassNotFoundException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return type;
+    }
 }
@@ -18,15 +18,39 @@ package io.hawkcd.db;
 
 import io.hawkcd.db.mongodb.MongoDbRepository;
 import io.hawkcd.db.redis.RedisRepository;
+import io.hawkcd.model.Entity;
 import io.hawkcd.model.enums.DatabaseType;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the repository of each entity type once per database type. The repositories keep no state between calls,
+ * so every service working with an entity type shares the same one.
+ */
 public class DbRepositoryFactory {
-    public static IDbRepository create(DatabaseType databaseType, Class classType) {
+    private static final Map<String, IDbRepository<?>> REPOSITORIES = new ConcurrentHashMap<>();
+
+    public static IDbRepository<?> create(DatabaseType databaseType, Class<?> classType) {
+        String key = databaseType + ":" + classType.getName();
+        IDbRepository<?> repository = REPOSITORIES.get(key);
+        if (repository == null) {
+            repository = createRepository(databaseType, classType.asSubclass(Entity.class));
+            if (repository != null) {
+                IDbRepository<?> existing = REPOSITORIES.putIfAbsent(key, repository);
+                repository = (existing == null) ? repository : existing;
+            }
+        }
+
+        return repository;
+    }
+
+    private static <T extends Entity> IDbRepository<T> createRepository(DatabaseType databaseType, Class<T> classType) {
         switch (databaseType) {
             case REDIS:
-                return new RedisRepository(classType);
+                return new RedisRepository<>(classType);
             case MONGODB:
-                return new MongoDbRepository(classType);
+                return new MongoDbRepository<>(classType);
             default:
                 return null;
         }
@@ -19,6 +19,7 @@ package io.hawkcd.http;
 import io.hawkcd.model.ServiceResult;
 import io.hawkcd.model.User;
 import io.hawkcd.model.enums.NotificationType;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.UserService;
 import io.swagger.annotations.Api;
 
@@ -38,7 +39,7 @@ public class AccountController {
     private UserService usrService;
 
     public AccountController() {
-        this.usrService = new UserService();
+        this.usrService = ServiceRegistry.get(UserService.class);
     }
 
     @GET
@@ -20,14 +20,13 @@ import io.hawkcd.model.*;
 import io.hawkcd.model.enums.JobStatus;
 import io.hawkcd.model.enums.NotificationType;
 import io.hawkcd.model.enums.TaskType;
-import io.hawkcd.model.payload.JsTreeFile;
 import io.hawkcd.services.AgentService;
 import io.hawkcd.services.FileManagementService;
 import io.hawkcd.services.PipelineService;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.interfaces.IFileManagementService;
 import io.hawkcd.services.interfaces.IPipelineService;
 import io.hawkcd.utilities.SchemaValidator;
-import io.hawkcd.utilities.constants.ConfigurationConstants;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 
@@ -35,11 +34,8 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
-import java.io.File;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 @Consumes(MediaType.APPLICATION_JSON)
@@ -53,17 +49,17 @@ public class AgentController {
     private IPipelineService pipelineService;
 
     public AgentController() {
-        this.agentService = new AgentService();
+        this.agentService = ServiceRegistry.get(AgentService.class);
         this.schemaValidator = new SchemaValidator();
-        this.pipelineService = new PipelineService();
-        this.fileManagementService = new FileManagementService();
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
+        this.fileManagementService = ServiceRegistry.get(FileManagementService.class);
     }
 
     public AgentController(AgentService agentService) {
         this.agentService = agentService;
         this.schemaValidator = new SchemaValidator();
-        this.pipelineService = new PipelineService();
-        this.fileManagementService = new FileManagementService();
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
+        this.fileManagementService = ServiceRegistry.get(FileManagementService.class);
     }
 
     @GET
@@ -186,12 +182,9 @@ public class AgentController {
                 }
             }
 
+            // The artifact tree is browsed from the artifact store, nothing is read from the disk under the lock
             if (hasUploadArtifact) {
-                String artifactsDirectory = System.getProperty("user.dir") + File.separator +
-                        ConfigurationConstants.PROPERTY_ARTIFACTS_DESTINATION + File.separator +
-                        pipeline.getPipelineDefinitionName() + File.separator + pipeline.getExecutionId();
-                JsTreeFile artifactDirectory = this.fileManagementService.getFileNames(new File(artifactsDirectory));
-                pipeline.setArtifactsFileStructure(new ArrayList<>(Arrays.asList(artifactDirectory)));
+                pipeline.setHasArtifacts(true);
             }
 
             Agent agent = (Agent) this.agentService.getById(job.getAssignedAgentId()).getEntity();
@@ -16,35 +16,78 @@
 
 package io.hawkcd.http;
 
+import com.google.common.io.BaseEncoding;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
 
+import io.hawkcd.artifacts.ArtifactBundle;
+import io.hawkcd.artifacts.ArtifactBundleCache;
+import io.hawkcd.artifacts.ArtifactIngestionQueue;
+import io.hawkcd.artifacts.ArtifactManifest;
+import io.hawkcd.artifacts.ArtifactManifestEntry;
+import io.hawkcd.artifacts.ArtifactStore;
+import io.hawkcd.artifacts.ByteRange;
+import io.hawkcd.artifacts.IArchiveWriter;
+import io.hawkcd.artifacts.UploadNegotiation;
 import io.hawkcd.core.config.Config;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.deserializers.TaskDefinitionAdapter;
 import io.hawkcd.model.TaskDefinition;
 import io.hawkcd.services.FileManagementService;
 import io.hawkcd.services.interfaces.IFileManagementService;
+import io.hawkcd.utilities.constants.ConfigurationConstants;
 import io.swagger.annotations.Api;
+import org.apache.log4j.Logger;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Path("/Artifacts/{pipelineName}")
 @Api(value = "/Artifacts/{pipelineName}", description = "Web Services to browse entities")
 public class ArtifactController {
+    private static final Logger LOGGER = Logger.getLogger(ArtifactController.class);
+    private static final String RANGE = "Range";
+    private static final String IF_RANGE = "If-Range";
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+    private static final String CONTENT_RANGE = "Content-Range";
+    private static final String DIGEST = "Digest";
+    private static final String BYTES = "bytes";
+
+    private static final Semaphore UPLOAD_PERMITS = new Semaphore(ConfigurationConstants.MAX_CONCURRENT_ARTIFACT_UPLOADS, true);
+    private static final Semaphore DOWNLOAD_PERMITS = new Semaphore(ConfigurationConstants.MAX_CONCURRENT_ARTIFACT_DOWNLOADS, true);
+
     private IFileManagementService fileManagementService;
+    private ArtifactBundleCache bundleCache;
+    private ArtifactStore artifactStore;
+    private ArtifactIngestionQueue ingestionQueue;
     private String basePath;
     private String outputFolder;
     private Gson jsonConverter;
-    private File zipFile;
 
     public ArtifactController() {
-        this.fileManagementService = new FileManagementService();
+        this.fileManagementService = ServiceRegistry.get(FileManagementService.class);
+        this.bundleCache = ArtifactBundleCache.getInstance();
+        this.artifactStore = ArtifactStore.getInstance();
+        this.ingestionQueue = ArtifactIngestionQueue.getInstance();
         this.basePath = System.getProperty("user.dir");
         this.outputFolder = this.basePath + File.separator + "Temp" + File.separator;
         this.jsonConverter = new GsonBuilder()
@@ -56,18 +99,16 @@ public class ArtifactController {
         }
     }
 
-    public ArtifactController(IFileManagementService fileManagementService) {
+    public ArtifactController(IFileManagementService fileManagementService, ArtifactBundleCache bundleCache, ArtifactStore artifactStore, ArtifactIngestionQueue ingestionQueue) {
         this.fileManagementService = fileManagementService;
+        this.bundleCache = bundleCache;
+        this.artifactStore = artifactStore;
+        this.ingestionQueue = ingestionQueue;
         this.jsonConverter = new GsonBuilder()
                 .registerTypeAdapter(TaskDefinition.class, new TaskDefinitionAdapter())
                 .create();
     }
 
-    protected void finalize() throws Throwable {
-        super.finalize();
-        this.zipFile.delete();
-    }
-
     @POST
     @Path("/{pipelineExecutionId}/upload-artifact")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
@@ -75,27 +116,57 @@ public class ArtifactController {
     public Response unzipFile(@PathParam("pipelineName") String pipelineName,
                               @PathParam("pipelineExecutionId") String pipelineExecutionID,
                               @QueryParam("destination") String destination,
+                              @QueryParam("uploadId") String uploadId,
                               InputStream uploadedInputStream) {
-        this.zipFile = new File(this.basePath + File.separator + "Temp" + File.separator + UUID.randomUUID() + ".zip");
+        if (!acquire(UPLOAD_PERMITS)) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .type(MediaType.TEXT_HTML)
+                    .build();
+        }
+
+        String errorMessage;
+        try {
+            // The contents are checked and stored while they are received, the manifest is committed on the ingestion queue
+            errorMessage = this.ingestionQueue.submit(pipelineName, pipelineExecutionID, destination, uploadedInputStream, uploadId);
+        } finally {
+            UPLOAD_PERMITS.release();
+        }
 
-        String errorMessage = this.fileManagementService.streamToFile(uploadedInputStream, this.zipFile.getPath());
         if (errorMessage != null) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .type(MediaType.TEXT_HTML)
                     .build();
         }
 
-        String artifactsFolder = Config.getConfiguration().getArtifactsDestination();
-        this.outputFolder = this.basePath + File.separator + artifactsFolder + File.separator + pipelineName + File.separator + pipelineExecutionID + File.separator + destination;
+        return Response.status(Response.Status.ACCEPTED)
+                .build();
+    }
 
-        errorMessage = this.fileManagementService.unzipFile(this.zipFile.getPath(), this.outputFolder);
-        if (errorMessage != null) {
-            return Response.status(Response.Status.NOT_FOUND)
+    @POST
+    @Path("/{pipelineExecutionId}/upload-manifest")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response negotiateUpload(@PathParam("pipelineName") String pipelineName,
+                                    @PathParam("pipelineExecutionId") String pipelineExecutionID,
+                                    @QueryParam("destination") String destination,
+                                    String manifest) {
+        List<ArtifactManifestEntry> entries;
+        try {
+            entries = this.jsonConverter.fromJson(manifest, new TypeToken<List<ArtifactManifestEntry>>() {}.getType());
+        } catch (JsonParseException e) {
+            entries = null;
+        }
+
+        // The agent only uploads the contents listed as missing, the rest of the tree is assembled from stored blobs
+        UploadNegotiation negotiation = (entries == null) ? null : this.artifactStore.negotiateUpload(pipelineName, pipelineExecutionID, destination, entries);
+        if (negotiation == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_HTML)
                     .build();
         }
 
         return Response.status(Response.Status.OK)
+                .entity(this.jsonConverter.toJson(negotiation))
                 .build();
     }
 
@@ -103,43 +174,86 @@ public class ArtifactController {
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.MULTIPART_FORM_DATA)
-    public Response zipFile(String directory) {
-        directory = this.fileManagementService.normalizePath(directory);
-        directory = this.basePath + File.separator + Config.getConfiguration().getArtifactsDestination() + File.separator + directory;
-        String rootPath = this.fileManagementService.getRootPath(directory);
-        String wildCardPattern = this.fileManagementService.getPattern(rootPath, directory);
-
-        if (rootPath.isEmpty()) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .type(MediaType.TEXT_HTML)
-                    .build();
+    public Response zipFile(String directory,
+                            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+                            @HeaderParam(RANGE) String range,
+                            @HeaderParam(IF_RANGE) String ifRange) {
+        String bundleKey = ArtifactBundleCache.getKey(directory);
+        String[] source = (bundleKey == null) ? new String[0] : bundleKey.split("/", 3);
+        if (source.length >= 2) {
+            this.awaitIngestion(source[0], source[1]);
         }
 
-        List<File> files = this.fileManagementService.getFiles(rootPath, wildCardPattern);
+        ArtifactBundle bundle = (bundleKey == null) ? null : this.bundleCache.get(bundleKey);
+        if (bundle != null) {
+            if (bundle.matches(ifNoneMatch)) {
+                return Response.status(Response.Status.NOT_MODIFIED)
+                        .header(HttpHeaders.ETAG, bundle.getETag())
+                        .build();
+            }
 
-        if (files == null) {
+            // A bundle evicted between the lookup and the opening of its file is fetched like a missed one
+            Response response = sendFile(bundle.getFile(), bundle.getSize(), bundle.getHash(), null, range, ifRange);
+            if (response != null) {
+                return response;
+            }
+        }
+
+        IArchiveWriter archiveWriter = (bundleKey == null) ? null : this.getArchiveWriter(bundleKey, directory);
+        if (archiveWriter == null) {
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_HTML)
                     .build();
         }
 
-        this.outputFolder = this.basePath + File.separator + "Temp" + File.separator;
+        if (range == null) {
+            // The first fetch of a source receives the archive while it is compressed, every later one is served
+            // from the stored bundle. Its size and hash are only known at the end, so it is sent without them.
+            StreamingOutput content = new StreamingOutput() {
+                @Override
+                public void write(OutputStream output) throws IOException {
+                    if (!acquire(DOWNLOAD_PERMITS)) {
+                        throw new IOException(String.format("No download permit for %s", bundleKey));
+                    }
 
-        this.zipFile = this.fileManagementService.generateUniqueFile(this.outputFolder, "zip");
+                    try {
+                        ArtifactController.this.bundleCache.stream(bundleKey, archiveWriter, output);
+                    } finally {
+                        DOWNLOAD_PERMITS.release();
+                    }
+                }
+            };
 
-        String errorMessage = this.fileManagementService.zipFiles(zipFile.getPath(), files, rootPath, false);
+            return Response.status(Response.Status.OK)
+                    .entity(content)
+                    .build();
+        }
 
-        if (errorMessage != null) {
-            this.zipFile.delete();
+        if (!acquire(DOWNLOAD_PERMITS)) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .type(MediaType.TEXT_HTML)
+                    .build();
+        }
 
-            return Response.status(Response.Status.BAD_REQUEST)
+        // A range of a missed bundle is only known once the whole archive is built
+        try {
+            bundle = this.bundleCache.build(bundleKey, archiveWriter);
+        } catch (IOException e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .type(MediaType.TEXT_HTML)
                     .build();
+        } finally {
+            DOWNLOAD_PERMITS.release();
         }
 
-        return Response.status(Response.Status.OK)
-                .entity(zipFile)
-                .build();
+        Response response = sendFile(bundle.getFile(), bundle.getSize(), bundle.getHash(), null, range, ifRange);
+        if (response == null) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .type(MediaType.TEXT_HTML)
+                    .build();
+        }
+
+        return response;
     }
 
     @Path("/{pipelineExecutionId}/{artifactSource:.*}")
@@ -148,21 +262,154 @@ public class ArtifactController {
     @Produces("application/force-download")
     public Response getArtifact(@PathParam("pipelineName") String pipelineName,
                                 @PathParam("pipelineExecutionId") String pipelineExecutionID,
-                                @PathParam("artifactSource") String artifactSource) {
+                                @PathParam("artifactSource") String artifactSource,
+                                @HeaderParam(RANGE) String range,
+                                @HeaderParam(IF_RANGE) String ifRange) {
 
         artifactSource = this.fileManagementService.normalizePath(artifactSource);
+        this.awaitIngestion(pipelineName, pipelineExecutionID);
 
-        String directory = this.basePath + File.separator + Config.getConfiguration().getArtifactsDestination() + File.separator + pipelineName + File.separator + pipelineExecutionID + File.separator + artifactSource;
+        // Stored files are named by the hash of their contents, so they are served with it as ETag and digest
+        ArtifactManifest manifest = this.artifactStore.getManifest(pipelineName, pipelineExecutionID);
+        ArtifactManifestEntry entry = (manifest == null) ? null : this.artifactStore.getEntry(manifest, artifactSource);
+        File fileToReturn = (entry == null) ? this.artifactStore.getArtifact(pipelineName, pipelineExecutionID, artifactSource) : this.artifactStore.getBlobFile(entry.getHash()).toFile();
 
-        File fileToReturn = new File(directory);
-
-        if (!fileToReturn.exists()) {
+        Response response = ((fileToReturn == null) || !fileToReturn.isFile()) ? null : sendFile(fileToReturn.toPath(), fileToReturn.length(), (entry == null) ? null : entry.getHash(), fileToReturn.lastModified(), range, ifRange);
+        if (response == null) {
             return Response.status(Response.Status.NOT_FOUND)
                     .build();
         }
 
-        return Response.status(Response.Status.OK)
-                .entity(fileToReturn)
-                .build();
+        return response;
+    }
+
+    private IArchiveWriter getArchiveWriter(String bundleKey, String directory) {
+        String[] source = bundleKey.split("/", 3);
+        ArtifactManifest manifest = (source.length < 2) ? null : this.artifactStore.getManifest(source[0], source[1]);
+        if (manifest != null) {
+            Map<String, ArtifactManifestEntry> selection = this.artifactStore.select(manifest, (source.length == 3) ? source[2] : "");
+            if (selection == null) {
+                return null;
+            }
+
+            return new IArchiveWriter() {
+                @Override
+                public String write(OutputStream output) {
+                    return ArtifactController.this.artifactStore.streamZip(output, selection);
+                }
+            };
+        }
+
+        // Executions uploaded before the artifact store existed are still archived from their folders
+        directory = this.fileManagementService.normalizePath(directory);
+        directory = this.basePath + File.separator + Config.getConfiguration().getArtifactsDestination() + File.separator + directory;
+        String rootPath = this.fileManagementService.getRootPath(directory);
+        String wildCardPattern = this.fileManagementService.getPattern(rootPath, directory);
+
+        if (rootPath.isEmpty()) {
+            return null;
+        }
+
+        List<File> files = this.fileManagementService.getFiles(rootPath, wildCardPattern);
+
+        if (files == null) {
+            return null;
+        }
+
+        return new IArchiveWriter() {
+            @Override
+            public String write(OutputStream output) {
+                return ArtifactController.this.fileManagementService.streamZipFiles(output, files, rootPath, false);
+            }
+        };
+    }
+
+    /**
+     * Sends the file whole or, when a satisfiable Range is requested and If-Range still matches, only that range,
+     * so an interrupted download is resumed instead of started over. The file is opened before the response is
+     * returned and stays readable through the open channel when it is deleted while being sent.
+     * Returns null when the file no longer exists.
+     */
+    private static Response sendFile(java.nio.file.Path file, long size, String hash, Long lastModified, String range, String ifRange) {
+        String eTag = (hash == null) ? null : "\"" + hash + "\"";
+        ByteRange requestedRange = isRangeValid(ifRange, eTag, lastModified) ? ByteRange.parse(range, size) : null;
+        if ((requestedRange != null) && !requestedRange.isSatisfiable()) {
+            return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(CONTENT_RANGE, requestedRange.getContentRange())
+                    .build();
+        }
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return null;
+        }
+
+        ByteRange sentRange = (requestedRange == null) ? ByteRange.full(size) : requestedRange;
+        StreamingOutput content = new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                try {
+                    sentRange.transfer(channel, output);
+                } finally {
+                    channel.close();
+                }
+            }
+        };
+
+        Response.ResponseBuilder response = Response.status((requestedRange == null) ? Response.Status.OK : Response.Status.PARTIAL_CONTENT)
+                .entity(content)
+                .header(ACCEPT_RANGES, BYTES)
+                .header(HttpHeaders.CONTENT_LENGTH, sentRange.getLength());
+        if (requestedRange != null) {
+            response.header(CONTENT_RANGE, requestedRange.getContentRange());
+        }
+        if (hash != null) {
+            response.header(HttpHeaders.ETAG, eTag)
+                    .header(DIGEST, "sha-256=" + BaseEncoding.base64().encode(BaseEncoding.base16().lowerCase().decode(hash)));
+        }
+        if (lastModified != null) {
+            response.lastModified(new Date(lastModified));
+        }
+
+        return response.build();
+    }
+
+    // If-Range holds the validator the client saw first, a range of a changed file would corrupt the download
+    private static boolean isRangeValid(String ifRange, String eTag, Long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(eTag);
+        }
+
+        if (lastModified == null) {
+            return false;
+        }
+
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond() == TimeUnit.MILLISECONDS.toSeconds(lastModified);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // A fetch right after an upload has to see the uploaded artifacts, so it waits for their extraction
+    private void awaitIngestion(String pipelineName, String pipelineExecutionId) {
+        if (!this.ingestionQueue.await(pipelineName, pipelineExecutionId, ConfigurationConstants.ARTIFACT_INGESTION_WAIT_SECONDS, TimeUnit.SECONDS)) {
+            LOGGER.warn(String.format("Artifacts uploaded to %s/%s are still being extracted", pipelineName, pipelineExecutionId));
+        }
+    }
+
+    private static boolean acquire(Semaphore permits) {
+        try {
+            return permits.tryAcquire(ConfigurationConstants.ARTIFACT_TRANSFER_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.http;
+
+import com.google.gson.Gson;
+import io.hawkcd.artifacts.ArtifactStore;
+import io.hawkcd.artifacts.ArtifactTreePage;
+import io.hawkcd.utilities.constants.ConfigurationConstants;
+import io.swagger.annotations.Api;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+@Produces(MediaType.APPLICATION_JSON)
+@Path("/artifact-trees/{pipelineName}/{pipelineExecutionId}")
+@Api(value = "/artifact-trees/{pipelineName}/{pipelineExecutionId}", description = "Web Services to browse entities")
+public class ArtifactTreeController {
+    private ArtifactStore artifactStore;
+    private Gson jsonConverter;
+
+    public ArtifactTreeController() {
+        this.artifactStore = ArtifactStore.getInstance();
+        this.jsonConverter = new Gson();
+    }
+
+    public ArtifactTreeController(ArtifactStore artifactStore) {
+        this.artifactStore = artifactStore;
+        this.jsonConverter = new Gson();
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getFolder(@PathParam("pipelineName") String pipelineName,
+                              @PathParam("pipelineExecutionId") String pipelineExecutionId,
+                              @QueryParam("path") String path,
+                              @QueryParam("offset") Integer offset,
+                              @QueryParam("limit") Integer limit) {
+        int pageOffset = ((offset == null) || (offset < 0)) ? 0 : offset;
+        int pageSize = ((limit == null) || (limit <= 0) || (limit > ConfigurationConstants.ARTIFACT_TREE_PAGE_SIZE)) ? ConfigurationConstants.ARTIFACT_TREE_PAGE_SIZE : limit;
+
+        ArtifactTreePage page = this.artifactStore.getTreePage(pipelineName, pipelineExecutionId, path, pageOffset, pageSize);
+        if (page == null) {
+            return Response.status(Status.NOT_FOUND)
+                    .type(MediaType.TEXT_HTML)
+                    .build();
+        }
+
+        return Response.status(Status.OK)
+                .entity(this.jsonConverter.toJson(page))
+                .build();
+    }
+}
@@ -18,6 +18,7 @@ package io.hawkcd.http;
 
 import com.google.gson.Gson;
 import io.hawkcd.core.security.AuthorizationGrant;
+import io.hawkcd.core.security.VerifiedTokenCache;
 import io.hawkcd.core.session.SessionFactory;
 import io.hawkcd.http.security.PrincipalUser;
 import io.hawkcd.http.security.Secured;
@@ -26,6 +27,7 @@ import io.hawkcd.model.User;
 import io.hawkcd.model.dto.LoginDto;
 import io.hawkcd.model.dto.RegisterDto;
 import io.hawkcd.model.enums.NotificationType;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.UserService;
 import io.hawkcd.utilities.deserializers.TokenAdapter;
 import io.swagger.annotations.Api;
@@ -73,7 +75,7 @@ public class AuthController {
     private UserService userService;
 
     public AuthController() {
-        this.userService = new UserService();
+        this.userService = ServiceRegistry.get(UserService.class);
     }
 
 //    @POST
@@ -163,6 +165,7 @@ public class AuthController {
         PrincipalUser principalUser = (PrincipalUser) requestContext.getSecurityContext().getUserPrincipal();
         String userEmail = principalUser.getUser().getEmail();
         LOGGER.info("PrincipalUser: " + userEmail + " logged out");
+        VerifiedTokenCache.getInstance().revoke(requestContext.getUriInfo().getQueryParameters().getFirst("api_key"));
         SessionFactory.getSessionManager().closeSessionByUserEmail(userEmail);
 
         return Response.ok().build();
@@ -19,6 +19,7 @@ package io.hawkcd.http;
 import io.hawkcd.model.ServiceResult;
 import io.hawkcd.model.enums.NotificationType;
 import io.hawkcd.services.JobService;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.interfaces.IJobService;
 import io.swagger.annotations.Api;
 
@@ -36,7 +37,7 @@ public class JobController {
     private IJobService jobService;
 
     public JobController() {
-        this.jobService = new JobService();
+        this.jobService = ServiceRegistry.get(JobService.class);
     }
 
     public JobController(IJobService jobService) {
@@ -16,6 +16,7 @@
 
 package io.hawkcd.http;
 
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.SchemaValidator;
 import io.hawkcd.model.JobDefinition;
 import io.hawkcd.model.ServiceResult;
@@ -38,7 +39,7 @@ public class JobDefinitionController {
     private SchemaValidator schemaValidator;
 
     public JobDefinitionController() {
-        this.jobDefinitionService = new JobDefinitionService();
+        this.jobDefinitionService = ServiceRegistry.get(JobDefinitionService.class);
         this.schemaValidator = new SchemaValidator();
     }
 
@@ -16,6 +16,7 @@
 
 package io.hawkcd.http;
 
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.SchemaValidator;
 import io.hawkcd.model.MaterialDefinition;
 import io.hawkcd.model.ServiceResult;
@@ -39,7 +40,7 @@ public class MaterialDefinitionController {
     private SchemaValidator schemaValidator;
 
     public MaterialDefinitionController() {
-        this.materialDefinitionService = new MaterialDefinitionService();
+        this.materialDefinitionService = ServiceRegistry.get(MaterialDefinitionService.class);
         this.schemaValidator = new SchemaValidator();
     }
 
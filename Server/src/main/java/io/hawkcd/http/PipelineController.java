@@ -21,6 +21,7 @@ import io.hawkcd.model.Pipeline;
 import io.hawkcd.model.ServiceResult;
 import io.hawkcd.model.enums.NotificationType;
 import io.hawkcd.services.PipelineService;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.interfaces.IPipelineService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -53,7 +54,7 @@ public class PipelineController {
 
     public PipelineController() {
 
-        this.pipelineService = new PipelineService();
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
     }
 
     public PipelineController(IPipelineService pipelineService) {
@@ -16,6 +16,7 @@
 
 package io.hawkcd.http;
 
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.SchemaValidator;
 import io.hawkcd.model.PipelineDefinition;
 import io.hawkcd.model.ServiceResult;
@@ -38,7 +39,7 @@ public class PipelineDefinitionController {
     private SchemaValidator schemaValidator;
 
     public PipelineDefinitionController() {
-        this.pipelineDefinitionService = new PipelineDefinitionService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
         this.schemaValidator = new SchemaValidator();
     }
 
@@ -16,6 +16,7 @@
 
 package io.hawkcd.http;
 
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.SchemaValidator;
 import io.hawkcd.model.PipelineGroup;
 import io.hawkcd.model.ServiceResult;
@@ -38,7 +39,7 @@ public class PipelineGroupController {
     private SchemaValidator schemaValidator;
 
     public PipelineGroupController() {
-        this.pipelineGroupService = new PipelineGroupService();
+        this.pipelineGroupService = ServiceRegistry.get(PipelineGroupService.class);
         this.schemaValidator = new SchemaValidator();
     }
 
@@ -19,6 +19,7 @@ package io.hawkcd.http;
 import io.hawkcd.model.ServiceResult;
 import io.hawkcd.model.Stage;
 import io.hawkcd.model.enums.NotificationType;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.StageService;
 import io.hawkcd.services.interfaces.IStageService;
 import io.swagger.annotations.Api;
@@ -36,7 +37,7 @@ public class StageController {
     private IStageService stageService;
 
     public StageController() {
-        this.stageService = new StageService();
+        this.stageService = ServiceRegistry.get(StageService.class);
     }
 
     public StageController(IStageService stageService) {
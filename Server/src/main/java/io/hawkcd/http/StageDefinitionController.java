@@ -16,6 +16,7 @@
 
 package io.hawkcd.http;
 
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.SchemaValidator;
 import io.hawkcd.model.ServiceResult;
 import io.hawkcd.model.StageDefinition;
@@ -38,7 +39,7 @@ public class StageDefinitionController {
     private SchemaValidator schemaValidator;
 
     public StageDefinitionController() {
-        this.stageDefinitionService = new StageDefinitionService();
+        this.stageDefinitionService = ServiceRegistry.get(StageDefinitionService.class);
         this.schemaValidator = new SchemaValidator();
     }
 
@@ -16,6 +16,7 @@
 
 package io.hawkcd.http;
 
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.SchemaValidator;
 import io.hawkcd.model.ServiceResult;
 import io.hawkcd.model.TaskDefinition;
@@ -38,7 +39,7 @@ public class TaskDefinitionController {
     private SchemaValidator schemaValidator;
 
     public TaskDefinitionController() {
-        this.taskDefinitionService = new TaskDefinitionService();
+        this.taskDefinitionService = ServiceRegistry.get(TaskDefinitionService.class);
         this.schemaValidator = new SchemaValidator();
     }
 
@@ -23,6 +23,7 @@ import io.hawkcd.model.*;
 import io.hawkcd.model.enums.MaterialType;
 import io.hawkcd.services.MaterialDefinitionService;
 import io.hawkcd.services.MaterialService;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.interfaces.IMaterialDefinitionService;
 import io.hawkcd.services.interfaces.IMaterialService;
 
@@ -37,8 +38,8 @@ public class MaterialHandlerService implements IMaterialHandlerService {
     private IMaterialUpdater materialUpdater;
 
     public MaterialHandlerService() {
-        this.materialDefinitionService = new MaterialDefinitionService();
-        this.materialService = new MaterialService();
+        this.materialDefinitionService = ServiceRegistry.get(MaterialDefinitionService.class);
+        this.materialService = ServiceRegistry.get(MaterialService.class);
     }
 
     public MaterialHandlerService(IMaterialDefinitionService materialDefinitionService, IMaterialService materialService, IMaterialUpdater materialUpdater) {
@@ -17,6 +17,7 @@
 package io.hawkcd.materials;
 
 import io.hawkcd.core.config.Config;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.constants.LoggerMessages;
 import io.hawkcd.model.Material;
 import io.hawkcd.model.Pipeline;
@@ -41,9 +42,9 @@ public class MaterialTracker implements Runnable {
     private String name;
 
     public MaterialTracker() {
-        this.pipelineService = new PipelineService();
-        this.pipelineDefinitionService = new PipelineDefinitionService();
-        this.materialService = new MaterialService();
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
+        this.materialService = ServiceRegistry.get(MaterialService.class);
         this.materialHandlerService = new MaterialHandlerService();
         this.name = "MaterialTracker";
     }
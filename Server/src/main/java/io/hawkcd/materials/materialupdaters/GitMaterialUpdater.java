@@ -20,6 +20,7 @@ import io.hawkcd.materials.materialservices.GitService;
 import io.hawkcd.materials.materialservices.IGitService;
 import io.hawkcd.model.GitMaterial;
 import io.hawkcd.services.FileManagementService;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.interfaces.IFileManagementService;
 
 public class GitMaterialUpdater extends MaterialUpdater<GitMaterial> {
@@ -28,7 +29,7 @@ public class GitMaterialUpdater extends MaterialUpdater<GitMaterial> {
 
     public GitMaterialUpdater() {
         this.gitService = new GitService();
-        this.fileManagementService = new FileManagementService();
+        this.fileManagementService = ServiceRegistry.get(FileManagementService.class);
     }
 
     public GitMaterialUpdater(IGitService gitService, IFileManagementService fileManagementService) {
@@ -44,6 +44,7 @@ public class Pipeline extends PipelineFamily {
     private boolean isPrepared;
     private boolean shouldBeCanceled;
     private List<JsTreeFile> artifactsFileStructure;
+    private boolean hasArtifacts;
 
     public Pipeline() {
         this.setStartTime(ZonedDateTime.now(ZoneOffset.UTC).toLocalDateTime());
@@ -157,4 +158,12 @@ public class Pipeline extends PipelineFamily {
     public void setArtifactsFileStructure(List<JsTreeFile> artifactsFileStructure) {
         this.artifactsFileStructure = artifactsFileStructure;
     }
-}
\ No newline at end of file
+
+    public boolean hasArtifacts() {
+        return this.hasArtifacts;
+    }
+
+    public void setHasArtifacts(boolean hasArtifacts) {
+        this.hasArtifacts = hasArtifacts;
+    }
+}
@@ -33,6 +33,7 @@ public final class Configuration {
     private String artifactsDestination;
     private int pipelineSchedulerPollInterval;
     private int materialTrackerPollInterval;
+    private Integer broadcastCoalescingWindow;
 
     public String getServerHost() {
         return serverHost;
@@ -114,6 +115,14 @@ public final class Configuration {
         this.materialTrackerPollInterval = materialTrackerPollInterval;
     }
 
+    public Integer getBroadcastCoalescingWindow() {
+        return broadcastCoalescingWindow;
+    }
+
+    public void setBroadcastCoalescingWindow(Integer broadcastCoalescingWindow) {
+        this.broadcastCoalescingWindow = broadcastCoalescingWindow;
+    }
+
     public String getServerId() {
         return serverId;
     }
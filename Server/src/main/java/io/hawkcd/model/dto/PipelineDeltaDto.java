@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.model.dto;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.hawkcd.model.enums.PermissionType;
+
+/**
+ * Carries a pipeline run to a WebSocket client either as a full snapshot or as a patch against the version the
+ * client was last sent
+ */
+public class PipelineDeltaDto {
+    private String pipelineId;
+    private long version;
+    private long baseVersion;
+    private PermissionType permissionType;
+    private JsonObject pipeline;
+    private JsonArray patch;
+
+    public static PipelineDeltaDto snapshot(String pipelineId, long version, PermissionType permissionType, JsonObject pipeline) {
+        PipelineDeltaDto delta = new PipelineDeltaDto();
+        delta.pipelineId = pipelineId;
+        delta.version = version;
+        delta.permissionType = permissionType;
+        delta.pipeline = pipeline;
+
+        return delta;
+    }
+
+    public static PipelineDeltaDto patch(String pipelineId, long version, long baseVersion, PermissionType permissionType, JsonArray patch) {
+        PipelineDeltaDto delta = new PipelineDeltaDto();
+        delta.pipelineId = pipelineId;
+        delta.version = version;
+        delta.baseVersion = baseVersion;
+        delta.permissionType = permissionType;
+        delta.patch = patch;
+
+        return delta;
+    }
+
+    public String getPipelineId() {
+        return this.pipelineId;
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    public long getBaseVersion() {
+        return this.baseVersion;
+    }
+
+    public PermissionType getPermissionType() {
+        return this.permissionType;
+    }
+
+    public JsonObject getPipeline() {
+        return this.pipeline;
+    }
+
+    public JsonArray getPatch() {
+        return this.patch;
+    }
+}
@@ -39,6 +39,7 @@ public class PipelineDto extends PipelineFamily {
     private Duration duration;
     private String triggerReason;
     private List<JsTreeFile> artifactsFileStructure;
+    private boolean hasArtifacts;
     private List<StageDto> stages;
     private boolean isScrollCall;
 
@@ -82,6 +83,7 @@ public class PipelineDto extends PipelineFamily {
     public void constructArtifactPipelineDto(Pipeline pipeline, boolean isScrollCall) {
         this.constructHistoryPipelineDto(pipeline);
         this.artifactsFileStructure = pipeline.getArtifactsFileStructure();
+        this.hasArtifacts = pipeline.hasArtifacts();
         this.isScrollCall = isScrollCall;
     }
 }
@@ -17,6 +17,7 @@
 package io.hawkcd.scheduler;
 
 import io.hawkcd.core.config.Config;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.constants.LoggerMessages;
 import io.hawkcd.model.Agent;
 import io.hawkcd.services.AgentService;
@@ -37,7 +38,7 @@ public class JobAssigner implements Runnable {
     public JobAssigner() {
         this.jobAssignerService = new JobAssignerService();
         this.statusUpdaterService = new StatusUpdaterService();
-        this.agentService = new AgentService();
+        this.agentService = ServiceRegistry.get(AgentService.class);
     }
 
     @Override
@@ -24,6 +24,7 @@ import io.hawkcd.model.enums.StageStatus;
 import io.hawkcd.services.AgentService;
 import io.hawkcd.services.JobService;
 import io.hawkcd.services.PipelineService;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.interfaces.IAgentService;
 import io.hawkcd.services.interfaces.IJobService;
 import io.hawkcd.services.interfaces.IPipelineService;
@@ -41,9 +42,9 @@ public class JobAssignerService {
     private JobAssignerUtilities jobAssignerUtilities;
 
     public JobAssignerService() {
-        this.agentService = new AgentService();
-        this.pipelineService = new PipelineService();
-        this.jobService = new JobService();
+        this.agentService = ServiceRegistry.get(AgentService.class);
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
+        this.jobService = ServiceRegistry.get(JobService.class);
         this.jobAssignerUtilities = new JobAssignerUtilities();
     }
 
@@ -17,6 +17,7 @@
 package io.hawkcd.scheduler;
 
 import io.hawkcd.core.config.Config;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.constants.LoggerMessages;
 import io.hawkcd.model.enums.PipelineStatus;
 import io.hawkcd.model.Stage;
@@ -54,8 +55,8 @@ public class PipelinePreparer implements Runnable {
 
     public PipelinePreparer() {
         this.environmentVariableService = new EnvironmentVariableService();
-        this.pipelineDefinitionService = new PipelineDefinitionService();
-        this.pipelineService = new PipelineService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
     }
 
     public PipelinePreparer(IPipelineService pipelineService, IPipelineDefinitionService pipelineDefinitionService) {
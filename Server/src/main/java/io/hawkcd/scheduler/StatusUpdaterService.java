@@ -20,6 +20,7 @@ import io.hawkcd.model.*;
 import io.hawkcd.model.enums.*;
 import io.hawkcd.services.AgentService;
 import io.hawkcd.services.PipelineService;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.interfaces.IAgentService;
 import io.hawkcd.services.interfaces.IPipelineService;
 import io.hawkcd.utilities.constants.LoggerMessages;
@@ -40,8 +41,8 @@ public class StatusUpdaterService {
     private IPipelineService pipelineService;
 
     public StatusUpdaterService() {
-        this.agentService = new AgentService();
-        this.pipelineService = new PipelineService();
+        this.agentService = ServiceRegistry.get(AgentService.class);
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
     }
 
     public StatusUpdaterService(IAgentService agentService, IPipelineService pipelineService) {
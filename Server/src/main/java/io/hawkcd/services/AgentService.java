@@ -46,8 +46,8 @@ public class AgentService extends CrudService<Agent> implements IAgentService {
         IDbRepository repository = DbRepositoryFactory.create(DATABASE_TYPE, CLASS_TYPE);
         super.setRepository(repository);
         super.setObjectType(CLASS_TYPE.getSimpleName());
-        this.pipelineService = new PipelineService();
-        this.jobService = new JobService();
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
+        this.jobService = ServiceRegistry.get(JobService.class);
     }
 
     public AgentService(IDbRepository repository, IPipelineService pipelineService) {
@@ -24,20 +24,28 @@ import net.lingala.zip4j.model.ZipParameters;
 import net.lingala.zip4j.util.Zip4jConstants;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.tools.ant.DirectoryScanner;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 public class FileManagementService implements IFileManagementService {
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 
     @Override
     public String zipFiles(String zipFilePath, List<File> files, String filesRootPath, boolean includeRootPath) {
@@ -70,6 +78,65 @@ public class FileManagementService implements IFileManagementService {
         return errorMessage;
     }
 
+    @Override
+    public String streamZipFiles(OutputStream outputStream, List<File> files, String filesRootPath, boolean includeRootPath) {
+
+        String errorMessage = null;
+        Path rootPath = Paths.get(filesRootPath).toAbsolutePath().normalize();
+        ZipOutputStream zipStream = new ZipOutputStream(new BufferedOutputStream(outputStream, STREAM_BUFFER_SIZE));
+        zipStream.setLevel(Deflater.BEST_SPEED);
+        try {
+            for (File file : files) {
+                Path filePath = file.toPath().toAbsolutePath().normalize();
+                if (file.isFile()) {
+                    this.addZipEntry(zipStream, filePath, rootPath.relativize(filePath));
+                }
+                if (file.isDirectory()) {
+                    Path basePath = (includeRootPath && (filePath.getParent() != null)) ? filePath.getParent() : filePath;
+                    this.addZipFolder(zipStream, filePath, basePath);
+                }
+            }
+
+            // Completes the archive without closing the stream, which belongs to the caller
+            zipStream.finish();
+            zipStream.flush();
+        } catch (IOException e) {
+            errorMessage = e.getMessage();
+        }
+
+        return errorMessage;
+    }
+
+    private void addZipFolder(ZipOutputStream zipStream, Path folder, Path basePath) throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                Path entryPath = basePath.relativize(directory);
+                if (!entryPath.toString().isEmpty()) {
+                    zipStream.putNextEntry(new ZipEntry(FilenameUtils.separatorsToUnix(entryPath.toString()) + "/"));
+                    zipStream.closeEntry();
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                FileManagementService.this.addZipEntry(zipStream, file, basePath.relativize(file));
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void addZipEntry(ZipOutputStream zipStream, Path file, Path entryPath) throws IOException {
+        ZipEntry entry = new ZipEntry(FilenameUtils.separatorsToUnix(entryPath.toString()));
+        entry.setTime(Files.getLastModifiedTime(file).toMillis());
+        zipStream.putNextEntry(entry);
+        Files.copy(file, zipStream);
+        zipStream.closeEntry();
+    }
+
     @Override
     public File generateUniqueFile(String filePath, String fileExtension) {
 
@@ -101,22 +168,6 @@ public class FileManagementService implements IFileManagementService {
         return errorMessage;
     }
 
-    @Override
-    public String streamToFile(InputStream stream, String filePath) {
-
-        String errorMessage = null;
-        try {
-            byte[] bytes = IOUtils.toByteArray(stream);
-            FileOutputStream fileOutputStream = new FileOutputStream(filePath);
-            fileOutputStream.write(bytes);
-            fileOutputStream.close();
-        } catch (IOException e) {
-            errorMessage = e.getMessage();
-        }
-
-        return errorMessage;
-    }
-
     @Override
     public String deleteFile(String filePath) {
         String errorMessage = null;
@@ -39,7 +39,7 @@ public class JobDefinitionService extends CrudService<JobDefinition> implements
 
     public JobDefinitionService() {
         super.setObjectType(CLASS_TYPE.getSimpleName());
-        this.stageDefinitionService = new StageDefinitionService();
+        this.stageDefinitionService = ServiceRegistry.get(StageDefinitionService.class);
     }
 
     public JobDefinitionService(IStageDefinitionService stageDefinitionService) {
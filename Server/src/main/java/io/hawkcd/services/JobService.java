@@ -38,7 +38,7 @@ public class JobService extends CrudService<Job> implements IJobService {
 
     public JobService() {
         super.setObjectType(CLASS_TYPE.getSimpleName());
-        this.stageService = new StageService();
+        this.stageService = ServiceRegistry.get(StageService.class);
     }
 
     public JobService(IStageService stageService) {
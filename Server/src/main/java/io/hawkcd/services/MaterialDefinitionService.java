@@ -45,7 +45,7 @@ public class MaterialDefinitionService extends CrudService<MaterialDefinition> i
         IDbRepository repository = DbRepositoryFactory.create(DATABASE_TYPE, CLASS_TYPE);
         super.setRepository(repository);
         super.setObjectType(CLASS_TYPE.getSimpleName());
-        this.pipelineDefinitionService = new PipelineDefinitionService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
     }
 
     public MaterialDefinitionService(IDbRepository repository, IPipelineDefinitionService pipelineDefinitionService) {
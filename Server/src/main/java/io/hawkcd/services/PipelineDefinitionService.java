@@ -16,6 +16,8 @@
 
 package io.hawkcd.services;
 
+import io.hawkcd.artifacts.ArtifactBundleCache;
+import io.hawkcd.artifacts.ArtifactStore;
 import io.hawkcd.core.security.Authorization;
 import io.hawkcd.db.DbRepositoryFactory;
 import io.hawkcd.db.IDbRepository;
@@ -33,6 +35,7 @@ import java.util.stream.Collectors;
 public class PipelineDefinitionService extends CrudService<PipelineDefinition> implements IPipelineDefinitionService {
     private static final Class CLASS_TYPE = PipelineDefinition.class;
     private IPipelineService pipelineService;
+    private ArtifactStore artifactStore;
 
     private IMaterialDefinitionService materialDefinitionService;
 
@@ -106,7 +109,7 @@ public class PipelineDefinitionService extends CrudService<PipelineDefinition> i
     @Authorization( scope = PermissionScope.PIPELINE_GROUP, type = PermissionType.ADMIN )
     public ServiceResult add(PipelineDefinition pipelineDefinition, MaterialDefinition materialDefinition) {
         if (this.materialDefinitionService == null) {
-            this.materialDefinitionService = new MaterialDefinitionService();
+            this.materialDefinitionService = ServiceRegistry.get(MaterialDefinitionService.class);
         }
 
         ServiceResult serviceResult = this.materialDefinitionService.add(materialDefinition);
@@ -129,10 +132,10 @@ public class PipelineDefinitionService extends CrudService<PipelineDefinition> i
     @Authorization( scope = PermissionScope.PIPELINE_GROUP, type = PermissionType.ADMIN )
     public ServiceResult addWithMaterialDefinition(PipelineDefinition pipelineDefinition, String materialDefinitionId) {
         if (this.materialDefinitionService == null) {
-            this.materialDefinitionService = new MaterialDefinitionService();
+            this.materialDefinitionService = ServiceRegistry.get(MaterialDefinitionService.class);
         }
 
-        this.materialDefinitionService = new MaterialDefinitionService();
+        this.materialDefinitionService = ServiceRegistry.get(MaterialDefinitionService.class);
         ServiceResult serviceResult = this.materialDefinitionService.getById(materialDefinitionId);
         if ((serviceResult.getNotificationType() == NotificationType.ERROR)) {
             return super.createServiceResult(null, NotificationType.ERROR, "could not be created");
@@ -153,7 +156,7 @@ public class PipelineDefinitionService extends CrudService<PipelineDefinition> i
     @Authorization( scope = PermissionScope.PIPELINE, type = PermissionType.ADMIN )
     public ServiceResult delete(PipelineDefinition pipelineDefinition) {
         if (this.pipelineService == null) {
-            this.pipelineService = new PipelineService();
+            this.pipelineService = ServiceRegistry.get(PipelineService.class);
         }
         List<Pipeline> pipelinesFromDb = (List<Pipeline>) this.pipelineService.getAll().getEntity();
 
@@ -167,6 +170,7 @@ public class PipelineDefinitionService extends CrudService<PipelineDefinition> i
                 if ((result.getNotificationType() == NotificationType.ERROR)) {
                     return result;
                 }
+                this.releaseArtifacts(pipeline);
             }
         }
         return super.delete(pipelineDefinition);
@@ -208,4 +212,15 @@ public class PipelineDefinitionService extends CrudService<PipelineDefinition> i
 
         return this.update(pipelineDefinition);
     }
+
+    // Artifact blobs are shared between executions, only the ones no other execution references are deleted
+    private void releaseArtifacts(Pipeline pipeline) {
+        if (this.artifactStore == null) {
+            this.artifactStore = ArtifactStore.getInstance();
+        }
+
+        String pipelineExecutionId = String.valueOf(pipeline.getExecutionId());
+        this.artifactStore.release(pipeline.getPipelineDefinitionName(), pipelineExecutionId);
+        ArtifactBundleCache.getInstance().invalidate(pipeline.getPipelineDefinitionName(), pipelineExecutionId);
+    }
 }
@@ -45,8 +45,8 @@ public class PipelineGroupService extends CrudService<PipelineGroup> implements
         IDbRepository repository = DbRepositoryFactory.create(DATABASE_TYPE, CLASS_TYPE);
         super.setRepository(repository);
         super.setObjectType(CLASS_TYPE.getSimpleName());
-        this.pipelineDefinitionService = new PipelineDefinitionService();
-        this.pipelineService = new PipelineService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
     }
 
     public PipelineGroupService(IDbRepository repository) {
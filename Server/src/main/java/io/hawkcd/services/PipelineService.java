@@ -68,8 +68,8 @@ public class PipelineService extends CrudService<Pipeline> implements IPipelineS
         IDbRepository repository = DbRepositoryFactory.create(DATABASE_TYPE, CLASS_TYPE);
         super.setRepository(repository);
         super.setObjectType(CLASS_TYPE.getSimpleName());
-        this.pipelineDefinitionService = new PipelineDefinitionService();
-        this.materialDefinitionService = new MaterialDefinitionService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
+        this.materialDefinitionService = ServiceRegistry.get(MaterialDefinitionService.class);
         this.setPipelineMongoService(new PipelineMongoService<Pipeline>());
         this.getPipelineMongoService().setMongoRepository((MongoDbRepository) repository);
     }
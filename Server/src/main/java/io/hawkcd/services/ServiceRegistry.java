@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.services;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the single instance of each service the server runs with. Services are created on first use through their
+ * default constructors, which take their own dependencies from the registry, so a service graph is built once
+ * instead of on every request or scheduler tick. Tests keep passing mocks to the other constructors.
+ */
+public class ServiceRegistry {
+    private static final Map<Class<?>, Object> SERVICES = new HashMap<>();
+    private static final Set<Class<?>> SERVICES_IN_CREATION = new HashSet<>();
+
+    private ServiceRegistry() {
+    }
+
+    public static synchronized <T> T get(Class<T> serviceType) {
+        Object service = SERVICES.get(serviceType);
+        if (service == null) {
+            if (!SERVICES_IN_CREATION.add(serviceType)) {
+                throw new IllegalStateException(serviceType.getSimpleName() + " depends on itself through its default constructor");
+            }
+
+            try {
+                service = serviceType.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create " + serviceType.getSimpleName(), e);
+            } finally {
+                SERVICES_IN_CREATION.remove(serviceType);
+            }
+
+            SERVICES.put(serviceType, service);
+        }
+
+        return serviceType.cast(service);
+    }
+}
@@ -33,7 +33,7 @@ public class StageDefinitionService extends CrudService<StageDefinition> impleme
     private IPipelineDefinitionService pipelineDefinitionService;
 
     public StageDefinitionService() {
-        this.pipelineDefinitionService = new PipelineDefinitionService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
         super.setObjectType(CLASS_TYPE.getSimpleName());
     }
 
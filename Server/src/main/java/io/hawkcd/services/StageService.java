@@ -39,14 +39,14 @@ public class StageService extends CrudService<Stage> implements IStageService {
     private String successMessage = "retrieved successfully";
 
     public StageService() {
-        this.pipelineService = new PipelineService();
-        this.fileManagementService = new FileManagementService();
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
+        this.fileManagementService = ServiceRegistry.get(FileManagementService.class);
         super.setObjectType(CLASS_TYPE.getSimpleName());
     }
 
     public StageService(IPipelineService pipelineService) {
         this.pipelineService = pipelineService;
-        this.fileManagementService = new FileManagementService();
+        this.fileManagementService = ServiceRegistry.get(FileManagementService.class);
         super.setObjectType(CLASS_TYPE.getSimpleName());
     }
 
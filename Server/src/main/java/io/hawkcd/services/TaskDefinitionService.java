@@ -37,7 +37,7 @@ public class TaskDefinitionService extends CrudService<TaskDefinition> implement
 
     public TaskDefinitionService() {
         super.setObjectType(CLASS_TYPE.getSimpleName());
-        this.jobDefinitionService = new JobDefinitionService();
+        this.jobDefinitionService = ServiceRegistry.get(JobDefinitionService.class);
     }
 
     public TaskDefinitionService(IJobDefinitionService jobDefinitionService) {
@@ -19,6 +19,7 @@ package io.hawkcd.services;
 import io.hawkcd.core.Message;
 import io.hawkcd.core.MessageDispatcher;
 import io.hawkcd.core.security.*;
+import io.hawkcd.core.subscriber.Envelope;
 import io.hawkcd.db.DbRepositoryFactory;
 import io.hawkcd.db.IDbRepository;
 import io.hawkcd.model.ServiceResult;
@@ -44,7 +45,7 @@ public class UserGroupService extends CrudService<UserGroup> implements IUserGro
         super.setRepository(repository);
         super.setObjectType(CLASS_TYPE.getSimpleName());
 
-        this.userService = new UserService();
+        this.userService = ServiceRegistry.get(UserService.class);
     }
 
     public UserGroupService(IDbRepository repository, IUserService userService) {
@@ -97,6 +98,13 @@ public class UserGroupService extends CrudService<UserGroup> implements IUserGro
 
         MessageDispatcher.dispatchIncomingMessage(message);
 
+        // The members are updated on every node, which also drops their cached permissions
+        if (userGroup.getUserIds() != null && !userGroup.getUserIds().isEmpty()) {
+            message = new Message(new Envelope(new ArrayList<>(userGroup.getUserIds())));
+            message.setUserUpdate(true);
+            MessageDispatcher.dispatchIncomingMessage(message);
+        }
+
         return result;
     }
 
@@ -21,8 +21,8 @@ public class UserUpdaterService implements IUserUpdaterService {
     private AuthorizationGrantService authorizationGrantService;
 
     public UserUpdaterService() {
-        this.userGroupService = new UserGroupService();
-        this.userService = new UserService();
+        this.userGroupService = ServiceRegistry.get(UserGroupService.class);
+        this.userService = ServiceRegistry.get(UserService.class);
         this.authorizationGrantService = new AuthorizationGrantService();
     }
 
@@ -31,6 +31,7 @@ import io.hawkcd.model.enums.PermissionScope;
 import io.hawkcd.model.enums.PermissionType;
 import io.hawkcd.model.payload.Permission;
 import io.hawkcd.services.PipelineDefinitionService;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.interfaces.IPipelineDefinitionService;
 
 import java.util.List;
@@ -43,7 +44,7 @@ public class EntityPermissionTypeService {
     }
 
     public EntityPermissionTypeService() {
-        this.pipelineDefinitionService = new PipelineDefinitionService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
     }
 
     public PipelineGroup setPermissionTypeToObject(List<Permission> permissions, PipelineGroup pipelineGroup) {
@@ -18,6 +18,7 @@ package io.hawkcd.services.filters;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.deserializers.MaterialDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.TaskDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.WsContractDeserializer;
@@ -44,8 +45,8 @@ public class JobDefinitionAuthorizationService implements IAuthorizationService
     private Gson jsonConverter;
 
     public JobDefinitionAuthorizationService() {
-        this.pipelineDefinitionService = new PipelineDefinitionService();
-        this.jobDefinitionService = new JobDefinitionService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
+        this.jobDefinitionService = ServiceRegistry.get(JobDefinitionService.class);
         this.pipelineDefintionAuthorizationService = new PipelineDefinitionAuthorizationService();
         this.jsonConverter = new GsonBuilder()
                 .registerTypeAdapter(WsContractDto.class, new WsContractDeserializer())
@@ -18,6 +18,7 @@ package io.hawkcd.services.filters;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.deserializers.MaterialDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.TaskDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.WsContractDeserializer;
@@ -47,8 +48,8 @@ public class PipelineAuthorizationService implements IAuthorizationService {
     private EntityPermissionTypeService entityPermissionTypeService;
 
     public PipelineAuthorizationService() {
-        this.pipelineDefinitionService = new PipelineDefinitionService();
-        this.pipelineService = new PipelineService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
+        this.pipelineService = ServiceRegistry.get(PipelineService.class);
         this.jsonConverter = new GsonBuilder()
                 .registerTypeAdapter(WsContractDto.class, new WsContractDeserializer())
                 .registerTypeAdapter(TaskDefinition.class, new TaskDefinitionAdapter())
@@ -18,6 +18,7 @@ package io.hawkcd.services.filters;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.deserializers.MaterialDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.TaskDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.WsContractDeserializer;
@@ -42,7 +43,7 @@ public class PipelineDefinitionAuthorizationService implements IAuthorizationSer
     private EntityPermissionTypeService entityPermissionTypeService;
 
     public PipelineDefinitionAuthorizationService() {
-        this.pipelineDefinitionService = new PipelineDefinitionService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
         this.jsonConverter = new GsonBuilder()
                 .registerTypeAdapter(WsContractDto.class, new WsContractDeserializer())
                 .registerTypeAdapter(TaskDefinition.class, new TaskDefinitionAdapter())
@@ -18,6 +18,7 @@ package io.hawkcd.services.filters;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.deserializers.MaterialDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.TaskDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.WsContractDeserializer;
@@ -46,7 +47,7 @@ public class PipelineGroupAuthorizationService implements IAuthorizationService
                 .registerTypeAdapter(TaskDefinition.class, new TaskDefinitionAdapter())
                 .registerTypeAdapter(MaterialDefinition.class, new MaterialDefinitionAdapter())
                 .create();
-        this.pipelineGroupService = new PipelineGroupService();
+        this.pipelineGroupService = ServiceRegistry.get(PipelineGroupService.class);
         this.entityPermissionTypeService = new EntityPermissionTypeService();
     }
 
@@ -18,6 +18,7 @@ package io.hawkcd.services.filters;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.deserializers.MaterialDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.TaskDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.WsContractDeserializer;
@@ -53,8 +54,8 @@ public class SecurityService<T extends Entity> implements ISecurityService {
     private IPipelineDefinitionService pipelineDefinitionService;
 
     public SecurityService() {
-        this.pipelineGroupService = new PipelineGroupService();
-        this.pipelineDefinitionService = new PipelineDefinitionService();
+        this.pipelineGroupService = ServiceRegistry.get(PipelineGroupService.class);
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
 
         this.jsonConverter = new GsonBuilder()
                 .registerTypeAdapter(WsContractDto.class, new WsContractDeserializer())
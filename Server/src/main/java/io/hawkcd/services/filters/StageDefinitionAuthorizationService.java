@@ -18,6 +18,7 @@ package io.hawkcd.services.filters;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.utilities.deserializers.MaterialDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.TaskDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.WsContractDeserializer;
@@ -42,8 +43,8 @@ public class StageDefinitionAuthorizationService implements IAuthorizationServic
     private Gson jsonConverter;
 
     public StageDefinitionAuthorizationService() {
-        this.pipelineDefinitionService = new PipelineDefinitionService();
-        this.stageDefinitionService = new StageDefinitionService();
+        this.pipelineDefinitionService = ServiceRegistry.get(PipelineDefinitionService.class);
+        this.stageDefinitionService = ServiceRegistry.get(StageDefinitionService.class);
         this.pipelineDefintionAuthorizationService = new PipelineDefinitionAuthorizationService();
         this.jsonConverter = new GsonBuilder()
                 .registerTypeAdapter(WsContractDto.class, new WsContractDeserializer())
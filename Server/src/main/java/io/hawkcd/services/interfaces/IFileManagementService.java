@@ -19,18 +19,18 @@ package io.hawkcd.services.interfaces;
 import io.hawkcd.model.payload.JsTreeFile;
 
 import java.io.File;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface IFileManagementService {
     String unzipFile(String filePath, String destination);
 
-    String streamToFile(InputStream stream, String filePath);
-
     List<File> getFiles(String rootPath, String wildCardPattern);
 
     String zipFiles(String zipFilePath, List<File> files, String filesRootPath, boolean includeRootPath);
 
+    String streamZipFiles(OutputStream outputStream, List<File> files, String filesRootPath, boolean includeRootPath);
+
     File generateUniqueFile(String filePath, String fileExtension);
 
     String deleteFile(String filePath);
@@ -25,6 +25,7 @@ import io.hawkcd.model.configuration.Configuration;
 import io.hawkcd.model.enums.PermissionScope;
 import io.hawkcd.model.enums.PermissionType;
 import io.hawkcd.services.PipelineGroupService;
+import io.hawkcd.services.ServiceRegistry;
 import io.hawkcd.services.UserService;
 import io.hawkcd.services.interfaces.IPipelineGroupService;
 import io.hawkcd.services.interfaces.IUserService;
@@ -41,9 +42,9 @@ public class Initializer {
     private IPipelineGroupService pipelineGroupService;
 
     public Initializer() {
-        this.userService = new UserService();
-        this.pipelineGroupService = new PipelineGroupService();
-        this.sessionService =  new SessionService();
+        this.userService = ServiceRegistry.get(UserService.class);
+        this.pipelineGroupService = ServiceRegistry.get(PipelineGroupService.class);
+        this.sessionService =  ServiceRegistry.get(SessionService.class);
     }
 
     public Initializer(IUserService userService, IPipelineGroupService pipelineGroupService) {
@@ -31,8 +31,31 @@ public final class ConfigurationConstants {
     public static final String PROPERTY_ARTIFACTS_DESTINATION = "Artifacts";
     public static final String PROPERTY_SCHEDULER_POLL_INTERVAL = "pipelineSchedulerPollInterval";
     public static final String PROPERTY_TRACKER_POLL_INTERVAL = "materialTrackerPollInterval";
+    public static final String PROPERTY_BROADCAST_COALESCING_WINDOW = "broadcastCoalescingWindow";
+
+    public static final int MAX_CONCURRENT_ARTIFACT_UPLOADS = 4;
+    public static final int MAX_CONCURRENT_ARTIFACT_DOWNLOADS = 8;
+    public static final int ARTIFACT_TRANSFER_WAIT_SECONDS = 30;
+    public static final String ARTIFACT_BUNDLE_CACHE_DIRECTORY = "Temp/Bundles";
+    public static final long ARTIFACT_BUNDLE_CACHE_QUOTA = 2L * 1024 * 1024 * 1024;
+    public static final int ARTIFACT_UPLOAD_NEGOTIATION_TIMEOUT_SECONDS = 600;
+    public static final int ARTIFACT_INGESTION_THREADS = 2;
+    public static final int ARTIFACT_INGESTION_WAIT_SECONDS = 300;
+    public static final int ARTIFACT_TREE_PAGE_SIZE = 200;
+    public static final int ARTIFACT_MANIFEST_CACHE_CAPACITY = 100;
+    public static final int PIPELINE_DELTA_TRACKED_RUNS = 100;
+    public static final int WS_OUTBOUND_QUEUE_HIGH_WATER_MARK = 256;
+    public static final int WS_REQUEST_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+    public static final int WS_REQUEST_QUEUE_CAPACITY = 1000;
+    public static final int WS_SESSION_REQUEST_QUEUE_CAPACITY = 50;
+    public static final int VERIFIED_TOKEN_CACHE_CAPACITY = 10000;
+    public static final int VERIFIED_TOKEN_CACHE_SECONDS = 300;
 
     public static final int MIN_WORKER_POLL_INTERVAL = 1;
     public static final int MAX_WORKER_POLL_INTERVAL = 30;
     public static final String WORKER_POLL_INTERVAL_ERROR = "Property '%s' must be set between %d and %d seconds." + System.getProperty("line.separator");
+
+    public static final int DEFAULT_BROADCAST_COALESCING_WINDOW = 150;
+    public static final int MAX_BROADCAST_COALESCING_WINDOW = 1000;
+    public static final String BROADCAST_COALESCING_WINDOW_ERROR = "Property '%s' must be set between 0 and %d milliseconds." + System.getProperty("line.separator");
 }
@@ -19,6 +19,7 @@ package io.hawkcd.utilities.deserializers;
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import io.hawkcd.core.security.VerifiedTokenCache;
 import io.hawkcd.model.User;
 import io.hawkcd.model.payload.TokenInfo;
 import net.oauth.jsontoken.Checker;
@@ -45,6 +46,8 @@ public class TokenAdapter {
 
     private static final String SIGNING_KEY = "LongAndHardToGuessValueWithSpecialCharacters@^($%*$%";
 
+    private static final ThreadLocal<JsonTokenParser> PARSER = ThreadLocal.withInitial(TokenAdapter::createParser);
+
     private static Gson gson = new Gson();
 
     public static String createJsonWebToken(User user, Long durationDays) {
@@ -83,6 +86,44 @@ public class TokenAdapter {
             return null;
         }
 
+        VerifiedTokenCache verifiedTokens = VerifiedTokenCache.getInstance();
+        TokenInfo cachedTokenInfo = verifiedTokens.get(token);
+        if (cachedTokenInfo != null) {
+            return cachedTokenInfo;
+        }
+
+        JsonToken jsonToken;
+        try {
+            jsonToken = PARSER.get().verifyAndDeserialize(token);
+        } catch (SignatureException | IllegalArgumentException e) {
+            return null;
+//                throw new RuntimeException(e);
+        }
+
+        JsonObject payload = jsonToken.getPayloadAsJsonObject();
+        TokenInfo t = new TokenInfo();
+        String issuer = payload.getAsJsonPrimitive("iss").getAsString();
+        String userIdString = payload.getAsJsonObject("info").getAsJsonPrimitive("user").getAsString();
+
+        User user = gson.fromJson(userIdString, User.class);
+        Long expireDate = payload.getAsJsonPrimitive("exp").getAsLong();
+        if (issuer.equals(ISSUER) && (userIdString != null)) {
+            t.setUser(user);
+            t.setExpires(getDateTimeFromTimestamp(expireDate));
+            if (user != null) {
+                verifiedTokens.put(token, userIdString, user.getId(), expireDate);
+            }
+
+            return t;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * The verifier signs with a single Mac instance, which is not thread safe, so each thread builds its parser once
+     */
+    private static JsonTokenParser createParser() {
         try {
             final Verifier hmacVerifier = new HmacSHA256Verifier(SIGNING_KEY.getBytes());
 
@@ -93,29 +134,7 @@ public class TokenAdapter {
             Checker checker = payload -> {
             };
 
-            JsonTokenParser jsonTokenParser = new JsonTokenParser(locators, checker);
-            JsonToken jsonToken;
-            try {
-                jsonToken = jsonTokenParser.verifyAndDeserialize(token);
-            } catch (SignatureException | IllegalArgumentException e) {
-                return null;
-//                throw new RuntimeException(e);
-            }
-
-            JsonObject payload = jsonToken.getPayloadAsJsonObject();
-            TokenInfo t = new TokenInfo();
-            String issuer = payload.getAsJsonPrimitive("iss").getAsString();
-            String userIdString = payload.getAsJsonObject("info").getAsJsonPrimitive("user").getAsString();
-
-            User user = gson.fromJson(userIdString, User.class);
-            Long expireDate = payload.getAsJsonPrimitive("exp").getAsLong();
-            if (issuer.equals(ISSUER) && (userIdString != null)) {
-                t.setUser(user);
-                t.setExpires(getDateTimeFromTimestamp(expireDate));
-                return t;
-            } else {
-                return null;
-            }
+            return new JsonTokenParser(locators, checker);
         } catch (InvalidKeyException e1) {
             throw new RuntimeException(e1);
         }
@@ -18,9 +18,13 @@ package io.hawkcd.ws;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonParseException;
+import io.hawkcd.core.CommandTable;
 import io.hawkcd.core.RequestProcessor;
 import io.hawkcd.core.session.ISessionManager;
+import io.hawkcd.core.session.OutboundMessage;
 import io.hawkcd.core.session.SessionFactory;
+import io.hawkcd.core.session.SessionOutboundQueue;
+import io.hawkcd.core.session.TopicRegistry;
 import io.hawkcd.core.subscriber.Envelope;
 import io.hawkcd.core.subscriber.EnvelopeAdapter;
 import io.hawkcd.model.MaterialDefinition;
@@ -31,35 +35,49 @@ import io.hawkcd.model.dto.UserDto;
 import io.hawkcd.model.dto.WsContractDto;
 import io.hawkcd.model.enums.NotificationType;
 import io.hawkcd.model.payload.TokenInfo;
+import io.hawkcd.utilities.constants.ConfigurationConstants;
 import io.hawkcd.utilities.deserializers.MaterialDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.TaskDefinitionAdapter;
 import io.hawkcd.utilities.deserializers.TokenAdapter;
 import org.apache.log4j.Logger;
-import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class WSSocket extends WebSocketAdapter {
     private static final Logger LOGGER = Logger.getLogger(WSSocket.class.getClass());
+    private static final String SUBSCRIPTION_SERVICE = "SubscriptionService";
+    private static final String SUBSCRIBE_METHOD = "subscribe";
+    private static final String UNSUBSCRIBE_METHOD = "unsubscribe";
+    private static final String REQUEST_REJECTED_MESSAGE = "Server is busy, please try again.";
 
     private String id;
     private Gson jsonConverter;
     private User loggedUser;
     private RequestProcessor requestProcessor;
     private SessionDetails sessionDetails;
+    private Map<String, Long> pipelineVersions;
+    private SessionOutboundQueue outboundQueue;
+    private WsRequestQueue requestQueue;
 
     public WSSocket() {
         this.id = UUID.randomUUID().toString();
         this.jsonConverter = new GsonBuilder()
-                .registerTypeAdapter(Envelope.class, new EnvelopeAdapter())
+                .registerTypeAdapter(Envelope.class, new EnvelopeAdapter(CommandTable.getInstance().getArgumentClasses()))
                 .registerTypeAdapter(TaskDefinition.class, new TaskDefinitionAdapter())
                 .registerTypeAdapter(MaterialDefinition.class, new MaterialDefinitionAdapter())
                 .create();
         this.requestProcessor = new RequestProcessor();
         this.sessionDetails = new SessionDetails(this.getId());
+        this.pipelineVersions = new ConcurrentHashMap<>();
+        this.outboundQueue = new SessionOutboundQueue(this, ConfigurationConstants.WS_OUTBOUND_QUEUE_HIGH_WATER_MARK);
+        this.requestQueue = WsRequestExecutor.getInstance().createQueue();
     }
 
     public String getId() {
@@ -78,6 +96,29 @@ public class WSSocket extends WebSocketAdapter {
         return this.sessionDetails;
     }
 
+    /**
+     * Returns the version of the pipeline run last sent to this session, or 0 when it has not been sent
+     */
+    public long getPipelineVersion(String pipelineId) {
+        return this.pipelineVersions.getOrDefault(pipelineId, 0L);
+    }
+
+    public void setPipelineVersion(String pipelineId, long version) {
+        this.pipelineVersions.put(pipelineId, version);
+    }
+
+    public void resetPipelineVersion(String pipelineId) {
+        this.pipelineVersions.remove(pipelineId);
+    }
+
+    public void resetPipelineVersions() {
+        this.pipelineVersions.clear();
+    }
+
+    public SessionOutboundQueue getOutboundQueue() {
+        return this.outboundQueue;
+    }
+
     @Override
     public void onWebSocketConnect(Session session) {
         super.onWebSocketConnect(session);
@@ -87,7 +128,17 @@ public class WSSocket extends WebSocketAdapter {
 
     @Override
     public void onWebSocketText(String message) {
-        this.execute(message);
+        // Requests run on the worker pool, the I/O thread only queues them
+        boolean isAccepted = this.requestQueue.submit(() -> this.execute(message));
+        if (!isAccepted) {
+            LOGGER.warn("Request of session " + this.getId() + " rejected, too many requests waiting");
+            this.send(new WsContractDto("NotificationService"
+                    , ""
+                    , "sendMessage"
+                    , null
+                    , NotificationType.ERROR
+                    , REQUEST_REJECTED_MESSAGE));
+        }
     }
 
     @Override
@@ -137,9 +188,8 @@ public class WSSocket extends WebSocketAdapter {
             return;
         }
 
-        RemoteEndpoint remoteEndpoint = this.getSession().getRemote();
         String jsonResult = this.jsonConverter.toJson(contract);
-        remoteEndpoint.sendStringByFuture(jsonResult);
+        this.outboundQueue.offer(new OutboundMessage(null, jsonResult));
     }
 
     private void execute(String message) {
@@ -150,6 +200,11 @@ public class WSSocket extends WebSocketAdapter {
                     throw new RuntimeException("Resolution failed for object" + contract);
                 }
 
+                if (SUBSCRIPTION_SERVICE.equals(contract.getClassName())) {
+                    this.updateSubscriptions(contract);
+                    return;
+                }
+
                 try {
                     this.requestProcessor.processRequest(contract, this.getLoggedUser());
 
@@ -172,6 +227,27 @@ public class WSSocket extends WebSocketAdapter {
         }
     }
 
+    /**
+     * Subscriptions belong to the session rather than to a service, so they are handled before request processing
+     */
+    private void updateSubscriptions(WsContractDto contract) {
+        List<String> topics = new ArrayList<>();
+        if (contract.getArgs() != null) {
+            for (Envelope envelope : contract.getArgs()) {
+                if (envelope.getObject() instanceof String) {
+                    topics.add((String) envelope.getObject());
+                }
+            }
+        }
+
+        TopicRegistry topicRegistry = TopicRegistry.getInstance();
+        if (SUBSCRIBE_METHOD.equals(contract.getMethodName())) {
+            topicRegistry.subscribe(this, topics);
+        } else if (UNSUBSCRIBE_METHOD.equals(contract.getMethodName())) {
+            topicRegistry.unsubscribe(this, topics);
+        }
+    }
+
     private void initialize(Session session) {
         String tokenQuery = session.getUpgradeRequest().getQueryString();
         if (!tokenQuery.equals("api_key=null")) {
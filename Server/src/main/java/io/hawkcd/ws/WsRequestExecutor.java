@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.ws;
+
+import io.hawkcd.utilities.constants.ConfigurationConstants;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the requests received over WebSocket connections on a fixed pool of workers instead of the Jetty I/O
+ * threads that delivered them. Requests of one session keep their order through a {@link WsRequestQueue}, requests
+ * of different sessions run in parallel. At most capacity requests wait across all sessions, any further request
+ * is rejected.
+ */
+public class WsRequestExecutor {
+    private static WsRequestExecutor instance;
+
+    private Executor executor;
+    private int capacity;
+    private int sessionCapacity;
+    private AtomicInteger pendingRequests;
+
+    public WsRequestExecutor(Executor executor, int capacity, int sessionCapacity) {
+        this.executor = executor;
+        this.capacity = capacity;
+        this.sessionCapacity = sessionCapacity;
+        this.pendingRequests = new AtomicInteger();
+    }
+
+    public static synchronized WsRequestExecutor getInstance() {
+        if (instance == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            Executor executor = Executors.newFixedThreadPool(ConfigurationConstants.WS_REQUEST_THREADS, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "WsRequest-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            instance = new WsRequestExecutor(executor, ConfigurationConstants.WS_REQUEST_QUEUE_CAPACITY, ConfigurationConstants.WS_SESSION_REQUEST_QUEUE_CAPACITY);
+        }
+
+        return instance;
+    }
+
+    public WsRequestQueue createQueue() {
+        return new WsRequestQueue(this, this.sessionCapacity);
+    }
+
+    public int getPendingRequests() {
+        return this.pendingRequests.get();
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int pending = this.pendingRequests.get();
+            if (pending >= this.capacity) {
+                return false;
+            }
+
+            if (this.pendingRequests.compareAndSet(pending, pending + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        this.pendingRequests.decrementAndGet();
+    }
+
+    void execute(Runnable task) {
+        this.executor.execute(task);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.ws;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Holds the requests of a single session and hands them to the {@link WsRequestExecutor} one at a time, in the
+ * order they were received. After each request the session goes back to the end of the pool queue, so a session
+ * with many requests waiting does not hold a worker while other sessions wait.
+ */
+public class WsRequestQueue {
+    private static final Logger LOGGER = Logger.getLogger(WsRequestQueue.class);
+
+    private WsRequestExecutor requestExecutor;
+    private int capacity;
+    private Queue<Runnable> requests;
+    private boolean running;
+
+    WsRequestQueue(WsRequestExecutor requestExecutor, int capacity) {
+        this.requestExecutor = requestExecutor;
+        this.capacity = capacity;
+        this.requests = new ArrayDeque<>();
+    }
+
+    /**
+     * Queues the request and returns true, or returns false when the session or the server already has as many
+     * requests waiting as allowed
+     *
+     * @param request
+     */
+    public boolean submit(Runnable request) {
+        synchronized (this) {
+            if (this.requests.size() >= this.capacity || !this.requestExecutor.tryAcquire()) {
+                return false;
+            }
+
+            this.requests.add(request);
+            if (this.running) {
+                return true;
+            }
+            this.running = true;
+        }
+
+        this.requestExecutor.execute(this::runNext);
+        return true;
+    }
+
+    public synchronized int size() {
+        return this.requests.size();
+    }
+
+    private void runNext() {
+        Runnable request;
+        synchronized (this) {
+            request = this.requests.poll();
+        }
+
+        try {
+            request.run();
+        } catch (RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+        } finally {
+            this.requestExecutor.release();
+            this.scheduleNext();
+        }
+    }
+
+    /**
+     * Hands the next request of the session to the pool, or marks the session idle when there is none. Runs even
+     * when a request fails with an error, so the session keeps being served.
+     */
+    private void scheduleNext() {
+        synchronized (this) {
+            if (this.requests.isEmpty()) {
+                this.running = false;
+                return;
+            }
+        }
+
+        this.requestExecutor.execute(this::runNext);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import io.hawkcd.services.FileManagementService;
+import io.hawkcd.services.interfaces.IFileManagementService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+public class ArtifactBundleCacheTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path cacheDirectory;
+    private IArchiveWriter archiveWriter;
+
+    @Before
+    public void setUp() throws IOException {
+        IFileManagementService fileManagementService = new FileManagementService();
+        this.cacheDirectory = this.folder.getRoot().toPath().resolve("Bundles");
+        File artifact = this.folder.newFile("artifact.txt");
+        Files.write(artifact.toPath(), "artifact contents".getBytes());
+        List<File> files = Collections.singletonList(artifact);
+        String rootPath = this.folder.getRoot().getAbsolutePath();
+        this.archiveWriter = new IArchiveWriter() {
+            @Override
+            public String write(OutputStream output) {
+                return fileManagementService.streamZipFiles(output, files, rootPath, false);
+            }
+        };
+    }
+
+    @Test
+    public void getKey_unnormalizedSource_normalized() {
+        //Act
+        String actualKey = ArtifactBundleCache.getKey("/pipeline\\1//folder/./sub/");
+
+        //Assert
+        Assert.assertEquals("pipeline/1/folder/sub", actualKey);
+    }
+
+    @Test
+    public void build_sameKeyTwice_compressedOnce() throws IOException {
+        //Arrange
+        ArtifactBundleCache bundleCache = new ArtifactBundleCache(this.cacheDirectory, 1024 * 1024);
+
+        //Act
+        ArtifactBundle firstBundle = bundleCache.build("pipeline/1/source", this.archiveWriter);
+        ArtifactBundle secondBundle = bundleCache.build("pipeline/1/source", this.archiveWriter);
+
+        //Assert
+        Assert.assertSame(firstBundle, secondBundle);
+        Assert.assertEquals(1, bundleCache.size());
+        Assert.assertEquals(firstBundle.getSize(), bundleCache.getUsedSpace());
+    }
+
+    @Test
+    public void transferTo_builtBundle_archiveWritten() throws IOException {
+        //Arrange
+        ArtifactBundleCache bundleCache = new ArtifactBundleCache(this.cacheDirectory, 1024 * 1024);
+        ArtifactBundle bundle = bundleCache.build("pipeline/1/source", this.archiveWriter);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //Act
+        bundle.transferTo(output);
+
+        //Assert
+        Assert.assertArrayEquals(Files.readAllBytes(bundle.getFile()), output.toByteArray());
+    }
+
+    @Test
+    public void matches_sameETag_true() throws IOException {
+        //Arrange
+        ArtifactBundleCache bundleCache = new ArtifactBundleCache(this.cacheDirectory, 1024 * 1024);
+        ArtifactBundle bundle = bundleCache.build("pipeline/1/source", this.archiveWriter);
+
+        //Assert
+        Assert.assertTrue(bundle.matches("\"other\", " + bundle.getETag()));
+        Assert.assertFalse(bundle.matches("\"other\""));
+        Assert.assertFalse(bundle.matches(null));
+    }
+
+    @Test
+    public void invalidate_execution_onlyItsBundlesRemoved() throws IOException {
+        //Arrange
+        ArtifactBundleCache bundleCache = new ArtifactBundleCache(this.cacheDirectory, 1024 * 1024);
+        ArtifactBundle invalidatedBundle = bundleCache.build("pipeline/1/source", this.archiveWriter);
+        bundleCache.build("pipeline/11/source", this.archiveWriter);
+
+        //Act
+        bundleCache.invalidate("pipeline", "1");
+
+        //Assert
+        Assert.assertNull(bundleCache.get("pipeline/1/source"));
+        Assert.assertNotNull(bundleCache.get("pipeline/11/source"));
+        Assert.assertFalse(Files.exists(invalidatedBundle.getFile()));
+    }
+
+    @Test
+    public void build_quotaExceeded_leastRecentlyUsedEvicted() throws IOException {
+        //Arrange
+        ArtifactBundleCache probe = new ArtifactBundleCache(this.folder.getRoot().toPath().resolve("Probe"), 1024 * 1024);
+        long bundleSize = probe.build("probe", this.archiveWriter).getSize();
+        ArtifactBundleCache bundleCache = new ArtifactBundleCache(this.cacheDirectory, bundleSize * 2);
+        bundleCache.build("pipeline/1/first", this.archiveWriter);
+        bundleCache.build("pipeline/1/second", this.archiveWriter);
+        bundleCache.get("pipeline/1/first");
+
+        //Act
+        bundleCache.build("pipeline/1/third", this.archiveWriter);
+
+        //Assert
+        Assert.assertNotNull(bundleCache.get("pipeline/1/first"));
+        Assert.assertNull(bundleCache.get("pipeline/1/second"));
+        Assert.assertNotNull(bundleCache.get("pipeline/1/third"));
+        Assert.assertEquals(bundleSize * 2, bundleCache.getUsedSpace());
+    }
+
+    @Test
+    public void stream_missedKey_archiveWrittenAndStored() throws IOException {
+        //Arrange
+        ArtifactBundleCache bundleCache = new ArtifactBundleCache(this.cacheDirectory, 1024 * 1024);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //Act
+        ArtifactBundle bundle = bundleCache.stream("pipeline/1/source", this.archiveWriter, output);
+
+        //Assert
+        Assert.assertSame(bundle, bundleCache.get("pipeline/1/source"));
+        Assert.assertArrayEquals(Files.readAllBytes(bundle.getFile()), output.toByteArray());
+    }
+
+    @Test
+    public void stream_responseFails_bundleStillStored() throws IOException {
+        //Arrange
+        ArtifactBundleCache bundleCache = new ArtifactBundleCache(this.cacheDirectory, 1024 * 1024);
+        OutputStream output = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+        IOException actualException = null;
+
+        //Act
+        try {
+            bundleCache.stream("pipeline/1/source", this.archiveWriter, output);
+        } catch (IOException e) {
+            actualException = e;
+        }
+
+        //Assert
+        Assert.assertEquals("Connection reset", actualException.getMessage());
+        Assert.assertNotNull(bundleCache.get("pipeline/1/source"));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import com.google.common.hash.Hashing;
+import io.hawkcd.services.FileManagementService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ArtifactIngestionQueueTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ArtifactStore artifactStore;
+    private ArtifactBundleCache bundleCache;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        this.artifactStore = new ArtifactStore(this.folder.getRoot().toPath().resolve("Artifacts"), new FileManagementService());
+        this.bundleCache = new ArtifactBundleCache(this.folder.getRoot().toPath().resolve("Bundles"), 1024 * 1024);
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void submit_uploadsToOneExecution_ingestedInOrder() throws IOException, InterruptedException {
+        //Arrange
+        // The single worker is held until both uploads are queued
+        CountDownLatch release = new CountDownLatch(1);
+        this.executor.submit(() -> {
+            release.await();
+            return null;
+        });
+        ArtifactIngestionQueue ingestionQueue = new ArtifactIngestionQueue(this.artifactStore, this.bundleCache, this.executor);
+
+        //Act
+        String firstError = ingestionQueue.submit("pipeline", "1", null, this.archive("app.jar", "first"), null);
+        String secondError = ingestionQueue.submit("pipeline", "1", null, this.archive("app.jar", "second"), null);
+        boolean isIngestedWhileBlocked = ingestionQueue.await("pipeline", "1", 100, TimeUnit.MILLISECONDS);
+        release.countDown();
+        boolean isIngested = ingestionQueue.await("pipeline", "1", 10, TimeUnit.SECONDS);
+
+        //Assert
+        Assert.assertNull(firstError);
+        Assert.assertNull(secondError);
+        Assert.assertFalse(isIngestedWhileBlocked);
+        Assert.assertTrue(isIngested);
+        Assert.assertEquals(6, this.artifactStore.getManifest("pipeline", "1").getEntries().get("app.jar").getSize());
+    }
+
+    @Test
+    public void await_nothingQueued_true() {
+        //Arrange
+        ArtifactIngestionQueue ingestionQueue = new ArtifactIngestionQueue(this.artifactStore, this.bundleCache, this.executor);
+
+        //Assert
+        Assert.assertTrue(ingestionQueue.await("pipeline", "1", 0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void submit_unknownUploadId_rejectedWhileReceived() throws IOException {
+        //Arrange
+        ArtifactIngestionQueue ingestionQueue = new ArtifactIngestionQueue(this.artifactStore, this.bundleCache, this.executor);
+
+        //Act
+        String actualMessage = ingestionQueue.submit("pipeline", "1", null, this.archive("app.jar", "contents"), "expired");
+
+        //Assert
+        Assert.assertEquals("Upload expired is unknown or expired", actualMessage);
+        Assert.assertNull(this.artifactStore.getManifest("pipeline", "1"));
+    }
+
+    @Test
+    public void submit_workerBusy_contentsStoredBeforeCommit() throws IOException {
+        //Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        this.executor.submit(() -> {
+            release.await();
+            return null;
+        });
+        ArtifactIngestionQueue ingestionQueue = new ArtifactIngestionQueue(this.artifactStore, this.bundleCache, this.executor);
+
+        //Act
+        String actualMessage = ingestionQueue.submit("pipeline", "1", null, this.archive("app.jar", "contents"), null);
+
+        //Assert
+        Assert.assertNull(actualMessage);
+        Assert.assertNull(this.artifactStore.getManifest("pipeline", "1"));
+        Assert.assertEquals(1, this.artifactStore.getReferenceCount(Hashing.sha256().hashString("contents", StandardCharsets.UTF_8).toString()));
+        release.countDown();
+    }
+
+    private ByteArrayInputStream archive(String name, String contents) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zipStream = new ZipOutputStream(archive)) {
+            zipStream.putNextEntry(new ZipEntry(name));
+            zipStream.write(contents.getBytes());
+            zipStream.closeEntry();
+        }
+
+        return new ByteArrayInputStream(archive.toByteArray());
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import io.hawkcd.services.FileManagementService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+public class ArtifactStoreTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path rootDirectory;
+    private ArtifactStore artifactStore;
+
+    @Before
+    public void setUp() {
+        this.rootDirectory = this.folder.getRoot().toPath().resolve("Artifacts");
+        this.artifactStore = new ArtifactStore(this.rootDirectory, new FileManagementService());
+    }
+
+    @Test
+    public void ingest_sameContentsInTwoExecutions_storedOnce() throws IOException {
+        //Act
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("lib/app.jar", "jar"));
+        this.artifactStore.ingest("pipeline", "2", null, this.archive("lib/app.jar", "jar"));
+
+        //Assert
+        String hash = this.artifactStore.getManifest("pipeline", "1").getEntries().get("lib/app.jar").getHash();
+        Assert.assertEquals(hash, this.artifactStore.getManifest("pipeline", "2").getEntries().get("lib/app.jar").getHash());
+        Assert.assertEquals(2, this.artifactStore.getReferenceCount(hash));
+        Assert.assertEquals("jar", new String(Files.readAllBytes(this.artifactStore.getBlobFile(hash))));
+    }
+
+    @Test
+    public void ingest_entryOutsideOfExecution_errorMessage() throws IOException {
+        //Act
+        String actualMessage = this.artifactStore.ingest("pipeline", "1", null, this.archive("../../escape.txt", "text"));
+
+        //Assert
+        Assert.assertNotNull(actualMessage);
+        Assert.assertNull(this.artifactStore.getManifest("pipeline", "1"));
+    }
+
+    @Test
+    public void release_sharedBlob_deletedWithLastReference() throws IOException {
+        //Arrange
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("lib/app.jar", "jar"));
+        this.artifactStore.ingest("pipeline", "2", null, this.archive("lib/app.jar", "jar"));
+        String hash = this.artifactStore.getManifest("pipeline", "1").getEntries().get("lib/app.jar").getHash();
+
+        //Act
+        this.artifactStore.release("pipeline", "1");
+        boolean existsAfterFirstRelease = Files.exists(this.artifactStore.getBlobFile(hash));
+        this.artifactStore.release("pipeline", "2");
+
+        //Assert
+        Assert.assertTrue(existsAfterFirstRelease);
+        Assert.assertFalse(Files.exists(this.artifactStore.getBlobFile(hash)));
+        Assert.assertEquals(0, this.artifactStore.getReferenceCount(hash));
+    }
+
+    @Test
+    public void artifactStore_restarted_referencesCounted() throws IOException {
+        //Arrange
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("lib/app.jar", "jar"));
+        String hash = this.artifactStore.getManifest("pipeline", "1").getEntries().get("lib/app.jar").getHash();
+
+        //Act
+        ArtifactStore restartedStore = new ArtifactStore(this.rootDirectory, new FileManagementService());
+
+        //Assert
+        Assert.assertEquals(1, restartedStore.getReferenceCount(hash));
+    }
+
+    @Test
+    public void select_sources_matchFolderScanning() throws IOException {
+        //Arrange
+        this.artifactStore.ingest("pipeline", "1", "out", this.archive("lib/app.jar", "jar", "lib/util.jar", "jar", "readme.txt", "text"));
+        ArtifactManifest manifest = this.artifactStore.getManifest("pipeline", "1");
+
+        //Act
+        Map<String, ArtifactManifestEntry> file = this.artifactStore.select(manifest, "out/readme.txt");
+        Map<String, ArtifactManifestEntry> folder = this.artifactStore.select(manifest, "out/lib");
+        Map<String, ArtifactManifestEntry> pattern = this.artifactStore.select(manifest, "out/**/*.jar");
+        Map<String, ArtifactManifestEntry> missing = this.artifactStore.select(manifest, "out/missing");
+
+        //Assert
+        Assert.assertEquals("[readme.txt]", file.keySet().toString());
+        Assert.assertEquals("[app.jar, util.jar]", folder.keySet().toString());
+        Assert.assertEquals("[lib/app.jar, lib/util.jar]", pattern.keySet().toString());
+        Assert.assertNull(missing);
+    }
+
+    @Test
+    public void streamZip_selection_archiveWritten() throws IOException {
+        //Arrange
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("lib/app.jar", "jar"));
+        Map<String, ArtifactManifestEntry> selection = this.artifactStore.select(this.artifactStore.getManifest("pipeline", "1"), "lib");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //Act
+        String actualMessage = this.artifactStore.streamZip(output, selection);
+
+        //Assert
+        Assert.assertNull(actualMessage);
+        ZipInputStream archive = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()));
+        Assert.assertEquals("app.jar", archive.getNextEntry().getName());
+    }
+
+    @Test
+    public void streamZip_executionReleasedWhileStreaming_archiveCompleted() throws IOException {
+        //Arrange
+        Random random = new Random(1);
+        StringBuilder largeContents = new StringBuilder();
+        for (int i = 0; i < 256 * 1024; i++) {
+            largeContents.append((char) ('a' + random.nextInt(26)));
+        }
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("lib/a.jar", largeContents.toString(), "lib/b.jar", "jar"));
+        ArtifactManifest manifest = this.artifactStore.getManifest("pipeline", "1");
+        Map<String, ArtifactManifestEntry> selection = this.artifactStore.select(manifest, "lib");
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                if (this.size() == 0) {
+                    ArtifactStoreTests.this.artifactStore.release("pipeline", "1");
+                }
+                super.write(b, off, len);
+            }
+        };
+
+        //Act
+        String actualMessage = this.artifactStore.streamZip(output, selection);
+
+        //Assert
+        Assert.assertNull(actualMessage);
+        ZipInputStream archive = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()));
+        archive.getNextEntry();
+        Assert.assertEquals("b.jar", archive.getNextEntry().getName());
+        Assert.assertFalse(Files.exists(this.artifactStore.getBlobFile(manifest.getEntries().get("lib/b.jar").getHash())));
+    }
+
+    @Test
+    public void getTreePage_storedExecution_directChildrenListed() throws IOException {
+        //Arrange
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("lib/app.jar", "jar", "lib/ext/plugin.jar", "plugin", "lib-readme.txt", "text", "readme.txt", "text"));
+
+        //Act
+        ArtifactTreePage root = this.artifactStore.getTreePage("pipeline", "1", "", 0, 10);
+        ArtifactTreePage lib = this.artifactStore.getTreePage("pipeline", "1", "lib", 0, 10);
+
+        //Assert
+        Assert.assertEquals(3, root.getTotal());
+        Assert.assertEquals("lib", root.getNodes().get(0).getText());
+        Assert.assertEquals("folder", root.getNodes().get(0).getType());
+        Assert.assertTrue(root.getNodes().get(0).hasChildren());
+        Assert.assertEquals("lib-readme.txt", root.getNodes().get(1).getText());
+        Assert.assertEquals(2, lib.getTotal());
+        Assert.assertEquals("lib/ext", lib.getNodes().get(1).getId());
+        Assert.assertEquals(3, lib.getNodes().get(0).getSize());
+        Assert.assertTrue(lib.getNodes().get(0).getPath().endsWith("pipeline/1/lib"));
+    }
+
+    @Test
+    public void getTreePage_offset_pageReturned() throws IOException {
+        //Arrange
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("a.txt", "a", "b.txt", "b", "c.txt", "c"));
+
+        //Act
+        ArtifactTreePage page = this.artifactStore.getTreePage("pipeline", "1", null, 1, 1);
+
+        //Assert
+        Assert.assertEquals(3, page.getTotal());
+        Assert.assertEquals(1, page.getNodes().size());
+        Assert.assertEquals("b.txt", page.getNodes().get(0).getText());
+    }
+
+    @Test
+    public void getTreePage_missingFolder_null() throws IOException {
+        //Arrange
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("a.txt", "a"));
+
+        //Assert
+        Assert.assertNull(this.artifactStore.getTreePage("pipeline", "1", "missing", 0, 10));
+        Assert.assertNull(this.artifactStore.getTreePage("pipeline", "2", "", 0, 10));
+    }
+
+    @Test
+    public void getTreePage_executionUploadedAgain_newChildrenListed() throws IOException {
+        //Arrange
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("a.txt", "a"));
+        ArtifactManifest cachedManifest = this.artifactStore.getManifest("pipeline", "1");
+        this.artifactStore.getTreePage("pipeline", "1", "", 0, 10);
+
+        //Act
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("b.txt", "b"));
+        ArtifactTreePage page = this.artifactStore.getTreePage("pipeline", "1", "", 0, 10);
+
+        //Assert
+        Assert.assertNotSame(cachedManifest, this.artifactStore.getManifest("pipeline", "1"));
+        Assert.assertEquals(2, page.getTotal());
+        Assert.assertEquals("b.txt", page.getNodes().get(1).getText());
+    }
+
+    @Test
+    public void getManifest_unchangedExecution_parsedOnce() throws IOException {
+        //Arrange
+        this.artifactStore.ingest("pipeline", "1", null, this.archive("a.txt", "a"));
+
+        //Act
+        ArtifactManifest first = this.artifactStore.getManifest("pipeline", "1");
+        ArtifactManifest second = this.artifactStore.getManifest("pipeline", "1");
+
+        //Assert
+        Assert.assertSame(first, second);
+    }
+
+    private ByteArrayInputStream archive(String... entries) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zipStream = new ZipOutputStream(archive)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zipStream.putNextEntry(new ZipEntry(entries[i]));
+                zipStream.write(entries[i + 1].getBytes());
+                zipStream.closeEntry();
+            }
+        }
+
+        return new ByteArrayInputStream(archive.toByteArray());
+    }
+}
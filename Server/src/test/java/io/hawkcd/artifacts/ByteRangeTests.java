@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.artifacts;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ByteRangeTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parse_openRange_endsWithRepresentation() {
+        //Act
+        ByteRange range = ByteRange.parse("bytes=100-", 1000);
+
+        //Assert
+        Assert.assertEquals(100, range.getStart());
+        Assert.assertEquals(999, range.getEnd());
+        Assert.assertEquals("bytes 100-999/1000", range.getContentRange());
+    }
+
+    @Test
+    public void parse_suffixRange_lastBytes() {
+        //Act
+        ByteRange range = ByteRange.parse("bytes=-300", 1000);
+
+        //Assert
+        Assert.assertEquals(700, range.getStart());
+        Assert.assertEquals(300, range.getLength());
+    }
+
+    @Test
+    public void parse_endBeyondRepresentation_endTruncated() {
+        //Act
+        ByteRange range = ByteRange.parse("bytes=0-5000", 1000);
+
+        //Assert
+        Assert.assertTrue(range.isFull());
+    }
+
+    @Test
+    public void parse_startBeyondRepresentation_notSatisfiable() {
+        //Act
+        ByteRange range = ByteRange.parse("bytes=1000-", 1000);
+
+        //Assert
+        Assert.assertFalse(range.isSatisfiable());
+        Assert.assertEquals("bytes */1000", range.getContentRange());
+    }
+
+    @Test
+    public void parse_unsupportedHeaders_null() {
+        //Assert
+        Assert.assertNull(ByteRange.parse(null, 1000));
+        Assert.assertNull(ByteRange.parse("items=0-1", 1000));
+        Assert.assertNull(ByteRange.parse("bytes=0-1,5-6", 1000));
+        Assert.assertNull(ByteRange.parse("bytes=5-1", 1000));
+        Assert.assertNull(ByteRange.parse("bytes=a-", 1000));
+    }
+
+    @Test
+    public void transfer_range_onlyRangeWritten() throws IOException {
+        //Arrange
+        Path file = this.folder.newFile("artifact.txt").toPath();
+        Files.write(file, "0123456789".getBytes());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //Act
+        new ByteRange(3, 6, 10).transfer(file, output);
+
+        //Assert
+        Assert.assertEquals("3456", output.toString());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.core;
+
+import io.hawkcd.core.subscriber.Envelope;
+import io.hawkcd.model.dto.WsContractDto;
+import io.hawkcd.ws.Command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares the reflective dispatch of a WebSocket request, which loads the service class, creates the service and
+ * looks the method up on every call, with a lookup in the command table followed by a call of the bound handle.
+ * Run the main method; the numbers are nanoseconds per call after warm up.
+ */
+public class CommandDispatchBenchmark {
+    private static final int WARM_UP_CALLS = 200_000;
+    private static final int MEASURED_CALLS = 2_000_000;
+
+    private static Object sink;
+
+    public static void main(String[] args) throws Throwable {
+        CommandTable commandTable = new CommandTable(Collections.singletonList(new CommandTableTests.EchoService()));
+        WsContractDto contract = new WsContractDto();
+        contract.setPackageName(CommandDispatchBenchmark.class.getPackage().getName());
+        contract.setClassName(CommandTableTests.EchoService.class.getName().substring(contract.getPackageName().length() + 1));
+        contract.setMethodName("echo");
+        List<Envelope> envelopes = new ArrayList<>();
+        envelopes.add(new Envelope("id"));
+        contract.setArgs(envelopes);
+
+        for (int round = 0; round < 3; round++) {
+            reflection(contract, WARM_UP_CALLS);
+            commandTable(commandTable, contract, WARM_UP_CALLS);
+
+            long reflection = reflection(contract, MEASURED_CALLS);
+            long table = commandTable(commandTable, contract, MEASURED_CALLS);
+            System.out.printf("round %d: reflection %.1f ns/call, command table %.1f ns/call%n"
+                    , round
+                    , (double) reflection / MEASURED_CALLS
+                    , (double) table / MEASURED_CALLS);
+        }
+    }
+
+    private static long reflection(WsContractDto contract, int calls) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            String fullPackageName = String.format("%s.%s", contract.getPackageName(), contract.getClassName());
+            Object service = Class.forName(fullPackageName).newInstance();
+            sink = new Command(service, contract.getMethodName(), CommandTable.getArguments(contract)).execute();
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static long commandTable(CommandTable commandTable, WsContractDto contract, int calls) throws Throwable {
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            CommandHandle command = commandTable.find(contract);
+            sink = command.invoke(CommandTable.getArguments(contract));
+        }
+
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.core;
+
+import io.hawkcd.core.security.Authorization;
+import io.hawkcd.core.subscriber.Envelope;
+import io.hawkcd.model.dto.WsContractDto;
+import io.hawkcd.model.enums.PermissionScope;
+import io.hawkcd.model.enums.PermissionType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class CommandTableTests {
+    private CommandTable commandTable;
+
+    @Before
+    public void setUp() {
+        this.commandTable = new CommandTable(Collections.singletonList(new EchoService()));
+    }
+
+    @Test
+    public void find_overloadedMethod_matchedByArgumentTypes() throws Throwable {
+        //Arrange
+        WsContractDto byId = this.createContract("echo", "id");
+        WsContractDto byCount = this.createContract("echo", 3);
+
+        //Act
+        CommandHandle byIdCommand = this.commandTable.find(byId);
+        CommandHandle byCountCommand = this.commandTable.find(byCount);
+
+        //Assert
+        Assert.assertEquals("id", byIdCommand.invoke(CommandTable.getArguments(byId)));
+        Assert.assertEquals("3 times", byCountCommand.invoke(CommandTable.getArguments(byCount)));
+        Assert.assertEquals(PermissionType.VIEWER, byIdCommand.getAuthorization().type());
+        Assert.assertEquals(PermissionType.ADMIN, byCountCommand.getAuthorization().type());
+    }
+
+    @Test
+    public void find_emptyEnvelopes_matchedWithoutArguments() throws Throwable {
+        //Arrange
+        WsContractDto contract = this.createContract("ping", (Object) null);
+
+        //Act
+        CommandHandle command = this.commandTable.find(contract);
+
+        //Assert
+        Assert.assertEquals("pong", command.invoke(CommandTable.getArguments(contract)));
+        Assert.assertNull(command.getAuthorization());
+    }
+
+    @Test
+    public void find_unknownCommand_null() {
+        //Arrange
+        WsContractDto unknownMethod = this.createContract("delete", "id");
+        WsContractDto wrongArgument = this.createContract("echo", 3L);
+        WsContractDto unknownClass = this.createContract("echo", "id");
+        unknownClass.setClassName("MissingService");
+        WsContractDto inheritedMethod = this.createContract("getClass");
+
+        //Assert
+        Assert.assertNull(this.commandTable.find(unknownMethod));
+        Assert.assertNull(this.commandTable.find(wrongArgument));
+        Assert.assertNull(this.commandTable.find(unknownClass));
+        Assert.assertNull(this.commandTable.find(inheritedMethod));
+    }
+
+    @Test
+    public void getArgumentClasses_services_parameterTypesListed() {
+        //Act
+        Map<String, Class<?>> argumentClasses = this.commandTable.getArgumentClasses();
+
+        //Assert
+        Assert.assertEquals(String.class, argumentClasses.get(String.class.getName()));
+        Assert.assertEquals(Integer.class, argumentClasses.get(Integer.class.getName()));
+        Assert.assertEquals(2, argumentClasses.size());
+    }
+
+    private WsContractDto createContract(String methodName, Object... args) {
+        WsContractDto contract = new WsContractDto();
+        contract.setPackageName(CommandTableTests.class.getPackage().getName());
+        contract.setClassName(EchoService.class.getName().substring(contract.getPackageName().length() + 1));
+        contract.setMethodName(methodName);
+        List<Envelope> envelopes = new ArrayList<>();
+        for (Object arg : args) {
+            envelopes.add(new Envelope(arg));
+        }
+
+        contract.setArgs(envelopes);
+        return contract;
+    }
+
+    public static class EchoService {
+        @Authorization(scope = PermissionScope.SERVER, type = PermissionType.VIEWER)
+        public String echo(String id) {
+            return id;
+        }
+
+        @Authorization(scope = PermissionScope.SERVER, type = PermissionType.ADMIN)
+        public String echo(Integer count) {
+            return count + " times";
+        }
+
+        public String ping() {
+            return "pong";
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core;
+
+import io.hawkcd.model.Agent;
+import io.hawkcd.model.enums.NotificationType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class MessageCoalescerTests {
+    private List<Message> dispatchedMessages;
+    private ScheduledExecutorService scheduler;
+    private MessageCoalescer messageCoalescer;
+
+    @Before
+    public void setUp() {
+        this.dispatchedMessages = new ArrayList<>();
+        this.scheduler = Mockito.mock(ScheduledExecutorService.class);
+        this.messageCoalescer = new MessageCoalescer(150, this.dispatchedMessages::add, this.scheduler);
+    }
+
+    @Test
+    public void dispatch_repeatedUpdates_latestDispatchedOnce() {
+        //Arrange
+        Agent agent = new Agent();
+        Message first = this.createMessage("update", agent);
+        Message second = this.createMessage("update", agent);
+        Message other = this.createMessage("update", new Agent());
+
+        //Act
+        this.messageCoalescer.dispatch(first);
+        this.messageCoalescer.dispatch(second);
+        this.messageCoalescer.dispatch(other);
+        int heldCount = this.messageCoalescer.size();
+        this.messageCoalescer.flush();
+
+        //Assert
+        Assert.assertEquals(2, heldCount);
+        Assert.assertEquals(2, this.dispatchedMessages.size());
+        Assert.assertSame(second, this.dispatchedMessages.get(0));
+        Assert.assertSame(other, this.dispatchedMessages.get(1));
+        Mockito.verify(this.scheduler, Mockito.times(1)).schedule(Matchers.any(Runnable.class), Matchers.eq(150L), Matchers.eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void dispatch_otherBroadcast_waitingUpdatesFlushedFirst() {
+        //Arrange
+        Message update = this.createMessage("update", new Agent());
+        Message delete = this.createMessage("delete", new Agent());
+        this.messageCoalescer.dispatch(update);
+
+        //Act
+        this.messageCoalescer.dispatch(delete);
+
+        //Assert
+        Assert.assertEquals(2, this.dispatchedMessages.size());
+        Assert.assertSame(update, this.dispatchedMessages.get(0));
+        Assert.assertSame(delete, this.dispatchedMessages.get(1));
+        Assert.assertEquals(0, this.messageCoalescer.size());
+    }
+
+    @Test
+    public void dispatch_otherBroadcastDuringFlush_dispatchedAfterFlushedUpdates() throws InterruptedException {
+        //Arrange
+        List<Message> dispatchedMessages = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch flushReleased = new CountDownLatch(1);
+        Message update = this.createMessage("update", new Agent());
+        Message delete = this.createMessage("delete", new Agent());
+        MessageCoalescer coalescer = new MessageCoalescer(150, message -> {
+            if (message == update) {
+                flushStarted.countDown();
+                try {
+                    flushReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            dispatchedMessages.add(message);
+        }, this.scheduler);
+        coalescer.dispatch(update);
+        Thread flushThread = new Thread(coalescer::flush);
+        flushThread.start();
+        flushStarted.await();
+
+        //Act
+        Thread broadcastThread = new Thread(() -> coalescer.dispatch(delete));
+        broadcastThread.start();
+        broadcastThread.join(200);
+        boolean isDispatchedDuringFlush = dispatchedMessages.contains(delete);
+        flushReleased.countDown();
+        flushThread.join();
+        broadcastThread.join();
+
+        //Assert
+        Assert.assertFalse(isDispatchedDuringFlush);
+        Assert.assertEquals(Arrays.asList(update, delete), dispatchedMessages);
+    }
+
+    @Test
+    public void dispatch_windowDisabled_notHeld() {
+        //Arrange
+        MessageCoalescer disabledCoalescer = new MessageCoalescer(0, this.dispatchedMessages::add, this.scheduler);
+
+        //Act
+        disabledCoalescer.dispatch(this.createMessage("update", new Agent()));
+
+        //Assert
+        Assert.assertEquals(1, this.dispatchedMessages.size());
+        Assert.assertEquals(0, disabledCoalescer.size());
+    }
+
+    private Message createMessage(String methodName, Agent agent) {
+        return new Message("AgentService", "io.hawkcd.services", methodName, agent, NotificationType.SUCCESS, "", null);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.delta;
+
+import com.google.common.base.Strings;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JsonPatchTests {
+    private JsonParser parser = new JsonParser();
+
+    @Test
+    public void diff_nestedValueChanged_singleReplace() {
+        //Arrange
+        JsonElement source = this.parser.parse("{\"status\":\"IN_PROGRESS\",\"stages\":[{\"jobs\":[{\"status\":\"RUNNING\",\"report\":\"long report\"}]}]}");
+        JsonElement target = this.parser.parse("{\"status\":\"IN_PROGRESS\",\"stages\":[{\"jobs\":[{\"status\":\"PASSED\",\"report\":\"long report\"}]}]}");
+
+        //Act
+        JsonArray actualPatch = JsonPatch.diff(source, target);
+
+        //Assert
+        Assert.assertEquals("[{\"op\":\"replace\",\"path\":\"/stages/0/jobs/0/status\",\"value\":\"PASSED\"}]", actualPatch.toString());
+    }
+
+    @Test
+    public void diff_membersAndElementsChanged_addAndRemoveOperations() {
+        //Arrange
+        JsonElement source = this.parser.parse("{\"endTime\":1,\"a/b\":1,\"stages\":[1,2,3]}");
+        JsonElement target = this.parser.parse("{\"a/b\":2,\"stages\":[1],\"duration\":5}");
+
+        //Act
+        JsonArray actualPatch = JsonPatch.diff(source, target);
+
+        //Assert
+        Assert.assertEquals("[{\"op\":\"remove\",\"path\":\"/endTime\"}," +
+                "{\"op\":\"replace\",\"path\":\"/a~1b\",\"value\":2}," +
+                "{\"op\":\"remove\",\"path\":\"/stages/2\"}," +
+                "{\"op\":\"remove\",\"path\":\"/stages/1\"}," +
+                "{\"op\":\"add\",\"path\":\"/duration\",\"value\":5}]", actualPatch.toString());
+    }
+
+    @Test
+    public void diff_equalDocuments_emptyPatch() {
+        //Arrange
+        JsonElement source = this.parser.parse("{\"stages\":[{\"name\":\"build\"}]}");
+
+        //Act
+        JsonArray actualPatch = JsonPatch.diff(source, this.parser.parse(source.toString()));
+
+        //Assert
+        Assert.assertEquals(0, actualPatch.size());
+    }
+
+    @Test
+    public void diff_longStringGrown_appendOperation() {
+        //Arrange
+        JsonObject source = new JsonObject();
+        source.addProperty("report", Strings.repeat("line\n", 20));
+        JsonObject target = new JsonObject();
+        target.addProperty("report", Strings.repeat("line\n", 20) + "next line\n");
+
+        //Act
+        JsonArray actualPatch = JsonPatch.diff(source, target);
+
+        //Assert
+        Assert.assertEquals("[{\"op\":\"append\",\"path\":\"/report\",\"offset\":100,\"value\":\"next line\\n\"}]", actualPatch.toString());
+    }
+}
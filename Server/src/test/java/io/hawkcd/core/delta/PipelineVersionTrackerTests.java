@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.delta;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PipelineVersionTrackerTests {
+    private JsonParser parser = new JsonParser();
+
+    @Test
+    public void track_changedRun_patchAgainstPreviousVersion() {
+        //Arrange
+        PipelineVersionTracker versionTracker = new PipelineVersionTracker(10);
+        PipelineRevision first = versionTracker.track("run", this.pipeline("IN_PROGRESS"));
+
+        //Act
+        PipelineRevision second = versionTracker.track("run", this.pipeline("PASSED"));
+
+        //Assert
+        Assert.assertNull(first.getPatch());
+        Assert.assertEquals(first.getVersion(), second.getBaseVersion());
+        Assert.assertTrue(second.getVersion() > first.getVersion());
+        Assert.assertEquals(1, second.getPatch().size());
+    }
+
+    @Test
+    public void track_sameState_sameRevision() {
+        //Arrange
+        PipelineVersionTracker versionTracker = new PipelineVersionTracker(10);
+        versionTracker.track("run", this.pipeline("IN_PROGRESS"));
+        PipelineRevision expectedRevision = versionTracker.track("run", this.pipeline("PASSED"));
+
+        //Act
+        PipelineRevision actualRevision = versionTracker.track("run", this.pipeline("PASSED"));
+
+        //Assert
+        Assert.assertSame(expectedRevision, actualRevision);
+    }
+
+    @Test
+    public void track_evictedRun_newVersionWithoutPatch() {
+        //Arrange
+        PipelineVersionTracker versionTracker = new PipelineVersionTracker(1);
+        PipelineRevision evicted = versionTracker.track("first", this.pipeline("IN_PROGRESS"));
+        versionTracker.track("second", this.pipeline("IN_PROGRESS"));
+
+        //Act
+        PipelineRevision actualRevision = versionTracker.track("first", this.pipeline("PASSED"));
+
+        //Assert
+        Assert.assertEquals(1, versionTracker.size());
+        Assert.assertNull(actualRevision.getPatch());
+        Assert.assertNotEquals(evicted.getVersion(), actualRevision.getVersion());
+    }
+
+    private JsonObject pipeline(String status) {
+        return this.parser.parse("{\"status\":\"" + status + "\",\"stages\":[]}").getAsJsonObject();
+    }
+}
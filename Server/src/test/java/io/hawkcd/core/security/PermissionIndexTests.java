@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.security;
+
+import io.hawkcd.model.enums.PermissionEntity;
+import io.hawkcd.model.enums.PermissionScope;
+import io.hawkcd.model.enums.PermissionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class PermissionIndexTests {
+    @Test
+    public void resolve_specificAndGenericGrants_specificGrantWins() {
+        //Arrange
+        List<AuthorizationGrant> grants = Arrays.asList(
+                new AuthorizationGrant(PermissionScope.SERVER, PermissionType.VIEWER, PermissionEntity.SERVER),
+                this.specificGrant(PermissionScope.PIPELINE, PermissionType.ADMIN, "definition"));
+        PermissionIndex permissionIndex = new PermissionIndex(grants);
+        AuthorizationGrant required = new AuthorizationGrant(PermissionScope.PIPELINE, PermissionType.VIEWER);
+
+        //Act
+        PermissionType specificType = permissionIndex.resolve(required, "definition", "group");
+        PermissionType genericType = permissionIndex.resolve(required, "other", "group");
+
+        //Assert
+        Assert.assertEquals(PermissionType.ADMIN, specificType);
+        Assert.assertEquals(PermissionType.VIEWER, genericType);
+    }
+
+    @Test
+    public void resolve_severalMatchingGrants_firstGrantWins() {
+        //Arrange
+        List<AuthorizationGrant> grants = Arrays.asList(
+                new AuthorizationGrant(PermissionScope.PIPELINE_GROUP, PermissionType.OPERATOR, PermissionEntity.ALL_PIPELINE_GROUPS),
+                new AuthorizationGrant(PermissionScope.SERVER, PermissionType.ADMIN, PermissionEntity.SERVER));
+        PermissionIndex permissionIndex = new PermissionIndex(grants);
+
+        //Act
+        PermissionType pipelineType = permissionIndex.resolve(new AuthorizationGrant(PermissionScope.PIPELINE, PermissionType.VIEWER));
+        PermissionType serverType = permissionIndex.resolve(new AuthorizationGrant(PermissionScope.SERVER, PermissionType.VIEWER));
+
+        //Assert
+        Assert.assertEquals(PermissionType.OPERATOR, pipelineType);
+        Assert.assertEquals(PermissionType.ADMIN, serverType);
+    }
+
+    @Test
+    public void resolve_noMatchingGrant_none() {
+        //Arrange
+        PermissionIndex permissionIndex = new PermissionIndex(Collections.emptyList());
+
+        //Act
+        PermissionType requiredType = permissionIndex.resolve(new AuthorizationGrant(PermissionScope.SERVER, PermissionType.ADMIN));
+        PermissionType publicType = permissionIndex.resolve(new AuthorizationGrant(PermissionScope.SERVER, PermissionType.NONE));
+
+        //Assert
+        Assert.assertEquals(PermissionType.NONE, requiredType);
+        Assert.assertEquals(PermissionType.VIEWER, publicType);
+    }
+
+    @Test
+    public void resolve_randomGrants_sameAsWalkingGrants() {
+        //Arrange
+        Random random = new Random(42);
+        String[] entityIds = {"definition1", "definition2", "group1", "group2"};
+
+        for (int run = 0; run < 500; run++) {
+            List<AuthorizationGrant> grants = new ArrayList<>();
+            for (int i = random.nextInt(6); i > 0; i--) {
+                PermissionScope scope = PermissionScope.values()[random.nextInt(PermissionScope.values().length)];
+                PermissionType type = PermissionType.values()[random.nextInt(PermissionType.values().length)];
+                PermissionEntity entity = PermissionEntity.values()[random.nextInt(PermissionEntity.values().length)];
+                AuthorizationGrant grant = new AuthorizationGrant(scope, type, entity);
+                grant.setPermittedEntityId(entityIds[random.nextInt(entityIds.length)]);
+                grants.add(grant);
+            }
+            AuthorizationGrant required = new AuthorizationGrant(PermissionScope.values()[random.nextInt(PermissionScope.values().length)]
+                    , PermissionType.values()[random.nextInt(PermissionType.values().length)]);
+            String[] ids = {entityIds[random.nextInt(2)], entityIds[2 + random.nextInt(2)]};
+
+            //Act
+            PermissionType actualType = new PermissionIndex(grants).resolve(required, ids);
+
+            //Assert
+            Assert.assertEquals(this.walkGrants(grants, required, ids), actualType);
+        }
+    }
+
+    private AuthorizationGrant specificGrant(PermissionScope scope, PermissionType type, String entityId) {
+        AuthorizationGrant grant = new AuthorizationGrant(scope, type, PermissionEntity.SPECIFIC_ENTITY);
+        grant.setPermittedEntityId(entityId);
+
+        return grant;
+    }
+
+    /**
+     * Resolves the permission by walking the grants, as the authorization did before grants were compiled
+     */
+    private PermissionType walkGrants(List<AuthorizationGrant> userGrants, AuthorizationGrant required, String... entityIds) {
+        if (required.getPermissionType() == PermissionType.NONE) {
+            return PermissionType.VIEWER;
+        }
+
+        for (String entityId : entityIds) {
+            for (AuthorizationGrant grant : userGrants) {
+                if (grant.getPermissionEntity() == PermissionEntity.SPECIFIC_ENTITY && grant.getPermittedEntityId().equals(entityId) && grant.isGreaterThan(required)) {
+                    return grant.getPermissionType();
+                }
+            }
+        }
+
+        for (AuthorizationGrant grant : userGrants) {
+            if (grant.getPermissionEntity() != PermissionEntity.SPECIFIC_ENTITY && grant.isGreaterThan(required)) {
+                return grant.getPermissionType();
+            }
+        }
+
+        return PermissionType.NONE;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.security;
+
+import io.hawkcd.model.ServiceResult;
+import io.hawkcd.model.User;
+import io.hawkcd.model.enums.NotificationType;
+import io.hawkcd.model.enums.PermissionScope;
+import io.hawkcd.model.enums.PermissionType;
+import io.hawkcd.services.interfaces.IUserService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+public class UserPermissionCacheTests {
+    private IUserService userService;
+    private UserPermissionCache permissionCache;
+    private User user;
+
+    @Before
+    public void setUp() {
+        this.user = new User();
+        this.user.setPermissions(new ArrayList<>());
+        this.userService = Mockito.mock(IUserService.class);
+        Mockito.when(this.userService.getById(this.user.getId())).thenReturn(new ServiceResult(this.user, NotificationType.SUCCESS, ""));
+        Mockito.when(this.userService.getById("missing")).thenReturn(new ServiceResult(null, NotificationType.ERROR, ""));
+        this.permissionCache = new UserPermissionCache(this.userService);
+    }
+
+    @Test
+    public void getPermissions_repeatedLookups_userLoadedOnce() {
+        //Act
+        PermissionIndex first = this.permissionCache.getPermissionIndex(this.user.getId());
+        PermissionIndex second = this.permissionCache.getPermissionIndex(this.user.getId());
+
+        //Assert
+        Assert.assertSame(first, second);
+        Mockito.verify(this.userService, Mockito.times(1)).getById(this.user.getId());
+    }
+
+    @Test
+    public void invalidate_cachedUser_permissionsReloaded() {
+        //Arrange
+        this.permissionCache.getPermissionIndex(this.user.getId());
+        this.user.getPermissions().add(new AuthorizationGrant(PermissionScope.SERVER, PermissionType.ADMIN));
+
+        //Act
+        this.permissionCache.invalidate(Collections.singletonList(this.user.getId()));
+        PermissionIndex actualPermissions = this.permissionCache.getPermissionIndex(this.user.getId());
+
+        //Assert
+        Assert.assertEquals(PermissionType.ADMIN, actualPermissions.resolve(new AuthorizationGrant(PermissionScope.SERVER, PermissionType.VIEWER)));
+        Mockito.verify(this.userService, Mockito.times(2)).getById(this.user.getId());
+    }
+
+    @Test
+    public void getPermissions_invalidatedWhileLoading_snapshotNotKept() {
+        //Arrange
+        Mockito.when(this.userService.getById(this.user.getId())).thenAnswer(invocation -> {
+            this.permissionCache.invalidate(Collections.singletonList(this.user.getId()));
+            return new ServiceResult(this.user, NotificationType.SUCCESS, "");
+        });
+
+        //Act
+        PermissionIndex actualPermissions = this.permissionCache.getPermissionIndex(this.user.getId());
+
+        //Assert
+        Assert.assertNotNull(actualPermissions);
+        Assert.assertEquals(0, this.permissionCache.size());
+    }
+
+    @Test
+    public void getPermissions_missingUser_null() {
+        //Act
+        PermissionIndex actualPermissions = this.permissionCache.getPermissionIndex("missing");
+
+        //Assert
+        Assert.assertNull(actualPermissions);
+        Assert.assertEquals(0, this.permissionCache.size());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.core.security;
+
+import com.google.gson.Gson;
+import io.hawkcd.model.User;
+import io.hawkcd.model.payload.TokenInfo;
+import io.hawkcd.utilities.deserializers.TokenAdapter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+public class VerifiedTokenCacheTests {
+    private static final long NOW = 1_000_000_000L;
+
+    private MutableClock clock;
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Before
+    public void setUp() {
+        this.clock = new MutableClock(NOW);
+        this.verifiedTokenCache = new VerifiedTokenCache(2, 1000, this.clock);
+    }
+
+    @Test
+    public void get_cachedToken_newUserEachTime() {
+        //Arrange
+        User user = this.createUser("userId");
+        this.verifiedTokenCache.put("token", new Gson().toJson(user), user.getId(), NOW / 1000 + 60);
+
+        //Act
+        TokenInfo first = this.verifiedTokenCache.get("token");
+        TokenInfo second = this.verifiedTokenCache.get("token");
+
+        //Assert
+        Assert.assertEquals("userId", first.getUser().getId());
+        Assert.assertEquals(TokenAdapter.getDateTimeFromTimestamp(NOW / 1000 + 60), first.getExpires());
+        Assert.assertNotSame(first.getUser(), second.getUser());
+        Assert.assertNull(this.verifiedTokenCache.get("other"));
+    }
+
+    @Test
+    public void get_timeToLiveOrExpirationPassed_null() {
+        //Arrange
+        User user = this.createUser("userId");
+        this.verifiedTokenCache.put("longLived", new Gson().toJson(user), user.getId(), NOW / 1000 + 60);
+        this.verifiedTokenCache.put("expiring", new Gson().toJson(user), user.getId(), NOW / 1000);
+        this.verifiedTokenCache.put("shortLived", new Gson().toJson(user), user.getId(), NOW / 1000 + 1);
+
+        //Act
+        this.clock.advance(500);
+        TokenInfo shortLivedBeforeExpiration = this.verifiedTokenCache.get("shortLived");
+        this.clock.advance(500);
+
+        //Assert
+        Assert.assertNull(this.verifiedTokenCache.get("expiring"));
+        Assert.assertNotNull(shortLivedBeforeExpiration);
+        Assert.assertNull(this.verifiedTokenCache.get("shortLived"));
+        Assert.assertNull(this.verifiedTokenCache.get("longLived"));
+    }
+
+    @Test
+    public void put_capacityReached_leastRecentlyUsedDropped() {
+        //Arrange
+        User user = this.createUser("userId");
+        this.verifiedTokenCache.put("first", new Gson().toJson(user), user.getId(), NOW / 1000 + 60);
+        this.verifiedTokenCache.put("second", new Gson().toJson(user), user.getId(), NOW / 1000 + 60);
+        this.verifiedTokenCache.get("first");
+
+        //Act
+        this.verifiedTokenCache.put("third", new Gson().toJson(user), user.getId(), NOW / 1000 + 60);
+
+        //Assert
+        Assert.assertEquals(2, this.verifiedTokenCache.size());
+        Assert.assertNotNull(this.verifiedTokenCache.get("first"));
+        Assert.assertNull(this.verifiedTokenCache.get("second"));
+    }
+
+    @Test
+    public void revoke_tokenAndUsers_dropped() {
+        //Arrange
+        User first = this.createUser("first");
+        User second = this.createUser("second");
+        this.verifiedTokenCache.put("firstToken", new Gson().toJson(first), first.getId(), NOW / 1000 + 60);
+        this.verifiedTokenCache.put("secondToken", new Gson().toJson(second), second.getId(), NOW / 1000 + 60);
+
+        //Act
+        this.verifiedTokenCache.revoke("firstToken");
+        this.verifiedTokenCache.revokeUsers(Collections.singletonList("second"));
+
+        //Assert
+        Assert.assertEquals(0, this.verifiedTokenCache.size());
+    }
+
+    @Test
+    public void verifyToken_repeatedCalls_sameUser() {
+        //Arrange
+        User user = this.createUser("userId");
+        String token = TokenAdapter.createJsonWebToken(user, 1L);
+
+        //Act
+        TokenInfo first = TokenAdapter.verifyToken(token);
+        TokenInfo second = TokenAdapter.verifyToken(token);
+
+        //Assert
+        Assert.assertEquals("userId", first.getUser().getId());
+        Assert.assertEquals("userId", second.getUser().getId());
+        Assert.assertNotNull(VerifiedTokenCache.getInstance().get(token));
+        Assert.assertNull(TokenAdapter.verifyToken(token + "x"));
+    }
+
+    private User createUser(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(id + "@hawkcd.io");
+        return user;
+    }
+
+    private static class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(long millis) {
+            this.millis += millis;
+        }
+
+        @Override
+        public long millis() {
+            return this.millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(this.millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
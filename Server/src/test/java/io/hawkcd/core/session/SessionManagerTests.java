@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.core.session;
+
+import io.hawkcd.core.delta.PipelineVersionTracker;
+import io.hawkcd.model.Pipeline;
+import io.hawkcd.model.dto.WsContractDto;
+import io.hawkcd.model.enums.NotificationType;
+import io.hawkcd.services.UserService;
+import io.hawkcd.ws.WSSocket;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SessionManagerTests {
+    private SessionManager sessionManager;
+    private WSSocket session;
+    private List<String> sentMessages;
+
+    @Before
+    public void setUp() {
+        this.sessionManager = new SessionManager(Mockito.mock(WsSessionPool.class), new TopicRegistry(), new PipelineVersionTracker(10), Mockito.mock(SessionService.class), Mockito.mock(UserService.class));
+        this.sentMessages = new ArrayList<>();
+        RemoteEndpoint remote = Mockito.mock(RemoteEndpoint.class);
+        Mockito.doAnswer(invocation -> {
+            this.sentMessages.add((String) invocation.getArguments()[0]);
+            ((WriteCallback) invocation.getArguments()[1]).writeSuccess();
+            return null;
+        }).when(remote).sendString(Matchers.anyString(), Matchers.any(WriteCallback.class));
+
+        Map<String, Long> pipelineVersions = new HashMap<>();
+        this.session = Mockito.mock(WSSocket.class);
+        Mockito.when(this.session.getId()).thenReturn("session");
+        Mockito.when(this.session.isConnected()).thenReturn(true);
+        Mockito.when(this.session.getRemote()).thenReturn(remote);
+        Mockito.when(this.session.getPipelineVersion(Matchers.anyString())).thenAnswer(invocation -> pipelineVersions.getOrDefault(invocation.getArguments()[0], 0L));
+        Mockito.doAnswer(invocation -> pipelineVersions.put((String) invocation.getArguments()[0], (Long) invocation.getArguments()[1]))
+                .when(this.session).setPipelineVersion(Matchers.anyString(), Matchers.anyLong());
+        SessionOutboundQueue outboundQueue = new SessionOutboundQueue(this.session, 10);
+        Mockito.when(this.session.getOutboundQueue()).thenReturn(outboundQueue);
+    }
+
+    @Test
+    public void send_unchangedPipeline_nothingSent() {
+        //Arrange
+        Pipeline pipeline = new Pipeline();
+        this.sessionManager.send(Collections.singletonList(this.session), this.createUpdate(pipeline));
+
+        //Act
+        this.sessionManager.send(Collections.singletonList(this.session), this.createUpdate(pipeline));
+
+        //Assert
+        Assert.assertEquals(1, this.sentMessages.size());
+    }
+
+    @Test
+    public void send_changedPipeline_patchSent() {
+        //Arrange
+        Pipeline pipeline = new Pipeline();
+        this.sessionManager.send(Collections.singletonList(this.session), this.createUpdate(pipeline));
+        pipeline.setExecutionId(2);
+
+        //Act
+        this.sessionManager.send(Collections.singletonList(this.session), this.createUpdate(pipeline));
+
+        //Assert
+        Assert.assertEquals(2, this.sentMessages.size());
+        Assert.assertTrue(this.sentMessages.get(1).contains("\"patch\":"));
+    }
+
+    private WsContractDto createUpdate(Pipeline pipeline) {
+        return new WsContractDto("PipelineService", "io.hawkcd.services", "update", pipeline, NotificationType.SUCCESS, null);
+    }
+}
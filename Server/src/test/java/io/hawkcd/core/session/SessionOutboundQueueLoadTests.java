@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.session;
+
+import io.hawkcd.ws.WSSocket;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes updates of a few pipeline runs from several threads to fast, slow and stalled sessions at once
+ */
+public class SessionOutboundQueueLoadTests {
+    private static final int HIGH_WATER_MARK = 256;
+    private static final int ENTITIES = 50;
+    private static final int PUBLISHERS = 4;
+    private static final int UPDATES_PER_ENTITY = 50;
+    private static final int SLOW_WRITE_MILLISECONDS = 5;
+
+    private ScheduledExecutorService slowNetwork;
+
+    @Before
+    public void setUp() {
+        this.slowNetwork = Executors.newScheduledThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        this.slowNetwork.shutdownNow();
+    }
+
+    @Test
+    public void offer_slowConsumers_publishersNotBlockedAndLatestStateDelivered() throws InterruptedException {
+        //Arrange
+        List<SessionOutboundQueue> fastQueues = new ArrayList<>();
+        List<Map<String, String>> fastStates = new ArrayList<>();
+        List<SessionOutboundQueue> slowQueues = new ArrayList<>();
+        List<Map<String, String>> slowStates = new ArrayList<>();
+        List<SessionOutboundQueue> stalledQueues = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Map<String, String> state = new ConcurrentHashMap<>();
+            fastQueues.add(this.createQueue(state, 0));
+            fastStates.add(state);
+        }
+        for (int i = 0; i < 10; i++) {
+            Map<String, String> state = new ConcurrentHashMap<>();
+            slowQueues.add(this.createQueue(state, SLOW_WRITE_MILLISECONDS));
+            slowStates.add(state);
+        }
+        for (int i = 0; i < 5; i++) {
+            stalledQueues.add(this.createQueue(new ConcurrentHashMap<>(), -1));
+        }
+        List<SessionOutboundQueue> allQueues = new ArrayList<>();
+        allQueues.addAll(fastQueues);
+        allQueues.addAll(slowQueues);
+        allQueues.addAll(stalledQueues);
+        CountDownLatch published = new CountDownLatch(PUBLISHERS);
+
+        //Act
+        long start = System.nanoTime();
+        for (int p = 0; p < PUBLISHERS; p++) {
+            int publisher = p;
+            new Thread(() -> {
+                for (int update = 0; update < UPDATES_PER_ENTITY; update++) {
+                    for (int entity = publisher; entity < ENTITIES; entity += PUBLISHERS) {
+                        String key = "run" + entity;
+                        OutboundMessage message = new OutboundMessage(key, key + ":" + update);
+                        for (SessionOutboundQueue queue : allQueues) {
+                            queue.offer(message);
+                        }
+                    }
+                }
+                published.countDown();
+            }).start();
+        }
+        boolean publishedInTime = published.await(30, TimeUnit.SECONDS);
+        long publishMilliseconds = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        boolean drained = this.awaitDrained(slowQueues, 30);
+
+        //Assert
+        Assert.assertTrue("Publishers took " + publishMilliseconds + " ms", publishedInTime);
+        Assert.assertTrue(drained);
+        for (Map<String, String> state : fastStates) {
+            this.assertLatestState(state);
+        }
+        for (Map<String, String> state : slowStates) {
+            this.assertLatestState(state);
+        }
+        for (SessionOutboundQueue queue : slowQueues) {
+            Assert.assertEquals(0, queue.getResyncCount());
+        }
+        for (SessionOutboundQueue queue : stalledQueues) {
+            Assert.assertTrue(queue.size() <= ENTITIES);
+        }
+    }
+
+    @Test
+    public void offer_stalledConsumerWithDistinctMessages_resyncInsteadOfGrowing() {
+        //Arrange
+        SessionOutboundQueue queue = this.createQueue(new ConcurrentHashMap<>(), -1);
+
+        //Act
+        for (int i = 0; i < HIGH_WATER_MARK * 10; i++) {
+            queue.offer(new OutboundMessage(null, "log" + i));
+        }
+
+        //Assert
+        Assert.assertTrue(queue.size() <= HIGH_WATER_MARK);
+        Assert.assertEquals(9, queue.getResyncCount());
+    }
+
+    /**
+     * Creates a queue writing to a session that completes writes at once, after writeMilliseconds or, when
+     * negative, never
+     */
+    private SessionOutboundQueue createQueue(Map<String, String> state, int writeMilliseconds) {
+        RemoteEndpoint remote = Mockito.mock(RemoteEndpoint.class);
+        Mockito.doAnswer(invocation -> {
+            String message = (String) invocation.getArguments()[0];
+            WriteCallback callback = (WriteCallback) invocation.getArguments()[1];
+            if (writeMilliseconds < 0) {
+                return null;
+            }
+
+            Runnable write = () -> {
+                state.put(message.split(":")[0], message);
+                callback.writeSuccess();
+            };
+            if (writeMilliseconds == 0) {
+                write.run();
+            } else {
+                this.slowNetwork.schedule(write, writeMilliseconds, TimeUnit.MILLISECONDS);
+            }
+            return null;
+        }).when(remote).sendString(Matchers.anyString(), Matchers.any(WriteCallback.class));
+
+        WSSocket session = Mockito.mock(WSSocket.class);
+        Mockito.when(session.getId()).thenReturn("session");
+        Mockito.when(session.isConnected()).thenReturn(true);
+        Mockito.when(session.getRemote()).thenReturn(remote);
+
+        return new SessionOutboundQueue(session, HIGH_WATER_MARK);
+    }
+
+    private boolean awaitDrained(List<SessionOutboundQueue> queues, int seconds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        while (System.currentTimeMillis() < deadline) {
+            boolean drained = true;
+            for (SessionOutboundQueue queue : queues) {
+                drained &= queue.size() == 0;
+            }
+
+            if (drained) {
+                // The last write of each queue completes one write delay after it leaves the queue
+                Thread.sleep(SLOW_WRITE_MILLISECONDS * 20);
+                return true;
+            }
+            Thread.sleep(10);
+        }
+
+        return false;
+    }
+
+    private void assertLatestState(Map<String, String> state) {
+        Assert.assertEquals(ENTITIES, state.size());
+        for (int entity = 0; entity < ENTITIES; entity++) {
+            Assert.assertEquals("run" + entity + ":" + (UPDATES_PER_ENTITY - 1), state.get("run" + entity));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.session;
+
+import io.hawkcd.ws.WSSocket;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SessionOutboundQueueTests {
+    private WSSocket session;
+    private List<String> sentMessages;
+    private List<WriteCallback> pendingWrites;
+    private boolean completeWrites;
+
+    @Before
+    public void setUp() {
+        this.sentMessages = new ArrayList<>();
+        this.pendingWrites = new ArrayList<>();
+        RemoteEndpoint remote = Mockito.mock(RemoteEndpoint.class);
+        Mockito.doAnswer(invocation -> {
+            this.sentMessages.add((String) invocation.getArguments()[0]);
+            WriteCallback callback = (WriteCallback) invocation.getArguments()[1];
+            if (this.completeWrites) {
+                callback.writeSuccess();
+            } else {
+                this.pendingWrites.add(callback);
+            }
+            return null;
+        }).when(remote).sendString(Matchers.anyString(), Matchers.any(WriteCallback.class));
+
+        this.session = Mockito.mock(WSSocket.class);
+        Mockito.when(this.session.getId()).thenReturn("session");
+        Mockito.when(this.session.isConnected()).thenReturn(true);
+        Mockito.when(this.session.getRemote()).thenReturn(remote);
+    }
+
+    @Test
+    public void offer_writeInFlight_sameKeyCoalesced() {
+        //Arrange
+        SessionOutboundQueue queue = new SessionOutboundQueue(this.session, 10);
+        queue.offer(new OutboundMessage(null, "first"));
+
+        //Act
+        queue.offer(new OutboundMessage("run", "running"));
+        queue.offer(new OutboundMessage(null, "list"));
+        queue.offer(new OutboundMessage("run", "passed"));
+        this.completeWrites = true;
+        this.pendingWrites.get(0).writeSuccess();
+
+        //Assert
+        Assert.assertEquals("[first, passed, list]", this.sentMessages.toString());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void offer_aboveHighWaterMark_replacedByResync() {
+        //Arrange
+        SessionOutboundQueue queue = new SessionOutboundQueue(this.session, 3);
+        queue.offer(new OutboundMessage(null, "first"));
+
+        //Act
+        for (int i = 0; i < 4; i++) {
+            queue.offer(new OutboundMessage(null, "update" + i));
+        }
+
+        //Assert
+        Assert.assertEquals(1, queue.size());
+        Assert.assertEquals(1, queue.getResyncCount());
+        Mockito.verify(this.session).resetPipelineVersions();
+        this.completeWrites = true;
+        this.pendingWrites.get(0).writeSuccess();
+        Assert.assertTrue(this.sentMessages.get(1).contains("\"methodName\":\"resync\""));
+    }
+
+    @Test
+    public void offer_writesCompletedInline_allMessagesWritten() {
+        //Arrange
+        this.completeWrites = true;
+        SessionOutboundQueue queue = new SessionOutboundQueue(this.session, 10);
+
+        //Act
+        for (int i = 0; i < 5000; i++) {
+            queue.offer(new OutboundMessage(null, "update" + i));
+        }
+
+        //Assert
+        Assert.assertEquals(5000, this.sentMessages.size());
+        Assert.assertEquals(0, queue.getResyncCount());
+    }
+
+    @Test
+    public void offer_disconnectedSession_messagesDropped() {
+        //Arrange
+        Mockito.when(this.session.isConnected()).thenReturn(false);
+        SessionOutboundQueue queue = new SessionOutboundQueue(this.session, 10);
+
+        //Act
+        queue.offer(new OutboundMessage(null, "update"));
+
+        //Assert
+        Assert.assertTrue(this.sentMessages.isEmpty());
+        Assert.assertEquals(0, queue.size());
+    }
+}
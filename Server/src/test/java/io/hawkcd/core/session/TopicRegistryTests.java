@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.session;
+
+import io.hawkcd.model.Agent;
+import io.hawkcd.model.Pipeline;
+import io.hawkcd.model.User;
+import io.hawkcd.ws.WSSocket;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+public class TopicRegistryTests {
+    private TopicRegistry topicRegistry;
+
+    @Before
+    public void setUp() {
+        this.topicRegistry = new TopicRegistry();
+    }
+
+    @Test
+    public void getSubscribers_subscribedSessions_onlyViewersReturned() {
+        //Arrange
+        WSSocket runViewer = this.registerSession("runViewer");
+        WSSocket agentsViewer = this.registerSession("agentsViewer");
+        this.topicRegistry.subscribe(runViewer, Collections.singletonList("pipeline:run"));
+        this.topicRegistry.subscribe(agentsViewer, Collections.singletonList(TopicRegistry.AGENTS_TOPIC));
+        Pipeline pipeline = new Pipeline();
+        pipeline.setId("run");
+
+        //Act
+        Collection<WSSocket> actualSubscribers = this.topicRegistry.getSubscribers(TopicRegistry.getTopics(pipeline));
+
+        //Assert
+        Assert.assertEquals(1, actualSubscribers.size());
+        Assert.assertSame(runViewer, actualSubscribers.iterator().next());
+    }
+
+    @Test
+    public void getSubscribers_sessionWithoutSubscriptions_receivesEverything() {
+        //Arrange
+        WSSocket session = this.registerSession("session");
+
+        //Act
+        Collection<WSSocket> actualSubscribers = this.topicRegistry.getSubscribers(TopicRegistry.getTopics(new Agent()));
+
+        //Assert
+        Assert.assertEquals(1, actualSubscribers.size());
+        Assert.assertNull(TopicRegistry.getTopics(new User()));
+    }
+
+    @Test
+    public void unsubscribe_lastTopic_sessionNoLongerReceives() {
+        //Arrange
+        WSSocket session = this.registerSession("session");
+        this.topicRegistry.subscribe(session, Arrays.asList(TopicRegistry.PIPELINES_TOPIC, TopicRegistry.AGENTS_TOPIC));
+
+        //Act
+        this.topicRegistry.unsubscribe(session, Collections.singletonList(TopicRegistry.AGENTS_TOPIC));
+
+        //Assert
+        Assert.assertTrue(this.topicRegistry.getSubscribers(Collections.singletonList(TopicRegistry.AGENTS_TOPIC)).isEmpty());
+        Assert.assertEquals(1, this.topicRegistry.getSubscribers(Collections.singletonList(TopicRegistry.PIPELINES_TOPIC)).size());
+    }
+
+    @Test
+    public void remove_subscribedSession_allTopicsCleared() {
+        //Arrange
+        WSSocket session = this.registerSession("session");
+        this.topicRegistry.subscribe(session, Collections.singletonList(TopicRegistry.AGENTS_TOPIC));
+
+        //Act
+        this.topicRegistry.remove(session);
+
+        //Assert
+        Assert.assertTrue(this.topicRegistry.getSubscribers(Collections.singletonList(TopicRegistry.AGENTS_TOPIC)).isEmpty());
+        Assert.assertTrue(this.topicRegistry.getTopics(session).isEmpty());
+    }
+
+    private WSSocket registerSession(String id) {
+        WSSocket session = Mockito.mock(WSSocket.class);
+        Mockito.when(session.getId()).thenReturn(id);
+        this.topicRegistry.register(session);
+
+        return session;
+    }
+}
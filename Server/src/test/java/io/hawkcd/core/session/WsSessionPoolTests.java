@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.core.session;
+
+import io.hawkcd.model.ServiceResult;
+import io.hawkcd.model.SessionDetails;
+import io.hawkcd.model.User;
+import io.hawkcd.model.enums.NotificationType;
+import io.hawkcd.ws.WSSocket;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class WsSessionPoolTests {
+    private WsSessionPool sessionPool;
+
+    @Before
+    public void setUp() {
+        SessionService mockedSessionService = Mockito.mock(SessionService.class);
+        Mockito.when(mockedSessionService.add(Mockito.any(SessionDetails.class))).thenReturn(new ServiceResult(null, NotificationType.SUCCESS, null));
+        this.sessionPool = new WsSessionPool(mockedSessionService, new TopicRegistry());
+    }
+
+    @Test
+    public void addSession_userSession_indexedByIdUserIdAndEmail() {
+        //Arrange
+        WSSocket session = this.createSession("session", this.createUser("user", "user@hawkcd.io"));
+
+        //Act
+        this.sessionPool.addSession(session);
+
+        //Assert
+        Assert.assertSame(session, this.sessionPool.getSessionByID("session"));
+        Assert.assertSame(session, this.sessionPool.getSessionByUserId("user"));
+        Assert.assertSame(session, this.sessionPool.getSessionByUserEmail("user@hawkcd.io"));
+        Assert.assertTrue(this.sessionPool.contains(session));
+        Assert.assertNull(this.sessionPool.getSessionByUserId("other"));
+    }
+
+    @Test
+    public void removeSession_replacedSessionOfSameUser_newerSessionKept() {
+        //Arrange
+        User user = this.createUser("user", "user@hawkcd.io");
+        WSSocket previousSession = this.createSession("previous", user);
+        WSSocket newerSession = this.createSession("newer", user);
+        this.sessionPool.addSession(previousSession);
+        this.sessionPool.addSession(newerSession);
+
+        //Act
+        this.sessionPool.removeSession(previousSession);
+
+        //Assert
+        Assert.assertNull(this.sessionPool.getSessionByID("previous"));
+        Assert.assertSame(newerSession, this.sessionPool.getSessionByUserId("user"));
+        Assert.assertSame(newerSession, this.sessionPool.getSessionByUserEmail("user@hawkcd.io"));
+        Assert.assertEquals(1, this.sessionPool.getSessions().size());
+    }
+
+    @Test
+    public void updateLoggedUser_emailChanged_reindexed() {
+        //Arrange
+        User user = this.createUser("user", "user@hawkcd.io");
+        WSSocket session = this.createSession("session", user);
+        this.sessionPool.addSession(session);
+        User updatedUser = this.createUser("user", "renamed@hawkcd.io");
+
+        //Act
+        this.sessionPool.updateLoggedUser(session, updatedUser);
+
+        //Assert
+        Mockito.verify(session).setLoggedUser(updatedUser);
+        Assert.assertNull(this.sessionPool.getSessionByUserEmail("user@hawkcd.io"));
+        Assert.assertSame(session, this.sessionPool.getSessionByUserEmail("renamed@hawkcd.io"));
+        Assert.assertSame(session, this.sessionPool.getSessionByUserId("user"));
+    }
+
+    private User createUser(String id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+
+        return user;
+    }
+
+    private WSSocket createSession(String id, User user) {
+        WSSocket session = Mockito.mock(WSSocket.class);
+        Mockito.when(session.getId()).thenReturn(id);
+        Mockito.when(session.getLoggedUser()).thenReturn(user);
+        Mockito.when(session.getSessionDetails()).thenReturn(Mockito.mock(SessionDetails.class));
+
+        return session;
+    }
+}
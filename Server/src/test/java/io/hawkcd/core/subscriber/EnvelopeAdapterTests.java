@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.core.subscriber;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class EnvelopeAdapterTests {
+    private Gson jsonConverter = new GsonBuilder()
+            .registerTypeAdapter(Envelope.class, new EnvelopeAdapter(Collections.singletonMap(String.class.getName(), String.class)))
+            .create();
+
+    @Test
+    public void deserialize_allowedType_objectDeserialized() {
+        //Act
+        Envelope envelope = this.jsonConverter.fromJson("{\"packageName\": \"java.lang.String\", \"object\": \"id\"}", Envelope.class);
+
+        //Assert
+        Assert.assertEquals("id", envelope.getObject());
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void deserialize_typeNotAllowed_rejected() {
+        //Act
+        this.jsonConverter.fromJson("{\"packageName\": \"java.lang.Thread\", \"object\": {}}", Envelope.class);
+    }
+
+    @Test
+    public void deserialize_emptyPackageName_emptyEnvelope() {
+        //Act
+        Envelope envelope = this.jsonConverter.fromJson("{\"packageName\": \"\", \"object\": \"\"}", Envelope.class);
+
+        //Assert
+        Assert.assertNull(envelope.getObject());
+    }
+}
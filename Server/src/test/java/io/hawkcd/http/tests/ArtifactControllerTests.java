@@ -1,9 +1,16 @@
 package io.hawkcd.http.tests;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import io.hawkcd.artifacts.ArtifactBundleCache;
+import io.hawkcd.artifacts.ArtifactIngestionQueue;
+import io.hawkcd.artifacts.ArtifactStore;
+import io.hawkcd.artifacts.UploadNegotiation;
 import io.hawkcd.core.config.Config;
 import io.hawkcd.utilities.deserializers.TaskDefinitionAdapter;
 import io.hawkcd.http.ArtifactController;
@@ -14,10 +21,23 @@ import org.junit.*;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 public class ArtifactControllerTests {
 
@@ -28,6 +48,8 @@ public class ArtifactControllerTests {
     public TemporaryFolder folder = new TemporaryFolder();
 
     private IFileManagementService mockedFileManagementService;
+    private ArtifactBundleCache bundleCache;
+    private ArtifactStore artifactStore;
     private File mockedFile;
     private List<File> mockedFileList;
 
@@ -42,7 +64,10 @@ public class ArtifactControllerTests {
     @Before
     public void setUp() {
         this.mockedFileManagementService = Mockito.mock(FileManagementService.class);
-        this.artifactController = new ArtifactController(this.mockedFileManagementService);
+        this.bundleCache = new ArtifactBundleCache(this.folder.getRoot().toPath().resolve("Bundles"), 1024 * 1024);
+        this.artifactStore = new ArtifactStore(this.folder.getRoot().toPath().resolve("Artifacts"), this.mockedFileManagementService);
+        ArtifactIngestionQueue ingestionQueue = new ArtifactIngestionQueue(this.artifactStore, this.bundleCache, MoreExecutors.directExecutor());
+        this.artifactController = new ArtifactController(this.mockedFileManagementService, this.bundleCache, this.artifactStore, ingestionQueue);
         this.mockedFile = new File("pathToFile");
         this.mockedFileList = new ArrayList<>();
 
@@ -68,7 +93,7 @@ public class ArtifactControllerTests {
 
         String expectedDirectory = "testFileDirectory";
 
-        Response actualResponse = this.artifactController.zipFile(expectedDirectory);
+        Response actualResponse = this.artifactController.zipFile(expectedDirectory, null, null, null);
 
         Assert.assertEquals(200, actualResponse.getStatus());
     }
@@ -80,7 +105,7 @@ public class ArtifactControllerTests {
 
         String expectedDirectory = "testFileDirectory";
 
-        Response actualResponse = this.artifactController.zipFile(expectedDirectory);
+        Response actualResponse = this.artifactController.zipFile(expectedDirectory, null, null, null);
 
         Assert.assertEquals(404, actualResponse.getStatus());
     }
@@ -94,25 +119,295 @@ public class ArtifactControllerTests {
 
         String expectedDirectory = "testFileDirectory";
 
-        Response actualResponse = this.artifactController.zipFile(expectedDirectory);
+        Response actualResponse = this.artifactController.zipFile(expectedDirectory, null, null, null);
 
         Assert.assertEquals(404, actualResponse.getStatus());
     }
 
     @Test
-    public void zipFile_zipFilesErrorMessage_statusBadRequest() {
+    public void zipFile_validData_archiveStreamed() throws IOException {
         //Arrange
         Mockito.when(this.mockedFileManagementService.getRootPath(Mockito.anyString())).thenReturn("rootPath");
         Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
         Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFileList);
-        Mockito.when(this.mockedFileManagementService.generateUniqueFile(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFile);
-        Mockito.when(this.mockedFileManagementService.zipFiles("pathToFile", this.mockedFileList, "rootPath", false)).thenReturn("errorMessage");
+        Mockito.when(this.mockedFileManagementService.streamZipFiles(Mockito.any(OutputStream.class), Mockito.eq(this.mockedFileList), Mockito.eq("rootPath"), Mockito.eq(false))).thenAnswer(invocation -> {
+            ((OutputStream) invocation.getArguments()[0]).write("archive".getBytes());
+            return null;
+        });
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
 
         String expectedDirectory = "testFileDirectory";
 
-        Response actualResponse = this.artifactController.zipFile(expectedDirectory);
+        Response actualResponse = this.artifactController.zipFile(expectedDirectory, null, null, null);
+        ((StreamingOutput) actualResponse.getEntity()).write(responseStream);
+        Response storedResponse = this.artifactController.zipFile(expectedDirectory, null, null, null);
+
+        Assert.assertEquals(200, actualResponse.getStatus());
+        Assert.assertEquals("archive", responseStream.toString());
+        Assert.assertNotNull(storedResponse.getHeaderString(HttpHeaders.ETAG));
+        Mockito.verify(this.mockedFileManagementService, Mockito.never()).generateUniqueFile(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void zipFile_repeatedFetch_compressedOnce() throws IOException {
+        //Arrange
+        Mockito.when(this.mockedFileManagementService.getRootPath(Mockito.anyString())).thenReturn("rootPath");
+        Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
+        Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFileList);
+
+        String expectedDirectory = "testPipeline/1/testSource";
+
+        ((StreamingOutput) this.artifactController.zipFile(expectedDirectory, null, null, null).getEntity()).write(new ByteArrayOutputStream());
+        Response actualResponse = this.artifactController.zipFile(expectedDirectory, null, null, null);
+
+        Assert.assertEquals(200, actualResponse.getStatus());
+        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).getFiles(Mockito.anyString(), Mockito.anyString());
+        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).streamZipFiles(Mockito.any(OutputStream.class), Mockito.eq(this.mockedFileList), Mockito.eq("rootPath"), Mockito.eq(false));
+    }
+
+    @Test
+    public void zipFile_matchingETag_statusNotModified() throws IOException {
+        //Arrange
+        Mockito.when(this.mockedFileManagementService.getRootPath(Mockito.anyString())).thenReturn("rootPath");
+        Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
+        Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFileList);
+
+        String expectedDirectory = "testFileDirectory";
+
+        ((StreamingOutput) this.artifactController.zipFile(expectedDirectory, null, null, null).getEntity()).write(new ByteArrayOutputStream());
+        String eTag = this.artifactController.zipFile(expectedDirectory, null, null, null).getHeaderString(HttpHeaders.ETAG);
+        Response actualResponse = this.artifactController.zipFile(expectedDirectory, eTag, null, null);
+
+        Assert.assertEquals(304, actualResponse.getStatus());
+    }
+
+    @Test
+    public void zipFile_uploadToExecution_bundleRebuilt() throws IOException {
+        //Arrange
+        Mockito.when(this.mockedFileManagementService.getRootPath(Mockito.anyString())).thenReturn("rootPath");
+        Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
+        Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFileList);
+
+        String expectedDirectory = "testPipeline/1/testSource";
+
+        ((StreamingOutput) this.artifactController.zipFile(expectedDirectory, null, null, null).getEntity()).write(new ByteArrayOutputStream());
+        this.artifactController.unzipFile("testPipeline", "1", "", null, new ByteArrayInputStream(this.createArchive("testSource/app.jar", "jar")));
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+        ((StreamingOutput) this.artifactController.zipFile(expectedDirectory, null, null, null).getEntity()).write(responseStream);
+
+        ZipInputStream archive = new ZipInputStream(new ByteArrayInputStream(responseStream.toByteArray()));
+        Assert.assertEquals("app.jar", archive.getNextEntry().getName());
+        Mockito.verify(this.mockedFileManagementService, Mockito.times(1)).streamZipFiles(Mockito.any(OutputStream.class), Mockito.eq(this.mockedFileList), Mockito.eq("rootPath"), Mockito.eq(false));
+    }
+
+    @Test
+    public void zipFile_zipFilesErrorMessage_statusInternalServerError() {
+        //Arrange
+        Mockito.when(this.mockedFileManagementService.getRootPath(Mockito.anyString())).thenReturn("rootPath");
+        Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
+        Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFileList);
+        Mockito.when(this.mockedFileManagementService.streamZipFiles(Mockito.any(OutputStream.class), Mockito.eq(this.mockedFileList), Mockito.eq("rootPath"), Mockito.eq(false))).thenReturn("errorMessage");
+
+        String expectedDirectory = "testFileDirectory";
+
+        Response actualResponse = this.artifactController.zipFile(expectedDirectory, null, "bytes=0-", null);
+
+        Assert.assertEquals(500, actualResponse.getStatus());
+    }
+
+    @Test(expected = IOException.class)
+    public void zipFile_zipFilesErrorMessageWhileStreaming_responseAborted() throws IOException {
+        //Arrange
+        Mockito.when(this.mockedFileManagementService.getRootPath(Mockito.anyString())).thenReturn("rootPath");
+        Mockito.when(this.mockedFileManagementService.getPattern(Mockito.anyString(), Mockito.anyString())).thenReturn("");
+        Mockito.when(this.mockedFileManagementService.getFiles(Mockito.anyString(), Mockito.anyString())).thenReturn(this.mockedFileList);
+        Mockito.when(this.mockedFileManagementService.streamZipFiles(Mockito.any(OutputStream.class), Mockito.eq(this.mockedFileList), Mockito.eq("rootPath"), Mockito.eq(false))).thenReturn("errorMessage");
+
+        String expectedDirectory = "testFileDirectory";
+
+        Response actualResponse = this.artifactController.zipFile(expectedDirectory, null, null, null);
+        ((StreamingOutput) actualResponse.getEntity()).write(new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void unzipFile_validArchive_statusAccepted() throws IOException {
+        //Arrange
+        InputStream uploadedStream = new ByteArrayInputStream(this.createArchive("build/app.jar", "jar"));
+
+        Response actualResponse = this.artifactController.unzipFile("testPipeline", "1", "testDestination", null, uploadedStream);
+
+        Assert.assertEquals(202, actualResponse.getStatus());
+        Assert.assertNotNull(this.artifactStore.getManifest("testPipeline", "1").getEntries().get("testDestination/build/app.jar"));
+    }
+
+    @Test
+    public void unzipFile_notAnArchive_nothingStored() {
+        //Arrange
+        InputStream uploadedStream = new ByteArrayInputStream("not an archive".getBytes());
+
+        Response actualResponse = this.artifactController.unzipFile("testPipeline", "1", "testDestination", null, uploadedStream);
+
+        Assert.assertEquals(500, actualResponse.getStatus());
+        Assert.assertNull(this.artifactStore.getManifest("testPipeline", "1"));
+    }
+
+    @Test
+    public void unzipFile_uploadInterrupted_statusInternalServerError() {
+        //Arrange
+        InputStream uploadedStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+
+        Response actualResponse = this.artifactController.unzipFile("testPipeline", "1", "testDestination", null, uploadedStream);
+
+        Assert.assertEquals(500, actualResponse.getStatus());
+    }
+
+    @Test
+    public void zipFile_storedExecution_archiveServedFromManifest() throws IOException {
+        //Arrange
+        this.artifactController.unzipFile("testPipeline", "1", "", null, new ByteArrayInputStream(this.createArchive("build/app.jar", "jar")));
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+
+        Response actualResponse = this.artifactController.zipFile("testPipeline/1/build", null, null, null);
+        ((StreamingOutput) actualResponse.getEntity()).write(responseStream);
+
+        Assert.assertEquals(200, actualResponse.getStatus());
+        ZipInputStream archive = new ZipInputStream(new ByteArrayInputStream(responseStream.toByteArray()));
+        Assert.assertEquals("app.jar", archive.getNextEntry().getName());
+        Mockito.verify(this.mockedFileManagementService, Mockito.never()).getFiles(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void zipFile_bundleInvalidatedWhileSent_archiveComplete() throws IOException {
+        //Arrange
+        this.artifactController.unzipFile("testPipeline", "1", "", null, new ByteArrayInputStream(this.createArchive("build/app.jar", "jar")));
+        ByteArrayOutputStream firstStream = new ByteArrayOutputStream();
+        ((StreamingOutput) this.artifactController.zipFile("testPipeline/1/build", null, null, null).getEntity()).write(firstStream);
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+
+        Response actualResponse = this.artifactController.zipFile("testPipeline/1/build", null, null, null);
+        this.bundleCache.invalidate("testPipeline", "1");
+        ((StreamingOutput) actualResponse.getEntity()).write(responseStream);
+
+        Assert.assertNotNull(actualResponse.getHeaderString(HttpHeaders.ETAG));
+        Assert.assertArrayEquals(firstStream.toByteArray(), responseStream.toByteArray());
+        Assert.assertEquals(0, this.bundleCache.size());
+    }
+
+    @Test
+    public void getArtifact_storedExecution_blobReturned() throws IOException {
+        //Arrange
+        this.artifactController.unzipFile("testPipeline", "1", "", null, new ByteArrayInputStream(this.createArchive("build/app.jar", "jar")));
+        Mockito.when(this.mockedFileManagementService.normalizePath("build/app.jar")).thenReturn("build/app.jar");
+
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+
+        Response actualResponse = this.artifactController.getArtifact("testPipeline", "1", "build/app.jar", null, null);
+        ((StreamingOutput) actualResponse.getEntity()).write(responseStream);
+
+        Assert.assertEquals(200, actualResponse.getStatus());
+        Assert.assertEquals("jar", responseStream.toString());
+        Assert.assertEquals("sha-256=" + BaseEncoding.base64().encode(Hashing.sha256().hashString("jar", StandardCharsets.UTF_8).asBytes()), actualResponse.getHeaderString("Digest"));
+    }
+
+    @Test
+    public void getArtifact_rangeRequested_remainderSent() throws IOException {
+        //Arrange
+        this.artifactController.unzipFile("testPipeline", "1", "", null, new ByteArrayInputStream(this.createArchive("build/app.jar", "jar")));
+        Mockito.when(this.mockedFileManagementService.normalizePath("build/app.jar")).thenReturn("build/app.jar");
+        String eTag = this.artifactController.getArtifact("testPipeline", "1", "build/app.jar", null, null).getHeaderString(HttpHeaders.ETAG);
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+
+        Response actualResponse = this.artifactController.getArtifact("testPipeline", "1", "build/app.jar", "bytes=1-", eTag);
+        ((StreamingOutput) actualResponse.getEntity()).write(responseStream);
+
+        Assert.assertEquals(206, actualResponse.getStatus());
+        Assert.assertEquals("bytes 1-2/3", actualResponse.getHeaderString("Content-Range"));
+        Assert.assertEquals("ar", responseStream.toString());
+    }
+
+    @Test
+    public void getArtifact_ifRangeChanged_wholeFileSent() throws IOException {
+        //Arrange
+        this.artifactController.unzipFile("testPipeline", "1", "", null, new ByteArrayInputStream(this.createArchive("build/app.jar", "jar")));
+        Mockito.when(this.mockedFileManagementService.normalizePath("build/app.jar")).thenReturn("build/app.jar");
+
+        Response actualResponse = this.artifactController.getArtifact("testPipeline", "1", "build/app.jar", "bytes=1-", "\"changed\"");
+
+        Assert.assertEquals(200, actualResponse.getStatus());
+        Assert.assertEquals("3", actualResponse.getHeaderString(HttpHeaders.CONTENT_LENGTH));
+    }
+
+    @Test
+    public void zipFile_rangeBeyondArchive_statusRangeNotSatisfiable() throws IOException {
+        //Arrange
+        this.artifactController.unzipFile("testPipeline", "1", "", null, new ByteArrayInputStream(this.createArchive("build/app.jar", "jar")));
+
+        Response actualResponse = this.artifactController.zipFile("testPipeline/1/build", null, "bytes=1000000-", null);
+
+        Assert.assertEquals(416, actualResponse.getStatus());
+    }
+
+    @Test
+    public void negotiateUpload_storedContents_onlyMissingRequested() throws IOException {
+        //Arrange
+        this.artifactController.unzipFile("testPipeline", "1", "", null, new ByteArrayInputStream(this.createArchive("build/app.jar", "jar")));
+        String storedHash = this.artifactStore.getManifest("testPipeline", "1").getEntries().get("build/app.jar").getHash();
+        String missingHash = "0000000000000000000000000000000000000000000000000000000000000000";
+        String manifest = String.format("[{\"path\":\"build/app.jar\",\"hash\":\"%s\",\"size\":3},{\"path\":\"build/new.jar\",\"hash\":\"%s\",\"size\":3}]", storedHash, missingHash);
+
+        Response actualResponse = this.artifactController.negotiateUpload("testPipeline", "2", "", manifest);
+
+        Assert.assertEquals(200, actualResponse.getStatus());
+        UploadNegotiation negotiation = this.jsonConverter.fromJson((String) actualResponse.getEntity(), UploadNegotiation.class);
+        Assert.assertEquals(Collections.singletonList(missingHash), negotiation.getMissingHashes());
+    }
+
+    @Test
+    public void unzipFile_negotiatedUpload_treeAssembledFromStoredContents() throws IOException {
+        //Arrange
+        this.artifactController.unzipFile("testPipeline", "1", "", null, new ByteArrayInputStream(this.createArchive("build/app.jar", "jar")));
+        String storedHash = this.artifactStore.getManifest("testPipeline", "1").getEntries().get("build/app.jar").getHash();
+        byte[] changedArchive = this.createArchive("build/new.jar", "new");
+        String changedHash = BaseEncoding.base16().lowerCase().encode(Hashing.sha256().hashBytes("new".getBytes()).asBytes());
+        String manifest = String.format("[{\"path\":\"build/app.jar\",\"hash\":\"%s\",\"size\":3},{\"path\":\"build/new.jar\",\"hash\":\"%s\",\"size\":3}]", storedHash, changedHash);
+        String uploadId = this.jsonConverter.fromJson((String) this.artifactController.negotiateUpload("testPipeline", "2", "", manifest).getEntity(), UploadNegotiation.class).getUploadId();
+
+        Response actualResponse = this.artifactController.unzipFile("testPipeline", "2", "", uploadId, new ByteArrayInputStream(changedArchive));
+
+        Assert.assertEquals(202, actualResponse.getStatus());
+        Assert.assertEquals("[build/app.jar, build/new.jar]", this.artifactStore.getManifest("testPipeline", "2").getEntries().keySet().toString());
+        Assert.assertEquals(2, this.artifactStore.getReferenceCount(storedHash));
+    }
+
+    @Test
+    public void unzipFile_negotiatedContentsReleased_statusInternalServerError() throws IOException {
+        //Arrange
+        this.artifactController.unzipFile("testPipeline", "1", "", null, new ByteArrayInputStream(this.createArchive("build/app.jar", "jar")));
+        String storedHash = this.artifactStore.getManifest("testPipeline", "1").getEntries().get("build/app.jar").getHash();
+        String manifest = String.format("[{\"path\":\"build/app.jar\",\"hash\":\"%s\",\"size\":3}]", storedHash);
+        String uploadId = this.jsonConverter.fromJson((String) this.artifactController.negotiateUpload("testPipeline", "2", "", manifest).getEntity(), UploadNegotiation.class).getUploadId();
+        this.artifactStore.release("testPipeline", "1");
+
+        Response actualResponse = this.artifactController.unzipFile("testPipeline", "2", "", uploadId, new ByteArrayInputStream(new byte[0]));
+
+        Assert.assertEquals(500, actualResponse.getStatus());
+        Assert.assertNull(this.artifactStore.getManifest("testPipeline", "2"));
+    }
+
+    private byte[] createArchive(String entryName, String contents) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zipStream = new ZipOutputStream(archive)) {
+            zipStream.putNextEntry(new ZipEntry(entryName));
+            zipStream.write(contents.getBytes());
+            zipStream.closeEntry();
+        }
 
-        Assert.assertEquals(400, actualResponse.getStatus());
+        return archive.toByteArray();
     }
 
 //    @Test
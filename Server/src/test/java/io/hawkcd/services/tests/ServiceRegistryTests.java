@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.hawkcd.services.tests;
+
+import io.hawkcd.services.ServiceRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServiceRegistryTests {
+
+    @Test
+    public void get_sameType_sameInstance() {
+        //Act
+        DependentService first = ServiceRegistry.get(DependentService.class);
+        DependentService second = ServiceRegistry.get(DependentService.class);
+
+        //Assert
+        Assert.assertSame(first, second);
+        Assert.assertSame(ServiceRegistry.get(SharedService.class), first.getSharedService());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void get_serviceDependingOnItself_exceptionThrown() {
+        //Act
+        ServiceRegistry.get(CyclicService.class);
+    }
+
+    public static class SharedService {
+    }
+
+    public static class DependentService {
+        private SharedService sharedService;
+
+        public DependentService() {
+            this.sharedService = ServiceRegistry.get(SharedService.class);
+        }
+
+        public SharedService getSharedService() {
+            return this.sharedService;
+        }
+    }
+
+    public static class CyclicService {
+        public CyclicService() {
+            ServiceRegistry.get(CyclicService.class);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package io.hawkcd.ws;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class WsRequestQueueTests {
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        this.executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void submit_manyRequests_runInOrderOfSession() throws InterruptedException {
+        //Arrange
+        WsRequestExecutor requestExecutor = new WsRequestExecutor(this.executor, 1000, 1000);
+        WsRequestQueue requestQueue = requestExecutor.createQueue();
+        List<Integer> executedRequests = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch executed = new CountDownLatch(500);
+
+        //Act
+        for (int i = 0; i < 500; i++) {
+            int request = i;
+            requestQueue.submit(() -> {
+                executedRequests.add(request);
+                executed.countDown();
+            });
+        }
+
+        //Assert
+        Assert.assertTrue(executed.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 500; i++) {
+            Assert.assertEquals(i, (int) executedRequests.get(i));
+        }
+    }
+
+    @Test
+    public void submit_blockedSession_otherSessionsRun() throws InterruptedException {
+        //Arrange
+        WsRequestExecutor requestExecutor = new WsRequestExecutor(this.executor, 1000, 1000);
+        WsRequestQueue blockedQueue = requestExecutor.createQueue();
+        WsRequestQueue otherQueue = requestExecutor.createQueue();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch executed = new CountDownLatch(1);
+        blockedQueue.submit(() -> this.await(release));
+
+        //Act
+        blockedQueue.submit(executed::countDown);
+        otherQueue.submit(executed::countDown);
+
+        //Assert
+        Assert.assertTrue(executed.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, blockedQueue.size());
+        release.countDown();
+    }
+
+    @Test
+    public void submit_requestThrowsError_nextRequestRun() throws InterruptedException {
+        //Arrange
+        WsRequestExecutor requestExecutor = new WsRequestExecutor(this.executor, 1000, 1000);
+        WsRequestQueue requestQueue = requestExecutor.createQueue();
+        CountDownLatch executed = new CountDownLatch(1);
+
+        //Act
+        requestQueue.submit(() -> {
+            throw new Error("Request failed");
+        });
+        requestQueue.submit(executed::countDown);
+
+        //Assert
+        Assert.assertTrue(executed.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, requestQueue.size());
+    }
+
+    @Test
+    public void submit_sessionCapacityReached_rejected() {
+        //Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WsRequestExecutor requestExecutor = new WsRequestExecutor(this.executor, 1000, 2);
+        WsRequestQueue requestQueue = requestExecutor.createQueue();
+        requestQueue.submit(() -> {
+            started.countDown();
+            this.await(release);
+        });
+        this.await(started);
+        requestQueue.submit(() -> {});
+        requestQueue.submit(() -> {});
+
+        //Act
+        boolean isAccepted = requestQueue.submit(() -> {});
+
+        //Assert
+        Assert.assertFalse(isAccepted);
+        Assert.assertTrue(requestExecutor.createQueue().submit(() -> {}));
+        release.countDown();
+    }
+
+    @Test
+    public void submit_serverCapacityReached_rejected() {
+        //Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        WsRequestExecutor requestExecutor = new WsRequestExecutor(this.executor, 2, 10);
+        requestExecutor.createQueue().submit(() -> this.await(release));
+        requestExecutor.createQueue().submit(() -> this.await(release));
+
+        //Act
+        boolean isAccepted = requestExecutor.createQueue().submit(() -> {});
+
+        //Assert
+        Assert.assertFalse(isAccepted);
+        Assert.assertEquals(2, requestExecutor.getPendingRequests());
+        release.countDown();
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -118,6 +118,7 @@ angular
                         currentPipeline.duration = pipeline.duration;
                         currentPipeline.triggerReason = pipeline.triggerReason;
                         currentPipeline.artifactsFileStructure = pipeline.artifactsFileStructure;
+                        currentPipeline.hasArtifacts = pipeline.hasArtifacts;
                         pipeline.stages.forEach(function (currentStage, stageIndex, stageArray) {
                             if(currentStage.endTime) {
                                 currentPipeline.lastStage = currentStage;
@@ -158,5 +159,64 @@ angular
             });
         };
 
+        // Latest raw state of every pipeline run received as a delta, keyed by id: { version, pipeline }
+        var pipelineRevisions = {};
+
+        pipelineUpdater.applyPipelineDelta = function (delta) {
+            var revision = pipelineRevisions[delta.pipelineId];
+            if (delta.pipeline) {
+                revision = { version: delta.version, pipeline: delta.pipeline };
+            } else if (revision && revision.version === delta.baseVersion) {
+                revision.pipeline = applyPatch(revision.pipeline, delta.patch);
+                revision.version = delta.version;
+            } else {
+                // The server sends a snapshot to sessions it has not sent the base version to, so this only follows a lost frame
+                loggerService.log('Pipeline patch ' + delta.version + ' skipped, its base version ' + delta.baseVersion + ' was not received');
+                return;
+            }
+            pipelineRevisions[delta.pipelineId] = revision;
+
+            // The view model keeps references into the pipeline and modifies it, so it gets its own copy
+            var pipeline = angular.copy(revision.pipeline);
+            pipeline.permissionType = delta.permissionType;
+            pipelineUpdater.updatePipeline(pipeline);
+        };
+
+        var applyPatch = function (document, patch) {
+            patch.forEach(function (operation) {
+                var keys = operation.path.split('/').slice(1).map(function (key) {
+                    return key.replace(/~1/g, '/').replace(/~0/g, '~');
+                });
+                if (keys.length === 0) {
+                    document = operation.value;
+                    return;
+                }
+
+                var parent = document;
+                for (var i = 0; i < keys.length - 1; i++) {
+                    parent = parent[keys[i]];
+                }
+                var key = keys[keys.length - 1];
+                if (operation.op === 'append') {
+                    // Only the text after the kept prefix is sent, the report of a running job grows this way
+                    parent[key] = parent[key].substring(0, operation.offset) + operation.value;
+                } else if (Array.isArray(parent)) {
+                    if (operation.op === 'add') {
+                        parent.splice(key === '-' ? parent.length : parseInt(key, 10), 0, operation.value);
+                    } else if (operation.op === 'remove') {
+                        parent.splice(parseInt(key, 10), 1);
+                    } else {
+                        parent[parseInt(key, 10)] = operation.value;
+                    }
+                } else if (operation.op === 'remove') {
+                    delete parent[key];
+                } else {
+                    parent[key] = operation.value;
+                }
+            });
+
+            return document;
+        };
+
         return pipelineUpdater;
     }]);
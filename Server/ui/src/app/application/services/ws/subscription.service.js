@@ -0,0 +1,121 @@
+/* Copyright (C) 2016 R&D Solutions Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+'use strict';
+
+angular
+    .module('hawk.pipelinesManagement')
+    .factory('subscriptionService', ['$rootScope', '$state', 'websocketSenderService', 'jsonHandlerService', 'viewModelUpdater', 'agentService', 'pipeConfigService', function ($rootScope, $state, websocketSenderService, jsonHandlerService, viewModelUpdater, agentService, pipeConfigService) {
+        var subscriptionService = this;
+
+        // Topics of the updates the current page displays; the server sends everything until the first subscription
+        var currentTopics = [];
+        var isSubscribed = false;
+
+        var topicsByState = {
+            'index.pipelines': function () {
+                return ['pipelines'];
+            },
+            'index.artifact': function () {
+                return ['pipelines'];
+            },
+            'index.agents': function () {
+                return ['agents'];
+            },
+            'index.pipelineHistory': function (params) {
+                return ['pipeline-definition:' + params.pipelineId];
+            },
+            'index.pipelineRunManagement': function (params) {
+                return ['pipeline:' + params.pipelineId];
+            }
+        };
+
+        // Collections loaded once at login and kept current only by the updates of their topic, so they are loaded
+        // again when their topic comes back after the pages in between did not receive its updates
+        var reloadByTopic = {
+            'agents': function () {
+                agentService.getAllAgents();
+            },
+            'pipelines': function () {
+                pipeConfigService.getAllPipelineGroupDTOs();
+            }
+        };
+
+        subscriptionService.getTopics = function (stateName, params) {
+            for (var name in topicsByState) {
+                if (stateName === name || stateName.indexOf(name + '.') === 0) {
+                    return topicsByState[name](params);
+                }
+            }
+
+            return [];
+        };
+
+        subscriptionService.setTopics = function (topics) {
+            var removedTopics = currentTopics.filter(function (topic) {
+                return topics.indexOf(topic) === -1;
+            });
+            var addedTopics = topics.filter(function (topic) {
+                return currentTopics.indexOf(topic) === -1;
+            });
+            currentTopics = topics;
+
+            if (removedTopics.length > 0) {
+                send('unsubscribe', removedTopics);
+            }
+            send('subscribe', addedTopics);
+
+            // Until the first subscription the server sent everything, nothing was missed
+            if (isSubscribed) {
+                addedTopics.forEach(function (topic) {
+                    if (reloadByTopic[topic]) {
+                        reloadByTopic[topic]();
+                    }
+                });
+            }
+            isSubscribed = true;
+        };
+
+        // A reconnected socket is a new session on the server, which has to be told the topics again
+        subscriptionService.resubscribe = function () {
+            send('subscribe', currentTopics);
+        };
+
+        // The server dropped the updates this client could not keep up with, so the displayed data is loaded again
+        subscriptionService.resync = function () {
+            viewModelUpdater.refreshViewModel();
+            $state.reload();
+        };
+
+        var send = function (methodName, topics) {
+            // Before the socket is created the topics are sent by resubscribe once it opens
+            if (!$rootScope.socket) {
+                return;
+            }
+
+            var className = "SubscriptionService";
+            var packageName = "io.hawkcd.core.session";
+            var result = "";
+            var args = topics.map(function (topic) {
+                return "{\"packageName\": \"java.lang.String\", \"object\": \"" + topic + "\"}";
+            });
+            var error = "";
+            var json = jsonHandlerService.createJson(className, packageName, methodName, result, error, args);
+            websocketSenderService.call(json);
+        };
+
+        return subscriptionService;
+    }]);
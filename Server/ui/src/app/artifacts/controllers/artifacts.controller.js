@@ -102,16 +102,68 @@ angular
 
         vm.loadJsTree = function (index, event) {
             if(event.currentTarget.attributes['aria-expanded'].nodeValue == 'false'){
-                if(vm.allPipelineRuns()[index].artifactsFileStructure[0]){
-                    $('#jstree' + index).jstree(true).settings.core.data = angular.copy(vm.allPipelineRuns()[index].artifactsFileStructure[0].children);
+                var pipelineRun = vm.allPipelineRuns()[index];
+                if(pipelineRun.artifactsFileStructure && pipelineRun.artifactsFileStructure[0]){
+                    $('#jstree' + index).jstree(true).settings.core.data = angular.copy(pipelineRun.artifactsFileStructure[0].children);
+                    $('#jstree' + index).jstree(true).refresh();
+                } else if(pipelineRun.hasArtifacts){
+                    $('#jstree' + index).jstree(true).settings.core.data = function (node, callback) {
+                        var path = node.id === '#' ? '' : node.id;
+                        artifactService.getFolder(pipelineRun.pipelineDefinitionName, pipelineRun.executionId, path, 0).then(function (page) {
+                            callback.call(this, vm.toTreeNodes(pipelineRun, page));
+                        }, function (error) {
+                            $log.error('treeCtrl: error loading artifacts - ' + angular.toJson(error));
+                            callback.call(this, []);
+                        });
+                    };
                     $('#jstree' + index).jstree(true).refresh();
                 }
             }
         };
 
+        // Large folders are shown a page at a time, the last node loads the next page when it is selected
+        vm.toTreeNodes = function (pipelineRun, page) {
+            var nodes = page.nodes;
+            var nextOffset = page.offset + page.nodes.length;
+            if (page.nodes.length > 0 && nextOffset < page.total) {
+                nodes = nodes.concat([{
+                    id: 'more:' + page.path,
+                    text: 'Show more (' + (page.total - nextOffset) + ' remaining)',
+                    type: 'more',
+                    children: false,
+                    pipelineRun: pipelineRun,
+                    folderPath: page.path,
+                    offset: nextOffset
+                }]);
+            }
+
+            return nodes;
+        };
+
+        vm.loadMore = function (tree, moreNode) {
+            var more = moreNode.original;
+            if (more.isLoading) {
+                return;
+            }
+            more.isLoading = true;
+
+            artifactService.getFolder(more.pipelineRun.pipelineDefinitionName, more.pipelineRun.executionId, more.folderPath, more.offset).then(function (page) {
+                var parent = tree.get_parent(moreNode);
+                tree.delete_node(moreNode);
+                vm.toTreeNodes(more.pipelineRun, page).forEach(function (node) {
+                    tree.create_node(parent, node, 'last');
+                });
+            }, function (error) {
+                more.isLoading = false;
+                $log.error('treeCtrl: error loading artifacts - ' + angular.toJson(error));
+            });
+        };
+
         $scope.treeEventsObj = function (e, data) {
             var selectedNode = data.node.original;
-            if(selectedNode.type != 'folder'){
+            if(selectedNode.type == 'more'){
+                vm.loadMore(data.instance, data.node);
+            } else if(selectedNode.type != 'folder'){
                 artifactService.getFile(selectedNode.path + '/' + selectedNode.text);
             }
         };
@@ -129,6 +181,9 @@ angular
                 },
                 file : {
                     icon : "fa fa-file-text-o"
+                },
+                more : {
+                    icon : "fa fa-ellipsis-h"
                 }
             },
             plugins : ['types']
@@ -17,16 +17,38 @@
 
 angular
     .module('hawk.artifactManagement')
-    .factory('artifactService', ['CONSTANTS', 'websocketSenderService', 'jsonHandlerService', function(CONSTANTS, websocketSenderService, jsonHandlerService) {
+    .factory('artifactService', ['$http', '$q', 'CONSTANTS', 'websocketSenderService', 'jsonHandlerService', function($http, $q, CONSTANTS, websocketSenderService, jsonHandlerService) {
         var artifactService = this;
         artifactService.artifactCriteria = '';
 
         var fileEndpoint = CONSTANTS.SERVER_URL + '/';
 
+        var treeEndpoint = CONSTANTS.SERVER_URL + '/artifact-trees/';
+
         artifactService.getFile = function (filePath) {
             window.location.replace(fileEndpoint + filePath);
         };
 
+        // Loads one page of the direct children of a folder when it is expanded in the artifact tree
+        artifactService.getFolder = function (pipelineName, executionId, path, offset) {
+            var defer = $q.defer();
+
+            $http.get(treeEndpoint + encodeURIComponent(pipelineName) + '/' + executionId, {
+                    params: {
+                        path: path,
+                        offset: offset
+                    }
+                })
+                .success(function (res) {
+                    defer.resolve(res);
+                })
+                .error(function (err, status) {
+                    defer.reject(err);
+                });
+
+            return defer.promise;
+        };
+
         //TODO: Send the search criteria, the number of Pipelines to be shown and the last Pipeline the UI has displayed
         artifactService.getAllArtifactPipelines = function (searchCriteria, numberOfPipelines, skip, pipelineId) {
             var methodName = "getAllPipelineArtifactDTOs";
@@ -182,11 +182,15 @@ angular
 ])
 
 /* Init global settings and run the app */
-.run(["$rootScope", "settings", "$state", "websocketReceiverService", "agentService", "loggerService", "adminGroupService", "adminService", "adminMaterialService", "pipeConfigService", "pipeExecService", "authenticationService", "toaster", "$auth", "$location", "CONSTANTS", "notificationService", function($rootScope, settings, $state, websocketReceiverService, agentService, loggerService, adminGroupService, adminService, adminMaterialService, pipeConfigService, pipeExecService, authenticationService, toaster, $auth, $location, CONSTANTS, notificationService) {
+.run(["$rootScope", "settings", "$state", "websocketReceiverService", "agentService", "loggerService", "adminGroupService", "adminService", "adminMaterialService", "pipeConfigService", "pipeExecService", "authenticationService", "toaster", "$auth", "$location", "CONSTANTS", "notificationService", "subscriptionService", function($rootScope, settings, $state, websocketReceiverService, agentService, loggerService, adminGroupService, adminService, adminMaterialService, pipeConfigService, pipeExecService, authenticationService, toaster, $auth, $location, CONSTANTS, notificationService, subscriptionService) {
     $rootScope.$state = $state; // state to be accessed from view
     $rootScope.$settings = settings; // state to be accessed from view
     $rootScope.$on('$stateChange');
 
+    $rootScope.$on('$stateChangeSuccess', function(event, toState, toParams) {
+        subscriptionService.setTopics(subscriptionService.getTopics(toState.name, toParams));
+    });
+
     $rootScope.$on("$locationChangeSuccess", function(event, newUrl, oldUrl) {
         $rootScope.localStorageDebug = localStorage.getItem('hawkDebug');
 
@@ -219,6 +223,7 @@ angular
         };
 
         $rootScope.socket.onopen = function(event) {
+            subscriptionService.resubscribe();
             toaster.clear();
             notificationService.notificationDispatcher[CONSTANTS.TOAST_SUCCESS]("Connection to server successful!");
             if (window.timerID) {